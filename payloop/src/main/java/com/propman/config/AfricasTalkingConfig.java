@@ -4,8 +4,10 @@ import com.africastalking.AfricasTalking;
 import com.africastalking.SmsService;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Lazy;
 
 @Configuration
 @Slf4j
@@ -20,7 +22,12 @@ public class AfricasTalkingConfig {
     @Value("${africas.talking.environment:sandbox}")
     private String environment;
 
+    /**
+     * Lazy so that the SDK is only initialized on the first send rather than during startup
+     */
     @Bean
+    @Lazy
+    @ConditionalOnProperty(name = "sms.gateway.africastalking.client", havingValue = "sdk", matchIfMissing = true)
     public SmsService smsService() {
         try {
             // Initialize Africa's Talking
@@ -0,0 +1,74 @@
+package com.propman.config;
+
+import io.micrometer.observation.ObservationRegistry;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableAsync;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.web.servlet.config.annotation.AsyncSupportConfigurer;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+@Configuration
+@EnableAsync
+@RequiredArgsConstructor
+public class AsyncConfig implements WebMvcConfigurer {
+
+    private final ObservationRegistry observationRegistry;
+
+    @Value("${sms.async.pool.size:4}")
+    private int poolSize;
+
+    @Value("${sms.async.queue.capacity:100}")
+    private int queueCapacity;
+
+    @Value("${web.async.pool.size:4}")
+    private int webPoolSize;
+
+    @Value("${web.async.queue.capacity:50}")
+    private int webQueueCapacity;
+
+    // Streamed responses such as log exports can run for minutes
+    @Value("${web.async.timeout.ms:1800000}")
+    private long webTimeoutMs;
+
+    /**
+     * Executor for long-running SMS jobs such as campaigns, so they do not
+     * hold request threads
+     */
+    @Bean
+    public ThreadPoolTaskExecutor smsTaskExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(poolSize);
+        executor.setMaxPoolSize(poolSize);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix("sms-task-");
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.setTaskDecorator(new ObservationTaskDecorator(observationRegistry));
+        executor.initialize();
+        return executor;
+    }
+
+    /**
+     * Executor for streamed responses, so they run on a bounded pool instead
+     * of a new thread per request
+     */
+    @Bean
+    public ThreadPoolTaskExecutor webTaskExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(webPoolSize);
+        executor.setMaxPoolSize(webPoolSize);
+        executor.setQueueCapacity(webQueueCapacity);
+        executor.setThreadNamePrefix("web-async-");
+        executor.setTaskDecorator(new ObservationTaskDecorator(observationRegistry));
+        executor.initialize();
+        return executor;
+    }
+
+    @Override
+    public void configureAsyncSupport(AsyncSupportConfigurer configurer) {
+        configurer.setTaskExecutor(webTaskExecutor());
+        configurer.setDefaultTimeout(webTimeoutMs);
+    }
+}
@@ -0,0 +1,31 @@
+package com.propman.config;
+
+import io.micrometer.observation.Observation;
+import io.micrometer.observation.ObservationRegistry;
+import org.springframework.core.task.TaskDecorator;
+
+/**
+ * Runs a task inside the observation that was current when it was
+ * submitted, so spans started on the executor thread join the caller's trace
+ */
+public class ObservationTaskDecorator implements TaskDecorator {
+
+    private final ObservationRegistry observationRegistry;
+
+    public ObservationTaskDecorator(ObservationRegistry observationRegistry) {
+        this.observationRegistry = observationRegistry;
+    }
+
+    @Override
+    public Runnable decorate(Runnable runnable) {
+        Observation current = observationRegistry.getCurrentObservation();
+        if (current == null) {
+            return runnable;
+        }
+        return () -> {
+            try (Observation.Scope scope = current.openScope()) {
+                runnable.run();
+            }
+        };
+    }
+}
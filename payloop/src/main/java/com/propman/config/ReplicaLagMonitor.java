@@ -0,0 +1,65 @@
+package com.propman.config;
+
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+
+import javax.sql.DataSource;
+import java.util.Map;
+
+/**
+ * Measures replica lag with a heartbeat row. Each check writes the current
+ * time to replica_heartbeat on the primary and reads it back from every
+ * replica; a replica is used for reads only while its copy is at most
+ * maxLagMillis old. Works with any engine and needs no replication
+ * privileges.
+ */
+@Slf4j
+public class ReplicaLagMonitor {
+
+    private final ReplicaRoutingDataSource routingDataSource;
+    private final long maxLagMillis;
+
+    public ReplicaLagMonitor(ReplicaRoutingDataSource routingDataSource, long maxLagMillis) {
+        this.routingDataSource = routingDataSource;
+        this.maxLagMillis = maxLagMillis;
+    }
+
+    @PostConstruct
+    public void init() {
+        new JdbcTemplate(routingDataSource.getPrimary()).execute(
+                "CREATE TABLE IF NOT EXISTS replica_heartbeat (id INT PRIMARY KEY, beat_millis BIGINT NOT NULL)");
+        check();
+    }
+
+    @Scheduled(fixedDelayString = "${db.replica.lag.check.ms:1000}")
+    public void check() {
+        long now = System.currentTimeMillis();
+        try {
+            JdbcTemplate primary = new JdbcTemplate(routingDataSource.getPrimary());
+            if (primary.update("UPDATE replica_heartbeat SET beat_millis = ? WHERE id = 1", now) == 0) {
+                primary.update("INSERT INTO replica_heartbeat (id, beat_millis) VALUES (1, ?)", now);
+            }
+        } catch (Exception e) {
+            log.warn("Could not write replica heartbeat: {}", e.getMessage());
+        }
+
+        for (Map.Entry<String, DataSource> replica : routingDataSource.getReplicas().entrySet()) {
+            boolean healthy;
+            try {
+                Long beat = new JdbcTemplate(replica.getValue()).queryForObject(
+                        "SELECT beat_millis FROM replica_heartbeat WHERE id = 1", Long.class);
+                healthy = beat != null && now - beat <= maxLagMillis;
+            } catch (Exception e) {
+                healthy = false;
+            }
+
+            boolean wasHealthy = routingDataSource.getHealthyReplicas().contains(replica.getKey());
+            if (healthy != wasHealthy) {
+                log.info("Replica {} {} for reads", replica.getKey(), healthy ? "enabled" : "disabled (lagging or unreachable)");
+            }
+            routingDataSource.setHealthy(replica.getKey(), healthy);
+        }
+    }
+}
@@ -0,0 +1,112 @@
+package com.propman.config;
+
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Sends connections for read-only transactions to a healthy replica and
+ * everything else to the primary. Replicas start unhealthy and are enabled
+ * by {@link ReplicaLagMonitor} once their lag is within bounds.
+ * <p>
+ * Must be wrapped in a LazyConnectionDataSourceProxy so the connection is
+ * only chosen after the transaction's read-only flag is known.
+ */
+public class ReplicaRoutingDataSource extends AbstractRoutingDataSource {
+
+    static final String PRIMARY = "primary";
+
+    private static final ThreadLocal<Boolean> requestScope = new ThreadLocal<>();
+    private static final ThreadLocal<Boolean> pinned = new ThreadLocal<>();
+
+    private final DataSource primary;
+    private final Map<String, DataSource> replicas = new LinkedHashMap<>();
+    private final AtomicInteger nextReplica = new AtomicInteger();
+    private volatile List<String> healthyReplicas = List.of();
+
+    public ReplicaRoutingDataSource(DataSource primary, List<DataSource> replicas) {
+        this.primary = primary;
+        Map<Object, Object> targets = new HashMap<>();
+        targets.put(PRIMARY, primary);
+        for (int i = 0; i < replicas.size(); i++) {
+            this.replicas.put("replica-" + i, replicas.get(i));
+            targets.put("replica-" + i, replicas.get(i));
+        }
+        setTargetDataSources(targets);
+        setDefaultTargetDataSource(primary);
+        afterPropertiesSet();
+    }
+
+    /**
+     * Send the rest of the current request's reads to the primary
+     */
+    public static void pinToPrimary() {
+        pinned.set(Boolean.TRUE);
+    }
+
+    public static boolean isPinned() {
+        return Boolean.TRUE.equals(pinned.get());
+    }
+
+    /**
+     * Within a request, any read-write transaction pins the request's later
+     * reads to the primary so it sees its own writes
+     */
+    static void beginRequest(boolean pinToPrimary) {
+        requestScope.set(Boolean.TRUE);
+        pinned.set(pinToPrimary ? Boolean.TRUE : null);
+    }
+
+    static void endRequest() {
+        requestScope.remove();
+        pinned.remove();
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        if (!TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            if (TransactionSynchronizationManager.isActualTransactionActive() && Boolean.TRUE.equals(requestScope.get())) {
+                pinToPrimary();
+            }
+            return PRIMARY;
+        }
+        if (isPinned()) {
+            return PRIMARY;
+        }
+
+        List<String> healthy = healthyReplicas;
+        if (healthy.isEmpty()) {
+            return PRIMARY;
+        }
+        return healthy.get(Math.floorMod(nextReplica.getAndIncrement(), healthy.size()));
+    }
+
+    DataSource getPrimary() {
+        return primary;
+    }
+
+    Map<String, DataSource> getReplicas() {
+        return Collections.unmodifiableMap(replicas);
+    }
+
+    List<String> getHealthyReplicas() {
+        return healthyReplicas;
+    }
+
+    synchronized void setHealthy(String replica, boolean healthy) {
+        List<String> updated = new ArrayList<>(healthyReplicas);
+        updated.remove(replica);
+        if (healthy) {
+            updated.add(replica);
+        }
+        healthyReplicas = List.copyOf(updated);
+    }
+}
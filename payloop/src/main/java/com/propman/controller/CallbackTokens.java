@@ -0,0 +1,25 @@
+package com.propman.controller;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+
+/**
+ * Checks the shared token that providers append to callback URLs
+ */
+final class CallbackTokens {
+
+    private CallbackTokens() {
+    }
+
+    /**
+     * Whether the presented token matches the configured one, in constant
+     * time. An unset token matches nothing, so callbacks fail closed.
+     */
+    static boolean matches(String expected, String presented) {
+        if (expected == null || expected.isEmpty() || presented == null) {
+            return false;
+        }
+        return MessageDigest.isEqual(expected.getBytes(StandardCharsets.UTF_8),
+                presented.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,62 @@
+package com.propman.controller;
+
+import com.propman.dto.CampaignPreview;
+import com.propman.dto.CampaignRequest;
+import com.propman.dto.SMSResponse;
+import com.propman.service.CampaignService;
+import jakarta.validation.Valid;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+
+@RestController
+@RequestMapping("/campaigns")
+@RequiredArgsConstructor
+@Slf4j
+public class CampaignController {
+
+    private final CampaignService campaignService;
+
+    /**
+     * Preview recipient count and estimated cost for a segment
+     */
+    @PostMapping("/preview")
+    @PreAuthorize("hasRole('ADMIN') or hasRole('LANDLORD')")
+    public ResponseEntity<CampaignPreview> previewCampaign(@Valid @RequestBody CampaignRequest request) {
+        try {
+            return ResponseEntity.ok(campaignService.preview(request));
+
+        } catch (Exception e) {
+            log.error("Error previewing campaign: {}", e.getMessage(), e);
+            return ResponseEntity.internalServerError().build();
+        }
+    }
+
+    /**
+     * Launch a campaign to every tenant matching the segment
+     */
+    @PostMapping("/send")
+    @PreAuthorize("hasRole('ADMIN') or hasRole('LANDLORD')")
+    public ResponseEntity<SMSResponse> sendCampaign(@Valid @RequestBody CampaignRequest request) {
+        try {
+            CampaignPreview preview = campaignService.preview(request);
+            if (preview.getRecipientCount() == 0) {
+                return ResponseEntity.badRequest()
+                        .body(new SMSResponse(false, "No tenants match the segment", null));
+            }
+
+            campaignService.launch(request);
+
+            String message = String.format("Campaign queued for %d recipients", preview.getRecipientCount());
+            return ResponseEntity.accepted().body(new SMSResponse(true, message,
+                    String.format("Estimated cost: KES %.2f", preview.getEstimatedCost())));
+
+        } catch (Exception e) {
+            log.error("Error launching campaign: {}", e.getMessage(), e);
+            return ResponseEntity.internalServerError()
+                    .body(new SMSResponse(false, "Internal server error", null));
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package com.propman.controller;
+
+import com.propman.dto.CreditTopUpRequest;
+import com.propman.repository.SmsCreditTransactionRepository;
+import com.propman.service.credit.SmsCreditWallet;
+import jakarta.validation.Valid;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+
+@RestController
+@RequestMapping("/credits")
+@RequiredArgsConstructor
+@Slf4j
+public class CreditController {
+
+    private final SmsCreditWallet creditWallet;
+    private final SmsCreditTransactionRepository smsCreditTransactionRepository;
+
+    /**
+     * Get a landlord's SMS credit balance and what is available to send with
+     */
+    @GetMapping("/landlords/{landlordId}")
+    @PreAuthorize("hasRole('ADMIN') or hasRole('LANDLORD')")
+    public ResponseEntity<SmsCreditWallet.CreditBalance> getBalance(@PathVariable Long landlordId) {
+        try {
+            return ResponseEntity.ok(creditWallet.getBalance(landlordId));
+
+        } catch (Exception e) {
+            log.error("Error retrieving SMS credit balance: {}", e.getMessage(), e);
+            return ResponseEntity.internalServerError().build();
+        }
+    }
+
+    /**
+     * Add prepaid SMS credit to a landlord
+     */
+    @PostMapping("/landlords/{landlordId}/top-ups")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<SmsCreditWallet.CreditBalance> topUp(@PathVariable Long landlordId,
+                                                              @Valid @RequestBody CreditTopUpRequest request) {
+        try {
+            return ResponseEntity.ok(creditWallet.topUp(landlordId, request.getAmount(), request.getReference()));
+
+        } catch (Exception e) {
+            log.error("Error topping up SMS credit: {}", e.getMessage(), e);
+            return ResponseEntity.internalServerError().build();
+        }
+    }
+
+    /**
+     * Get a landlord's credit transactions, newest first
+     */
+    @GetMapping("/landlords/{landlordId}/transactions")
+    @PreAuthorize("hasRole('ADMIN') or hasRole('LANDLORD')")
+    public ResponseEntity<Page<SmsCreditTransactionRepository.CreditTransactionView>> getTransactions(
+            @PathVariable Long landlordId,
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(defaultValue = "20") int size) {
+        try {
+            return ResponseEntity.ok(smsCreditTransactionRepository.findByLandlordIdOrderByIdDesc(landlordId, PageRequest.of(page, size)));
+
+        } catch (Exception e) {
+            log.error("Error retrieving SMS credit transactions: {}", e.getMessage(), e);
+            return ResponseEntity.internalServerError().build();
+        }
+    }
+}
@@ -0,0 +1,33 @@
+package com.propman.controller;
+
+import com.propman.dto.DashboardSummary;
+import com.propman.service.DashboardService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+
+@RestController
+@RequestMapping("/dashboard")
+@RequiredArgsConstructor
+@Slf4j
+public class DashboardController {
+
+    private final DashboardService dashboardService;
+
+    /**
+     * Get occupancy, rent and arrears figures for a landlord's properties
+     */
+    @GetMapping("/landlords/{landlordId}")
+    @PreAuthorize("hasRole('ADMIN') or hasRole('LANDLORD')")
+    public ResponseEntity<DashboardSummary> getSummary(@PathVariable Long landlordId) {
+        try {
+            return ResponseEntity.ok(dashboardService.getSummary(landlordId));
+
+        } catch (Exception e) {
+            log.error("Error retrieving dashboard summary: {}", e.getMessage(), e);
+            return ResponseEntity.internalServerError().build();
+        }
+    }
+}
@@ -0,0 +1,57 @@
+package com.propman.controller;
+
+import com.propman.dto.SMSResponse;
+import com.propman.dto.TenantImportReport;
+import com.propman.entity.Landlord;
+import com.propman.repository.LandlordRepository;
+import com.propman.service.TenantImportService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.Optional;
+
+@RestController
+@RequestMapping("/import")
+@RequiredArgsConstructor
+@Slf4j
+public class ImportController {
+
+    private final TenantImportService tenantImportService;
+    private final LandlordRepository landlordRepository;
+
+    /**
+     * Import tenants, and properties they reference, from a CSV request body.
+     * The body is read as a stream, so large files are not held in memory.
+     */
+    @PostMapping(value = "/landlords/{landlordId}/tenants", consumes = {"text/csv", "text/plain"})
+    @PreAuthorize("hasRole('ADMIN') or hasRole('LANDLORD')")
+    public ResponseEntity<?> importTenants(@PathVariable Long landlordId,
+                                           @RequestParam(defaultValue = "false") boolean sendWelcome,
+                                           InputStream body) {
+        try {
+            Optional<Landlord> landlordOpt = landlordRepository.findById(landlordId);
+            if (landlordOpt.isEmpty()) {
+                return ResponseEntity.badRequest()
+                        .body(new SMSResponse(false, "Landlord not found", null));
+            }
+
+            TenantImportReport report = tenantImportService.importTenants(landlordOpt.get(),
+                    new InputStreamReader(body, StandardCharsets.UTF_8), sendWelcome);
+            return ResponseEntity.ok(report);
+
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest()
+                    .body(new SMSResponse(false, e.getMessage(), null));
+        } catch (Exception e) {
+            log.error("Error importing tenants: {}", e.getMessage(), e);
+            return ResponseEntity.internalServerError()
+                    .body(new SMSResponse(false, "Internal server error", null));
+        }
+    }
+}
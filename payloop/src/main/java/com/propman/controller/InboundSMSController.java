@@ -0,0 +1,81 @@
+package com.propman.controller;
+
+import com.propman.dto.InboundSMSCallback;
+import com.propman.repository.InboundMessageRepository;
+import com.propman.service.InboundMessageService;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+
+/**
+ * Replies from tenants. Register the callback URL with Africa's Talking
+ * with the callback token appended, e.g. /api/inbound/sms?token=... Every
+ * callback is refused while sms.inbound.callback.token is unset.
+ */
+@RestController
+@RequestMapping("/inbound")
+@RequiredArgsConstructor
+@Slf4j
+public class InboundSMSController {
+
+    private final InboundMessageService inboundMessageService;
+    private final InboundMessageRepository inboundMessageRepository;
+
+    @Value("${sms.inbound.callback.token:}")
+    private String callbackToken;
+
+    @PostConstruct
+    void checkToken() {
+        if (callbackToken.isEmpty()) {
+            log.error("sms.inbound.callback.token is not set; inbound SMS callbacks will be rejected");
+        }
+    }
+
+    /**
+     * Store an incoming message in the inbox and acknowledge it. A failed
+     * write is answered with 500 so the provider retries.
+     */
+    @PostMapping("/sms")
+    public ResponseEntity<Void> receive(@RequestParam(required = false) String token,
+                                        @ModelAttribute InboundSMSCallback callback) {
+        if (!isAuthorized(token)) {
+            return ResponseEntity.status(403).build();
+        }
+        try {
+            inboundMessageService.accept(callback);
+            return ResponseEntity.ok().build();
+
+        } catch (Exception e) {
+            log.error("Error accepting inbound SMS {}: {}", callback.getId(), e.getMessage(), e);
+            return ResponseEntity.internalServerError().build();
+        }
+    }
+
+    /**
+     * Get messages received from a landlord's tenants, newest first
+     */
+    @GetMapping("/landlords/{landlordId}/messages")
+    @PreAuthorize("hasRole('ADMIN') or hasRole('LANDLORD')")
+    public ResponseEntity<Page<InboundMessageRepository.InboundMessageView>> getMessages(
+            @PathVariable Long landlordId,
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(defaultValue = "20") int size) {
+        try {
+            return ResponseEntity.ok(inboundMessageRepository.findByLandlordId(landlordId, PageRequest.of(page, size)));
+
+        } catch (Exception e) {
+            log.error("Error retrieving inbound messages: {}", e.getMessage(), e);
+            return ResponseEntity.internalServerError().build();
+        }
+    }
+
+    private boolean isAuthorized(String token) {
+        return CallbackTokens.matches(callbackToken, token);
+    }
+}
@@ -0,0 +1,55 @@
+package com.propman.controller;
+
+import com.propman.dto.TenantBalance;
+import com.propman.repository.LedgerEntryRepository;
+import com.propman.service.LedgerService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+
+@RestController
+@RequestMapping("/ledger")
+@RequiredArgsConstructor
+@Slf4j
+public class LedgerController {
+
+    private final LedgerService ledgerService;
+    private final LedgerEntryRepository ledgerEntryRepository;
+
+    /**
+     * Get current balance and overdue state for a tenant
+     */
+    @GetMapping("/tenants/{tenantId}/balance")
+    @PreAuthorize("hasRole('ADMIN') or hasRole('LANDLORD')")
+    public ResponseEntity<TenantBalance> getBalance(@PathVariable Long tenantId) {
+        try {
+            return ResponseEntity.ok(ledgerService.getBalance(tenantId));
+
+        } catch (Exception e) {
+            log.error("Error retrieving tenant balance: {}", e.getMessage(), e);
+            return ResponseEntity.internalServerError().build();
+        }
+    }
+
+    /**
+     * Get ledger entries for a tenant, newest first
+     */
+    @GetMapping("/tenants/{tenantId}/entries")
+    @PreAuthorize("hasRole('ADMIN') or hasRole('LANDLORD')")
+    public ResponseEntity<Page<LedgerEntryRepository.LedgerEntryView>> getEntries(
+            @PathVariable Long tenantId,
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(defaultValue = "20") int size) {
+        try {
+            return ResponseEntity.ok(ledgerEntryRepository.findByTenantIdOrderByIdDesc(tenantId, PageRequest.of(page, size)));
+
+        } catch (Exception e) {
+            log.error("Error retrieving ledger entries: {}", e.getMessage(), e);
+            return ResponseEntity.internalServerError().build();
+        }
+    }
+}
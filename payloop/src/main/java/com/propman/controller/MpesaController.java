@@ -0,0 +1,71 @@
+package com.propman.controller;
+
+import com.propman.dto.MpesaC2BCallback;
+import com.propman.dto.MpesaC2BResponse;
+import com.propman.service.MpesaIngestionService;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+/**
+ * Safaricom Daraja C2B callbacks. Register the URLs with the callback
+ * token appended, e.g. /api/mpesa/c2b/confirmation?token=... Every callback
+ * is refused while mpesa.callback.token is unset.
+ */
+@RestController
+@RequestMapping("/mpesa/c2b")
+@RequiredArgsConstructor
+@Slf4j
+public class MpesaController {
+
+    private final MpesaIngestionService ingestionService;
+
+    @Value("${mpesa.callback.token:}")
+    private String callbackToken;
+
+    @PostConstruct
+    void checkToken() {
+        if (callbackToken.isEmpty()) {
+            log.error("mpesa.callback.token is not set; M-Pesa callbacks will be rejected");
+        }
+    }
+
+    /**
+     * Accept every payment; unknown account references are reconciled later
+     */
+    @PostMapping("/validation")
+    public ResponseEntity<MpesaC2BResponse> validate(@RequestParam(required = false) String token,
+                                                     @RequestBody MpesaC2BCallback callback) {
+        if (!isAuthorized(token)) {
+            return ResponseEntity.status(403).build();
+        }
+        return ResponseEntity.ok(MpesaC2BResponse.accepted());
+    }
+
+    /**
+     * Store a confirmed payment in the inbox and acknowledge it once stored
+     */
+    @PostMapping("/confirmation")
+    public ResponseEntity<MpesaC2BResponse> confirm(@RequestParam(required = false) String token,
+                                                    @RequestBody MpesaC2BCallback callback) {
+        if (!isAuthorized(token)) {
+            return ResponseEntity.status(403).build();
+        }
+        try {
+            ingestionService.accept(callback);
+            return ResponseEntity.ok(MpesaC2BResponse.accepted());
+
+        } catch (Exception e) {
+            log.error("Error accepting M-Pesa confirmation {}: {}", callback.getTransId(), e.getMessage(), e);
+            return ResponseEntity.internalServerError()
+                    .body(new MpesaC2BResponse("1", "Rejected"));
+        }
+    }
+
+    private boolean isAuthorized(String token) {
+        return CallbackTokens.matches(callbackToken, token);
+    }
+}
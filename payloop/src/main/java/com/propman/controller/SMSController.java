@@ -4,26 +4,45 @@ import com.propman.dto.BulkSMSRequest;
 import com.propman.dto.CustomSMSRequest;
 import com.propman.dto.SMSResponse;
 import com.propman.entity.Landlord;
+import com.propman.entity.Payment;
 import com.propman.entity.SMSLog;
 import com.propman.entity.Tenant;
 import com.propman.repository.LandlordRepository;
+import com.propman.repository.PaymentRepository;
 import com.propman.repository.SMSLogRepository;
 import com.propman.repository.TenantRepository;
+import com.propman.service.CampaignService;
+import com.propman.service.IdempotencyService;
+import com.propman.service.LandlordDigestService;
+import com.propman.service.SMSLogExportService;
+import com.propman.service.SMSLogSearchService;
 import com.propman.service.SMSService;
+import com.propman.service.TenantService;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
+import java.util.zip.GZIPOutputStream;
 
 @RestController
 @RequestMapping("/sms")
@@ -32,8 +51,15 @@ import java.util.Optional;
 public class SMSController {
 
     private final SMSService smsService;
+    private final CampaignService campaignService;
+    private final IdempotencyService idempotencyService;
+    private final LandlordDigestService landlordDigestService;
+    private final SMSLogExportService smsLogExportService;
+    private final SMSLogSearchService smsLogSearchService;
+    private final TenantService tenantService;
     private final TenantRepository tenantRepository;
     private final LandlordRepository landlordRepository;
+    private final PaymentRepository paymentRepository;
     private final SMSLogRepository smsLogRepository;
 
     /**
@@ -91,33 +117,61 @@ public class SMSController {
     }
 
     /**
-     * Send payment confirmation to tenant
+     * Record a payment made outside M-Pesa ingestion and send the tenant a
+     * confirmation. The reference (receipt number or M-Pesa code) is
+     * required; a payment already recorded under it is refused with 409 so
+     * the tenant is not credited twice.
      */
     @PostMapping("/payment-confirmation/{tenantId}")
     @PreAuthorize("hasRole('ADMIN') or hasRole('LANDLORD')")
-    public ResponseEntity<SMSResponse> sendPaymentConfirmation(@PathVariable Long tenantId,
-                                                              @RequestParam BigDecimal amount) {
-        try {
-            Optional<Tenant> tenantOpt = tenantRepository.findById(tenantId);
-            if (tenantOpt.isEmpty()) {
-                return ResponseEntity.badRequest()
-                        .body(new SMSResponse(false, "Tenant not found", null));
-            }
+    public ResponseEntity<SMSResponse> sendPaymentConfirmation(
+            @PathVariable Long tenantId,
+            @RequestParam BigDecimal amount,
+            @RequestParam String reference,
+            @RequestParam(defaultValue = "MPESA") Payment.PaymentMethod method,
+            @RequestHeader(value = IdempotencyService.HEADER, required = false) String idempotencyKey) {
+        String request = "payment-confirmation:" + tenantId + ":" + amount.stripTrailingZeros().toPlainString()
+                + ":" + reference + ":" + method;
+        return idempotencyService.execute(idempotencyKey, request, () -> {
+            try {
+                if (reference.isBlank() || reference.length() > 50) {
+                    return ResponseEntity.badRequest()
+                            .body(new SMSResponse(false, "Reference must be 1-50 characters", null));
+                }
 
-            Tenant tenant = tenantOpt.get();
-            boolean success = smsService.sendPaymentConfirmation(tenant, amount);
+                Optional<Tenant> tenantOpt = tenantRepository.findById(tenantId);
+                if (tenantOpt.isEmpty()) {
+                    return ResponseEntity.badRequest()
+                            .body(new SMSResponse(false, "Tenant not found", null));
+                }
+
+                if (paymentRepository.existsByReference(reference)) {
+                    return alreadyRecorded(reference);
+                }
+
+                Tenant tenant = tenantService.recordPayment(tenantOpt.get(), amount, method, reference, LocalDateTime.now());
+                boolean success = smsService.sendPaymentConfirmation(tenant, amount);
             
-            // Also notify landlord
-            smsService.notifyLandlordOfPayment(tenant, amount);
+                // Landlord is notified asynchronously, coalesced with other payments
+                landlordDigestService.paymentReceived(tenant, amount);
             
-            String message = success ? "Payment confirmation sent successfully" : "Failed to send payment confirmation";
-            return ResponseEntity.ok(new SMSResponse(success, message, null));
+                String message = success ? "Payment confirmation sent successfully" : "Failed to send payment confirmation";
+                return ResponseEntity.ok(new SMSResponse(success, message, null));
             
-        } catch (Exception e) {
-            log.error("Error sending payment confirmation: {}", e.getMessage(), e);
-            return ResponseEntity.internalServerError()
-                    .body(new SMSResponse(false, "Internal server error", null));
-        }
+            } catch (DataIntegrityViolationException e) {
+                // Recorded concurrently under the same reference
+                return alreadyRecorded(reference);
+            } catch (Exception e) {
+                log.error("Error sending payment confirmation: {}", e.getMessage(), e);
+                return ResponseEntity.internalServerError()
+                        .body(new SMSResponse(false, "Internal server error", null));
+            }
+        });
+    }
+
+    private ResponseEntity<SMSResponse> alreadyRecorded(String reference) {
+        return ResponseEntity.status(HttpStatus.CONFLICT)
+                .body(new SMSResponse(false, "Payment " + reference + " is already recorded", null));
     }
 
     /**
@@ -151,27 +205,30 @@ public class SMSController {
      */
     @PostMapping("/bulk-rent-reminders")
     @PreAuthorize("hasRole('ADMIN') or hasRole('LANDLORD')")
-    public ResponseEntity<SMSResponse> sendBulkRentReminders(@Valid @RequestBody BulkSMSRequest request) {
-        try {
-            List<Tenant> tenants = tenantRepository.findAllById(request.getTenantIds());
-            if (tenants.isEmpty()) {
-                return ResponseEntity.badRequest()
-                        .body(new SMSResponse(false, "No valid tenants found", null));
-            }
+    public ResponseEntity<SMSResponse> sendBulkRentReminders(
+            @Valid @RequestBody BulkSMSRequest request,
+            @RequestHeader(value = IdempotencyService.HEADER, required = false) String idempotencyKey) {
+        return idempotencyService.execute(idempotencyKey, "bulk-rent-reminders:" + request, () -> {
+            try {
+                List<Tenant> tenants = tenantRepository.findWithPropertyAndLandlordByIdIn(request.getTenantIds());
+                if (tenants.isEmpty()) {
+                    return ResponseEntity.badRequest()
+                            .body(new SMSResponse(false, "No valid tenants found", null));
+                }
 
-            List<Boolean> results = smsService.sendBulkRentReminders(tenants, request.getDaysBefore());
-            long successCount = results.stream().mapToLong(success -> success ? 1 : 0).sum();
-            
-            String message = String.format("Sent %d out of %d rent reminders successfully", 
-                    successCount, results.size());
-            return ResponseEntity.ok(new SMSResponse(true, message, 
-                    String.format("Success rate: %.1f%%", (double) successCount / results.size() * 100)));
-            
-        } catch (Exception e) {
-            log.error("Error sending bulk rent reminders: {}", e.getMessage(), e);
-            return ResponseEntity.internalServerError()
-                    .body(new SMSResponse(false, "Internal server error", null));
-        }
+                int queued = campaignService.queueRentReminders(tenants, request.getDaysBefore());
+                int refused = tenants.size() - queued;
+
+                String message = String.format("Queued %d out of %d rent reminders", queued, tenants.size());
+                return ResponseEntity.accepted().body(new SMSResponse(queued > 0, message,
+                        String.format("Queued: %d, refused: %d", queued, refused)));
+
+            } catch (Exception e) {
+                log.error("Error sending bulk rent reminders: {}", e.getMessage(), e);
+                return ResponseEntity.internalServerError()
+                        .body(new SMSResponse(false, "Internal server error", null));
+            }
+        });
     }
 
     /**
@@ -179,26 +236,58 @@ public class SMSController {
      */
     @PostMapping("/custom")
     @PreAuthorize("hasRole('ADMIN') or hasRole('LANDLORD')")
-    public ResponseEntity<SMSResponse> sendCustomSMS(@Valid @RequestBody CustomSMSRequest request) {
-        try {
-            Tenant tenant = null;
-            Landlord landlord = null;
+    public ResponseEntity<SMSResponse> sendCustomSMS(
+            @Valid @RequestBody CustomSMSRequest request,
+            @RequestHeader(value = IdempotencyService.HEADER, required = false) String idempotencyKey) {
+        return idempotencyService.execute(idempotencyKey, "custom:" + request, () -> {
+            try {
+                Tenant tenant = null;
+                Landlord landlord = null;
             
-            if (request.getTenantId() != null) {
-                tenant = tenantRepository.findById(request.getTenantId()).orElse(null);
-            }
+                if (request.getTenantId() != null) {
+                    tenant = tenantRepository.findById(request.getTenantId()).orElse(null);
+                }
             
-            if (request.getLandlordId() != null) {
-                landlord = landlordRepository.findById(request.getLandlordId()).orElse(null);
-            }
+                if (request.getLandlordId() != null) {
+                    landlord = landlordRepository.findById(request.getLandlordId()).orElse(null);
+                }
             
-            boolean success = smsService.sendCustomSMS(request.getPhone(), request.getMessage(), tenant, landlord);
+                boolean success = smsService.sendCustomSMS(request.getPhone(), request.getMessage(), tenant, landlord);
             
-            String message = success ? "Custom SMS sent successfully" : "Failed to send custom SMS";
-            return ResponseEntity.ok(new SMSResponse(success, message, null));
+                String message = success ? "Custom SMS sent successfully" : "Failed to send custom SMS";
+                return ResponseEntity.ok(new SMSResponse(success, message, null));
             
+            } catch (Exception e) {
+                log.error("Error sending custom SMS: {}", e.getMessage(), e);
+                return ResponseEntity.internalServerError()
+                        .body(new SMSResponse(false, "Internal server error", null));
+            }
+        });
+    }
+
+    /**
+     * Set how many minutes of payments are merged into one landlord SMS.
+     * Omit minutes to use the default window; 0 sends one SMS per payment.
+     */
+    @PutMapping("/landlords/{landlordId}/payment-digest")
+    @PreAuthorize("hasRole('ADMIN') or hasRole('LANDLORD')")
+    public ResponseEntity<SMSResponse> setPaymentDigestWindow(@PathVariable Long landlordId,
+                                                              @RequestParam(required = false) Integer minutes) {
+        try {
+            if (minutes != null && (minutes < 0 || minutes > 1440)) {
+                return ResponseEntity.badRequest()
+                        .body(new SMSResponse(false, "Minutes must be between 0 and 1440", null));
+            }
+
+            if (landlordRepository.updatePaymentDigestMinutes(landlordId, minutes) == 0) {
+                return ResponseEntity.badRequest()
+                        .body(new SMSResponse(false, "Landlord not found", null));
+            }
+
+            return ResponseEntity.ok(new SMSResponse(true, "Payment digest window updated", null));
+
         } catch (Exception e) {
-            log.error("Error sending custom SMS: {}", e.getMessage(), e);
+            log.error("Error updating payment digest window: {}", e.getMessage(), e);
             return ResponseEntity.internalServerError()
                     .body(new SMSResponse(false, "Internal server error", null));
         }
@@ -246,6 +335,68 @@ public class SMSController {
         }
     }
 
+    /**
+     * Search a landlord's SMS logs by recipient phone prefix and/or name
+     */
+    @GetMapping("/logs/search")
+    @PreAuthorize("hasRole('ADMIN') or hasRole('LANDLORD')")
+    public ResponseEntity<?> searchSMSLogs(
+            @RequestParam Long landlordId,
+            @RequestParam(required = false) String phone,
+            @RequestParam(required = false) String name,
+            @RequestParam(defaultValue = "50") int limit) {
+
+        try {
+            return ResponseEntity.ok(smsLogSearchService.search(landlordId, phone, name, limit));
+
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest()
+                    .body(new SMSResponse(false, e.getMessage(), null));
+        } catch (Exception e) {
+            log.error("Error searching SMS logs: {}", e.getMessage(), e);
+            return ResponseEntity.internalServerError()
+                    .body(new SMSResponse(false, "Internal server error", null));
+        }
+    }
+
+    /**
+     * Export a landlord's SMS logs for a date range as CSV. Rows are streamed
+     * as they are read, gzip-compressed when the client accepts it.
+     */
+    @GetMapping("/logs/export")
+    @PreAuthorize("hasRole('ADMIN') or hasRole('LANDLORD')")
+    public ResponseEntity<StreamingResponseBody> exportSMSLogs(
+            @RequestParam Long landlordId,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding) {
+
+        if (to.isBefore(from)) {
+            return ResponseEntity.badRequest().build();
+        }
+
+        boolean gzip = SMSLogExportService.acceptsGzip(acceptEncoding);
+        StreamingResponseBody body = outputStream -> {
+            if (gzip) {
+                GZIPOutputStream gzipStream = new GZIPOutputStream(outputStream, 64 * 1024);
+                smsLogExportService.export(landlordId, from.atStartOfDay(), to.plusDays(1).atStartOfDay(), gzipStream);
+                gzipStream.finish();
+            } else {
+                smsLogExportService.export(landlordId, from.atStartOfDay(), to.plusDays(1).atStartOfDay(), outputStream);
+            }
+        };
+
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+                .contentType(new MediaType("text", "csv", StandardCharsets.UTF_8))
+                .header(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment()
+                        .filename("sms-logs-" + landlordId + "-" + from + "-" + to + ".csv").build().toString())
+                .header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        if (gzip) {
+            response.header(HttpHeaders.CONTENT_ENCODING, "gzip");
+        }
+        return response.body(body);
+    }
+
     /**
      * Get SMS statistics for a landlord
      */
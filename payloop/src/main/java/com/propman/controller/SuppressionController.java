@@ -0,0 +1,86 @@
+package com.propman.controller;
+
+import com.propman.dto.SMSResponse;
+import com.propman.dto.SuppressionRequest;
+import com.propman.entity.SuppressedNumber;
+import com.propman.service.suppression.SuppressionService;
+import jakarta.validation.Valid;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.security.core.Authentication;
+import org.springframework.web.bind.annotation.*;
+
+@RestController
+@RequestMapping("/suppressions")
+@RequiredArgsConstructor
+@Slf4j
+public class SuppressionController {
+
+    private final SuppressionService suppressionService;
+
+    /**
+     * Block a number from receiving any SMS
+     */
+    @PostMapping
+    @PreAuthorize("hasRole('ADMIN') or hasRole('LANDLORD')")
+    public ResponseEntity<SMSResponse> suppress(@Valid @RequestBody SuppressionRequest request) {
+        try {
+            suppressionService.suppress(request.getPhone(), SuppressedNumber.SuppressionReason.MANUAL, request.getNote());
+            return ResponseEntity.ok(new SMSResponse(true, "Number suppressed", null));
+
+        } catch (Exception e) {
+            log.error("Error suppressing number: {}", e.getMessage(), e);
+            return ResponseEntity.internalServerError()
+                    .body(new SMSResponse(false, "Internal server error", null));
+        }
+    }
+
+    /**
+     * Check whether a number is suppressed
+     */
+    @GetMapping("/{phone}")
+    @PreAuthorize("hasRole('ADMIN') or hasRole('LANDLORD')")
+    public ResponseEntity<SMSResponse> check(@PathVariable String phone) {
+        try {
+            boolean suppressed = suppressionService.isSuppressed(phone);
+            String message = suppressed ? "Number is suppressed" : "Number is not suppressed";
+            return ResponseEntity.ok(new SMSResponse(suppressed, message, null));
+
+        } catch (Exception e) {
+            log.error("Error checking suppression: {}", e.getMessage(), e);
+            return ResponseEntity.internalServerError()
+                    .body(new SMSResponse(false, "Internal server error", null));
+        }
+    }
+
+    /**
+     * Allow a number to receive SMS again. Landlords may only remove numbers
+     * they blocked by hand; opt-outs and hard bounces need an admin.
+     */
+    @DeleteMapping("/{phone}")
+    @PreAuthorize("hasRole('ADMIN') or hasRole('LANDLORD')")
+    public ResponseEntity<SMSResponse> unsuppress(@PathVariable String phone, Authentication authentication) {
+        try {
+            boolean admin = authentication.getAuthorities().stream()
+                    .anyMatch(authority -> "ROLE_ADMIN".equals(authority.getAuthority()));
+            switch (suppressionService.unsuppress(phone, admin)) {
+                case NOT_SUPPRESSED:
+                    return ResponseEntity.badRequest()
+                            .body(new SMSResponse(false, "Number is not suppressed", null));
+                case REFUSED:
+                    return ResponseEntity.status(HttpStatus.FORBIDDEN)
+                            .body(new SMSResponse(false, "Only an admin can remove an opt-out or hard bounce", null));
+                default:
+                    return ResponseEntity.ok(new SMSResponse(true, "Number removed from suppression list", null));
+            }
+
+        } catch (Exception e) {
+            log.error("Error removing suppression: {}", e.getMessage(), e);
+            return ResponseEntity.internalServerError()
+                    .body(new SMSResponse(false, "Internal server error", null));
+        }
+    }
+}
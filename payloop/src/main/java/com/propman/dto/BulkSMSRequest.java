@@ -3,6 +3,7 @@ package com.propman.dto;
 import jakarta.validation.constraints.NotEmpty;
 import jakarta.validation.constraints.Min;
 import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Size;
 import lombok.Data;
 
 import java.util.List;
@@ -11,6 +12,7 @@ import java.util.List;
 public class BulkSMSRequest {
     
     @NotEmpty(message = "Tenant IDs cannot be empty")
+    @Size(max = 1000, message = "Cannot send to more than 1000 tenants at once")
     private List<Long> tenantIds;
     
     @Min(value = 1, message = "Days before must be at least 1")
@@ -0,0 +1,15 @@
+package com.propman.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CampaignPreview {
+    private long recipientCount;
+    private BigDecimal estimatedCost;
+}
@@ -0,0 +1,20 @@
+package com.propman.dto;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
+import lombok.Data;
+
+@Data
+public class CampaignRequest {
+
+    @Valid
+    @NotNull(message = "Segment is required")
+    private CampaignSegment segment;
+
+    // Supports {name}, {unit}, {property}, {rent} and {outstanding} placeholders
+    @NotBlank(message = "Message is required")
+    @Size(max = 1000, message = "Message cannot exceed 1000 characters")
+    private String message;
+}
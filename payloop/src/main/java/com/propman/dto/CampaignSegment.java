@@ -0,0 +1,38 @@
+package com.propman.dto;
+
+import com.propman.entity.Tenant;
+import jakarta.validation.constraints.DecimalMin;
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
+import lombok.Data;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+/**
+ * Declarative audience filter for a campaign. Every criterion is optional;
+ * the ones that are set are ANDed together.
+ */
+@Data
+public class CampaignSegment {
+
+    private Long landlordId;
+
+    private Long propertyId;
+
+    private List<Tenant.TenantStatus> statuses;
+
+    @DecimalMin(value = "0.0", message = "Minimum outstanding cannot be negative")
+    private BigDecimal minOutstanding;
+
+    @DecimalMin(value = "0.0", message = "Maximum outstanding cannot be negative")
+    private BigDecimal maxOutstanding;
+
+    @Min(value = 1, message = "Due day must be between 1 and 31")
+    @Max(value = 31, message = "Due day must be between 1 and 31")
+    private Integer minDueDay;
+
+    @Min(value = 1, message = "Due day must be between 1 and 31")
+    @Max(value = 31, message = "Due day must be between 1 and 31")
+    private Integer maxDueDay;
+}
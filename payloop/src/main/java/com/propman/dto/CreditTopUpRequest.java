@@ -0,0 +1,24 @@
+package com.propman.dto;
+
+import jakarta.validation.constraints.DecimalMax;
+import jakarta.validation.constraints.DecimalMin;
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
+import lombok.Data;
+
+import java.math.BigDecimal;
+
+@Data
+public class CreditTopUpRequest {
+    
+    @NotNull(message = "Amount is required")
+    @DecimalMin(value = "1.00", message = "Amount must be at least 1.00")
+    @DecimalMax(value = "1000000.00", message = "Amount cannot exceed 1,000,000")
+    private BigDecimal amount;
+    
+    // Payment reference, e.g. an M-Pesa receipt number
+    @NotBlank(message = "Reference is required")
+    @Size(max = 50, message = "Reference cannot exceed 50 characters")
+    private String reference;
+}
@@ -0,0 +1,42 @@
+package com.propman.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class DashboardSummary {
+    private Long landlordId;
+    private int totalProperties;
+    private long totalUnits;
+    private long occupiedUnits;
+    private double occupancyRate;
+    private BigDecimal expectedMonthlyRent;
+    private BigDecimal collectedThisMonth;
+    private BigDecimal outstanding;
+    private long defaulters;
+    private List<PropertySummary> properties;
+    // When the figures were computed; they are cached for a short time
+    private LocalDateTime generatedAt;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class PropertySummary {
+        private Long propertyId;
+        private String name;
+        private int totalUnits;
+        private long occupiedUnits;
+        private double occupancyRate;
+        private BigDecimal expectedMonthlyRent;
+        private BigDecimal collectedThisMonth;
+        private BigDecimal outstanding;
+        private long defaulters;
+    }
+}
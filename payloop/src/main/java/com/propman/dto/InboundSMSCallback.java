@@ -0,0 +1,27 @@
+package com.propman.dto;
+
+import lombok.Data;
+
+/**
+ * Africa's Talking incoming message callback, posted as form fields
+ */
+@Data
+public class InboundSMSCallback {
+
+    // Provider message id, repeated when the callback is retried
+    private String id;
+
+    private String from;
+
+    // Short code or long number the message was sent to
+    private String to;
+
+    private String text;
+
+    private String date;
+
+    // Set for premium messages that must be answered with the same link
+    private String linkId;
+
+    private String networkCode;
+}
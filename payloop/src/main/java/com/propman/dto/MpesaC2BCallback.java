@@ -0,0 +1,46 @@
+package com.propman.dto;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.Data;
+
+import java.math.BigDecimal;
+
+/**
+ * Safaricom Daraja C2B validation/confirmation payload
+ */
+@Data
+@JsonIgnoreProperties(ignoreUnknown = true)
+public class MpesaC2BCallback {
+
+    @JsonProperty("TransactionType")
+    private String transactionType;
+
+    @JsonProperty("TransID")
+    private String transId;
+
+    // yyyyMMddHHmmss, East Africa Time
+    @JsonProperty("TransTime")
+    private String transTime;
+
+    @JsonProperty("TransAmount")
+    private BigDecimal transAmount;
+
+    @JsonProperty("BusinessShortCode")
+    private String businessShortCode;
+
+    @JsonProperty("BillRefNumber")
+    private String billRefNumber;
+
+    @JsonProperty("MSISDN")
+    private String msisdn;
+
+    @JsonProperty("FirstName")
+    private String firstName;
+
+    @JsonProperty("MiddleName")
+    private String middleName;
+
+    @JsonProperty("LastName")
+    private String lastName;
+}
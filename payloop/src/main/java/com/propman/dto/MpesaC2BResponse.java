@@ -0,0 +1,22 @@
+package com.propman.dto;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class MpesaC2BResponse {
+
+    @JsonProperty("ResultCode")
+    private String resultCode;
+
+    @JsonProperty("ResultDesc")
+    private String resultDesc;
+
+    public static MpesaC2BResponse accepted() {
+        return new MpesaC2BResponse("0", "Accepted");
+    }
+}
@@ -0,0 +1,34 @@
+package com.propman.dto;
+
+import com.propman.entity.Tenant;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.NoArgsConstructor;
+import lombok.ToString;
+
+import java.math.BigDecimal;
+
+/**
+ * A payment waiting to be reported to the landlord. Names are copied when
+ * the payment is recorded so the notice can outlive the tenant's session.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class PaymentNotice {
+
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
+    private Tenant tenant;
+
+    private String tenantName;
+    private String unitNumber;
+    private String propertyName;
+    private BigDecimal amount;
+
+    public static PaymentNotice of(Tenant tenant, BigDecimal amount) {
+        return new PaymentNotice(tenant, tenant.getName(), tenant.getUnitNumber(),
+                tenant.getProperty().getName(), amount);
+    }
+}
@@ -0,0 +1,17 @@
+package com.propman.dto;
+
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.Pattern;
+import jakarta.validation.constraints.Size;
+import lombok.Data;
+
+@Data
+public class SuppressionRequest {
+    
+    @NotBlank(message = "Phone number is required")
+    @Pattern(regexp = "^(\\+254|0)[17]\\d{8}$", message = "Invalid Kenyan phone number format")
+    private String phone;
+    
+    @Size(max = 255, message = "Note cannot exceed 255 characters")
+    private String note;
+}
@@ -0,0 +1,19 @@
+package com.propman.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class TenantBalance {
+    private Long tenantId;
+    private BigDecimal balance;
+    private LocalDate overdueSince;
+    private long daysOverdue;
+    private Long lastEntryId;
+}
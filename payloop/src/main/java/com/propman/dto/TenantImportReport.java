@@ -0,0 +1,29 @@
+package com.propman.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+public class TenantImportReport {
+    private int rowsRead;
+    private int imported;
+    private int propertiesCreated;
+    private int welcomeMessagesQueued;
+    private int failed;
+    // Only the first import.max.errors rows are listed; failed has the full count
+    private List<RowError> errors = new ArrayList<>();
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class RowError {
+        private long row;
+        private String phone;
+        private String message;
+    }
+}
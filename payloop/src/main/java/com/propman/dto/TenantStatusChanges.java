@@ -0,0 +1,33 @@
+package com.propman.dto;
+
+import com.propman.entity.Tenant;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * One page of tenants the delinquency sweep moved between ACTIVE and
+ * DEFAULTER, published for notification listeners
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class TenantStatusChanges {
+
+    private LocalDateTime sweptAt;
+    private List<Change> changes;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Change {
+        private Long tenantId;
+        private Long landlordId;
+        private Tenant.TenantStatus status;
+        // 0 for tenants that are no longer overdue
+        private int daysOverdue;
+    }
+}
@@ -0,0 +1,62 @@
+package com.propman.entity;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+import org.hibernate.annotations.CreationTimestamp;
+
+import java.time.LocalDateTime;
+
+/**
+ * Outcome of a request sent with an Idempotency-Key, replayed to retries of
+ * the same request on any node until it expires
+ */
+@Entity
+@Table(name = "idempotency_keys", indexes = {
+        @Index(name = "idx_idempotency_keys_expires_at", columnList = "expiresAt")
+})
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class IdempotencyRecord {
+    
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+    
+    @Column(nullable = false, unique = true, length = 100)
+    private String idempotencyKey;
+    
+    // SHA-256 of the endpoint and its parameters, to reject a key reused for a different request
+    @Column(nullable = false, length = 64)
+    private String requestHash;
+    
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 20)
+    private RequestStatus status;
+    
+    private Integer responseStatus;
+    
+    private Boolean responseSuccess;
+    
+    @Column(length = 255)
+    private String responseMessage;
+    
+    @Column(length = 255)
+    private String responseDetails;
+    
+    @CreationTimestamp
+    @Column(nullable = false, updatable = false)
+    private LocalDateTime createdAt;
+    
+    @Column(nullable = false)
+    private LocalDateTime expiresAt;
+    
+    // Renewed while the request runs; null on keys stored before heartbeats
+    private LocalDateTime heartbeatAt;
+    
+    public enum RequestStatus {
+        IN_PROGRESS, COMPLETED
+    }
+}
@@ -0,0 +1,85 @@
+package com.propman.entity;
+
+import com.propman.dto.InboundSMSCallback;
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+import org.hibernate.annotations.CreationTimestamp;
+
+import java.time.LocalDateTime;
+
+/**
+ * Incoming SMS callback as received, written before it is acknowledged and
+ * deleted once the message is stored. A writer claims entries in batches; a
+ * claim that is not completed in time is taken over, so replies (and STOP
+ * opt-outs) survive a crash on any node.
+ */
+@Entity
+@Table(name = "sms_inbound_inbox", indexes = {
+        @Index(name = "idx_sms_inbound_inbox_claim_token", columnList = "claimToken")
+})
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class InboundInboxEntry {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(length = 100)
+    private String providerMessageId;
+
+    @Column(length = 64)
+    private String sender;
+
+    @Column(length = 20)
+    private String recipient;
+
+    @Column(columnDefinition = "TEXT")
+    private String text;
+
+    @Column(length = 40)
+    private String sentDate;
+
+    @Column(length = 100)
+    private String linkId;
+
+    @Column(length = 20)
+    private String networkCode;
+
+    // Set when a writer claims the entry for a batch
+    @Column(length = 36)
+    private String claimToken;
+
+    private LocalDateTime claimedAt;
+
+    @CreationTimestamp
+    @Column(nullable = false, updatable = false)
+    private LocalDateTime receivedAt;
+
+    public static InboundInboxEntry of(InboundSMSCallback callback) {
+        InboundInboxEntry entry = new InboundInboxEntry();
+        entry.setProviderMessageId(callback.getId());
+        entry.setSender(callback.getFrom());
+        entry.setRecipient(callback.getTo());
+        entry.setText(callback.getText());
+        entry.setSentDate(callback.getDate());
+        entry.setLinkId(callback.getLinkId());
+        entry.setNetworkCode(callback.getNetworkCode());
+        return entry;
+    }
+
+    public InboundSMSCallback toCallback() {
+        InboundSMSCallback callback = new InboundSMSCallback();
+        callback.setId(providerMessageId);
+        callback.setFrom(sender);
+        callback.setTo(recipient);
+        callback.setText(text);
+        callback.setDate(sentDate);
+        callback.setLinkId(linkId);
+        callback.setNetworkCode(networkCode);
+        return callback;
+    }
+}
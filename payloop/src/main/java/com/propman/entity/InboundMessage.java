@@ -0,0 +1,69 @@
+package com.propman.entity;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+import org.hibernate.annotations.CreationTimestamp;
+
+import java.time.LocalDateTime;
+
+/**
+ * SMS received from a tenant or unknown number, linked to the tenant with
+ * that phone and the latest message the landlord sent to it
+ */
+@Entity
+@Table(name = "inbound_messages", indexes = {
+        @Index(name = "idx_inbound_messages_landlord_id", columnList = "landlord_id, id"),
+        @Index(name = "idx_inbound_messages_tenant_id", columnList = "tenant_id, id")
+})
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class InboundMessage {
+    
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+    
+    @Column(nullable = false, unique = true, length = 100)
+    private String providerMessageId;
+    
+    // Sender as 254XXXXXXXXX, see SMSLog.phoneKey
+    @Column(nullable = false, length = 15)
+    private String phone;
+    
+    @Column(length = 20)
+    private String shortCode;
+    
+    @Column(columnDefinition = "TEXT")
+    private String text;
+    
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 10)
+    private Keyword keyword = Keyword.NONE;
+    
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "tenant_id")
+    private Tenant tenant;
+    
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "landlord_id")
+    private Landlord landlord;
+    
+    // Latest message sent to this number by the tenant's landlord when the reply arrived
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "reply_to_id")
+    private SMSLog replyTo;
+    
+    @Column(nullable = false)
+    private LocalDateTime receivedAt;
+    
+    @CreationTimestamp
+    @Column(nullable = false, updatable = false)
+    private LocalDateTime createdAt;
+    
+    public enum Keyword {
+        STOP, PAID, HELP, NONE
+    }
+}
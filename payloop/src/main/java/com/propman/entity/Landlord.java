@@ -6,13 +6,16 @@ import lombok.Data;
 import lombok.NoArgsConstructor;
 import lombok.AllArgsConstructor;
 import org.hibernate.annotations.CreationTimestamp;
+import org.hibernate.annotations.DynamicUpdate;
 import org.hibernate.annotations.UpdateTimestamp;
 
+import java.math.BigDecimal;
 import java.time.LocalDateTime;
 import java.util.List;
 
 @Entity
 @Table(name = "landlords")
+@DynamicUpdate
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
@@ -51,6 +54,19 @@ public class Landlord {
     @Column(nullable = false, length = 20)
     private SubscriptionStatus subscriptionStatus = SubscriptionStatus.ACTIVE;
     
+    // Minutes to coalesce payment notifications into one SMS; null uses the default, 0 sends each payment
+    @Min(value = 0, message = "Payment digest window cannot be negative")
+    @Max(value = 1440, message = "Payment digest window cannot exceed a day")
+    private Integer paymentDigestMinutes;
+    
+    // Maintained incrementally from tenant ledger entries
+    @Column(precision = 12, scale = 2)
+    private BigDecimal outstandingPayments = BigDecimal.ZERO;
+    
+    // Prepaid SMS credit, written only through the credit ledger
+    @Column(precision = 12, scale = 2, updatable = false)
+    private BigDecimal smsCreditBalance = BigDecimal.ZERO;
+    
     @OneToMany(mappedBy = "landlord", cascade = CascadeType.ALL, fetch = FetchType.LAZY)
     private List<Property> properties;
     
@@ -0,0 +1,64 @@
+package com.propman.entity;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+import org.hibernate.annotations.CreationTimestamp;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * Append-only record of a charge or payment against a tenant's account.
+ * Entries are never updated; corrections are posted as new entries.
+ */
+@Entity
+@Table(name = "ledger_entries",
+        indexes = @Index(name = "idx_ledger_entries_tenant_id", columnList = "tenant_id, id"),
+        uniqueConstraints = @UniqueConstraint(name = "uk_ledger_entries_tenant_charge",
+                columnNames = {"tenant_id", "entryType", "dueDate"}))
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class LedgerEntry {
+    
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+    
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "tenant_id", nullable = false, updatable = false)
+    private Tenant tenant;
+    
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 20, updatable = false)
+    private EntryType entryType;
+    
+    // Positive for charges and payments, where the entry type gives the direction;
+    // an opening balance carries its own sign
+    @Column(nullable = false, precision = 10, scale = 2, updatable = false)
+    private BigDecimal amount;
+    
+    // Rent period a charge is for, or the earliest unpaid due date for an opening
+    // balance; null for payments
+    @Column(updatable = false)
+    private LocalDate dueDate;
+    
+    @Column(length = 50, updatable = false)
+    private String reference;
+    
+    @CreationTimestamp
+    @Column(nullable = false, updatable = false)
+    private LocalDateTime createdAt;
+    
+    public enum EntryType {
+        CHARGE, PAYMENT, OPENING
+    }
+    
+    // Helper method to get the signed effect on the tenant's balance
+    public BigDecimal getBalanceDelta() {
+        return entryType == EntryType.PAYMENT ? amount.negate() : amount;
+    }
+}
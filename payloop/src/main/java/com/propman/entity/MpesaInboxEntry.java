@@ -0,0 +1,101 @@
+package com.propman.entity;
+
+import com.propman.dto.MpesaC2BCallback;
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+import org.hibernate.annotations.CreationTimestamp;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * M-Pesa confirmation callback as received, written before it is
+ * acknowledged and deleted once the payment is recorded. A writer claims
+ * entries in batches; a claim that is not completed in time is taken over,
+ * so callbacks survive a crash on any node.
+ */
+@Entity
+@Table(name = "mpesa_inbox", indexes = {
+        @Index(name = "idx_mpesa_inbox_claim_token", columnList = "claimToken")
+})
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class MpesaInboxEntry {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(length = 50)
+    private String transId;
+
+    @Column(length = 50)
+    private String transactionType;
+
+    @Column(length = 20)
+    private String transTime;
+
+    @Column(precision = 10, scale = 2)
+    private BigDecimal transAmount;
+
+    @Column(length = 20)
+    private String businessShortCode;
+
+    @Column(length = 50)
+    private String billRefNumber;
+
+    @Column(length = 64)
+    private String msisdn;
+
+    @Column(length = 50)
+    private String firstName;
+
+    @Column(length = 50)
+    private String middleName;
+
+    @Column(length = 50)
+    private String lastName;
+
+    // Set when a writer claims the entry for a batch
+    @Column(length = 36)
+    private String claimToken;
+
+    private LocalDateTime claimedAt;
+
+    @CreationTimestamp
+    @Column(nullable = false, updatable = false)
+    private LocalDateTime receivedAt;
+
+    public static MpesaInboxEntry of(MpesaC2BCallback callback) {
+        MpesaInboxEntry entry = new MpesaInboxEntry();
+        entry.setTransId(callback.getTransId());
+        entry.setTransactionType(callback.getTransactionType());
+        entry.setTransTime(callback.getTransTime());
+        entry.setTransAmount(callback.getTransAmount());
+        entry.setBusinessShortCode(callback.getBusinessShortCode());
+        entry.setBillRefNumber(callback.getBillRefNumber());
+        entry.setMsisdn(callback.getMsisdn());
+        entry.setFirstName(callback.getFirstName());
+        entry.setMiddleName(callback.getMiddleName());
+        entry.setLastName(callback.getLastName());
+        return entry;
+    }
+
+    public MpesaC2BCallback toCallback() {
+        MpesaC2BCallback callback = new MpesaC2BCallback();
+        callback.setTransId(transId);
+        callback.setTransactionType(transactionType);
+        callback.setTransTime(transTime);
+        callback.setTransAmount(transAmount);
+        callback.setBusinessShortCode(businessShortCode);
+        callback.setBillRefNumber(billRefNumber);
+        callback.setMsisdn(msisdn);
+        callback.setFirstName(firstName);
+        callback.setMiddleName(middleName);
+        callback.setLastName(lastName);
+        return callback;
+    }
+}
@@ -6,6 +6,7 @@ import lombok.Data;
 import lombok.NoArgsConstructor;
 import lombok.AllArgsConstructor;
 import org.hibernate.annotations.CreationTimestamp;
+import org.hibernate.annotations.DynamicUpdate;
 import org.hibernate.annotations.UpdateTimestamp;
 
 import java.math.BigDecimal;
@@ -14,6 +15,7 @@ import java.util.List;
 
 @Entity
 @Table(name = "properties")
+@DynamicUpdate
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
@@ -45,6 +47,7 @@ public class Property {
     @Column(precision = 12, scale = 2)
     private BigDecimal monthlyRevenue = BigDecimal.ZERO;
     
+    // Maintained incrementally from tenant ledger entries
     @Column(precision = 12, scale = 2)
     private BigDecimal outstandingPayments = BigDecimal.ZERO;
     
@@ -67,10 +70,12 @@ public class Property {
         APARTMENT, HOUSE, COMMERCIAL
     }
     
-    // Helper method to get occupied units count
+    // Helper method to get occupied units count; defaulters still occupy their units.
+    // Loads the tenants, so use DashboardService for portfolio totals
     public int getOccupiedUnits() {
         return tenants != null ? (int) tenants.stream()
-                .filter(tenant -> tenant.getStatus() == Tenant.TenantStatus.ACTIVE)
+                .filter(tenant -> tenant.getStatus() == Tenant.TenantStatus.ACTIVE
+                        || tenant.getStatus() == Tenant.TenantStatus.DEFAULTER)
                 .count() : 0;
     }
     
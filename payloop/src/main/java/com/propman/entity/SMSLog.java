@@ -1,21 +1,36 @@
 package com.propman.entity;
 
+import com.propman.util.PhoneNumbers;
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import jakarta.persistence.*;
 import lombok.Data;
+import lombok.EqualsAndHashCode;
 import lombok.NoArgsConstructor;
 import lombok.AllArgsConstructor;
+import lombok.ToString;
 import org.hibernate.annotations.CreationTimestamp;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
 
 @Entity
-@Table(name = "sms_logs")
+@Table(name = "sms_logs", indexes = {
+        @Index(name = "idx_sms_logs_landlord_sent", columnList = "landlord_id, sent_at"),
+        @Index(name = "idx_sms_logs_landlord_phone_key", columnList = "landlord_id, recipient_phone_key, id")
+})
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
 public class SMSLog {
     
+    private static final int MAX_NAME_TOKENS = 8;
+    private static final int MAX_TOKEN_LENGTH = 30;
+    
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
@@ -26,6 +41,21 @@ public class SMSLog {
     @Column(nullable = false, length = 100)
     private String recipientName;
     
+    // Recipient phone as 254XXXXXXXXX, for indexed prefix search
+    @JsonIgnore
+    @Column(length = 15)
+    private String recipientPhoneKey;
+    
+    // Lowercase words of the recipient name, for indexed token prefix search
+    @JsonIgnore
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
+    @ElementCollection
+    @CollectionTable(name = "sms_log_name_tokens", joinColumns = @JoinColumn(name = "sms_log_id"), indexes = {
+            @Index(name = "idx_sms_log_name_tokens_landlord_token", columnList = "landlord_id, token, sms_log_id")
+    })
+    private Set<NameToken> nameTokens = new LinkedHashSet<>();
+    
     @Column(nullable = false, columnDefinition = "TEXT")
     private String message;
     
@@ -38,7 +68,10 @@ public class SMSLog {
     private SMSStatus status;
     
     @Column(length = 100)
-    private String messageId; // Africa's Talking message ID
+    private String messageId; // Provider message ID
+    
+    @Column(length = 30)
+    private String provider;
     
     @Column(precision = 8, scale = 2)
     private BigDecimal cost;
@@ -63,6 +96,45 @@ public class SMSLog {
     }
     
     public enum SMSStatus {
-        SENT, DELIVERED, FAILED, PENDING
+        SENT, DELIVERED, FAILED, PENDING, SUPPRESSED, THROTTLED, BLOCKED
+    }
+    
+    @PrePersist
+    void initializeSearchKeys() {
+        recipientPhoneKey = PhoneNumbers.key(recipientPhone);
+        Long landlordId = landlord != null ? landlord.getId() : null;
+        if (landlordId != null && nameTokens.isEmpty()) {
+            for (String token : nameTokens(recipientName)) {
+                nameTokens.add(new NameToken(landlordId, token));
+            }
+        }
+    }
+    
+    /**
+     * Split a name into distinct lowercase words, as stored for search
+     */
+    public static List<String> nameTokens(String name) {
+        Set<String> tokens = new LinkedHashSet<>();
+        if (name != null) {
+            for (String word : name.toLowerCase(Locale.ROOT).split("[^\\p{L}\\p{N}]+")) {
+                if (!word.isEmpty() && tokens.size() < MAX_NAME_TOKENS) {
+                    tokens.add(word.length() > MAX_TOKEN_LENGTH ? word.substring(0, MAX_TOKEN_LENGTH) : word);
+                }
+            }
+        }
+        return new ArrayList<>(tokens);
+    }
+    
+    @Embeddable
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class NameToken {
+        
+        @Column(name = "landlord_id", nullable = false)
+        private Long landlordId;
+        
+        @Column(name = "token", nullable = false, length = 30)
+        private String token;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,56 @@
+package com.propman.entity;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+import org.hibernate.annotations.CreationTimestamp;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Append-only record of SMS credit bought or spent by a landlord. Each sent
+ * message is debited once, keyed by its SMS log, so the balance can be
+ * rebuilt exactly from sms_logs after a crash.
+ */
+@Entity
+@Table(name = "sms_credit_transactions",
+        indexes = @Index(name = "idx_sms_credit_transactions_landlord_id", columnList = "landlord_id, id"),
+        uniqueConstraints = @UniqueConstraint(name = "uk_sms_credit_transactions_sms_log", columnNames = "sms_log_id"))
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class SmsCreditTransaction {
+    
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+    
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "landlord_id", nullable = false, updatable = false)
+    private Landlord landlord;
+    
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 20, updatable = false)
+    private TransactionType transactionType;
+    
+    // Always positive; the transaction type gives the direction
+    @Column(nullable = false, precision = 10, scale = 2, updatable = false)
+    private BigDecimal amount;
+    
+    // Message a debit is for; null for top-ups
+    @Column(name = "sms_log_id", updatable = false)
+    private Long smsLogId;
+    
+    @Column(length = 50, updatable = false)
+    private String reference;
+    
+    @CreationTimestamp
+    @Column(nullable = false, updatable = false)
+    private LocalDateTime createdAt;
+    
+    public enum TransactionType {
+        TOP_UP, DEBIT
+    }
+}
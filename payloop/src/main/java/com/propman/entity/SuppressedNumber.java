@@ -0,0 +1,44 @@
+package com.propman.entity;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+import org.hibernate.annotations.CreationTimestamp;
+
+import java.time.LocalDateTime;
+
+/**
+ * Number that must not be sent to, keyed by its normalized form (2547XXXXXXXX)
+ */
+@Entity
+@Table(name = "suppressed_numbers", indexes = {
+        @Index(name = "idx_suppressed_numbers_created_at", columnList = "createdAt, id")
+})
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class SuppressedNumber {
+    
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+    
+    @Column(nullable = false, unique = true, length = 20)
+    private String phone;
+    
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 20)
+    private SuppressionReason reason;
+    
+    @Column(length = 255)
+    private String note;
+    
+    @CreationTimestamp
+    @Column(nullable = false, updatable = false)
+    private LocalDateTime createdAt;
+    
+    public enum SuppressionReason {
+        OPT_OUT, HARD_BOUNCE, MANUAL
+    }
+}
@@ -6,14 +6,25 @@ import lombok.Data;
 import lombok.NoArgsConstructor;
 import lombok.AllArgsConstructor;
 import org.hibernate.annotations.CreationTimestamp;
+import org.hibernate.annotations.DynamicUpdate;
 import org.hibernate.annotations.UpdateTimestamp;
 
 import java.math.BigDecimal;
+import java.math.RoundingMode;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.time.YearMonth;
 
 @Entity
-@Table(name = "tenants")
+@Table(name = "tenants", indexes = {
+        @Index(name = "idx_tenants_landlord_status", columnList = "landlord_id, status"),
+        @Index(name = "idx_tenants_property_status", columnList = "property_id, status"),
+        @Index(name = "idx_tenants_status_due_date", columnList = "status, dueDate"),
+        @Index(name = "idx_tenants_status_next_due_date", columnList = "status, nextDueDate"),
+        @Index(name = "idx_tenants_updated_at", columnList = "updatedAt, id"),
+        @Index(name = "idx_tenants_status_changed_at", columnList = "statusChangedAt, id")
+})
+@DynamicUpdate
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
@@ -57,11 +68,22 @@ public class Tenant {
     @Column(nullable = false, length = 20)
     private TenantStatus status = TenantStatus.ACTIVE;
     
+    // Set by the delinquency sweep when it moves the tenant between ACTIVE and DEFAULTER
+    private LocalDateTime statusChangedAt;
+    
+    // Maintained incrementally from ledger entries
     @Column(precision = 10, scale = 2)
     private BigDecimal outstandingAmount = BigDecimal.ZERO;
     
     private LocalDate lastPaymentDate;
     
+    // Earliest rent due date not yet covered by a payment
+    private LocalDate nextDueDate;
+    
+    // Paid towards the period due on nextDueDate, short of a full rent period
+    @Column(precision = 10, scale = 2)
+    private BigDecimal paidTowardsNextDue = BigDecimal.ZERO;
+    
     @NotBlank(message = "Unit number is required")
     @Size(max = 10, message = "Unit number cannot exceed 10 characters")
     @Column(nullable = false, length = 10)
@@ -101,4 +123,50 @@ public class Tenant {
         }
         return phone.startsWith("+") ? phone : "+" + phone;
     }
-}
\ No newline at end of file
+    
+    // Helper method to apply a payment: record the date and move the next due date
+    // forward by every full rent period paid so far, carrying the remainder over
+    // so that partial payments add up
+    public void applyPayment(BigDecimal amount, LocalDate paidOn) {
+        lastPaymentDate = paidOn;
+        if (nextDueDate == null) {
+            return;
+        }
+        
+        BigDecimal paid = amount.add(paidTowardsNextDue != null ? paidTowardsNextDue : BigDecimal.ZERO);
+        int periods = paid.divide(rentAmount, 0, RoundingMode.DOWN).intValue();
+        paidTowardsNextDue = paid.subtract(rentAmount.multiply(BigDecimal.valueOf(periods)));
+        if (periods > 0) {
+            advanceNextDueDate(periods);
+        }
+    }
+    
+    // Helper method to move the next due date forward by whole rent periods
+    public void advanceNextDueDate(int periods) {
+        nextDueDate = dueDateIn(YearMonth.from(nextDueDate).plusMonths(periods), dueDate);
+    }
+    
+    // Helper method to get the first due date on or after a date
+    public static LocalDate dueDateOnOrAfter(LocalDate date, int dueDay) {
+        LocalDate candidate = dueDateIn(YearMonth.from(date), dueDay);
+        return candidate.isBefore(date) ? dueDateIn(YearMonth.from(date).plusMonths(1), dueDay) : candidate;
+    }
+    
+    // Helper method to get the last due date on or before a date
+    public static LocalDate dueDateOnOrBefore(LocalDate date, int dueDay) {
+        LocalDate candidate = dueDateIn(YearMonth.from(date), dueDay);
+        return candidate.isAfter(date) ? dueDateIn(YearMonth.from(date).minusMonths(1), dueDay) : candidate;
+    }
+    
+    // Due dates past the end of a short month fall on its last day
+    private static LocalDate dueDateIn(YearMonth month, int dueDay) {
+        return month.atDay(Math.min(dueDay, month.lengthOfMonth()));
+    }
+    
+    @PrePersist
+    void initializeNextDueDate() {
+        if (nextDueDate == null && dueDate != null && moveInDate != null) {
+            nextDueDate = dueDateOnOrAfter(moveInDate, dueDate);
+        }
+    }
+}
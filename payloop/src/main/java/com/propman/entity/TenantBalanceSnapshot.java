@@ -0,0 +1,39 @@
+package com.propman.entity;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+import org.hibernate.annotations.UpdateTimestamp;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * Tenant balance folded over ledger entries up to and including
+ * {@code lastEntryId}. Current balance is this plus the entries after it.
+ */
+@Entity
+@Table(name = "tenant_balance_snapshots")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class TenantBalanceSnapshot {
+    
+    @Id
+    private Long tenantId;
+    
+    @Column(nullable = false, precision = 12, scale = 2)
+    private BigDecimal balance = BigDecimal.ZERO;
+    
+    // Due date of the charge since which the balance has stayed positive
+    private LocalDate overdueSince;
+    
+    @Column(nullable = false)
+    private Long lastEntryId = 0L;
+    
+    @UpdateTimestamp
+    @Column(nullable = false)
+    private LocalDateTime takenAt;
+}
@@ -0,0 +1,47 @@
+package com.propman.entity;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+import org.hibernate.annotations.CreationTimestamp;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * M-Pesa payment that could not be matched to a tenant, kept for manual
+ * reconciliation
+ */
+@Entity
+@Table(name = "unmatched_payments")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class UnmatchedPayment {
+    
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+    
+    @Column(nullable = false, unique = true, length = 50)
+    private String transactionId;
+    
+    @Column(length = 64)
+    private String msisdn;
+    
+    @Column(length = 50)
+    private String accountReference;
+    
+    @Column(nullable = false, precision = 10, scale = 2)
+    private BigDecimal amount;
+    
+    private LocalDateTime transactionTime;
+    
+    @Column(length = 100)
+    private String payerName;
+    
+    @CreationTimestamp
+    @Column(nullable = false, updatable = false)
+    private LocalDateTime createdAt;
+}
@@ -0,0 +1,46 @@
+package com.propman.repository;
+
+import com.propman.entity.IdempotencyRecord;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.Optional;
+
+@Repository
+public interface IdempotencyRecordRepository extends JpaRepository<IdempotencyRecord, Long> {
+    
+    Optional<IdempotencyRecord> findByIdempotencyKey(String idempotencyKey);
+    
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM IdempotencyRecord r WHERE r.idempotencyKey = :key AND r.status = 'IN_PROGRESS'")
+    int deleteInProgress(@Param("key") String key);
+    
+    /**
+     * Delete a key that has expired, or that was left in progress by a node
+     * that stopped mid-request, so that it can be claimed again
+     */
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM IdempotencyRecord r WHERE r.idempotencyKey = :key AND (r.expiresAt < :now " +
+           "OR (r.status = 'IN_PROGRESS' AND COALESCE(r.heartbeatAt, r.createdAt) < :staleBefore))")
+    int deleteIfReclaimable(@Param("key") String key, @Param("now") LocalDateTime now,
+                            @Param("staleBefore") LocalDateTime staleBefore);
+    
+    @Transactional
+    @Modifying
+    @Query("UPDATE IdempotencyRecord r SET r.heartbeatAt = :now " +
+           "WHERE r.idempotencyKey IN :keys AND r.status = 'IN_PROGRESS'")
+    int renewInProgress(@Param("keys") Collection<String> keys, @Param("now") LocalDateTime now);
+    
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM IdempotencyRecord r WHERE r.expiresAt < :now")
+    int deleteExpired(@Param("now") LocalDateTime now);
+}
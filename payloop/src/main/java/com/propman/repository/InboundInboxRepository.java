@@ -0,0 +1,39 @@
+package com.propman.repository;
+
+import com.propman.entity.InboundInboxEntry;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface InboundInboxRepository extends JpaRepository<InboundInboxEntry, Long> {
+
+    @Query("SELECT e.id FROM InboundInboxEntry e WHERE e.claimedAt IS NULL OR e.claimedAt < :staleBefore ORDER BY e.id")
+    List<Long> findClaimableIds(@Param("staleBefore") LocalDateTime staleBefore, Pageable pageable);
+
+    /**
+     * Claim entries that are unclaimed, or whose claim has gone stale. An
+     * entry claimed by another writer in the meantime is left alone.
+     */
+    @Transactional
+    @Modifying
+    @Query("UPDATE InboundInboxEntry e SET e.claimToken = :token, e.claimedAt = :now " +
+           "WHERE e.id IN :ids AND (e.claimedAt IS NULL OR e.claimedAt < :staleBefore)")
+    int claim(@Param("ids") Collection<Long> ids, @Param("token") String token,
+              @Param("now") LocalDateTime now, @Param("staleBefore") LocalDateTime staleBefore);
+
+    List<InboundInboxEntry> findByClaimTokenOrderByIdAsc(String claimToken);
+
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM InboundInboxEntry e WHERE e.id IN :ids")
+    int deleteByIdIn(@Param("ids") Collection<Long> ids);
+}
@@ -0,0 +1,54 @@
+package com.propman.repository;
+
+import com.propman.entity.InboundMessage;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * JDBC batch insert for inbound messages, which arrive in bursts after
+ * reminders and campaigns. The id is an IDENTITY column, which stops
+ * Hibernate from batching inserts.
+ */
+@Repository
+@RequiredArgsConstructor
+public class InboundMessageBatchRepository {
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Transactional
+    public void insertAll(List<InboundMessage> messages) {
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        jdbcTemplate.batchUpdate(
+                "INSERT INTO inbound_messages (provider_message_id, phone, short_code, text, keyword, tenant_id, " +
+                "landlord_id, reply_to_id, received_at, created_at) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?)",
+                messages, messages.size(), (ps, message) -> {
+                    ps.setString(1, message.getProviderMessageId());
+                    ps.setString(2, message.getPhone());
+                    ps.setString(3, message.getShortCode());
+                    ps.setString(4, message.getText());
+                    ps.setString(5, message.getKeyword().name());
+                    setId(ps, 6, message.getTenant() != null ? message.getTenant().getId() : null);
+                    setId(ps, 7, message.getLandlord() != null ? message.getLandlord().getId() : null);
+                    setId(ps, 8, message.getReplyTo() != null ? message.getReplyTo().getId() : null);
+                    ps.setTimestamp(9, Timestamp.valueOf(message.getReceivedAt()));
+                    ps.setTimestamp(10, now);
+                });
+    }
+
+    private static void setId(PreparedStatement ps, int index, Long id) throws SQLException {
+        if (id != null) {
+            ps.setLong(index, id);
+        } else {
+            ps.setNull(index, Types.BIGINT);
+        }
+    }
+}
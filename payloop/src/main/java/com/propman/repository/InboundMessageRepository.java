@@ -0,0 +1,42 @@
+package com.propman.repository;
+
+import com.propman.entity.InboundMessage;
+import com.propman.entity.SMSLog;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface InboundMessageRepository extends JpaRepository<InboundMessage, Long> {
+    
+    @Query("SELECT m.providerMessageId FROM InboundMessage m WHERE m.providerMessageId IN :providerMessageIds")
+    List<String> findExistingProviderMessageIds(@Param("providerMessageIds") Collection<String> providerMessageIds);
+    
+    @Query(value = "SELECT m.id AS id, m.phone AS phone, m.text AS text, m.keyword AS keyword, " +
+                   "t.id AS tenantId, t.name AS tenantName, t.unitNumber AS unitNumber, r.id AS replyToId, " +
+                   "r.smsType AS replyToType, m.receivedAt AS receivedAt " +
+                   "FROM InboundMessage m LEFT JOIN m.tenant t LEFT JOIN m.replyTo r " +
+                   "WHERE m.landlord.id = :landlordId ORDER BY m.id DESC",
+           countQuery = "SELECT COUNT(m) FROM InboundMessage m WHERE m.landlord.id = :landlordId")
+    Page<InboundMessageView> findByLandlordId(@Param("landlordId") Long landlordId, Pageable pageable);
+    
+    interface InboundMessageView {
+        Long getId();
+        String getPhone();
+        String getText();
+        InboundMessage.Keyword getKeyword();
+        Long getTenantId();
+        String getTenantName();
+        String getUnitNumber();
+        Long getReplyToId();
+        SMSLog.SMSType getReplyToType();
+        LocalDateTime getReceivedAt();
+    }
+}
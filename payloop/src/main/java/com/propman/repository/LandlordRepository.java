@@ -2,8 +2,13 @@ package com.propman.repository;
 
 import com.propman.entity.Landlord;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.math.BigDecimal;
 import java.util.Optional;
 
 @Repository
@@ -16,4 +21,13 @@ public interface LandlordRepository extends JpaRepository<Landlord, Long> {
     boolean existsByEmail(String email);
     
     boolean existsByPhone(String phone);
+    
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE Landlord l SET l.outstandingPayments = COALESCE(l.outstandingPayments, 0) + :delta WHERE l.id = :id")
+    int addOutstandingPayments(@Param("id") Long id, @Param("delta") BigDecimal delta);
+    
+    @Transactional
+    @Modifying
+    @Query("UPDATE Landlord l SET l.paymentDigestMinutes = :minutes WHERE l.id = :id")
+    int updatePaymentDigestMinutes(@Param("id") Long id, @Param("minutes") Integer minutes);
 }
\ No newline at end of file
@@ -0,0 +1,142 @@
+package com.propman.repository;
+
+import com.propman.entity.LedgerEntry;
+import com.propman.entity.Payment;
+import com.propman.entity.Tenant;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * JDBC batch writes for high-volume payment ingestion. Payment and ledger
+ * ids are IDENTITY columns, which stops Hibernate from batching inserts, so
+ * these statements go straight through JdbcTemplate and join the current
+ * JPA transaction.
+ */
+@Repository
+@RequiredArgsConstructor
+public class LedgerBatchRepository {
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public void insertPayments(List<Payment> payments) {
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        jdbcTemplate.batchUpdate(
+                "INSERT INTO payments (tenant_id, landlord_id, amount, payment_date, method, reference, status, created_at) " +
+                "VALUES (?, ?, ?, ?, ?, ?, ?, ?)",
+                payments, payments.size(), (ps, payment) -> {
+                    ps.setLong(1, payment.getTenant().getId());
+                    ps.setLong(2, payment.getLandlord().getId());
+                    ps.setBigDecimal(3, payment.getAmount());
+                    ps.setTimestamp(4, Timestamp.valueOf(payment.getPaymentDate()));
+                    ps.setString(5, payment.getMethod().name());
+                    ps.setString(6, payment.getReference());
+                    ps.setString(7, payment.getStatus().name());
+                    ps.setTimestamp(8, now);
+                });
+    }
+
+    public void insertLedgerEntries(List<LedgerEntry> entries) {
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        jdbcTemplate.batchUpdate(
+                "INSERT INTO ledger_entries (tenant_id, entry_type, amount, due_date, reference, created_at) " +
+                "VALUES (?, ?, ?, ?, ?, ?)",
+                entries, entries.size(), (ps, entry) -> {
+                    ps.setLong(1, entry.getTenant().getId());
+                    ps.setString(2, entry.getEntryType().name());
+                    ps.setBigDecimal(3, entry.getAmount());
+                    ps.setDate(4, entry.getDueDate() != null ? Date.valueOf(entry.getDueDate()) : null);
+                    ps.setString(5, entry.getReference());
+                    ps.setTimestamp(6, now);
+                });
+    }
+
+    /**
+     * Post an opening balance for every tenant whose outstanding amount
+     * includes arrears from before the ledger, so the ledger balance agrees
+     * with it. The opening amount is the difference between the two and is
+     * not added to any total, which already includes it. Tenants that have
+     * an opening entry are skipped. Returns the number of entries posted.
+     */
+    public int insertOpeningBalances() {
+        return jdbcTemplate.update(
+                "INSERT INTO ledger_entries (tenant_id, entry_type, amount, due_date, reference, created_at) " +
+                "SELECT t.id, 'OPENING', t.outstanding_amount - COALESCE(p.posted, 0), t.next_due_date, NULL, ? " +
+                "FROM tenants t LEFT JOIN (" +
+                "SELECT tenant_id, SUM(CASE WHEN entry_type = 'PAYMENT' THEN -amount ELSE amount END) AS posted " +
+                "FROM ledger_entries GROUP BY tenant_id) p ON p.tenant_id = t.id " +
+                "WHERE t.outstanding_amount <> COALESCE(p.posted, 0) " +
+                "AND NOT EXISTS (SELECT 1 FROM ledger_entries o WHERE o.tenant_id = t.id AND o.entry_type = 'OPENING')",
+                Timestamp.valueOf(LocalDateTime.now()));
+    }
+
+    public void addTenantOutstanding(Map<Long, BigDecimal> deltas) {
+        addDeltas("UPDATE tenants SET outstanding_amount = COALESCE(outstanding_amount, 0) + ? WHERE id = ?", deltas);
+    }
+
+    public void addPropertyOutstanding(Map<Long, BigDecimal> deltas) {
+        addDeltas("UPDATE properties SET outstanding_payments = COALESCE(outstanding_payments, 0) + ? WHERE id = ?", deltas);
+    }
+
+    public void addLandlordOutstanding(Map<Long, BigDecimal> deltas) {
+        addDeltas("UPDATE landlords SET outstanding_payments = COALESCE(outstanding_payments, 0) + ? WHERE id = ?", deltas);
+    }
+
+    /**
+     * Lock tenant rows until the transaction ends, in id order so batches
+     * cannot deadlock, and read the payment fields that updatePaymentDates
+     * writes back whole
+     */
+    public Map<Long, PaymentState> lockPaymentStates(Collection<Long> tenantIds) {
+        Map<Long, PaymentState> states = new HashMap<>();
+        if (tenantIds.isEmpty()) {
+            return states;
+        }
+        String placeholders = String.join(",", Collections.nCopies(tenantIds.size(), "?"));
+        jdbcTemplate.query("SELECT id, last_payment_date, next_due_date, paid_towards_next_due FROM tenants " +
+                        "WHERE id IN (" + placeholders + ") ORDER BY id FOR UPDATE",
+                rs -> {
+                    Date lastPaymentDate = rs.getDate("last_payment_date");
+                    Date nextDueDate = rs.getDate("next_due_date");
+                    states.put(rs.getLong("id"), new PaymentState(
+                            lastPaymentDate != null ? lastPaymentDate.toLocalDate() : null,
+                            nextDueDate != null ? nextDueDate.toLocalDate() : null,
+                            rs.getBigDecimal("paid_towards_next_due")));
+                }, tenantIds.toArray());
+        return states;
+    }
+
+    public void updatePaymentDates(Collection<Tenant> tenants) {
+        jdbcTemplate.batchUpdate(
+                "UPDATE tenants SET last_payment_date = ?, next_due_date = ?, paid_towards_next_due = ? WHERE id = ?",
+                tenants, tenants.size(), (ps, tenant) -> {
+                    ps.setDate(1, tenant.getLastPaymentDate() != null ? Date.valueOf(tenant.getLastPaymentDate()) : null);
+                    ps.setDate(2, tenant.getNextDueDate() != null ? Date.valueOf(tenant.getNextDueDate()) : null);
+                    ps.setBigDecimal(3, tenant.getPaidTowardsNextDue());
+                    ps.setLong(4, tenant.getId());
+                });
+    }
+
+    private void addDeltas(String sql, Map<Long, BigDecimal> deltas) {
+        List<Map.Entry<Long, BigDecimal>> rows = new ArrayList<>(deltas.entrySet());
+        jdbcTemplate.batchUpdate(sql, rows, rows.size(), (ps, row) -> {
+            ps.setBigDecimal(1, row.getValue());
+            ps.setLong(2, row.getKey());
+        });
+    }
+
+    public record PaymentState(LocalDate lastPaymentDate, LocalDate nextDueDate, BigDecimal paidTowardsNextDue) {
+    }
+}
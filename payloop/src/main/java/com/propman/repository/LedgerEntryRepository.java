@@ -0,0 +1,41 @@
+package com.propman.repository;
+
+import com.propman.entity.LedgerEntry;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface LedgerEntryRepository extends JpaRepository<LedgerEntry, Long> {
+    
+    List<LedgerEntry> findByTenantIdAndIdGreaterThanOrderByIdAsc(Long tenantId, Long afterId);
+    
+    @Transactional(readOnly = true)
+    Page<LedgerEntryView> findByTenantIdOrderByIdDesc(Long tenantId, Pageable pageable);
+    
+    boolean existsByTenantIdAndEntryTypeAndDueDate(Long tenantId, LedgerEntry.EntryType entryType, LocalDate dueDate);
+    
+    @Query("SELECT e.tenant.id FROM LedgerEntry e " +
+           "LEFT JOIN TenantBalanceSnapshot s ON s.tenantId = e.tenant.id " +
+           "WHERE s.tenantId IS NULL OR e.id > s.lastEntryId " +
+           "GROUP BY e.tenant.id HAVING COUNT(e) >= :minTail")
+    List<Long> findTenantIdsWithTailOfAtLeast(@Param("minTail") long minTail);
+    
+    interface LedgerEntryView {
+        Long getId();
+        LedgerEntry.EntryType getEntryType();
+        BigDecimal getAmount();
+        LocalDate getDueDate();
+        String getReference();
+        LocalDateTime getCreatedAt();
+    }
+}
@@ -0,0 +1,35 @@
+package com.propman.repository;
+
+import com.propman.entity.Payment;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface PaymentRepository extends JpaRepository<Payment, Long> {
+    
+    List<Payment> findByTenantIdOrderByPaymentDateDesc(Long tenantId);
+    
+    boolean existsByReference(String reference);
+    
+    @Query("SELECT p.reference FROM Payment p WHERE p.reference IN :references")
+    List<String> findExistingReferences(@Param("references") Collection<String> references);
+    
+    @Query("SELECT t.property.id AS propertyId, SUM(p.amount) AS collected FROM Payment p JOIN p.tenant t " +
+           "WHERE p.landlord.id = :landlordId AND p.paymentDate >= :since AND p.status = :status " +
+           "GROUP BY t.property.id")
+    List<PropertyCollection> sumCollectedByProperty(@Param("landlordId") Long landlordId,
+                                                    @Param("since") LocalDateTime since,
+                                                    @Param("status") Payment.PaymentStatus status);
+    
+    interface PropertyCollection {
+        Long getPropertyId();
+        BigDecimal getCollected();
+    }
+}
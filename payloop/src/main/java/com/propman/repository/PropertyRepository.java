@@ -2,10 +2,12 @@ package com.propman.repository;
 
 import com.propman.entity.Property;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.math.BigDecimal;
 import java.util.List;
 
 @Repository
@@ -15,4 +17,19 @@ public interface PropertyRepository extends JpaRepository<Property, Long> {
     
     @Query("SELECT p FROM Property p WHERE p.landlord.id = :landlordId ORDER BY p.createdAt DESC")
     List<Property> findByLandlordIdOrderByCreatedAtDesc(@Param("landlordId") Long landlordId);
-}
\ No newline at end of file
+    
+    @Query("SELECT p.id AS id, p.name AS name, p.totalUnits AS totalUnits, p.outstandingPayments AS outstandingPayments " +
+           "FROM Property p WHERE p.landlord.id = :landlordId ORDER BY p.name, p.id")
+    List<PropertyTotals> findTotalsByLandlordId(@Param("landlordId") Long landlordId);
+    
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE Property p SET p.outstandingPayments = COALESCE(p.outstandingPayments, 0) + :delta WHERE p.id = :id")
+    int addOutstandingPayments(@Param("id") Long id, @Param("delta") BigDecimal delta);
+    
+    interface PropertyTotals {
+        Long getId();
+        String getName();
+        Integer getTotalUnits();
+        BigDecimal getOutstandingPayments();
+    }
+}
@@ -0,0 +1,44 @@
+package com.propman.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Repository;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+
+/**
+ * Reads SMS logs for export through a forward-only, read-only cursor. Rows
+ * are handed to the callback as the driver fetches them, fetch.size at a
+ * time, so an export never holds more than one fetch in memory. On MySQL
+ * this needs useCursorFetch=true on the connection URL.
+ */
+@Repository
+@RequiredArgsConstructor
+public class SMSLogExportRepository {
+
+    private static final String SELECT_LOGS =
+            "SELECT id, sent_at, recipient_phone, recipient_name, sms_type, status, provider, message_id, " +
+            "cost, error_message, tenant_id, message FROM sms_logs " +
+            "WHERE landlord_id = ? AND sent_at >= ? AND sent_at < ? ORDER BY sent_at, id";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Value("${sms.export.fetch.size:1000}")
+    private int fetchSize;
+
+    public void forEachLog(Long landlordId, LocalDateTime from, LocalDateTime to, RowCallbackHandler handler) {
+        jdbcTemplate.query(con -> {
+            PreparedStatement ps = con.prepareStatement(SELECT_LOGS, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            ps.setFetchSize(fetchSize);
+            ps.setLong(1, landlordId);
+            ps.setTimestamp(2, Timestamp.valueOf(from));
+            ps.setTimestamp(3, Timestamp.valueOf(to));
+            return ps;
+        }, handler);
+    }
+}
@@ -7,11 +7,14 @@ import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 
 @Repository
+@Transactional(readOnly = true)
 public interface SMSLogRepository extends JpaRepository<SMSLog, Long> {
     
     Page<SMSLog> findByLandlordId(Long landlordId, Pageable pageable);
@@ -29,4 +32,63 @@ public interface SMSLogRepository extends JpaRepository<SMSLog, Long> {
     
     @Query("SELECT SUM(s.cost) FROM SMSLog s WHERE s.landlord.id = :landlordId AND s.status = 'SENT' AND s.sentAt >= :startDate")
     Double getTotalCostByLandlordSince(@Param("landlordId") Long landlordId, @Param("startDate") LocalDateTime startDate);
-}
\ No newline at end of file
+    
+    // Both searches read their index in order, newest first per key, and stop at the page size
+    @Query("SELECT s FROM SMSLog s WHERE s.landlord.id = :landlordId AND s.recipientPhoneKey LIKE :prefix " +
+           "ORDER BY s.recipientPhoneKey DESC, s.id DESC")
+    List<SMSLog> searchByPhonePrefix(@Param("landlordId") Long landlordId, @Param("prefix") String prefix, Pageable pageable);
+    
+    @Query("SELECT s FROM SMSLog s JOIN s.nameTokens t WHERE t.landlordId = :landlordId AND t.token LIKE :prefix " +
+           "ORDER BY t.token DESC, s.id DESC")
+    List<SMSLog> searchByNameToken(@Param("landlordId") Long landlordId, @Param("prefix") String prefix, Pageable pageable);
+    
+    @Query("SELECT s.id AS id, s.recipientPhoneKey AS recipientPhoneKey, s.smsType AS smsType, s.sentAt AS sentAt " +
+           "FROM SMSLog s WHERE s.id > :afterId AND s.status IN :statuses ORDER BY s.id")
+    List<SentKey> findSentKeysAfterId(@Param("afterId") long afterId, @Param("statuses") Collection<SMSLog.SMSStatus> statuses, Pageable pageable);
+    
+    // One row per landlord and number, each read from the end of its (landlord_id, recipient_phone_key, id) range
+    @Query("SELECT s.landlord.id AS landlordId, s.recipientPhoneKey AS recipientPhoneKey, MAX(s.id) AS id FROM SMSLog s " +
+           "WHERE s.landlord.id IN :landlordIds AND s.recipientPhoneKey IN :phoneKeys " +
+           "GROUP BY s.landlord.id, s.recipientPhoneKey")
+    List<LatestLog> findLatestIds(@Param("landlordIds") Collection<Long> landlordIds,
+                                  @Param("phoneKeys") Collection<String> phoneKeys);
+    
+    @Query("SELECT MAX(s.id) FROM SMSLog s")
+    Long findMaxId();
+    
+    @Query("SELECT s.sentAt FROM SMSLog s WHERE s.id = (SELECT MIN(f.id) FROM SMSLog f WHERE f.id >= :id)")
+    LocalDateTime findSentAtOfFirstIdFrom(@Param("id") long id);
+    
+    /**
+     * Binary search on id for the first log sent at or after a time, as ids
+     * grow with sent_at and there is no index on sent_at alone
+     */
+    default long findFirstIdSentSince(LocalDateTime since) {
+        Long maxId = findMaxId();
+        long low = 0;
+        long high = maxId != null ? maxId + 1 : 0;
+        while (low < high) {
+            long mid = low + (high - low) / 2;
+            LocalDateTime sentAt = findSentAtOfFirstIdFrom(mid);
+            if (sentAt == null || !sentAt.isBefore(since)) {
+                high = mid;
+            } else {
+                low = mid + 1;
+            }
+        }
+        return Math.max(1, low);
+    }
+    
+    interface LatestLog {
+        Long getLandlordId();
+        String getRecipientPhoneKey();
+        Long getId();
+    }
+    
+    interface SentKey {
+        Long getId();
+        String getRecipientPhoneKey();
+        SMSLog.SMSType getSmsType();
+        LocalDateTime getSentAt();
+    }
+}
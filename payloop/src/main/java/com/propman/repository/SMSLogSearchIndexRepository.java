@@ -0,0 +1,80 @@
+package com.propman.repository;
+
+import com.propman.entity.SMSLog;
+import com.propman.util.PhoneNumbers;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Fills the search columns of SMS logs written before they existed. New
+ * logs get them on insert; this only runs for the backlog, by id range.
+ */
+@Repository
+@RequiredArgsConstructor
+public class SMSLogSearchIndexRepository {
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public long findMaxId() {
+        Long maxId = jdbcTemplate.queryForObject("SELECT MAX(id) FROM sms_logs", Long.class);
+        return maxId != null ? maxId : 0;
+    }
+
+    public List<UnindexedLog> findUnindexed(long afterId, long toId) {
+        return jdbcTemplate.query(
+                "SELECT id, landlord_id, recipient_phone, recipient_name FROM sms_logs " +
+                "WHERE id > ? AND id <= ? AND recipient_phone_key IS NULL",
+                (rs, rowNum) -> {
+                    long landlordId = rs.getLong("landlord_id");
+                    return new UnindexedLog(rs.getLong("id"), rs.wasNull() ? null : landlordId,
+                            rs.getString("recipient_phone"), rs.getString("recipient_name"));
+                },
+                afterId, toId);
+    }
+
+    /**
+     * Set the phone key and insert name tokens. Rows indexed concurrently,
+     * by another node, are skipped. Returns the number of rows indexed.
+     */
+    @Transactional
+    public int index(List<UnindexedLog> logs) {
+        int[][] counts = jdbcTemplate.batchUpdate(
+                "UPDATE sms_logs SET recipient_phone_key = ? WHERE id = ? AND recipient_phone_key IS NULL",
+                logs, logs.size(), (ps, log) -> {
+                    ps.setString(1, PhoneNumbers.key(log.recipientPhone()));
+                    ps.setLong(2, log.id());
+                });
+
+        List<UnindexedLog> updated = new ArrayList<>();
+        int i = 0;
+        for (int[] batch : counts) {
+            for (int count : batch) {
+                if (count != 0) {
+                    updated.add(logs.get(i));
+                }
+                i++;
+            }
+        }
+
+        List<Object[]> tokens = new ArrayList<>();
+        for (UnindexedLog log : updated) {
+            if (log.landlordId() != null) {
+                for (String token : SMSLog.nameTokens(log.recipientName())) {
+                    tokens.add(new Object[]{log.id(), log.landlordId(), token});
+                }
+            }
+        }
+        if (!tokens.isEmpty()) {
+            jdbcTemplate.batchUpdate("INSERT INTO sms_log_name_tokens (sms_log_id, landlord_id, token) VALUES (?, ?, ?)", tokens);
+        }
+        return updated.size();
+    }
+
+    public record UnindexedLog(long id, Long landlordId, String recipientPhone, String recipientName) {
+    }
+}
@@ -0,0 +1,158 @@
+package com.propman.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * JDBC writes for the SMS credit wallet. Debits for many messages are
+ * inserted in one batch and applied to landlord balances as one delta per
+ * landlord, so the landlords row is not updated per message.
+ */
+@Repository
+@RequiredArgsConstructor
+public class SmsCreditBatchRepository {
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public BigDecimal findBalance(Long landlordId) {
+        List<BigDecimal> balances = jdbcTemplate.queryForList(
+                "SELECT COALESCE(sms_credit_balance, 0) FROM landlords WHERE id = ?", BigDecimal.class, landlordId);
+        return balances.isEmpty() ? BigDecimal.ZERO : balances.get(0);
+    }
+
+    public Map<Long, BigDecimal> findBalances(Collection<Long> landlordIds) {
+        Map<Long, BigDecimal> balances = new HashMap<>();
+        if (landlordIds.isEmpty()) {
+            return balances;
+        }
+        String placeholders = String.join(",", Collections.nCopies(landlordIds.size(), "?"));
+        jdbcTemplate.query("SELECT id, COALESCE(sms_credit_balance, 0) AS balance FROM landlords WHERE id IN (" + placeholders + ")",
+                rs -> {
+                    balances.put(rs.getLong("id"), rs.getBigDecimal("balance"));
+                }, landlordIds.toArray());
+        return balances;
+    }
+
+    /**
+     * Insert debits and take them off landlord balances in one transaction.
+     * Fails as a whole if any message was already debited.
+     */
+    @Transactional
+    public void postDebits(List<Debit> debits) {
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        jdbcTemplate.batchUpdate(
+                "INSERT INTO sms_credit_transactions (landlord_id, transaction_type, amount, sms_log_id, created_at) " +
+                "VALUES (?, 'DEBIT', ?, ?, ?)",
+                debits, debits.size(), (ps, debit) -> {
+                    ps.setLong(1, debit.landlordId());
+                    ps.setBigDecimal(2, debit.amount());
+                    ps.setLong(3, debit.smsLogId());
+                    ps.setTimestamp(4, now);
+                });
+
+        Map<Long, BigDecimal> deltas = new LinkedHashMap<>();
+        for (Debit debit : debits) {
+            deltas.merge(debit.landlordId(), debit.amount().negate(), BigDecimal::add);
+        }
+        addBalances(deltas);
+    }
+
+    @Transactional
+    public void postTopUp(Long landlordId, BigDecimal amount, String reference) {
+        jdbcTemplate.update(
+                "INSERT INTO sms_credit_transactions (landlord_id, transaction_type, amount, reference, created_at) " +
+                "VALUES (?, 'TOP_UP', ?, ?, ?)",
+                landlordId, amount, reference, Timestamp.valueOf(LocalDateTime.now()));
+        addBalances(Map.of(landlordId, amount));
+    }
+
+    /**
+     * Top up landlords created before a time that have no credit
+     * transactions at all, with reference OPENING. The landlord rows are
+     * locked, so nodes starting together grant each landlord once.
+     */
+    @Transactional
+    public int postOpeningCredits(BigDecimal amount, LocalDateTime createdBefore) {
+        List<Long> landlordIds = jdbcTemplate.queryForList(
+                "SELECT l.id FROM landlords l WHERE l.created_at < ? " +
+                "AND NOT EXISTS (SELECT 1 FROM sms_credit_transactions t WHERE t.landlord_id = l.id) " +
+                "ORDER BY l.id FOR UPDATE",
+                Long.class, Timestamp.valueOf(createdBefore));
+        if (landlordIds.isEmpty()) {
+            return 0;
+        }
+
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        jdbcTemplate.batchUpdate(
+                "INSERT INTO sms_credit_transactions (landlord_id, transaction_type, amount, reference, created_at) " +
+                "VALUES (?, 'TOP_UP', ?, 'OPENING', ?)",
+                landlordIds, landlordIds.size(), (ps, landlordId) -> {
+                    ps.setLong(1, landlordId);
+                    ps.setBigDecimal(2, amount);
+                    ps.setTimestamp(3, now);
+                });
+        Map<Long, BigDecimal> deltas = new LinkedHashMap<>();
+        landlordIds.forEach(landlordId -> deltas.put(landlordId, amount));
+        addBalances(deltas);
+        return landlordIds.size();
+    }
+
+    /**
+     * When the wallet first recorded a transaction, or null if it never has
+     */
+    public LocalDateTime findFirstTransactionTime() {
+        List<Timestamp> times = jdbcTemplate.queryForList(
+                "SELECT created_at FROM sms_credit_transactions ORDER BY id LIMIT 1", Timestamp.class);
+        return times.isEmpty() ? null : times.get(0).toLocalDateTime();
+    }
+
+    /**
+     * Messages in an id range with a cost but no debit. Used to recover
+     * debits that were still in memory when a node stopped.
+     */
+    public List<Debit> findUndebitedLogs(long afterId, long toId) {
+        return jdbcTemplate.query(
+                "SELECT l.id, l.landlord_id, l.cost FROM sms_logs l " +
+                "WHERE l.id > ? AND l.id <= ? AND l.landlord_id IS NOT NULL AND l.cost > 0 " +
+                "AND NOT EXISTS (SELECT 1 FROM sms_credit_transactions t WHERE t.sms_log_id = l.id) " +
+                "ORDER BY l.id",
+                (rs, rowNum) -> new Debit(rs.getLong("landlord_id"), rs.getLong("id"), rs.getBigDecimal("cost")),
+                afterId, toId);
+    }
+
+    /**
+     * The id up to which logs were sent before a time, reading at most limit
+     * ids past afterId. Ids grow with sent_at, so this walks the primary key.
+     */
+    public long findLastLogIdSentBefore(long afterId, LocalDateTime sentBefore, int limit) {
+        List<Long> ids = jdbcTemplate.queryForList(
+                "SELECT id FROM sms_logs WHERE id > ? AND sent_at < ? ORDER BY id LIMIT ?",
+                Long.class, afterId, Timestamp.valueOf(sentBefore), limit);
+        return ids.isEmpty() ? afterId : ids.get(ids.size() - 1);
+    }
+
+    private void addBalances(Map<Long, BigDecimal> deltas) {
+        List<Map.Entry<Long, BigDecimal>> rows = new ArrayList<>(deltas.entrySet());
+        jdbcTemplate.batchUpdate("UPDATE landlords SET sms_credit_balance = COALESCE(sms_credit_balance, 0) + ? WHERE id = ?",
+                rows, rows.size(), (ps, row) -> {
+                    ps.setBigDecimal(1, row.getValue());
+                    ps.setLong(2, row.getKey());
+                });
+    }
+
+    public record Debit(long landlordId, long smsLogId, BigDecimal amount) {
+    }
+}
@@ -0,0 +1,27 @@
+package com.propman.repository;
+
+import com.propman.entity.SmsCreditTransaction;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+@Repository
+public interface SmsCreditTransactionRepository extends JpaRepository<SmsCreditTransaction, Long> {
+    
+    @Transactional(readOnly = true)
+    Page<CreditTransactionView> findByLandlordIdOrderByIdDesc(Long landlordId, Pageable pageable);
+    
+    interface CreditTransactionView {
+        Long getId();
+        SmsCreditTransaction.TransactionType getTransactionType();
+        BigDecimal getAmount();
+        Long getSmsLogId();
+        String getReference();
+        LocalDateTime getCreatedAt();
+    }
+}
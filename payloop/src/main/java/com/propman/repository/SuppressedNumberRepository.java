@@ -0,0 +1,49 @@
+package com.propman.repository;
+
+import com.propman.entity.SuppressedNumber;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface SuppressedNumberRepository extends JpaRepository<SuppressedNumber, Long> {
+    
+    boolean existsByPhone(String phone);
+    
+    Optional<SuppressedNumber> findByPhone(String phone);
+    
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM SuppressedNumber s WHERE s.phone = :phone")
+    int deleteByPhone(@Param("phone") String phone);
+    
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM SuppressedNumber s WHERE s.phone = :phone AND s.reason = :reason")
+    int deleteByPhoneAndReason(@Param("phone") String phone,
+                               @Param("reason") SuppressedNumber.SuppressionReason reason);
+    
+    @Query("SELECT s.id AS id, s.phone AS phone, s.createdAt AS createdAt FROM SuppressedNumber s " +
+           "WHERE s.id > :afterId ORDER BY s.id")
+    List<SuppressedKey> findKeysAfterId(@Param("afterId") Long afterId, Pageable pageable);
+    
+    @Query("SELECT s.id AS id, s.phone AS phone, s.createdAt AS createdAt FROM SuppressedNumber s " +
+           "WHERE s.createdAt > :since OR (s.createdAt = :since AND s.id > :afterId) " +
+           "ORDER BY s.createdAt, s.id")
+    List<SuppressedKey> findKeysCreatedSince(@Param("since") LocalDateTime since, @Param("afterId") Long afterId,
+                                             Pageable pageable);
+    
+    interface SuppressedKey {
+        Long getId();
+        String getPhone();
+        LocalDateTime getCreatedAt();
+    }
+}
@@ -0,0 +1,9 @@
+package com.propman.repository;
+
+import com.propman.entity.TenantBalanceSnapshot;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface TenantBalanceSnapshotRepository extends JpaRepository<TenantBalanceSnapshot, Long> {
+}
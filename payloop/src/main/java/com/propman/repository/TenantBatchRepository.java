@@ -0,0 +1,73 @@
+package com.propman.repository;
+
+import com.propman.entity.Tenant;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * JDBC batch inserts for bulk tenant import. Tenant ids are IDENTITY
+ * columns, which stops Hibernate from batching inserts, so the generated ids
+ * are read back from the batch and set on the tenants.
+ */
+@Repository
+@RequiredArgsConstructor
+public class TenantBatchRepository {
+
+    private static final String INSERT_TENANT =
+            "INSERT INTO tenants (name, phone, email, rent_amount, due_date, move_in_date, status, " +
+            "outstanding_amount, next_due_date, unit_number, property_id, landlord_id, created_at, updated_at) " +
+            "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Transactional
+    public void insertTenants(List<Tenant> tenants) {
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        GeneratedKeyHolder keys = new GeneratedKeyHolder();
+
+        jdbcTemplate.batchUpdate(con -> con.prepareStatement(INSERT_TENANT, new String[]{"id"}),
+                new BatchPreparedStatementSetter() {
+                    @Override
+                    public void setValues(PreparedStatement ps, int i) throws SQLException {
+                        Tenant tenant = tenants.get(i);
+                        ps.setString(1, tenant.getName());
+                        ps.setString(2, tenant.getPhone());
+                        ps.setString(3, tenant.getEmail());
+                        ps.setBigDecimal(4, tenant.getRentAmount());
+                        ps.setInt(5, tenant.getDueDate());
+                        ps.setDate(6, Date.valueOf(tenant.getMoveInDate()));
+                        ps.setString(7, tenant.getStatus().name());
+                        ps.setBigDecimal(8, tenant.getOutstandingAmount());
+                        ps.setDate(9, Date.valueOf(tenant.getNextDueDate()));
+                        ps.setString(10, tenant.getUnitNumber());
+                        ps.setLong(11, tenant.getProperty().getId());
+                        ps.setLong(12, tenant.getLandlord().getId());
+                        ps.setTimestamp(13, now);
+                        ps.setTimestamp(14, now);
+                    }
+
+                    @Override
+                    public int getBatchSize() {
+                        return tenants.size();
+                    }
+                }, keys);
+
+        // Key column names differ by driver (GENERATED_KEY on MySQL), so take the only value
+        List<Map<String, Object>> keyList = keys.getKeyList();
+        for (int i = 0; i < tenants.size() && i < keyList.size(); i++) {
+            tenants.get(i).setId(((Number) keyList.get(i).values().iterator().next()).longValue());
+        }
+    }
+}
@@ -1,32 +1,141 @@
 package com.propman.repository;
 
 import com.propman.entity.Tenant;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 
 @Repository
-public interface TenantRepository extends JpaRepository<Tenant, Long> {
+public interface TenantRepository extends JpaRepository<Tenant, Long>, TenantSegmentRepository {
     
     List<Tenant> findByLandlordId(Long landlordId);
     
     List<Tenant> findByPropertyId(Long propertyId);
     
-    @Query("SELECT t FROM Tenant t WHERE t.status = 'ACTIVE' AND t.dueDate = :dueDate")
-    List<Tenant> findActiveTenantsWithDueDate(@Param("dueDate") int dueDate);
+    /**
+     * Load a tenant and lock its row until the transaction ends, so payments
+     * recorded concurrently are applied one after the other
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT t FROM Tenant t WHERE t.id = :id")
+    Optional<Tenant> findByIdForUpdate(@Param("id") Long id);
     
-    @Query("SELECT t FROM Tenant t WHERE t.status = 'DEFAULTER' AND t.dueDate = :dueDate")
-    List<Tenant> findOverdueTenantsForToday(@Param("dueDate") int dueDate);
+    @Query("SELECT t FROM Tenant t JOIN FETCH t.property JOIN FETCH t.landlord WHERE t.id IN :ids")
+    List<Tenant> findWithPropertyAndLandlordByIdIn(@Param("ids") Collection<Long> ids);
     
-    @Query("SELECT t FROM Tenant t WHERE t.status = 'DEFAULTER' AND t.dueDate <= :dueDate")
-    List<Tenant> findOverdueTenantsForWeekly(@Param("dueDate") int dueDate);
+    @Query("SELECT t.id FROM Tenant t WHERE t.status = 'ACTIVE' AND t.nextDueDate = :dueDate")
+    List<Long> findActiveTenantIdsDueOn(@Param("dueDate") LocalDate dueDate);
+    
+    @Query("SELECT t.id FROM Tenant t WHERE t.status IN ('ACTIVE', 'DEFAULTER') AND t.dueDate IN :dueDays")
+    List<Long> findBillableTenantIdsByDueDateIn(@Param("dueDays") Collection<Integer> dueDays);
+    
+    @Query("SELECT t.id AS id, t.nextDueDate AS nextDueDate FROM Tenant t " +
+           "WHERE t.status = 'DEFAULTER' AND t.nextDueDate BETWEEN :from AND :to")
+    List<OverdueTenant> findDefaultersDueBetween(@Param("from") LocalDate from, @Param("to") LocalDate to);
+    
+    @Query("SELECT t.id AS id, t.nextDueDate AS nextDueDate FROM Tenant t " +
+           "WHERE t.status = 'DEFAULTER' AND t.nextDueDate <= :to")
+    List<OverdueTenant> findDefaultersDueOnOrBefore(@Param("to") LocalDate to);
+    
+    @Query("SELECT t.id AS id, t.phone AS phone, t.unitNumber AS unitNumber, t.status AS status, " +
+           "t.updatedAt AS updatedAt FROM Tenant t " +
+           "WHERE t.updatedAt > :since OR (t.updatedAt = :since AND t.id > :afterId) " +
+           "ORDER BY t.updatedAt, t.id")
+    List<PaymentKey> findPaymentKeysChangedSince(@Param("since") LocalDateTime since, @Param("afterId") Long afterId,
+                                                 Pageable pageable);
+    
+    @Modifying
+    @Query("UPDATE Tenant t SET t.nextDueDate = :nextDueDate " +
+           "WHERE t.nextDueDate IS NULL AND t.dueDate = :dueDay AND t.status IN :statuses")
+    int initializeNextDueDate(@Param("dueDay") int dueDay,
+                              @Param("statuses") Collection<Tenant.TenantStatus> statuses,
+                              @Param("nextDueDate") LocalDate nextDueDate);
+    
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE Tenant t SET t.outstandingAmount = COALESCE(t.outstandingAmount, 0) + :delta WHERE t.id = :id")
+    int addOutstandingAmount(@Param("id") Long id, @Param("delta") BigDecimal delta);
+    
+    @Transactional
+    @Modifying
+    @Query("UPDATE Tenant t SET t.status = :defaulter, t.statusChangedAt = :sweptAt, t.updatedAt = :sweptAt " +
+           "WHERE t.status = :active AND t.nextDueDate < :overdueBefore AND t.outstandingAmount > :tolerance " +
+           "AND (t.lastPaymentDate IS NULL OR t.lastPaymentDate < :paidBefore)")
+    int markDefaulters(@Param("active") Tenant.TenantStatus active,
+                       @Param("defaulter") Tenant.TenantStatus defaulter,
+                       @Param("overdueBefore") LocalDate overdueBefore,
+                       @Param("tolerance") BigDecimal tolerance,
+                       @Param("paidBefore") LocalDate paidBefore,
+                       @Param("sweptAt") LocalDateTime sweptAt);
+    
+    @Transactional
+    @Modifying
+    @Query("UPDATE Tenant t SET t.status = :active, t.statusChangedAt = :sweptAt, t.updatedAt = :sweptAt " +
+           "WHERE t.status = :defaulter AND (t.nextDueDate IS NULL OR t.nextDueDate >= :overdueBefore " +
+           "OR t.outstandingAmount IS NULL OR t.outstandingAmount <= :tolerance)")
+    int clearDefaulters(@Param("active") Tenant.TenantStatus active,
+                        @Param("defaulter") Tenant.TenantStatus defaulter,
+                        @Param("overdueBefore") LocalDate overdueBefore,
+                        @Param("tolerance") BigDecimal tolerance,
+                        @Param("sweptAt") LocalDateTime sweptAt);
+    
+    @Query("SELECT t.id AS id, t.landlord.id AS landlordId, t.status AS status, t.nextDueDate AS nextDueDate " +
+           "FROM Tenant t WHERE t.statusChangedAt = :changedAt AND t.id > :afterId ORDER BY t.id")
+    List<StatusChange> findStatusChangedAt(@Param("changedAt") LocalDateTime changedAt, @Param("afterId") Long afterId,
+                                           Pageable pageable);
+    
+    @Query("SELECT t.property.id AS propertyId, COUNT(t) AS occupiedUnits, " +
+           "SUM(CASE WHEN t.status = :defaulter THEN 1 ELSE 0 END) AS defaulters, SUM(t.rentAmount) AS expectedRent " +
+           "FROM Tenant t WHERE t.landlord.id = :landlordId AND t.status IN :occupying GROUP BY t.property.id")
+    List<PropertyOccupancy> summarizeOccupancy(@Param("landlordId") Long landlordId,
+                                               @Param("occupying") Collection<Tenant.TenantStatus> occupying,
+                                               @Param("defaulter") Tenant.TenantStatus defaulter);
     
     @Query("SELECT t FROM Tenant t WHERE t.landlord.id = :landlordId AND t.status = 'ACTIVE'")
     List<Tenant> findActiveTenantsByLandlordId(@Param("landlordId") Long landlordId);
     
+    @Query("SELECT t.phone FROM Tenant t WHERE t.phone IN :phones")
+    List<String> findExistingPhones(@Param("phones") Collection<String> phones);
+    
     @Query("SELECT t FROM Tenant t WHERE t.landlord.id = :landlordId AND t.status = 'DEFAULTER'")
     List<Tenant> findDefaulterTenantsByLandlordId(@Param("landlordId") Long landlordId);
-}
\ No newline at end of file
+    
+    interface PaymentKey {
+        Long getId();
+        String getPhone();
+        String getUnitNumber();
+        Tenant.TenantStatus getStatus();
+        LocalDateTime getUpdatedAt();
+    }
+    
+    interface PropertyOccupancy {
+        Long getPropertyId();
+        Long getOccupiedUnits();
+        Long getDefaulters();
+        BigDecimal getExpectedRent();
+    }
+    
+    interface StatusChange {
+        Long getId();
+        Long getLandlordId();
+        Tenant.TenantStatus getStatus();
+        LocalDate getNextDueDate();
+    }
+    
+    interface OverdueTenant {
+        Long getId();
+        LocalDate getNextDueDate();
+    }
+}
@@ -0,0 +1,20 @@
+package com.propman.repository;
+
+import com.propman.dto.CampaignSegment;
+import com.propman.entity.Tenant;
+
+import java.util.List;
+
+/**
+ * Campaign audience queries compiled from a {@link CampaignSegment}.
+ */
+public interface TenantSegmentRepository {
+
+    long countBySegment(CampaignSegment segment);
+
+    /**
+     * Keyset page of matching tenants with property and landlord fetched,
+     * ordered by id and starting after {@code afterId}.
+     */
+    List<Tenant> findSegmentPage(CampaignSegment segment, long afterId, int limit);
+}
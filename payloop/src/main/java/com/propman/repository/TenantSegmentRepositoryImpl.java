@@ -0,0 +1,86 @@
+package com.propman.repository;
+
+import com.propman.dto.CampaignSegment;
+import com.propman.entity.Tenant;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+import org.hibernate.jpa.HibernateHints;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+public class TenantSegmentRepositoryImpl implements TenantSegmentRepository {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public long countBySegment(CampaignSegment segment) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Long> query = cb.createQuery(Long.class);
+        Root<Tenant> tenant = query.from(Tenant.class);
+
+        query.select(cb.count(tenant)).where(toPredicates(cb, tenant, segment).toArray(new Predicate[0]));
+        return entityManager.createQuery(query).getSingleResult();
+    }
+
+    @Override
+    public List<Tenant> findSegmentPage(CampaignSegment segment, long afterId, int limit) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Tenant> query = cb.createQuery(Tenant.class);
+        Root<Tenant> tenant = query.from(Tenant.class);
+        tenant.fetch("property");
+        tenant.fetch("landlord");
+
+        List<Predicate> predicates = toPredicates(cb, tenant, segment);
+        predicates.add(cb.greaterThan(tenant.<Long>get("id"), afterId));
+
+        query.select(tenant)
+                .where(predicates.toArray(new Predicate[0]))
+                .orderBy(cb.asc(tenant.get("id")));
+
+        return entityManager.createQuery(query)
+                .setMaxResults(limit)
+                .setHint(HibernateHints.HINT_READ_ONLY, true)
+                .setHint(HibernateHints.HINT_FETCH_SIZE, limit)
+                .getResultList();
+    }
+
+    /**
+     * Translate the segment into predicates on tenant columns only, so the
+     * landlord/property filters resolve against the foreign key indexes
+     * without joining.
+     */
+    private List<Predicate> toPredicates(CriteriaBuilder cb, Root<Tenant> tenant, CampaignSegment segment) {
+        List<Predicate> predicates = new ArrayList<>();
+
+        if (segment.getLandlordId() != null) {
+            predicates.add(cb.equal(tenant.get("landlord").get("id"), segment.getLandlordId()));
+        }
+        if (segment.getPropertyId() != null) {
+            predicates.add(cb.equal(tenant.get("property").get("id"), segment.getPropertyId()));
+        }
+        if (segment.getStatuses() != null && !segment.getStatuses().isEmpty()) {
+            predicates.add(tenant.get("status").in(segment.getStatuses()));
+        }
+        if (segment.getMinOutstanding() != null) {
+            predicates.add(cb.greaterThanOrEqualTo(tenant.<BigDecimal>get("outstandingAmount"), segment.getMinOutstanding()));
+        }
+        if (segment.getMaxOutstanding() != null) {
+            predicates.add(cb.lessThanOrEqualTo(tenant.<BigDecimal>get("outstandingAmount"), segment.getMaxOutstanding()));
+        }
+        if (segment.getMinDueDay() != null) {
+            predicates.add(cb.greaterThanOrEqualTo(tenant.<Integer>get("dueDate"), segment.getMinDueDay()));
+        }
+        if (segment.getMaxDueDay() != null) {
+            predicates.add(cb.lessThanOrEqualTo(tenant.<Integer>get("dueDate"), segment.getMaxDueDay()));
+        }
+
+        return predicates;
+    }
+}
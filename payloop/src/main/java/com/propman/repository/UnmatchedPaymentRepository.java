@@ -0,0 +1,21 @@
+package com.propman.repository;
+
+import com.propman.entity.UnmatchedPayment;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface UnmatchedPaymentRepository extends JpaRepository<UnmatchedPayment, Long> {
+    
+    Page<UnmatchedPayment> findAllByOrderByIdDesc(Pageable pageable);
+    
+    @Query("SELECT u.transactionId FROM UnmatchedPayment u WHERE u.transactionId IN :transactionIds")
+    List<String> findExistingTransactionIds(@Param("transactionIds") Collection<String> transactionIds);
+}
@@ -0,0 +1,120 @@
+package com.propman.service;
+
+import com.propman.dto.CampaignPreview;
+import com.propman.dto.CampaignRequest;
+import com.propman.entity.SMSLog;
+import com.propman.entity.Tenant;
+import com.propman.repository.TenantRepository;
+import com.propman.service.dispatch.Lane;
+import com.propman.service.dispatch.OutboundDispatcher;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class CampaignService {
+
+    private final TenantRepository tenantRepository;
+    private final SMSService smsService;
+    private final OutboundDispatcher dispatcher;
+
+    @Value("${campaign.page.size:500}")
+    private int pageSize;
+
+    @Value("${campaign.preview.sample.size:200}")
+    private int previewSampleSize;
+
+    /**
+     * Count matching recipients and estimate cost without sending anything.
+     * The message is rendered for the first recipients and priced at their
+     * carriers, so placeholders that push a message into another part are
+     * counted; the sample's average is scaled up to the full segment.
+     */
+    @Transactional(readOnly = true)
+    public CampaignPreview preview(CampaignRequest request) {
+        long recipientCount = tenantRepository.countBySegment(request.getSegment());
+        if (recipientCount == 0) {
+            return new CampaignPreview(0, BigDecimal.ZERO);
+        }
+
+        List<Tenant> sample = tenantRepository.findSegmentPage(request.getSegment(), 0, previewSampleSize);
+        if (sample.isEmpty()) {
+            return new CampaignPreview(recipientCount, BigDecimal.ZERO);
+        }
+
+        BigDecimal sampleCost = sample.stream()
+                .map(tenant -> smsService.estimateCampaignCost(tenant, request.getMessage()))
+                .reduce(BigDecimal.ZERO, BigDecimal::add);
+        BigDecimal estimatedCost = sample.size() >= recipientCount ? sampleCost
+                : sampleCost.multiply(BigDecimal.valueOf(recipientCount))
+                        .divide(BigDecimal.valueOf(sample.size()), 2, RoundingMode.HALF_UP);
+        return new CampaignPreview(recipientCount, estimatedCost);
+    }
+
+    /**
+     * Queue a rent reminder for each tenant on the bulk lane. Tenants must
+     * be loaded with their property and landlord, since the reminders are
+     * built on dispatch workers. Returns how many were queued; the rest were
+     * refused for an inactive subscription or the landlord's daily quota.
+     */
+    public int queueRentReminders(List<Tenant> tenants, int daysBefore) {
+        int queuedCount = 0;
+        for (Tenant tenant : tenants) {
+            if (dispatcher.submit(tenant.getLandlord(), Lane.BULK, () -> smsService.sendRentReminder(tenant, daysBefore)).isQueued()) {
+                queuedCount++;
+            }
+        }
+        return queuedCount;
+    }
+
+    /**
+     * Stream the segment page by page into the dispatcher. Each page is a
+     * short keyset query, so no cursor or transaction is held while sending,
+     * and the next page is only read once the landlord's backlog has drained
+     * below two pages.
+     */
+    @Async("smsTaskExecutor")
+    public void launch(CampaignRequest request) {
+        log.info("Starting campaign for segment {}", request.getSegment());
+
+        long lastId = 0;
+        int queuedCount = 0;
+        int totalCount = 0;
+
+        try {
+            List<Tenant> page;
+            do {
+                page = tenantRepository.findSegmentPage(request.getSegment(), lastId, pageSize);
+
+                for (Tenant tenant : page) {
+                    if (dispatcher.submit(tenant.getLandlord(), SMSLog.SMSType.CUSTOM, () -> smsService.sendCampaignMessage(tenant, request.getMessage())).isQueued()) {
+                        queuedCount++;
+                    }
+                    totalCount++;
+                    lastId = tenant.getId();
+                }
+
+                Set<Long> landlordIds = page.stream().map(t -> t.getLandlord().getId()).collect(Collectors.toSet());
+                for (Long landlordId : landlordIds) {
+                    dispatcher.awaitBacklogBelow(landlordId, pageSize * 2);
+                }
+            } while (page.size() == pageSize);
+
+            log.info("Campaign completed. Queued {} out of {} messages", queuedCount, totalCount);
+
+        } catch (Exception e) {
+            log.error("Campaign aborted after {} recipients: {}", totalCount, e.getMessage(), e);
+        }
+    }
+}
@@ -0,0 +1,196 @@
+package com.propman.service;
+
+import com.propman.dto.DashboardSummary;
+import com.propman.dto.TenantStatusChanges;
+import com.propman.entity.Payment;
+import com.propman.entity.Tenant;
+import com.propman.repository.PaymentRepository;
+import com.propman.repository.PropertyRepository;
+import com.propman.repository.TenantRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Portfolio figures for a landlord's dashboard: occupancy, expected and
+ * collected rent, outstanding balances and defaulters per property. They are
+ * computed with three grouped queries instead of loading tenants, and the
+ * result is cached per landlord.
+ * <p>
+ * Ledger postings, imports and the delinquency sweep evict the landlord's
+ * snapshot once their transaction completes. Snapshots also expire after
+ * dashboard.cache.ttl.seconds, which bounds how long changes made on other
+ * nodes go unseen. The queries read the primary, so a recompute after an
+ * eviction never caches a lagging replica's figures.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class DashboardService {
+
+    private static final Set<Tenant.TenantStatus> OCCUPYING = EnumSet.of(Tenant.TenantStatus.ACTIVE, Tenant.TenantStatus.DEFAULTER);
+
+    private final PropertyRepository propertyRepository;
+    private final TenantRepository tenantRepository;
+    private final PaymentRepository paymentRepository;
+
+    private final Map<Long, CacheEntry> cache = new ConcurrentHashMap<>();
+
+    @Value("${dashboard.cache.ttl.seconds:60}")
+    private long ttlSeconds;
+
+    @Value("${dashboard.cache.max.entries:10000}")
+    private int maxEntries;
+
+    public DashboardSummary getSummary(Long landlordId) {
+        CacheEntry entry = cache.computeIfAbsent(landlordId, id -> new CacheEntry());
+        Snapshot snapshot = entry.snapshot;
+        if (snapshot != null && !snapshot.isExpired()) {
+            return snapshot.summary;
+        }
+
+        // One computation per landlord at a time; the others wait for its result
+        synchronized (entry) {
+            snapshot = entry.snapshot;
+            if (snapshot != null && !snapshot.isExpired()) {
+                return snapshot.summary;
+            }
+            long generation = entry.generation.get();
+            DashboardSummary summary = compute(landlordId);
+            if (entry.generation.get() == generation) {
+                entry.snapshot = new Snapshot(summary, System.nanoTime() + TimeUnit.SECONDS.toNanos(ttlSeconds));
+            }
+            evictIfFull();
+            return summary;
+        }
+    }
+
+    /**
+     * Drop the landlord's snapshot now and again when the current transaction
+     * completes, so figures read before the commit are not kept
+     */
+    public void evict(Long landlordId) {
+        invalidate(landlordId);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    invalidate(landlordId);
+                }
+            });
+        }
+    }
+
+    @EventListener
+    public void onStatusChanges(TenantStatusChanges changes) {
+        changes.getChanges().stream()
+                .map(TenantStatusChanges.Change::getLandlordId)
+                .distinct()
+                .forEach(this::evict);
+    }
+
+    private void invalidate(Long landlordId) {
+        CacheEntry entry = cache.get(landlordId);
+        if (entry != null) {
+            entry.generation.incrementAndGet();
+            entry.snapshot = null;
+        }
+    }
+
+    private DashboardSummary compute(Long landlordId) {
+        Map<Long, TenantRepository.PropertyOccupancy> occupancy = new HashMap<>();
+        for (TenantRepository.PropertyOccupancy row : tenantRepository.summarizeOccupancy(
+                landlordId, OCCUPYING, Tenant.TenantStatus.DEFAULTER)) {
+            occupancy.put(row.getPropertyId(), row);
+        }
+        Map<Long, BigDecimal> collected = new HashMap<>();
+        for (PaymentRepository.PropertyCollection row : paymentRepository.sumCollectedByProperty(
+                landlordId, LocalDate.now().withDayOfMonth(1).atStartOfDay(), Payment.PaymentStatus.PAID)) {
+            collected.put(row.getPropertyId(), row.getCollected());
+        }
+
+        List<DashboardSummary.PropertySummary> properties = new ArrayList<>();
+        long totalUnits = 0;
+        long occupiedUnits = 0;
+        long defaulters = 0;
+        BigDecimal expectedRent = BigDecimal.ZERO;
+        BigDecimal collectedRent = BigDecimal.ZERO;
+        BigDecimal outstanding = BigDecimal.ZERO;
+
+        for (PropertyRepository.PropertyTotals property : propertyRepository.findTotalsByLandlordId(landlordId)) {
+            TenantRepository.PropertyOccupancy tenants = occupancy.get(property.getId());
+            int units = property.getTotalUnits() != null ? property.getTotalUnits() : 0;
+            long occupied = tenants != null ? tenants.getOccupiedUnits() : 0;
+            long propertyDefaulters = tenants != null ? tenants.getDefaulters() : 0;
+            BigDecimal propertyExpected = tenants != null ? tenants.getExpectedRent() : BigDecimal.ZERO;
+            BigDecimal propertyCollected = collected.getOrDefault(property.getId(), BigDecimal.ZERO);
+            BigDecimal propertyOutstanding = property.getOutstandingPayments() != null
+                    ? property.getOutstandingPayments() : BigDecimal.ZERO;
+
+            properties.add(new DashboardSummary.PropertySummary(property.getId(), property.getName(),
+                    units, occupied, rate(occupied, units), propertyExpected,
+                    propertyCollected, propertyOutstanding, propertyDefaulters));
+
+            totalUnits += units;
+            occupiedUnits += occupied;
+            defaulters += propertyDefaulters;
+            expectedRent = expectedRent.add(propertyExpected);
+            collectedRent = collectedRent.add(propertyCollected);
+            outstanding = outstanding.add(propertyOutstanding);
+        }
+
+        log.debug("Computed dashboard for landlord {} over {} properties", landlordId, properties.size());
+        return new DashboardSummary(landlordId, properties.size(), totalUnits, occupiedUnits,
+                rate(occupiedUnits, totalUnits), expectedRent, collectedRent, outstanding, defaulters,
+                properties, LocalDateTime.now());
+    }
+
+    private void evictIfFull() {
+        if (cache.size() <= maxEntries) {
+            return;
+        }
+        cache.values().removeIf(entry -> entry.snapshot == null || entry.snapshot.isExpired());
+        Iterator<Long> iterator = cache.keySet().iterator();
+        while (cache.size() > maxEntries && iterator.hasNext()) {
+            iterator.next();
+            iterator.remove();
+        }
+    }
+
+    /**
+     * Percentage to one decimal place
+     */
+    private static double rate(long part, long whole) {
+        return whole > 0 ? Math.round(part * 1000.0 / whole) / 10.0 : 0;
+    }
+
+    private static class CacheEntry {
+        final AtomicLong generation = new AtomicLong();
+        volatile Snapshot snapshot;
+    }
+
+    private record Snapshot(DashboardSummary summary, long expiresAtNanos) {
+
+        boolean isExpired() {
+            return System.nanoTime() - expiresAtNanos > 0;
+        }
+    }
+}
@@ -0,0 +1,107 @@
+package com.propman.service;
+
+import com.propman.dto.TenantStatusChanges;
+import com.propman.entity.Tenant;
+import com.propman.repository.TenantRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Moves tenants between ACTIVE and DEFAULTER with two bulk updates instead
+ * of loading them. A tenant defaults once their earliest unpaid due date is
+ * more than the grace period past and they owe more than the tolerance,
+ * unless they paid something within the payment grace period. They return
+ * to ACTIVE once caught up or owing no more than the tolerance.
+ * <p>
+ * Each update stamps the rows it changes with the sweep time, so the change
+ * set is read back by index and published in pages as
+ * {@link TenantStatusChanges}. Overdue days are not stored; they follow
+ * from the next due date.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class DelinquencySweep {
+
+    private final TenantRepository tenantRepository;
+    private final ApplicationEventPublisher eventPublisher;
+
+    @Value("${tenant.delinquency.grace.days:0}")
+    private int graceDays;
+
+    // A payment this recent holds off default even if it did not cover the period
+    @Value("${tenant.delinquency.payment.grace.days:0}")
+    private int paymentGraceDays;
+
+    @Value("${tenant.delinquency.balance.tolerance:0}")
+    private BigDecimal balanceTolerance;
+
+    @Value("${tenant.delinquency.page.size:5000}")
+    private int pageSize;
+
+    /**
+     * Runs daily after rent charges are posted (12:30 AM)
+     */
+    @Scheduled(cron = "${tenant.delinquency.cron:0 30 0 * * *}")
+    public void runNightly() {
+        try {
+            sweep(LocalDate.now());
+        } catch (Exception e) {
+            log.error("Error in delinquency sweep: {}", e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Recompute tenant statuses as of a day and publish what changed.
+     * Returns the number of tenants whose status changed.
+     */
+    public int sweep(LocalDate today) {
+        long started = System.currentTimeMillis();
+        LocalDateTime sweptAt = LocalDateTime.now().truncatedTo(ChronoUnit.SECONDS);
+        LocalDate overdueBefore = today.minusDays(graceDays);
+
+        int defaulted = tenantRepository.markDefaulters(Tenant.TenantStatus.ACTIVE, Tenant.TenantStatus.DEFAULTER,
+                overdueBefore, balanceTolerance, today.minusDays(paymentGraceDays), sweptAt);
+        int recovered = tenantRepository.clearDefaulters(Tenant.TenantStatus.ACTIVE, Tenant.TenantStatus.DEFAULTER,
+                overdueBefore, balanceTolerance, sweptAt);
+
+        if (defaulted + recovered > 0) {
+            publishChanges(sweptAt, today);
+        }
+        log.info("Delinquency sweep: {} tenants defaulted, {} caught up in {} ms",
+                defaulted, recovered, System.currentTimeMillis() - started);
+        return defaulted + recovered;
+    }
+
+    private void publishChanges(LocalDateTime sweptAt, LocalDate today) {
+        long afterId = 0;
+        List<TenantRepository.StatusChange> page;
+        do {
+            page = tenantRepository.findStatusChangedAt(sweptAt, afterId, PageRequest.of(0, pageSize));
+            if (page.isEmpty()) {
+                break;
+            }
+
+            List<TenantStatusChanges.Change> changes = new ArrayList<>(page.size());
+            for (TenantRepository.StatusChange change : page) {
+                int daysOverdue = change.getStatus() == Tenant.TenantStatus.DEFAULTER && change.getNextDueDate() != null
+                        ? (int) ChronoUnit.DAYS.between(change.getNextDueDate(), today) : 0;
+                changes.add(new TenantStatusChanges.Change(change.getId(), change.getLandlordId(), change.getStatus(), daysOverdue));
+                afterId = change.getId();
+            }
+            eventPublisher.publishEvent(new TenantStatusChanges(sweptAt, changes));
+        } while (page.size() == pageSize);
+    }
+}
@@ -0,0 +1,77 @@
+package com.propman.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+
+/**
+ * Spreads scheduled messages over a fixed daily send window. Each tenant gets
+ * a fixed position in the configured window derived from its id, so it is
+ * messaged at the same time of day every month whatever the day's volume.
+ */
+@Component
+@Slf4j
+public class DispatchWindowPlanner {
+
+    @Value("${sms.dispatch.window.start:08:00}")
+    private String windowStart;
+
+    @Value("${sms.dispatch.window.end:11:00}")
+    private String windowEnd;
+
+    @Value("${sms.dispatch.rate.per.second:5}")
+    private double ratePerSecond;
+
+    /**
+     * The configured window. It does not depend on volume, so slots do not
+     * move from day to day.
+     */
+    public Duration window() {
+        return Duration.between(LocalTime.parse(windowStart), LocalTime.parse(windowEnd));
+    }
+
+    /**
+     * Warn when a day's volume cannot be sent within the window at the rate
+     * limit. Slots stay where they are; the sends that do not fit are paced
+     * out past the window end.
+     */
+    public void checkCapacity(int messageCount) {
+        long capacity = (long) (window().getSeconds() * ratePerSecond);
+        if (messageCount > capacity) {
+            log.warn("{} messages exceed the {} that fit in the send window at {}/s, the rest will be sent after {}",
+                    messageCount, capacity, ratePerSecond, windowEnd);
+        }
+    }
+
+    /**
+     * Send time for a tenant on the given day
+     */
+    public LocalDateTime slotFor(long tenantId, LocalDate day, Duration window) {
+        long offsetMillis = (long) (slotFraction(tenantId) * window.toMillis());
+        return day.atTime(LocalTime.parse(windowStart)).plusNanos(offsetMillis * 1_000_000);
+    }
+
+    /**
+     * Minimum gap between two sends to stay under the rate limit
+     */
+    public Duration minSpacing() {
+        return Duration.ofNanos((long) (1_000_000_000L / ratePerSecond));
+    }
+
+    /**
+     * Map an id to a uniformly distributed position in [0, 1). Uses the
+     * SplitMix64 finalizer so sequential ids do not cluster.
+     */
+    static double slotFraction(long id) {
+        long z = id * 0x9E3779B97F4A7C15L;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        z = z ^ (z >>> 31);
+        return (z >>> 11) * 0x1.0p-53;
+    }
+}
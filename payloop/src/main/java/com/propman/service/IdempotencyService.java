@@ -0,0 +1,310 @@
+package com.propman.service;
+
+import com.propman.dto.SMSResponse;
+import com.propman.entity.IdempotencyRecord;
+import com.propman.repository.IdempotencyRecordRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.LocalDateTime;
+import java.util.HexFormat;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+/**
+ * Runs a request at most once per Idempotency-Key. Duplicates on this node
+ * wait on the in-flight request and get its response; duplicates on other
+ * nodes find the key claimed in idempotency_keys and poll for the stored
+ * response. Only 2xx and 4xx responses are stored; a 5xx releases the key so
+ * the client can retry. Keys being run are renewed every heartbeat.ms, so
+ * only a key whose node stopped goes stale and is taken over.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class IdempotencyService {
+
+    public static final String HEADER = "Idempotency-Key";
+    public static final String REPLAYED_HEADER = "Idempotent-Replayed";
+
+    private static final int MAX_KEY_LENGTH = 100;
+    private static final int MAX_TEXT_LENGTH = 255;
+
+    private final IdempotencyRecordRepository idempotencyRecordRepository;
+
+    // Requests in flight on this node and recently stored responses, bounded by maxEntries
+    private final Map<String, LocalRequest> requests = new ConcurrentHashMap<>();
+
+    // Keys whose action is running on this node
+    private final Set<String> running = ConcurrentHashMap.newKeySet();
+
+    @Value("${idempotency.ttl.hours:24}")
+    private long ttlHours;
+
+    @Value("${idempotency.cache.max.entries:10000}")
+    private int maxEntries;
+
+    @Value("${idempotency.wait.seconds:60}")
+    private long waitSeconds;
+
+    @Value("${idempotency.poll.ms:250}")
+    private long pollMs;
+
+    // A key not renewed for this long was left by a node that stopped mid-request
+    @Value("${idempotency.stale.minutes:10}")
+    private long staleMinutes;
+
+    /**
+     * Run the action unless a request with the same key has already run.
+     * The request string identifies the endpoint and its parameters; reusing
+     * a key for a different request is rejected.
+     */
+    public ResponseEntity<SMSResponse> execute(String key, String request, Supplier<ResponseEntity<SMSResponse>> action) {
+        if (key == null || key.isBlank()) {
+            return action.get();
+        }
+        if (key.length() > MAX_KEY_LENGTH) {
+            return ResponseEntity.badRequest()
+                    .body(new SMSResponse(false, "Idempotency-Key cannot exceed 100 characters", null));
+        }
+
+        String requestHash = hash(request);
+        LocalRequest mine = new LocalRequest(requestHash, System.currentTimeMillis() + TimeUnit.HOURS.toMillis(ttlHours));
+        LocalRequest existing;
+        while ((existing = requests.putIfAbsent(key, mine)) != null && existing.isExpired()) {
+            requests.remove(key, existing);
+        }
+        if (existing != null) {
+            return awaitLocal(existing, requestHash);
+        }
+        evictIfFull();
+
+        Outcome outcome = null;
+        try {
+            outcome = claimAndRun(key, requestHash, action);
+            return outcome.toResponse();
+        } finally {
+            if (outcome == null || !outcome.stored()) {
+                requests.remove(key, mine);
+            }
+            mine.result.complete(outcome);
+        }
+    }
+
+    /**
+     * Drop expired keys from memory and from the database
+     */
+    @Scheduled(fixedDelayString = "${idempotency.purge.ms:600000}", initialDelayString = "${idempotency.purge.ms:600000}")
+    public void purgeExpired() {
+        requests.entrySet().removeIf(entry -> entry.getValue().isExpired());
+        int deleted = idempotencyRecordRepository.deleteExpired(LocalDateTime.now());
+        if (deleted > 0) {
+            log.debug("Purged {} expired idempotency keys", deleted);
+        }
+    }
+
+    /**
+     * Renew the claims on keys this node is still running, so a long request
+     * is not mistaken for an abandoned one
+     */
+    @Scheduled(fixedDelayString = "${idempotency.heartbeat.ms:60000}", initialDelayString = "${idempotency.heartbeat.ms:60000}")
+    public void renewClaims() {
+        if (running.isEmpty()) {
+            return;
+        }
+        idempotencyRecordRepository.renewInProgress(List.copyOf(running), LocalDateTime.now());
+    }
+
+    private Outcome claimAndRun(String key, String requestHash, Supplier<ResponseEntity<SMSResponse>> action) {
+        long deadline = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(waitSeconds);
+        while (true) {
+            IdempotencyRecord claimed = claim(key, requestHash);
+            if (claimed != null) {
+                return run(claimed, action);
+            }
+
+            // Claimed on another node, or stored before this node saw it
+            Optional<IdempotencyRecord> existing = idempotencyRecordRepository.findByIdempotencyKey(key);
+            if (existing.isPresent()) {
+                IdempotencyRecord record = existing.get();
+                if (!record.getRequestHash().equals(requestHash)) {
+                    return Outcome.keyReused();
+                }
+                if (record.getStatus() == IdempotencyRecord.RequestStatus.COMPLETED) {
+                    return Outcome.replayOf(record);
+                }
+            }
+
+            if (System.currentTimeMillis() >= deadline) {
+                return Outcome.stillInProgress();
+            }
+            try {
+                Thread.sleep(pollMs);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return Outcome.stillInProgress();
+            }
+        }
+    }
+
+    private IdempotencyRecord claim(String key, String requestHash) {
+        for (int attempt = 0; attempt < 2; attempt++) {
+            IdempotencyRecord record = new IdempotencyRecord();
+            record.setIdempotencyKey(key);
+            record.setRequestHash(requestHash);
+            record.setStatus(IdempotencyRecord.RequestStatus.IN_PROGRESS);
+            record.setExpiresAt(LocalDateTime.now().plusHours(ttlHours));
+            record.setHeartbeatAt(LocalDateTime.now());
+            try {
+                return idempotencyRecordRepository.saveAndFlush(record);
+            } catch (DataIntegrityViolationException e) {
+                LocalDateTime now = LocalDateTime.now();
+                if (idempotencyRecordRepository.deleteIfReclaimable(key, now, now.minusMinutes(staleMinutes)) == 0) {
+                    return null;
+                }
+                log.warn("Reclaimed expired or abandoned idempotency key {}", key);
+            }
+        }
+        return null;
+    }
+
+    private Outcome run(IdempotencyRecord record, Supplier<ResponseEntity<SMSResponse>> action) {
+        ResponseEntity<SMSResponse> response;
+        running.add(record.getIdempotencyKey());
+        try {
+            response = action.get();
+        } catch (RuntimeException e) {
+            idempotencyRecordRepository.deleteInProgress(record.getIdempotencyKey());
+            throw e;
+        } finally {
+            running.remove(record.getIdempotencyKey());
+        }
+
+        int status = response.getStatusCode().value();
+        SMSResponse body = response.getBody();
+        if (status >= 500) {
+            idempotencyRecordRepository.deleteInProgress(record.getIdempotencyKey());
+            return new Outcome(status, body, false, false);
+        }
+
+        record.setStatus(IdempotencyRecord.RequestStatus.COMPLETED);
+        record.setResponseStatus(status);
+        if (body != null) {
+            record.setResponseSuccess(body.isSuccess());
+            record.setResponseMessage(truncate(body.getMessage()));
+            record.setResponseDetails(truncate(body.getDetails()));
+        }
+        idempotencyRecordRepository.save(record);
+        return new Outcome(status, body, false, true);
+    }
+
+    private ResponseEntity<SMSResponse> awaitLocal(LocalRequest existing, String requestHash) {
+        if (!existing.requestHash.equals(requestHash)) {
+            return Outcome.keyReused().toResponse();
+        }
+        try {
+            Outcome outcome = existing.result.get(waitSeconds, TimeUnit.SECONDS);
+            if (outcome == null) {
+                return ResponseEntity.status(HttpStatus.CONFLICT)
+                        .body(new SMSResponse(false, "Original request failed; retry with the same Idempotency-Key", null));
+            }
+            return outcome.asReplay().toResponse();
+        } catch (TimeoutException | ExecutionException e) {
+            return Outcome.stillInProgress().toResponse();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return Outcome.stillInProgress().toResponse();
+        }
+    }
+
+    private void evictIfFull() {
+        if (requests.size() <= maxEntries) {
+            return;
+        }
+        requests.entrySet().removeIf(entry -> entry.getValue().isExpired());
+        // Completed responses are still in the database, so dropping them only costs a query
+        Iterator<Map.Entry<String, LocalRequest>> iterator = requests.entrySet().iterator();
+        while (requests.size() > maxEntries && iterator.hasNext()) {
+            if (iterator.next().getValue().result.isDone()) {
+                iterator.remove();
+            }
+        }
+    }
+
+    private static String truncate(String text) {
+        return text != null && text.length() > MAX_TEXT_LENGTH ? text.substring(0, MAX_TEXT_LENGTH) : text;
+    }
+
+    static String hash(String request) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(request.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    private static class LocalRequest {
+        final String requestHash;
+        final long expiresAtMillis;
+        final CompletableFuture<Outcome> result = new CompletableFuture<>();
+
+        LocalRequest(String requestHash, long expiresAtMillis) {
+            this.requestHash = requestHash;
+            this.expiresAtMillis = expiresAtMillis;
+        }
+
+        boolean isExpired() {
+            return System.currentTimeMillis() > expiresAtMillis;
+        }
+    }
+
+    private record Outcome(int status, SMSResponse body, boolean replayed, boolean stored) {
+
+        static Outcome replayOf(IdempotencyRecord record) {
+            SMSResponse body = new SMSResponse(Boolean.TRUE.equals(record.getResponseSuccess()),
+                    record.getResponseMessage(), record.getResponseDetails());
+            return new Outcome(record.getResponseStatus(), body, true, true);
+        }
+
+        static Outcome keyReused() {
+            return new Outcome(HttpStatus.UNPROCESSABLE_ENTITY.value(),
+                    new SMSResponse(false, "Idempotency-Key was already used for a different request", null), false, false);
+        }
+
+        static Outcome stillInProgress() {
+            return new Outcome(HttpStatus.CONFLICT.value(),
+                    new SMSResponse(false, "A request with this Idempotency-Key is still in progress", null), false, false);
+        }
+
+        Outcome asReplay() {
+            return stored ? new Outcome(status, body, true, true) : this;
+        }
+
+        ResponseEntity<SMSResponse> toResponse() {
+            ResponseEntity.BodyBuilder builder = ResponseEntity.status(status);
+            if (replayed) {
+                builder.header(REPLAYED_HEADER, "true");
+            }
+            return builder.body(body);
+        }
+    }
+}
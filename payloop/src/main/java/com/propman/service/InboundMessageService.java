@@ -0,0 +1,371 @@
+package com.propman.service;
+
+import com.propman.dto.InboundSMSCallback;
+import com.propman.entity.InboundInboxEntry;
+import com.propman.entity.InboundMessage;
+import com.propman.entity.SMSLog;
+import com.propman.entity.Tenant;
+import com.propman.repository.InboundInboxRepository;
+import com.propman.repository.InboundMessageBatchRepository;
+import com.propman.repository.InboundMessageRepository;
+import com.propman.repository.SMSLogRepository;
+import com.propman.repository.TenantRepository;
+import com.propman.service.dispatch.Lane;
+import com.propman.service.dispatch.OutboundDispatcher;
+import com.propman.service.suppression.SuppressionService;
+import com.propman.util.PhoneNumbers;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.OffsetDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Replies from tenants. Callbacks are written to the
+ * {@link InboundInboxEntry} inbox and acknowledged once the write commits;
+ * a single writer thread per node claims inbox entries in batches, links
+ * each message to its tenant through {@link TenantPaymentIndex} and to the
+ * latest message the landlord sent that number, writes the batch with one
+ * JDBC batch insert and then acts on keywords: STOP opts the number out,
+ * HELP gets the tenant their balance and PAID is forwarded to the landlord
+ * while the balance is still outstanding. Entries are deleted once their
+ * message is stored, so a reply acknowledged before a crash is processed
+ * after restart or by another node.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class InboundMessageService {
+
+    private static final DateTimeFormatter DATE_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+
+    private final TenantPaymentIndex tenantIndex;
+    private final TenantRepository tenantRepository;
+    private final SMSLogRepository smsLogRepository;
+    private final InboundMessageRepository inboundMessageRepository;
+    private final InboundMessageBatchRepository inboundMessageBatchRepository;
+    private final InboundInboxRepository inboxRepository;
+    private final SuppressionService suppressionService;
+    private final SMSService smsService;
+    private final OutboundDispatcher dispatcher;
+
+    private final Semaphore wakeup = new Semaphore(0);
+
+    @Value("${sms.inbound.batch.size:200}")
+    private int batchSize;
+
+    @Value("${sms.inbound.poll.ms:100}")
+    private long pollMillis;
+
+    @Value("${sms.inbound.claim.timeout.ms:60000}")
+    private long claimTimeoutMillis;
+
+    @Value("${sms.inbound.paid.keywords:PAID,PAYED,NIMELIPA}")
+    private Set<String> paidKeywords;
+
+    @Value("${sms.inbound.help.keywords:HELP,INFO,MSAADA}")
+    private Set<String> helpKeywords;
+
+    private Thread writer;
+    private volatile boolean running;
+
+    @PostConstruct
+    public void start() {
+        running = true;
+        writer = new Thread(this::drainLoop, "sms-inbound");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        running = false;
+        wakeup.release();
+        writer.join(TimeUnit.SECONDS.toMillis(30));
+    }
+
+    /**
+     * Store an incoming message in the inbox. Returns once the write has
+     * committed, so an acknowledged reply is never lost; if the write fails
+     * the caller must not acknowledge it and the provider retries.
+     */
+    public void accept(InboundSMSCallback callback) {
+        inboxRepository.save(InboundInboxEntry.of(callback));
+        wakeup.release();
+    }
+
+    private void drainLoop() {
+        while (running) {
+            try {
+                if (drainBatch() == 0) {
+                    // Entries accepted on other nodes are picked up on the next poll
+                    wakeup.tryAcquire(pollMillis, TimeUnit.MILLISECONDS);
+                    wakeup.drainPermits();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (Exception e) {
+                log.error("Error processing inbound SMS inbox: {}", e.getMessage(), e);
+                try {
+                    Thread.sleep(pollMillis);
+                } catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * Claim and process one batch from the inbox. Entries whose message
+     * could not be stored stay claimed and are retried once the claim times
+     * out. Returns the number of entries found.
+     */
+    int drainBatch() {
+        LocalDateTime now = LocalDateTime.now();
+        LocalDateTime staleBefore = now.minus(Duration.ofMillis(claimTimeoutMillis));
+        List<Long> ids = inboxRepository.findClaimableIds(staleBefore, PageRequest.of(0, batchSize));
+        if (ids.isEmpty()) {
+            return 0;
+        }
+
+        String token = UUID.randomUUID().toString();
+        if (inboxRepository.claim(ids, token, now, staleBefore) == 0) {
+            // Taken by another node; look again straight away
+            return ids.size();
+        }
+
+        List<InboundInboxEntry> entries = inboxRepository.findByClaimTokenOrderByIdAsc(token);
+        Set<String> unstored = processBatch(entries.stream().map(InboundInboxEntry::toCallback).toList());
+
+        List<Long> done = entries.stream()
+                .filter(entry -> !unstored.contains(entry.getProviderMessageId()))
+                .map(InboundInboxEntry::getId)
+                .toList();
+        if (!done.isEmpty()) {
+            inboxRepository.deleteByIdIn(done);
+        }
+        return ids.size();
+    }
+
+    /**
+     * Deduplicate, link and persist one batch of messages, then route
+     * keywords. Returns the provider ids of messages that could not be stored.
+     */
+    Set<String> processBatch(List<InboundSMSCallback> callbacks) {
+        // The provider retries callbacks it did not see acknowledged
+        Map<String, InboundSMSCallback> byId = new LinkedHashMap<>();
+        for (InboundSMSCallback callback : callbacks) {
+            String phone = PhoneNumbers.key(callback.getFrom());
+            if (callback.getId() != null && phone != null && !phone.isEmpty()) {
+                byId.putIfAbsent(callback.getId(), callback);
+            }
+        }
+        if (byId.isEmpty()) {
+            return Collections.emptySet();
+        }
+        byId.keySet().removeAll(inboundMessageRepository.findExistingProviderMessageIds(byId.keySet()));
+
+        Map<String, Long> tenantIds = new HashMap<>();
+        for (InboundSMSCallback callback : byId.values()) {
+            Long tenantId = tenantIndex.matchPhone(callback.getFrom());
+            if (tenantId != null) {
+                tenantIds.put(callback.getId(), tenantId);
+            }
+        }
+        Map<Long, Tenant> tenants = tenantIds.isEmpty() ? Map.of()
+                : tenantRepository.findWithPropertyAndLandlordByIdIn(new HashSet<>(tenantIds.values()))
+                        .stream()
+                        .collect(Collectors.toMap(Tenant::getId, Function.identity()));
+
+        List<InboundMessage> messages = new ArrayList<>(byId.size());
+        for (InboundSMSCallback callback : byId.values()) {
+            Long tenantId = tenantIds.get(callback.getId());
+            messages.add(toMessage(callback, tenantId != null ? tenants.get(tenantId) : null));
+        }
+        linkReplies(messages);
+
+        Set<String> unstored = new HashSet<>();
+        List<InboundMessage> written = persist(messages, unstored);
+        int routed = 0;
+        for (InboundMessage message : written) {
+            if (message.getKeyword() != InboundMessage.Keyword.NONE && route(message)) {
+                routed++;
+            }
+        }
+
+        log.info("Processed inbound SMS batch: {} stored, {} from tenants, {} keywords acted on, {} duplicates",
+                written.size(), written.stream().filter(m -> m.getTenant() != null).count(), routed,
+                callbacks.size() - byId.size());
+        return unstored;
+    }
+
+    /**
+     * Point each tenant's message at the latest SMS their landlord sent to
+     * that number, found with one grouped query over the phone index
+     */
+    private void linkReplies(List<InboundMessage> messages) {
+        Set<Long> landlordIds = new HashSet<>();
+        Set<String> phones = new HashSet<>();
+        for (InboundMessage message : messages) {
+            if (message.getLandlord() != null) {
+                landlordIds.add(message.getLandlord().getId());
+                phones.add(message.getPhone());
+            }
+        }
+        if (landlordIds.isEmpty()) {
+            return;
+        }
+
+        Map<String, Long> latest = new HashMap<>();
+        for (SMSLogRepository.LatestLog row : smsLogRepository.findLatestIds(landlordIds, phones)) {
+            latest.put(row.getLandlordId() + ":" + row.getRecipientPhoneKey(), row.getId());
+        }
+        for (InboundMessage message : messages) {
+            Long logId = message.getLandlord() != null
+                    ? latest.get(message.getLandlord().getId() + ":" + message.getPhone()) : null;
+            if (logId != null) {
+                SMSLog replyTo = new SMSLog();
+                replyTo.setId(logId);
+                message.setReplyTo(replyTo);
+            }
+        }
+    }
+
+    /**
+     * Write the batch at once, falling back to one message at a time so a
+     * single bad row (or a retry stored by another node) does not hold back
+     * the rest. Messages that failed for any other reason are added to unstored.
+     */
+    private List<InboundMessage> persist(List<InboundMessage> messages, Set<String> unstored) {
+        try {
+            inboundMessageBatchRepository.insertAll(messages);
+            return messages;
+        } catch (Exception e) {
+            log.warn("Inbound SMS batch write failed, retrying individually: {}", e.getMessage());
+            List<InboundMessage> written = new ArrayList<>();
+            for (InboundMessage message : messages) {
+                try {
+                    inboundMessageBatchRepository.insertAll(List.of(message));
+                    written.add(message);
+                } catch (DataIntegrityViolationException ex) {
+                    log.debug("Inbound SMS {} already stored", message.getProviderMessageId());
+                } catch (Exception ex) {
+                    log.error("Failed to store inbound SMS {}: {}", message.getProviderMessageId(), ex.getMessage());
+                    unstored.add(message.getProviderMessageId());
+                }
+            }
+            return written;
+        }
+    }
+
+    /**
+     * Act on a keyword. Replies go through the dispatcher's transactional
+     * lane, so this thread only queues them. Returns whether anything was done.
+     */
+    private boolean route(InboundMessage message) {
+        Tenant tenant = message.getTenant();
+        switch (message.getKeyword()) {
+            case STOP:
+                return suppressionService.optOutIfStopKeyword(message.getPhone(), firstWord(message.getText()));
+            case HELP:
+                if (tenant == null) {
+                    return false;
+                }
+                return dispatcher.submit(tenant.getLandlord(), Lane.TRANSACTIONAL, () -> smsService.sendHelpReply(tenant)).isQueued();
+            case PAID:
+                // A tenant whose payment has already been matched got a confirmation
+                if (tenant == null || tenant.getOutstandingAmount() == null || tenant.getOutstandingAmount().signum() <= 0) {
+                    return false;
+                }
+                return dispatcher.submit(tenant.getLandlord(), Lane.TRANSACTIONAL,
+                        () -> smsService.forwardPaidReply(tenant, message.getText())).isQueued();
+            default:
+                return false;
+        }
+    }
+
+    private InboundMessage toMessage(InboundSMSCallback callback, Tenant tenant) {
+        InboundMessage message = new InboundMessage();
+        message.setProviderMessageId(callback.getId());
+        message.setPhone(PhoneNumbers.key(callback.getFrom()));
+        message.setShortCode(callback.getTo());
+        message.setText(callback.getText());
+        message.setKeyword(keyword(callback.getText()));
+        message.setTenant(tenant);
+        message.setLandlord(tenant != null ? tenant.getLandlord() : null);
+        message.setReceivedAt(parseDate(callback.getDate()));
+        return message;
+    }
+
+    /**
+     * Classify a message by its first word, so "PAID via bank" counts as PAID
+     */
+    InboundMessage.Keyword keyword(String text) {
+        String word = firstWord(text);
+        if (word.isEmpty()) {
+            return InboundMessage.Keyword.NONE;
+        } else if (suppressionService.isStopKeyword(word)) {
+            return InboundMessage.Keyword.STOP;
+        } else if (paidKeywords.contains(word)) {
+            return InboundMessage.Keyword.PAID;
+        } else if (helpKeywords.contains(word)) {
+            return InboundMessage.Keyword.HELP;
+        }
+        return InboundMessage.Keyword.NONE;
+    }
+
+    private static String firstWord(String text) {
+        if (text == null) {
+            return "";
+        }
+        String trimmed = text.trim();
+        int end = 0;
+        while (end < trimmed.length() && Character.isLetterOrDigit(trimmed.charAt(end))) {
+            end++;
+        }
+        return trimmed.substring(0, end).toUpperCase(Locale.ROOT);
+    }
+
+    /**
+     * Accept an ISO-8601 timestamp with an offset or yyyy-MM-dd HH:mm:ss in local time
+     */
+    private LocalDateTime parseDate(String date) {
+        if (date == null) {
+            return LocalDateTime.now();
+        }
+        try {
+            return OffsetDateTime.parse(date).atZoneSameInstant(ZoneId.systemDefault()).toLocalDateTime();
+        } catch (Exception e) {
+            try {
+                return LocalDateTime.parse(date, DATE_FORMAT);
+            } catch (Exception ex) {
+                return LocalDateTime.now();
+            }
+        }
+    }
+}
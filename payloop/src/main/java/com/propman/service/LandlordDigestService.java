@@ -0,0 +1,115 @@
+package com.propman.service;
+
+import com.propman.dto.PaymentNotice;
+import com.propman.entity.Landlord;
+import com.propman.entity.SMSLog;
+import com.propman.entity.Tenant;
+import com.propman.service.dispatch.OutboundDispatcher;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Coalesces landlord payment notifications. The first payment for a
+ * landlord opens a window; payments arriving before it closes are merged
+ * into a single digest SMS sent on the dispatcher's transactional lane.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class LandlordDigestService {
+
+    private final SMSService smsService;
+    private final TaskScheduler taskScheduler;
+    private final OutboundDispatcher dispatcher;
+
+    private final Map<Long, PendingDigest> pending = new ConcurrentHashMap<>();
+
+    @Value("${sms.digest.window.minutes:10}")
+    private int defaultWindowMinutes;
+
+    /**
+     * Queue a landlord notification for a payment. Never sends on the
+     * caller's thread.
+     */
+    public void paymentReceived(Tenant tenant, BigDecimal amount) {
+        Landlord landlord = tenant.getLandlord();
+        PaymentNotice notice = PaymentNotice.of(tenant, amount);
+
+        Duration window = windowFor(landlord);
+        if (window.isZero()) {
+            dispatcher.submit(landlord, SMSLog.SMSType.PAYMENT_CONFIRMATION,
+                    () -> smsService.sendLandlordPaymentDigest(landlord, List.of(notice)));
+            return;
+        }
+
+        boolean[] opened = {false};
+        // compute() serializes against the remove() in flush, so a notice is never added to a sent digest
+        pending.compute(landlord.getId(), (id, digest) -> {
+            if (digest == null) {
+                digest = new PendingDigest(landlord);
+                opened[0] = true;
+            }
+            digest.notices.add(notice);
+            return digest;
+        });
+
+        if (opened[0]) {
+            taskScheduler.schedule(() -> flush(landlord.getId()), Instant.now().plus(window));
+        }
+    }
+
+    public int getPendingLandlordCount() {
+        return pending.size();
+    }
+
+    void flush(Long landlordId) {
+        PendingDigest digest = pending.remove(landlordId);
+        if (digest != null) {
+            dispatcher.submit(digest.landlord, SMSLog.SMSType.PAYMENT_CONFIRMATION, () -> send(digest));
+        }
+    }
+
+    /**
+     * Send whatever is still pending rather than drop it on shutdown
+     */
+    @PreDestroy
+    public void flushAll() {
+        for (Long landlordId : List.copyOf(pending.keySet())) {
+            PendingDigest digest = pending.remove(landlordId);
+            if (digest != null) {
+                send(digest);
+            }
+        }
+    }
+
+    private boolean send(PendingDigest digest) {
+        log.debug("Sending payment digest of {} payments to landlord {}", digest.notices.size(), digest.landlord.getId());
+        return smsService.sendLandlordPaymentDigest(digest.landlord, digest.notices);
+    }
+
+    private Duration windowFor(Landlord landlord) {
+        Integer minutes = landlord.getPaymentDigestMinutes();
+        return Duration.ofMinutes(minutes != null ? minutes : defaultWindowMinutes);
+    }
+
+    private static class PendingDigest {
+        private final Landlord landlord;
+        private final List<PaymentNotice> notices = new ArrayList<>();
+
+        private PendingDigest(Landlord landlord) {
+            this.landlord = landlord;
+        }
+    }
+}
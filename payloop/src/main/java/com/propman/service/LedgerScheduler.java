@@ -0,0 +1,115 @@
+package com.propman.service;
+
+import com.propman.entity.Tenant;
+import com.propman.repository.LedgerEntryRepository;
+import com.propman.repository.TenantRepository;
+import io.micrometer.observation.Observation;
+import io.micrometer.observation.ObservationRegistry;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class LedgerScheduler {
+
+    private final TenantRepository tenantRepository;
+    private final LedgerEntryRepository ledgerEntryRepository;
+    private final LedgerService ledgerService;
+    private final ObservationRegistry observationRegistry;
+
+    @Value("${ledger.charge.chunk.size:500}")
+    private int chunkSize;
+
+    @Value("${ledger.snapshot.min.tail:20}")
+    private long minTail;
+
+    /**
+     * Post rent charges for tenants due today
+     * Runs daily at 12:05 AM
+     */
+    @Scheduled(cron = "${ledger.charge.cron:0 5 0 * * *}")
+    public void postDueRentCharges() {
+        log.info("Starting daily rent charge job");
+        
+        try {
+            int postedCount = postCharges(LocalDate.now());
+            log.info("Rent charge job completed. Posted {} charges", postedCount);
+            
+        } catch (Exception e) {
+            log.error("Error in rent charge scheduler: {}", e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Charge every tenant due on the given day. Returns the number of
+     * charges posted; periods already charged are skipped.
+     */
+    public int postCharges(LocalDate today) {
+        // On the last day of a month, also charge due days the month does not have
+        List<Integer> dueDays = today.getDayOfMonth() == today.lengthOfMonth()
+                ? IntStream.rangeClosed(today.getDayOfMonth(), 31).boxed().collect(Collectors.toList())
+                : List.of(today.getDayOfMonth());
+
+        List<Long> tenantIds = tenantRepository.findBillableTenantIdsByDueDateIn(dueDays);
+        log.info("Found {} tenants to charge rent", tenantIds.size());
+
+        int postedCount = 0;
+        for (int from = 0; from < tenantIds.size(); from += chunkSize) {
+            Observation observation = Observation.createNotStarted("ledger.charge.chunk", observationRegistry)
+                    .highCardinalityKeyValue("chunk.from", String.valueOf(from))
+                    .start();
+            try (Observation.Scope scope = observation.openScope()) {
+                List<Tenant> chunk = tenantRepository.findWithPropertyAndLandlordByIdIn(
+                        tenantIds.subList(from, Math.min(from + chunkSize, tenantIds.size())));
+
+                for (Tenant tenant : chunk) {
+                    try {
+                        if (ledgerService.postCharge(tenant, tenant.getRentAmount(), today) != null) {
+                            postedCount++;
+                        }
+                    } catch (Exception e) {
+                        log.error("Failed to post rent charge for tenant {}: {}", tenant.getId(), e.getMessage());
+                    }
+                }
+            } finally {
+                observation.stop();
+            }
+        }
+        return postedCount;
+    }
+
+    /**
+     * Snapshot balances for tenants with a long tail of entries
+     * Runs daily at 1:00 AM
+     */
+    @Scheduled(cron = "${ledger.snapshot.cron:0 0 1 * * *}")
+    public void takeSnapshots() {
+        log.info("Starting ledger snapshot job");
+        
+        try {
+            List<Long> tenantIds = ledgerEntryRepository.findTenantIdsWithTailOfAtLeast(minTail);
+
+            for (Long tenantId : tenantIds) {
+                try {
+                    ledgerService.snapshot(tenantId);
+                } catch (Exception e) {
+                    log.error("Failed to snapshot balance for tenant {}: {}", tenantId, e.getMessage());
+                }
+            }
+            
+            log.info("Ledger snapshot job completed. Snapshotted {} tenants", tenantIds.size());
+            
+        } catch (Exception e) {
+            log.error("Error in ledger snapshot scheduler: {}", e.getMessage(), e);
+        }
+    }
+}
@@ -0,0 +1,219 @@
+package com.propman.service;
+
+import com.propman.dto.TenantBalance;
+import com.propman.entity.LedgerEntry;
+import com.propman.entity.Payment;
+import com.propman.entity.Tenant;
+import com.propman.entity.TenantBalanceSnapshot;
+import com.propman.repository.LandlordRepository;
+import com.propman.repository.LedgerBatchRepository;
+import com.propman.repository.LedgerEntryRepository;
+import com.propman.repository.PropertyRepository;
+import com.propman.repository.TenantBalanceSnapshotRepository;
+import com.propman.repository.TenantRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * Append-only tenant ledger. Every entry also applies its delta to the
+ * tenant, property and landlord outstanding totals in the same transaction,
+ * so those totals never need a full recompute.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class LedgerService {
+
+    private final LedgerEntryRepository ledgerEntryRepository;
+    private final TenantBalanceSnapshotRepository snapshotRepository;
+    private final TenantRepository tenantRepository;
+    private final PropertyRepository propertyRepository;
+    private final LandlordRepository landlordRepository;
+    private final LedgerBatchRepository ledgerBatchRepository;
+    private final DashboardService dashboardService;
+
+    /**
+     * Post a rent charge for a due date. Returns null if that period has
+     * already been charged.
+     */
+    @Transactional
+    public LedgerEntry postCharge(Tenant tenant, BigDecimal amount, LocalDate dueDate) {
+        if (ledgerEntryRepository.existsByTenantIdAndEntryTypeAndDueDate(
+                tenant.getId(), LedgerEntry.EntryType.CHARGE, dueDate)) {
+            return null;
+        }
+        return append(tenant, LedgerEntry.EntryType.CHARGE, amount, dueDate, null);
+    }
+
+    /**
+     * Post a payment received from a tenant
+     */
+    @Transactional
+    public LedgerEntry postPayment(Tenant tenant, BigDecimal amount, String reference) {
+        return append(tenant, LedgerEntry.EntryType.PAYMENT, amount, null, reference);
+    }
+
+    /**
+     * Post a batch of payments for tenants loaded with property and landlord.
+     * Rows are written with JDBC batches and total deltas are summed per
+     * tenant, property and landlord first, so a batch costs a handful of
+     * round trips and one commit regardless of size.
+     */
+    @Transactional
+    public void postPaymentBatch(List<Payment> payments) {
+        if (payments.isEmpty()) {
+            return;
+        }
+
+        List<LedgerEntry> entries = new ArrayList<>(payments.size());
+        Map<Long, BigDecimal> tenantDeltas = new HashMap<>();
+        Map<Long, BigDecimal> propertyDeltas = new HashMap<>();
+        Map<Long, BigDecimal> landlordDeltas = new HashMap<>();
+        Map<Long, Tenant> tenants = new HashMap<>();
+
+        // Payment dates are written back whole, so apply payments to the locked
+        // rows' values; a concurrent recordPayment waits for this batch to commit
+        Map<Long, LedgerBatchRepository.PaymentState> states = ledgerBatchRepository.lockPaymentStates(
+                payments.stream().map(payment -> payment.getTenant().getId()).collect(Collectors.toSet()));
+
+        for (Payment payment : payments) {
+            Tenant tenant = tenants.computeIfAbsent(payment.getTenant().getId(),
+                    id -> withPaymentState(payment.getTenant(), states.get(id)));
+            tenant.applyPayment(payment.getAmount(), payment.getPaymentDate().toLocalDate());
+
+            LedgerEntry entry = new LedgerEntry();
+            entry.setTenant(tenant);
+            entry.setEntryType(LedgerEntry.EntryType.PAYMENT);
+            entry.setAmount(payment.getAmount());
+            entry.setReference(payment.getReference());
+            entries.add(entry);
+
+            BigDecimal delta = entry.getBalanceDelta();
+            tenantDeltas.merge(tenant.getId(), delta, BigDecimal::add);
+            propertyDeltas.merge(tenant.getProperty().getId(), delta, BigDecimal::add);
+            landlordDeltas.merge(tenant.getLandlord().getId(), delta, BigDecimal::add);
+        }
+
+        ledgerBatchRepository.insertPayments(payments);
+        ledgerBatchRepository.insertLedgerEntries(entries);
+        ledgerBatchRepository.addTenantOutstanding(tenantDeltas);
+        ledgerBatchRepository.addPropertyOutstanding(propertyDeltas);
+        ledgerBatchRepository.addLandlordOutstanding(landlordDeltas);
+        ledgerBatchRepository.updatePaymentDates(tenants.values());
+        landlordDeltas.keySet().forEach(dashboardService::evict);
+
+        log.debug("Posted batch of {} payments for {} tenants", payments.size(), tenants.size());
+    }
+
+    private static Tenant withPaymentState(Tenant tenant, LedgerBatchRepository.PaymentState state) {
+        if (state != null) {
+            tenant.setLastPaymentDate(state.lastPaymentDate());
+            tenant.setNextDueDate(state.nextDueDate());
+            tenant.setPaidTowardsNextDue(state.paidTowardsNextDue() != null ? state.paidTowardsNextDue() : BigDecimal.ZERO);
+        }
+        return tenant;
+    }
+
+    /**
+     * Bring balances from before the ledger into it as opening entries.
+     * Runs at startup; tenants already reconciled are skipped.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional
+    public void backfillOpeningBalances() {
+        int posted = ledgerBatchRepository.insertOpeningBalances();
+        if (posted > 0) {
+            log.info("Posted opening ledger balances for {} tenants", posted);
+        }
+    }
+
+    /**
+     * Current balance: the latest snapshot plus the entries posted after it
+     */
+    @Transactional(readOnly = true)
+    public TenantBalance getBalance(Long tenantId) {
+        TenantBalance balance = snapshotRepository.findById(tenantId)
+                .map(snapshot -> new TenantBalance(tenantId, snapshot.getBalance(), snapshot.getOverdueSince(),
+                        0, snapshot.getLastEntryId()))
+                .orElseGet(() -> new TenantBalance(tenantId, BigDecimal.ZERO, null, 0, 0L));
+
+        List<LedgerEntry> tail = ledgerEntryRepository
+                .findByTenantIdAndIdGreaterThanOrderByIdAsc(tenantId, balance.getLastEntryId());
+        tail.forEach(entry -> apply(balance, entry));
+
+        if (balance.getOverdueSince() != null) {
+            balance.setDaysOverdue(Math.max(0, ChronoUnit.DAYS.between(balance.getOverdueSince(), LocalDate.now())));
+        }
+        return balance;
+    }
+
+    /**
+     * Fold the tenant's tail into its snapshot
+     */
+    @Transactional
+    public void snapshot(Long tenantId) {
+        TenantBalance balance = getBalance(tenantId);
+
+        TenantBalanceSnapshot snapshot = snapshotRepository.findById(tenantId).orElseGet(() -> {
+            TenantBalanceSnapshot created = new TenantBalanceSnapshot();
+            created.setTenantId(tenantId);
+            return created;
+        });
+        snapshot.setBalance(balance.getBalance());
+        snapshot.setOverdueSince(balance.getOverdueSince());
+        snapshot.setLastEntryId(balance.getLastEntryId());
+
+        snapshotRepository.save(snapshot);
+    }
+
+    private LedgerEntry append(Tenant tenant, LedgerEntry.EntryType entryType, BigDecimal amount,
+                               LocalDate dueDate, String reference) {
+        LedgerEntry entry = new LedgerEntry();
+        entry.setTenant(tenant);
+        entry.setEntryType(entryType);
+        entry.setAmount(amount);
+        entry.setDueDate(dueDate);
+        entry.setReference(reference);
+        ledgerEntryRepository.save(entry);
+
+        BigDecimal delta = entry.getBalanceDelta();
+        tenantRepository.addOutstandingAmount(tenant.getId(), delta);
+        propertyRepository.addOutstandingPayments(tenant.getProperty().getId(), delta);
+        landlordRepository.addOutstandingPayments(tenant.getLandlord().getId(), delta);
+        dashboardService.evict(tenant.getLandlord().getId());
+
+        log.debug("Posted {} of {} for tenant {}", entryType, amount, tenant.getId());
+        return entry;
+    }
+
+    /**
+     * Apply one entry. The balance is overdue from the due date of the charge
+     * that took it above zero until a payment brings it back to zero or below.
+     */
+    private void apply(TenantBalance balance, LedgerEntry entry) {
+        BigDecimal before = balance.getBalance();
+        BigDecimal after = before.add(entry.getBalanceDelta());
+
+        if (after.signum() <= 0) {
+            balance.setOverdueSince(null);
+        } else if (before.signum() <= 0) {
+            balance.setOverdueSince(entry.getDueDate() != null ? entry.getDueDate() : entry.getCreatedAt().toLocalDate());
+        }
+
+        balance.setBalance(after);
+        balance.setLastEntryId(entry.getId());
+    }
+}
@@ -0,0 +1,286 @@
+package com.propman.service;
+
+import com.propman.dto.MpesaC2BCallback;
+import com.propman.entity.MpesaInboxEntry;
+import com.propman.entity.Payment;
+import com.propman.entity.SMSLog;
+import com.propman.entity.Tenant;
+import com.propman.entity.UnmatchedPayment;
+import com.propman.repository.MpesaInboxRepository;
+import com.propman.repository.PaymentRepository;
+import com.propman.repository.TenantRepository;
+import com.propman.repository.UnmatchedPaymentRepository;
+import com.propman.service.dispatch.OutboundDispatcher;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * M-Pesa C2B confirmation pipeline. Callbacks are written to the
+ * {@link MpesaInboxEntry} inbox and acknowledged once the write commits; a
+ * single writer thread per node claims inbox entries in batches, matches
+ * each payment through {@link TenantPaymentIndex}, writes the batch in one
+ * transaction and hands tenant confirmations to the dispatcher's
+ * transactional lane and landlord notifications to the digest service.
+ * Entries are deleted once their payment is recorded, so a callback
+ * acknowledged before a crash is processed after restart or by another node.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class MpesaIngestionService {
+
+    private static final DateTimeFormatter TRANS_TIME_FORMAT = DateTimeFormatter.ofPattern("yyyyMMddHHmmss");
+
+    private final TenantPaymentIndex paymentIndex;
+    private final TenantRepository tenantRepository;
+    private final PaymentRepository paymentRepository;
+    private final UnmatchedPaymentRepository unmatchedPaymentRepository;
+    private final MpesaInboxRepository inboxRepository;
+    private final LedgerService ledgerService;
+    private final SMSService smsService;
+    private final LandlordDigestService landlordDigestService;
+    private final OutboundDispatcher dispatcher;
+
+    private final Semaphore wakeup = new Semaphore(0);
+
+    @Value("${mpesa.ingest.batch.size:200}")
+    private int batchSize;
+
+    @Value("${mpesa.ingest.poll.ms:100}")
+    private long pollMillis;
+
+    @Value("${mpesa.ingest.claim.timeout.ms:60000}")
+    private long claimTimeoutMillis;
+
+    private Thread writer;
+    private volatile boolean running;
+
+    @PostConstruct
+    public void start() {
+        running = true;
+        writer = new Thread(this::drainLoop, "mpesa-ingest");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        running = false;
+        wakeup.release();
+        writer.join(TimeUnit.SECONDS.toMillis(30));
+    }
+
+    /**
+     * Store a confirmation callback in the inbox. Returns once the write has
+     * committed, so an acknowledged payment is never lost; if the write
+     * fails the caller must not acknowledge it and Daraja retries.
+     */
+    public void accept(MpesaC2BCallback callback) {
+        inboxRepository.save(MpesaInboxEntry.of(callback));
+        wakeup.release();
+    }
+
+    private void drainLoop() {
+        while (running) {
+            try {
+                if (drainBatch() == 0) {
+                    // Entries accepted on other nodes are picked up on the next poll
+                    wakeup.tryAcquire(pollMillis, TimeUnit.MILLISECONDS);
+                    wakeup.drainPermits();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (Exception e) {
+                log.error("Error processing M-Pesa inbox: {}", e.getMessage(), e);
+                try {
+                    Thread.sleep(pollMillis);
+                } catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * Claim and process one batch from the inbox. Entries whose payment
+     * could not be written stay claimed and are retried once the claim
+     * times out. Returns the number of entries found.
+     */
+    int drainBatch() {
+        LocalDateTime now = LocalDateTime.now();
+        LocalDateTime staleBefore = now.minus(Duration.ofMillis(claimTimeoutMillis));
+        List<Long> ids = inboxRepository.findClaimableIds(staleBefore, PageRequest.of(0, batchSize));
+        if (ids.isEmpty()) {
+            return 0;
+        }
+
+        String token = UUID.randomUUID().toString();
+        if (inboxRepository.claim(ids, token, now, staleBefore) == 0) {
+            // Taken by another node; look again straight away
+            return ids.size();
+        }
+
+        List<MpesaInboxEntry> entries = inboxRepository.findByClaimTokenOrderByIdAsc(token);
+        Set<String> unrecorded = processBatch(entries.stream().map(MpesaInboxEntry::toCallback).toList());
+
+        List<Long> done = entries.stream()
+                .filter(entry -> !unrecorded.contains(entry.getTransId()))
+                .map(MpesaInboxEntry::getId)
+                .toList();
+        if (!done.isEmpty()) {
+            inboxRepository.deleteByIdIn(done);
+        }
+        return ids.size();
+    }
+
+    /**
+     * Deduplicate, reconcile and persist one batch of callbacks. Returns the
+     * transaction ids whose payment could not be written.
+     */
+    Set<String> processBatch(List<MpesaC2BCallback> callbacks) {
+        // Daraja can deliver the same confirmation more than once
+        Map<String, MpesaC2BCallback> byTransId = new LinkedHashMap<>();
+        for (MpesaC2BCallback callback : callbacks) {
+            if (callback.getTransId() != null && callback.getTransAmount() != null) {
+                byTransId.putIfAbsent(callback.getTransId(), callback);
+            }
+        }
+        if (byTransId.isEmpty()) {
+            return Collections.emptySet();
+        }
+
+        Set<String> seen = new HashSet<>(paymentRepository.findExistingReferences(byTransId.keySet()));
+        seen.addAll(unmatchedPaymentRepository.findExistingTransactionIds(byTransId.keySet()));
+        byTransId.keySet().removeAll(seen);
+
+        Map<String, Long> matches = new LinkedHashMap<>();
+        List<UnmatchedPayment> unmatched = new ArrayList<>();
+        for (MpesaC2BCallback callback : byTransId.values()) {
+            Long tenantId = paymentIndex.match(callback.getBillRefNumber(), callback.getMsisdn());
+            if (tenantId != null) {
+                matches.put(callback.getTransId(), tenantId);
+            } else {
+                unmatched.add(toUnmatched(callback));
+            }
+        }
+
+        Map<Long, Tenant> tenants = tenantRepository.findWithPropertyAndLandlordByIdIn(new HashSet<>(matches.values()))
+                .stream()
+                .collect(Collectors.toMap(Tenant::getId, Function.identity()));
+
+        List<Payment> payments = new ArrayList<>();
+        for (Map.Entry<String, Long> match : matches.entrySet()) {
+            MpesaC2BCallback callback = byTransId.get(match.getKey());
+            Tenant tenant = tenants.get(match.getValue());
+            if (tenant != null) {
+                payments.add(toPayment(callback, tenant));
+            } else {
+                unmatched.add(toUnmatched(callback));
+            }
+        }
+
+        Set<String> unrecorded = persist(payments);
+        if (!unmatched.isEmpty()) {
+            unmatchedPaymentRepository.saveAll(unmatched);
+            log.warn("{} M-Pesa payments could not be matched to a tenant", unmatched.size());
+        }
+
+        for (Payment payment : payments) {
+            dispatcher.submit(payment.getTenant().getLandlord(), SMSLog.SMSType.PAYMENT_CONFIRMATION,
+                    () -> smsService.sendPaymentConfirmation(payment.getTenant(), payment.getAmount()));
+            landlordDigestService.paymentReceived(payment.getTenant(), payment.getAmount());
+        }
+
+        log.info("Processed M-Pesa batch: {} matched, {} unmatched, {} duplicates, {} not written",
+                payments.size(), unmatched.size(),
+                callbacks.size() - payments.size() - unmatched.size() - unrecorded.size(), unrecorded.size());
+        return unrecorded;
+    }
+
+    /**
+     * Write the batch in one transaction, falling back to one payment at a
+     * time so a single bad row does not hold back the rest. Payments that
+     * could not be written are removed from the list and their references
+     * returned.
+     */
+    private Set<String> persist(List<Payment> payments) {
+        Set<String> unrecorded = new HashSet<>();
+        try {
+            ledgerService.postPaymentBatch(payments);
+        } catch (Exception e) {
+            log.warn("Batch payment write failed, retrying individually: {}", e.getMessage());
+            List<Payment> written = new ArrayList<>();
+            for (Payment payment : payments) {
+                try {
+                    // The failed attempt already advanced the in-memory tenant
+                    Long tenantId = payment.getTenant().getId();
+                    payment.setTenant(tenantRepository.findWithPropertyAndLandlordByIdIn(List.of(tenantId)).get(0));
+                    ledgerService.postPaymentBatch(List.of(payment));
+                    written.add(payment);
+                } catch (Exception ex) {
+                    log.error("Failed to record M-Pesa payment {}: {}", payment.getReference(), ex.getMessage());
+                    unrecorded.add(payment.getReference());
+                }
+            }
+            payments.retainAll(written);
+        }
+        return unrecorded;
+    }
+
+    private Payment toPayment(MpesaC2BCallback callback, Tenant tenant) {
+        Payment payment = new Payment();
+        payment.setTenant(tenant);
+        payment.setLandlord(tenant.getLandlord());
+        payment.setAmount(callback.getTransAmount());
+        payment.setPaymentDate(parseTransTime(callback.getTransTime()));
+        payment.setMethod(Payment.PaymentMethod.MPESA);
+        payment.setReference(callback.getTransId());
+        return payment;
+    }
+
+    private UnmatchedPayment toUnmatched(MpesaC2BCallback callback) {
+        UnmatchedPayment payment = new UnmatchedPayment();
+        payment.setTransactionId(callback.getTransId());
+        payment.setMsisdn(callback.getMsisdn());
+        payment.setAccountReference(callback.getBillRefNumber());
+        payment.setAmount(callback.getTransAmount());
+        payment.setTransactionTime(parseTransTime(callback.getTransTime()));
+        payment.setPayerName(String.join(" ", nonNull(callback.getFirstName()), nonNull(callback.getLastName())).trim());
+        return payment;
+    }
+
+    private LocalDateTime parseTransTime(String transTime) {
+        try {
+            return LocalDateTime.parse(transTime, TRANS_TIME_FORMAT);
+        } catch (Exception e) {
+            return LocalDateTime.now();
+        }
+    }
+
+    private String nonNull(String value) {
+        return value != null ? value : "";
+    }
+}
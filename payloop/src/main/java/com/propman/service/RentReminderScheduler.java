@@ -1,14 +1,31 @@
 package com.propman.service;
 
+import com.propman.entity.SMSLog;
 import com.propman.entity.Tenant;
 import com.propman.repository.TenantRepository;
+import com.propman.service.dispatch.Admission;
+import com.propman.service.dispatch.OutboundDispatcher;
+import io.micrometer.observation.Observation;
+import io.micrometer.observation.ObservationRegistry;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 
+import java.time.DayOfWeek;
+import java.time.Duration;
 import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.EnumMap;
 import java.util.List;
+import java.util.Map;
+import java.util.function.BooleanSupplier;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 @Service
 @RequiredArgsConstructor
@@ -17,120 +34,145 @@ public class RentReminderScheduler {
 
     private final TenantRepository tenantRepository;
     private final SMSService smsService;
+    private final OutboundDispatcher dispatcher;
+    private final DispatchWindowPlanner windowPlanner;
+    private final ObservationRegistry observationRegistry;
+
+    @Value("${sms.dispatch.chunk.size:100}")
+    private int chunkSize;
 
     /**
-     * Send rent reminders 3 days before due date
-     * Runs daily at 9:00 AM
+     * Plan the day's rent reminders and overdue notices and spread them over
+     * the send window. Runs daily at the start of the window (8:00 AM).
      */
-    @Scheduled(cron = "0 0 9 * * *")
-    public void sendRentReminders() {
-        log.info("Starting daily rent reminder job");
+    @Scheduled(cron = "${sms.dispatch.cron:0 0 8 * * *}")
+    public void runDailyDispatch() {
+        log.info("Starting daily reminder dispatch");
         
         try {
             LocalDate today = LocalDate.now();
-            int currentDay = today.getDayOfMonth();
-            int targetDay = today.plusDays(3).getDayOfMonth();
-            
-            // Find tenants whose rent is due in 3 days
-            List<Tenant> tenantsToRemind = tenantRepository.findActiveTenantsWithDueDate(targetDay);
-            
-            log.info("Found {} tenants to send rent reminders", tenantsToRemind.size());
-            
-            int successCount = 0;
-            for (Tenant tenant : tenantsToRemind) {
-                try {
-                    boolean success = smsService.sendRentReminder(tenant, 3);
-                    if (success) {
-                        successCount++;
-                    }
-                    
-                    // Add delay to avoid rate limiting
-                    Thread.sleep(200);
-                } catch (Exception e) {
-                    log.error("Failed to send reminder to tenant {}: {}", tenant.getId(), e.getMessage());
-                }
+
+            List<PlannedMessage> plan = new ArrayList<>();
+            planRentReminders(today, plan);
+            planOverdueNotices(today, plan);
+
+            Duration window = windowPlanner.window();
+            windowPlanner.checkCapacity(plan.size());
+            List<PlannedMessage> scheduled = plan.stream()
+                    .map(message -> message.at(windowPlanner.slotFor(message.tenantId(), today, window)))
+                    .sorted(Comparator.comparing(PlannedMessage::slot))
+                    .collect(Collectors.toList());
+
+            log.info("Dispatching {} messages over a {} minute window", scheduled.size(), window.toMinutes());
+
+            Map<Admission, Integer> admissions = dispatch(scheduled);
+
+            log.info("Daily dispatch completed. Queued {} out of {} messages",
+                    admissions.getOrDefault(Admission.QUEUED, 0), scheduled.size());
+            int inactive = admissions.getOrDefault(Admission.SUBSCRIPTION_INACTIVE, 0);
+            int overQuota = admissions.getOrDefault(Admission.QUOTA_EXCEEDED, 0);
+            if (inactive > 0 || overQuota > 0) {
+                log.warn("Daily dispatch refused {} messages for inactive subscriptions and {} over daily quota",
+                        inactive, overQuota);
             }
             
-            log.info("Rent reminder job completed. Sent {} out of {} reminders successfully", 
-                    successCount, tenantsToRemind.size());
-            
         } catch (Exception e) {
-            log.error("Error in rent reminder scheduler: {}", e.getMessage(), e);
+            log.error("Error in daily reminder dispatch: {}", e.getMessage(), e);
         }
     }
 
     /**
-     * Send overdue notices for tenants with overdue payments
-     * Runs daily at 10:00 AM
+     * Rent reminders 3 days before due date
      */
-    @Scheduled(cron = "0 0 10 * * *")
-    public void sendOverdueNotices() {
-        log.info("Starting daily overdue notice job");
+    private void planRentReminders(LocalDate today, List<PlannedMessage> plan) {
+        List<Long> tenantIds = tenantRepository.findActiveTenantIdsDueOn(today.plusDays(3));
+        log.info("Found {} tenants to send rent reminders", tenantIds.size());
+
+        for (Long tenantId : tenantIds) {
+            plan.add(new PlannedMessage(tenantId, SMSLog.SMSType.RENT_REMINDER, 3, null));
+        }
+    }
+
+    /**
+     * Daily overdue notices for 1-7 days overdue, weekly (Mondays) for 8+ days
+     */
+    private void planOverdueNotices(LocalDate today, List<PlannedMessage> plan) {
+        List<TenantRepository.OverdueTenant> overdueTenants =
+                tenantRepository.findDefaultersDueBetween(today.minusDays(7), today.minusDays(1));
         
-        try {
-            LocalDate today = LocalDate.now();
-            
-            // Find tenants with overdue payments
-            List<Tenant> overdueTenantsToday = tenantRepository.findOverdueTenantsForToday(today.getDayOfMonth());
-            List<Tenant> overdueTenantsWeekly = tenantRepository.findOverdueTenantsForWeekly(today.getDayOfMonth());
-            
-            log.info("Found {} tenants for daily overdue notices and {} for weekly notices", 
-                    overdueTenantsToday.size(), overdueTenantsWeekly.size());
-            
-            int successCount = 0;
-            
-            // Send daily overdue notices (1-7 days overdue)
-            for (Tenant tenant : overdueTenantsToday) {
-                try {
-                    int daysOverdue = calculateDaysOverdue(tenant, today);
-                    if (daysOverdue > 0 && daysOverdue <= 7) {
-                        boolean success = smsService.sendOverdueNotice(tenant, daysOverdue);
-                        if (success) {
-                            successCount++;
-                        }
-                    }
-                    Thread.sleep(200);
-                } catch (Exception e) {
-                    log.error("Failed to send overdue notice to tenant {}: {}", tenant.getId(), e.getMessage());
-                }
-            }
-            
-            // Send weekly overdue notices (8+ days overdue, only on Mondays)
-            if (today.getDayOfWeek().getValue() == 1) { // Monday
-                for (Tenant tenant : overdueTenantsWeekly) {
-                    try {
-                        int daysOverdue = calculateDaysOverdue(tenant, today);
-                        if (daysOverdue > 7) {
-                            boolean success = smsService.sendOverdueNotice(tenant, daysOverdue);
-                            if (success) {
-                                successCount++;
-                            }
-                        }
-                        Thread.sleep(200);
-                    } catch (Exception e) {
-                        log.error("Failed to send weekly overdue notice to tenant {}: {}", tenant.getId(), e.getMessage());
+        if (today.getDayOfWeek() == DayOfWeek.MONDAY) {
+            overdueTenants = new ArrayList<>(overdueTenants);
+            overdueTenants.addAll(tenantRepository.findDefaultersDueOnOrBefore(today.minusDays(8)));
+        }
+
+        log.info("Found {} tenants to send overdue notices", overdueTenants.size());
+
+        for (TenantRepository.OverdueTenant tenant : overdueTenants) {
+            int daysOverdue = (int) ChronoUnit.DAYS.between(tenant.getNextDueDate(), today);
+            plan.add(new PlannedMessage(tenant.getId(), SMSLog.SMSType.OVERDUE_NOTICE, daysOverdue, null));
+        }
+    }
+
+    /**
+     * Hand planned messages to the dispatcher at their slots. Tenants are
+     * loaded one chunk at a time just before the chunk is due, so database
+     * reads are spread over the window along with the provider calls.
+     * Returns how many messages the dispatcher queued or refused, by outcome.
+     */
+    private Map<Admission, Integer> dispatch(List<PlannedMessage> scheduled) throws InterruptedException {
+        Duration minSpacing = windowPlanner.minSpacing();
+        LocalDateTime lastSentAt = LocalDateTime.MIN;
+        Map<Admission, Integer> admissions = new EnumMap<>(Admission.class);
+
+        for (int from = 0; from < scheduled.size(); from += chunkSize) {
+            List<PlannedMessage> chunk = scheduled.subList(from, Math.min(from + chunkSize, scheduled.size()));
+            sleepUntil(chunk.get(0).slot());
+
+            Observation observation = Observation.createNotStarted("sms.dispatch.chunk", observationRegistry)
+                    .highCardinalityKeyValue("chunk.from", String.valueOf(from))
+                    .highCardinalityKeyValue("chunk.size", String.valueOf(chunk.size()))
+                    .start();
+            try (Observation.Scope scope = observation.openScope()) {
+                Map<Long, Tenant> tenants = tenantRepository.findWithPropertyAndLandlordByIdIn(
+                        chunk.stream().map(PlannedMessage::tenantId).collect(Collectors.toList()))
+                        .stream()
+                        .collect(Collectors.toMap(Tenant::getId, Function.identity()));
+
+                for (PlannedMessage message : chunk) {
+                    Tenant tenant = tenants.get(message.tenantId());
+                    if (tenant == null) {
+                        continue;
                     }
+
+                    LocalDateTime sendAt = message.slot().isAfter(lastSentAt.plus(minSpacing))
+                            ? message.slot() : lastSentAt.plus(minSpacing);
+                    sleepUntil(sendAt);
+                    lastSentAt = LocalDateTime.now();
+
+                    BooleanSupplier send = message.type() == SMSLog.SMSType.RENT_REMINDER
+                            ? () -> smsService.sendRentReminder(tenant, message.days())
+                            : () -> smsService.sendOverdueNotice(tenant, message.days());
+                    admissions.merge(dispatcher.submit(tenant.getLandlord(), message.type(), send), 1, Integer::sum);
                 }
+            } finally {
+                observation.stop();
             }
-            
-            log.info("Overdue notice job completed. Sent {} notices successfully", successCount);
-            
-        } catch (Exception e) {
-            log.error("Error in overdue notice scheduler: {}", e.getMessage(), e);
         }
+
+        return admissions;
     }
 
-    /**
-     * Calculate days overdue for a tenant
-     */
-    private int calculateDaysOverdue(Tenant tenant, LocalDate today) {
-        LocalDate dueDate = LocalDate.of(today.getYear(), today.getMonth(), tenant.getDueDate());
-        
-        // If due date hasn't passed this month, check previous month
-        if (dueDate.isAfter(today)) {
-            dueDate = dueDate.minusMonths(1);
+    private void sleepUntil(LocalDateTime time) throws InterruptedException {
+        long millis = Duration.between(LocalDateTime.now(), time).toMillis();
+        if (millis > 0) {
+            Thread.sleep(millis);
+        }
+    }
+
+    private record PlannedMessage(Long tenantId, SMSLog.SMSType type, int days, LocalDateTime slot) {
+
+        PlannedMessage at(LocalDateTime slot) {
+            return new PlannedMessage(tenantId, type, days, slot);
         }
-        
-        return (int) dueDate.until(today).getDays();
     }
-}
\ No newline at end of file
+}
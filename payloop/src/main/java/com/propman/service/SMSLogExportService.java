@@ -0,0 +1,148 @@
+package com.propman.service;
+
+import com.propman.repository.SMSLogExportRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.Locale;
+
+/**
+ * Writes a landlord's SMS logs as CSV, one row per log, while they are read
+ * from the database. Memory use does not depend on the size of the export.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class SMSLogExportService {
+
+    static final String HEADER =
+            "id,sent_at,recipient_phone,recipient_name,sms_type,status,provider,message_id,cost,error_message,tenant_id,message";
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final SMSLogExportRepository smsLogExportRepository;
+
+    /**
+     * Write logs sent in [from, to) to the stream, oldest first. The stream is
+     * flushed but not closed. Returns the number of rows written.
+     */
+    @Transactional(readOnly = true)
+    public long export(Long landlordId, LocalDateTime from, LocalDateTime to, OutputStream out) throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), BUFFER_SIZE);
+        writer.write(HEADER);
+        writer.write('\n');
+
+        long[] rows = {0};
+        try {
+            smsLogExportRepository.forEachLog(landlordId, from, to, rs -> {
+                try {
+                    writeRow(writer, rs);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                rows[0]++;
+            });
+        } catch (UncheckedIOException e) {
+            // Usually the client went away; the cursor is closed on the way out
+            throw e.getCause();
+        }
+
+        writer.flush();
+        log.info("Exported {} SMS logs for landlord {} from {} to {}", rows[0], landlordId, from, to);
+        return rows[0];
+    }
+
+    /**
+     * Whether an Accept-Encoding header allows gzip, either by name or
+     * through a wildcard, without a zero quality value
+     */
+    public static boolean acceptsGzip(String acceptEncoding) {
+        if (acceptEncoding == null) {
+            return false;
+        }
+        Boolean gzip = null;
+        Boolean wildcard = null;
+        for (String part : acceptEncoding.toLowerCase(Locale.ROOT).split(",")) {
+            String[] tokens = part.split(";");
+            String coding = tokens[0].trim();
+            boolean allowed = true;
+            for (int i = 1; i < tokens.length; i++) {
+                String param = tokens[i].replace(" ", "");
+                if (param.startsWith("q=")) {
+                    allowed = !param.substring(2).matches("0(\\.0*)?");
+                }
+            }
+            if (coding.equals("gzip")) {
+                gzip = allowed;
+            } else if (coding.equals("*")) {
+                wildcard = allowed;
+            }
+        }
+        return gzip != null ? gzip : Boolean.TRUE.equals(wildcard);
+    }
+
+    private static void writeRow(Writer writer, ResultSet rs) throws SQLException, IOException {
+        writer.write(Long.toString(rs.getLong("id")));
+        writer.write(',');
+        Timestamp sentAt = rs.getTimestamp("sent_at");
+        writer.write(sentAt != null ? sentAt.toLocalDateTime().toString() : "");
+        writer.write(',');
+        writeField(writer, rs.getString("recipient_phone"));
+        writer.write(',');
+        writeField(writer, rs.getString("recipient_name"));
+        writer.write(',');
+        writeField(writer, rs.getString("sms_type"));
+        writer.write(',');
+        writeField(writer, rs.getString("status"));
+        writer.write(',');
+        writeField(writer, rs.getString("provider"));
+        writer.write(',');
+        writeField(writer, rs.getString("message_id"));
+        writer.write(',');
+        BigDecimal cost = rs.getBigDecimal("cost");
+        writer.write(cost != null ? cost.toPlainString() : "");
+        writer.write(',');
+        writeField(writer, rs.getString("error_message"));
+        writer.write(',');
+        long tenantId = rs.getLong("tenant_id");
+        writer.write(rs.wasNull() ? "" : Long.toString(tenantId));
+        writer.write(',');
+        writeField(writer, rs.getString("message"));
+        writer.write('\n');
+    }
+
+    /**
+     * Quote a field if it contains a separator, quote or line break
+     */
+    static void writeField(Writer writer, String value) throws IOException {
+        if (value == null || value.isEmpty()) {
+            return;
+        }
+        boolean quote = false;
+        for (int i = 0; i < value.length() && !quote; i++) {
+            char c = value.charAt(i);
+            quote = c == ',' || c == '"' || c == '\n' || c == '\r';
+        }
+        if (!quote) {
+            writer.write(value);
+            return;
+        }
+        writer.write('"');
+        writer.write(value.replace("\"", "\"\""));
+        writer.write('"');
+    }
+}
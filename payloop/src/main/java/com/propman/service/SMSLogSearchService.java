@@ -0,0 +1,159 @@
+package com.propman.service;
+
+import com.propman.entity.SMSLog;
+import com.propman.repository.SMSLogRepository;
+import com.propman.repository.SMSLogSearchIndexRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Finds a landlord's SMS logs by recipient phone prefix and name word
+ * prefixes. Both go through indexes kept on write: a normalized phone column
+ * on sms_logs and a table of lowercase name words, so a search reads only
+ * the matching index range instead of scanning the logs.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class SMSLogSearchService {
+
+    // 254 plus at least three digits of the number, e.g. 0712
+    private static final int MIN_PHONE_PREFIX = 6;
+    private static final int MIN_NAME_PREFIX = 2;
+
+    private final SMSLogRepository smsLogRepository;
+    private final SMSLogSearchIndexRepository smsLogSearchIndexRepository;
+
+    @Value("${sms.search.max.results:200}")
+    private int maxResults;
+
+    // Candidates read when matches need filtering on more than the indexed key
+    @Value("${sms.search.max.scan:2000}")
+    private int maxScan;
+
+    @Value("${sms.search.backfill.enabled:false}")
+    private boolean backfillEnabled;
+
+    @Value("${sms.search.backfill.chunk.size:5000}")
+    private int backfillChunkSize;
+
+    private long backfillAfterId;
+    private long backfillMaxId = -1;
+
+    /**
+     * Logs whose recipient phone starts with the prefix and whose recipient
+     * name has a word starting with each word of the name, newest first per
+     * number or name word. Either filter may be omitted, but not both.
+     */
+    public List<SMSLog> search(Long landlordId, String phone, String name, int limit) {
+        String phonePrefix = phone != null && !phone.isBlank() ? phonePrefix(phone) : null;
+        List<String> nameWords = name != null && !name.isBlank() ? SMSLog.nameTokens(name) : List.of();
+
+        if (phonePrefix == null && nameWords.isEmpty()) {
+            throw new IllegalArgumentException("phone or name is required");
+        }
+        if (phonePrefix != null && phonePrefix.length() < MIN_PHONE_PREFIX) {
+            throw new IllegalArgumentException("phone must include at least the first three digits after 0");
+        }
+        for (String word : nameWords) {
+            if (word.length() < MIN_NAME_PREFIX) {
+                throw new IllegalArgumentException("name words must be at least " + MIN_NAME_PREFIX + " characters");
+            }
+        }
+
+        int pageSize = Math.max(1, Math.min(limit, maxResults));
+        List<SMSLog> candidates;
+        if (phonePrefix != null) {
+            int fetch = nameWords.isEmpty() ? pageSize : maxScan;
+            candidates = smsLogRepository.searchByPhonePrefix(landlordId, phonePrefix + "%", PageRequest.of(0, fetch));
+        } else {
+            // The longest word matches the fewest tokens
+            String driving = nameWords.stream().max(Comparator.comparingInt(String::length)).get();
+            int fetch = nameWords.size() == 1 ? pageSize : maxScan;
+            candidates = smsLogRepository.searchByNameToken(landlordId, driving + "%", PageRequest.of(0, fetch));
+        }
+
+        // A name can match the prefix with more than one word
+        Map<Long, SMSLog> results = new LinkedHashMap<>();
+        for (SMSLog smsLog : candidates) {
+            if (results.size() == pageSize) {
+                break;
+            }
+            if (matchesName(smsLog, nameWords)) {
+                results.putIfAbsent(smsLog.getId(), smsLog);
+            }
+        }
+        return new ArrayList<>(results.values());
+    }
+
+    /**
+     * Index logs written before the search columns existed, one id range per
+     * run. Enable on one node after upgrading; it stops once it reaches the
+     * newest log present at its first run.
+     */
+    @Scheduled(fixedDelayString = "${sms.search.backfill.delay.ms:1000}")
+    public synchronized void backfillChunk() {
+        if (!backfillEnabled || (backfillMaxId >= 0 && backfillAfterId >= backfillMaxId)) {
+            return;
+        }
+        if (backfillMaxId < 0) {
+            backfillMaxId = smsLogSearchIndexRepository.findMaxId();
+            log.info("Indexing SMS logs for search up to id {}", backfillMaxId);
+        }
+
+        long toId = Math.min(backfillAfterId + backfillChunkSize, backfillMaxId);
+        List<SMSLogSearchIndexRepository.UnindexedLog> logs = smsLogSearchIndexRepository.findUnindexed(backfillAfterId, toId);
+        int indexed = logs.isEmpty() ? 0 : smsLogSearchIndexRepository.index(logs);
+        backfillAfterId = toId;
+
+        log.debug("Indexed {} SMS logs for search up to id {}", indexed, toId);
+        if (backfillAfterId >= backfillMaxId) {
+            log.info("SMS log search backfill complete");
+        }
+    }
+
+    private static boolean matchesName(SMSLog smsLog, List<String> nameWords) {
+        if (nameWords.isEmpty()) {
+            return true;
+        }
+        List<String> tokens = SMSLog.nameTokens(smsLog.getRecipientName());
+        for (String word : nameWords) {
+            if (tokens.stream().noneMatch(token -> token.startsWith(word))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Normalize the start of a phone number the way recipient phones are
+     * stored: 0712 and 712 become 254712; international prefixes keep their digits.
+     */
+    static String phonePrefix(String phone) {
+        String digits = phone.replaceAll("\\D", "");
+        if (digits.isEmpty()) {
+            throw new IllegalArgumentException("phone must contain digits");
+        }
+        String prefix;
+        if (digits.startsWith("254") || phone.trim().startsWith("+")) {
+            prefix = digits;
+        } else if (digits.startsWith("0")) {
+            prefix = "254" + digits.substring(1);
+        } else if (digits.startsWith("7") || digits.startsWith("1")) {
+            prefix = "254" + digits;
+        } else {
+            prefix = digits;
+        }
+        return prefix.length() > 15 ? prefix.substring(0, 15) : prefix;
+    }
+}
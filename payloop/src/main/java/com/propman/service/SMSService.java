@@ -1,11 +1,22 @@
 package com.propman.service;
 
-import com.africastalking.SmsService;
-import com.africastalking.sms.Recipient;
+import com.propman.dto.PaymentNotice;
 import com.propman.entity.Landlord;
 import com.propman.entity.SMSLog;
 import com.propman.entity.Tenant;
 import com.propman.repository.SMSLogRepository;
+import com.propman.service.carrier.Carrier;
+import com.propman.service.carrier.CarrierDirectory;
+import com.propman.service.carrier.CarrierRateLimiter;
+import com.propman.service.credit.SmsCreditWallet;
+import com.propman.service.dispatch.DispatchContext;
+import com.propman.service.dispatch.Lane;
+import com.propman.service.gateway.SmsGatewayRouter;
+import com.propman.service.gateway.SmsSendResult;
+import com.propman.service.suppression.SuppressionService;
+import com.propman.service.throttle.RecipientThrottle;
+import io.micrometer.observation.Observation;
+import io.micrometer.observation.ObservationRegistry;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
@@ -16,14 +27,21 @@ import java.time.LocalDate;
 import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.function.Supplier;
 
 @Service
 @RequiredArgsConstructor
 @Slf4j
 public class SMSService {
 
-    private final SmsService africasTalkingSmsService;
+    private final SmsGatewayRouter gatewayRouter;
     private final SMSLogRepository smsLogRepository;
+    private final SuppressionService suppressionService;
+    private final RecipientThrottle recipientThrottle;
+    private final SmsCreditWallet creditWallet;
+    private final CarrierDirectory carrierDirectory;
+    private final CarrierRateLimiter carrierRateLimiter;
+    private final ObservationRegistry observationRegistry;
 
     @Value("${sms.sender.name:PropMan}")
     private String senderName;
@@ -34,12 +52,15 @@ public class SMSService {
     @Value("${sms.mpesa.phone:0705441549}")
     private String mpesaPhone;
 
+    @Value("${sms.digest.max.listed:5}")
+    private int digestMaxListed;
+
     /**
      * Send rent reminder SMS to tenant
      */
     public boolean sendRentReminder(Tenant tenant, int daysBefore) {
         try {
-            String message = buildRentReminderMessage(tenant, daysBefore);
+            String message = buildMessage(SMSLog.SMSType.RENT_REMINDER, () -> buildRentReminderMessage(tenant, daysBefore));
             return sendSMS(tenant.getFormattedPhone(), message, SMSLog.SMSType.RENT_REMINDER, tenant, tenant.getLandlord());
         } catch (Exception e) {
             log.error("Failed to send rent reminder to tenant {}: {}", tenant.getId(), e.getMessage());
@@ -52,7 +73,7 @@ public class SMSService {
      */
     public boolean sendOverdueNotice(Tenant tenant, int daysOverdue) {
         try {
-            String message = buildOverdueNoticeMessage(tenant, daysOverdue);
+            String message = buildMessage(SMSLog.SMSType.OVERDUE_NOTICE, () -> buildOverdueNoticeMessage(tenant, daysOverdue));
             return sendSMS(tenant.getFormattedPhone(), message, SMSLog.SMSType.OVERDUE_NOTICE, tenant, tenant.getLandlord());
         } catch (Exception e) {
             log.error("Failed to send overdue notice to tenant {}: {}", tenant.getId(), e.getMessage());
@@ -65,7 +86,7 @@ public class SMSService {
      */
     public boolean sendPaymentConfirmation(Tenant tenant, BigDecimal amount) {
         try {
-            String message = buildPaymentConfirmationMessage(tenant, amount);
+            String message = buildMessage(SMSLog.SMSType.PAYMENT_CONFIRMATION, () -> buildPaymentConfirmationMessage(tenant, amount));
             return sendSMS(tenant.getFormattedPhone(), message, SMSLog.SMSType.PAYMENT_CONFIRMATION, tenant, tenant.getLandlord());
         } catch (Exception e) {
             log.error("Failed to send payment confirmation to tenant {}: {}", tenant.getId(), e.getMessage());
@@ -78,7 +99,7 @@ public class SMSService {
      */
     public boolean sendWelcomeMessage(Tenant tenant) {
         try {
-            String message = buildWelcomeMessage(tenant);
+            String message = buildMessage(SMSLog.SMSType.WELCOME_MESSAGE, () -> buildWelcomeMessage(tenant));
             return sendSMS(tenant.getFormattedPhone(), message, SMSLog.SMSType.WELCOME_MESSAGE, tenant, tenant.getLandlord());
         } catch (Exception e) {
             log.error("Failed to send welcome message to tenant {}: {}", tenant.getId(), e.getMessage());
@@ -91,7 +112,8 @@ public class SMSService {
      */
     public boolean notifyLandlordOfPayment(Tenant tenant, BigDecimal amount) {
         try {
-            String message = buildLandlordPaymentNotification(tenant, amount);
+            String message = buildMessage(SMSLog.SMSType.PAYMENT_CONFIRMATION,
+                    () -> buildLandlordPaymentNotification(PaymentNotice.of(tenant, amount)));
             return sendSMS(tenant.getLandlord().getPhone(), message, SMSLog.SMSType.PAYMENT_CONFIRMATION, tenant, tenant.getLandlord());
         } catch (Exception e) {
             log.error("Failed to notify landlord {} of payment: {}", tenant.getLandlord().getId(), e.getMessage());
@@ -100,25 +122,21 @@ public class SMSService {
     }
 
     /**
-     * Send bulk SMS to multiple tenants
+     * Notify landlord of one or more payments in a single SMS
      */
-    public List<Boolean> sendBulkRentReminders(List<Tenant> tenants, int daysBefore) {
-        List<Boolean> results = new ArrayList<>();
-        
-        for (Tenant tenant : tenants) {
-            boolean success = sendRentReminder(tenant, daysBefore);
-            results.add(success);
-            
-            // Add small delay to avoid rate limiting
-            try {
-                Thread.sleep(100);
-            } catch (InterruptedException e) {
-                Thread.currentThread().interrupt();
-                break;
+    public boolean sendLandlordPaymentDigest(Landlord landlord, List<PaymentNotice> payments) {
+        try {
+            if (payments.size() == 1) {
+                PaymentNotice payment = payments.get(0);
+                return sendSMS(landlord.getPhone(), buildLandlordPaymentNotification(payment),
+                        SMSLog.SMSType.PAYMENT_CONFIRMATION, payment.getTenant(), landlord);
             }
+            return sendSMS(landlord.getPhone(), buildLandlordPaymentDigest(payments),
+                    SMSLog.SMSType.PAYMENT_CONFIRMATION, null, landlord);
+        } catch (Exception e) {
+            log.error("Failed to send payment digest to landlord {}: {}", landlord.getId(), e.getMessage());
+            return false;
         }
-        
-        return results;
     }
 
     /**
@@ -128,10 +146,63 @@ public class SMSService {
         return sendSMS(phone, message, SMSLog.SMSType.CUSTOM, tenant, landlord);
     }
 
+    /**
+     * Send campaign message to tenant, filling in template placeholders
+     */
+    public boolean sendCampaignMessage(Tenant tenant, String template) {
+        try {
+            String message = buildMessage(SMSLog.SMSType.CUSTOM, () -> renderCampaignMessage(tenant, template));
+            return sendSMS(tenant.getFormattedPhone(), message, SMSLog.SMSType.CUSTOM, tenant, tenant.getLandlord());
+        } catch (Exception e) {
+            log.error("Failed to send campaign message to tenant {}: {}", tenant.getId(), e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * Reply to a tenant who texted HELP with their balance and how to pay
+     */
+    public boolean sendHelpReply(Tenant tenant) {
+        try {
+            String message = buildMessage(SMSLog.SMSType.CUSTOM, () -> buildHelpReplyMessage(tenant));
+            return sendSMS(tenant.getFormattedPhone(), message, SMSLog.SMSType.CUSTOM, tenant, tenant.getLandlord());
+        } catch (Exception e) {
+            log.error("Failed to send help reply to tenant {}: {}", tenant.getId(), e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * Tell the landlord a tenant replied that they have paid
+     */
+    public boolean forwardPaidReply(Tenant tenant, String text) {
+        try {
+            String message = buildMessage(SMSLog.SMSType.CUSTOM, () -> buildPaidReplyNotification(tenant, text));
+            return sendSMS(tenant.getLandlord().getPhone(), message, SMSLog.SMSType.CUSTOM, tenant, tenant.getLandlord());
+        } catch (Exception e) {
+            log.error("Failed to forward paid reply to landlord {}: {}", tenant.getLandlord().getId(), e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * Estimate the cost of a campaign message to one tenant, rendered as it
+     * would be sent and priced at the tenant's carrier
+     */
+    public BigDecimal estimateCampaignCost(Tenant tenant, String template) {
+        return calculateSMSCost(carrierDirectory.classify(tenant.getFormattedPhone()), renderCampaignMessage(tenant, template));
+    }
+
     /**
      * Core SMS sending method
      */
     private boolean sendSMS(String phone, String message, SMSLog.SMSType smsType, Tenant tenant, Landlord landlord) {
+        return Observation.createNotStarted("sms.send", observationRegistry)
+                .lowCardinalityKeyValue("sms.type", smsType.name())
+                .observe(() -> deliver(phone, message, smsType, tenant, landlord));
+    }
+
+    private boolean deliver(String phone, String message, SMSLog.SMSType smsType, Tenant tenant, Landlord landlord) {
         SMSLog smsLog = new SMSLog();
         smsLog.setRecipientPhone(phone);
         smsLog.setRecipientName(tenant != null ? tenant.getName() : "Unknown");
@@ -140,31 +211,71 @@ public class SMSService {
         smsLog.setTenant(tenant);
         smsLog.setLandlord(landlord);
         smsLog.setStatus(SMSLog.SMSStatus.PENDING);
+        boolean throttleCounted = false;
+        boolean deferred = false;
+        SmsCreditWallet.Reservation reservation = null;
+        Carrier carrier = carrierDirectory.classify(phone);
+        Lane lane = DispatchContext.currentLane() != null ? DispatchContext.currentLane() : Lane.of(smsType);
 
         try {
-            // Send SMS using Africa's Talking
-            List<Recipient> recipients = africasTalkingSmsService.send(message, new String[]{phone}, senderName);
-            
-            if (!recipients.isEmpty()) {
-                Recipient recipient = recipients.get(0);
-                
-                if ("Success".equalsIgnoreCase(recipient.status)) {
+            if (!suppressionService.isSuppressed(phone)) {
+                reservation = creditWallet.reserve(landlord, calculateSMSCost(carrier, message), lane == Lane.TRANSACTIONAL);
+            }
+
+            if (reservation == null) {
+                smsLog.setStatus(SMSLog.SMSStatus.SUPPRESSED);
+                smsLog.setCost(BigDecimal.ZERO);
+
+                log.info("SMS to {} skipped: number is suppressed", phone);
+            } else if (!reservation.isGranted()) {
+                smsLog.setStatus(SMSLog.SMSStatus.BLOCKED);
+                smsLog.setErrorMessage(reservation.refusal());
+                smsLog.setCost(BigDecimal.ZERO);
+
+                log.warn("SMS to {} blocked for landlord {}: {}", phone, landlord.getId(), reservation.refusal());
+            } else if (!recipientThrottle.tryAcquire(phone, smsType)) {
+                smsLog.setStatus(SMSLog.SMSStatus.THROTTLED);
+                smsLog.setCost(BigDecimal.ZERO);
+
+                log.warn("SMS to {} skipped: {} limit for this number reached", phone, smsType);
+            } else if (!carrierRateLimiter.tryAcquire(carrier, lane)) {
+                recipientThrottle.release(phone, smsType);
+                if (DispatchContext.defer()) {
+                    deferred = true;
+                    log.debug("SMS to {} deferred: {} send rate reached", phone, carrier.name());
+                } else {
+                    smsLog.setStatus(SMSLog.SMSStatus.THROTTLED);
+                    smsLog.setErrorMessage("Carrier rate limit reached");
+                    smsLog.setCost(BigDecimal.ZERO);
+
+                    log.warn("SMS to {} skipped: {} send rate reached", phone, carrier.name());
+                }
+            } else {
+                throttleCounted = true;
+                SmsSendResult result = gatewayRouter.send(phone, message, senderName, lane);
+                smsLog.setProvider(result.getProvider());
+
+                if (result.isAtCapacity() && DispatchContext.defer()) {
+                    throttleCounted = false;
+                    recipientThrottle.release(phone, smsType);
+                    deferred = true;
+                    log.debug("SMS to {} deferred: every provider at its concurrency limit", phone);
+                } else if (result.isSuccess()) {
                     smsLog.setStatus(SMSLog.SMSStatus.SENT);
-                    smsLog.setMessageId(recipient.messageId);
-                    smsLog.setCost(recipient.cost != null ? new BigDecimal(recipient.cost) : calculateSMSCost(message));
-                    
-                    log.info("SMS sent successfully to {}: {}", phone, recipient.messageId);
+                    smsLog.setMessageId(result.getMessageId());
+                    smsLog.setCost(result.getCost() != null ? result.getCost() : calculateSMSCost(carrier, message));
+
+                    log.info("SMS sent successfully to {} via {}: {}", phone, result.getProvider(), result.getMessageId());
                 } else {
                     smsLog.setStatus(SMSLog.SMSStatus.FAILED);
-                    smsLog.setErrorMessage(recipient.status);
+                    smsLog.setErrorMessage(result.getError());
                     smsLog.setCost(BigDecimal.ZERO);
-                    
-                    log.error("SMS failed to send to {}: {}", phone, recipient.status);
+
+                    log.error("SMS failed to send to {}: {}", phone, result.getError());
+                    if (!result.isAtCapacity()) {
+                        suppressionService.recordRejection(phone, result.getError());
+                    }
                 }
-            } else {
-                smsLog.setStatus(SMSLog.SMSStatus.FAILED);
-                smsLog.setErrorMessage("No recipients returned from Africa's Talking");
-                smsLog.setCost(BigDecimal.ZERO);
             }
 
         } catch (Exception e) {
@@ -175,17 +286,44 @@ public class SMSService {
             log.error("Exception while sending SMS to {}: {}", phone, e.getMessage(), e);
         }
 
-        // Save SMS log
-        smsLogRepository.save(smsLog);
+        // Queued again by the dispatcher; nothing is recorded for this attempt
+        if (deferred) {
+            creditWallet.release(reservation);
+            return false;
+        }
+
+        // Save SMS log; its cost replaces the reserved estimate
+        try {
+            smsLogRepository.save(smsLog);
+        } finally {
+            if (reservation != null) {
+                creditWallet.settle(reservation, smsLog);
+            }
+        }
+        if (throttleCounted) {
+            recipientThrottle.recordLogged(smsLog.getId());
+        }
+        carrierDirectory.recordOutcome(carrier, smsLog.getStatus());
         
         return smsLog.getStatus() == SMSLog.SMSStatus.SENT;
     }
 
+    /**
+     * Build a message inside its own span, so template time shows apart from the send
+     */
+    private String buildMessage(SMSLog.SMSType smsType, Supplier<String> builder) {
+        return Observation.createNotStarted("sms.message.build", observationRegistry)
+                .lowCardinalityKeyValue("sms.type", smsType.name())
+                .observe(builder);
+    }
+
     /**
      * Build rent reminder message
      */
     private String buildRentReminderMessage(Tenant tenant, int daysBefore) {
-        String dueDate = LocalDate.now().plusDays(daysBefore).format(DateTimeFormatter.ofPattern("dd/MM/yyyy"));
+        LocalDate nextDueDate = tenant.getNextDueDate() != null
+                ? tenant.getNextDueDate() : LocalDate.now().plusDays(daysBefore);
+        String dueDate = nextDueDate.format(DateTimeFormatter.ofPattern("dd/MM/yyyy"));
         
         return String.format(
             "Hi %s, your rent of KES %s for %s Unit %s is due on %s. " +
@@ -249,29 +387,98 @@ public class SMSService {
     /**
      * Build landlord payment notification
      */
-    private String buildLandlordPaymentNotification(Tenant tenant, BigDecimal amount) {
+    private String buildLandlordPaymentNotification(PaymentNotice payment) {
         return String.format(
             "Payment Alert: %s (Unit %s, %s) has paid KES %s. " +
             "Transaction recorded in your PropMan account.",
+            payment.getTenantName(),
+            payment.getUnitNumber(),
+            payment.getPropertyName(),
+            formatAmount(payment.getAmount())
+        );
+    }
+
+    /**
+     * Build landlord digest for several payments, listing the first few
+     */
+    private String buildLandlordPaymentDigest(List<PaymentNotice> payments) {
+        BigDecimal total = payments.stream()
+                .map(PaymentNotice::getAmount)
+                .reduce(BigDecimal.ZERO, BigDecimal::add);
+
+        StringBuilder listed = new StringBuilder();
+        int shown = Math.min(payments.size(), digestMaxListed);
+        for (int i = 0; i < shown; i++) {
+            PaymentNotice payment = payments.get(i);
+            listed.append(i == 0 ? "" : ", ")
+                    .append("Unit ").append(payment.getUnitNumber())
+                    .append(" KES ").append(formatAmount(payment.getAmount()));
+        }
+        if (payments.size() > shown) {
+            listed.append(" and ").append(payments.size() - shown).append(" more");
+        }
+
+        return String.format(
+            "Payment Alert: %d payments received totalling KES %s: %s. " +
+            "Details in your PropMan account.",
+            payments.size(),
+            formatAmount(total),
+            listed
+        );
+    }
+
+    /**
+     * Build reply to a tenant's HELP message
+     */
+    private String buildHelpReplyMessage(Tenant tenant) {
+        return String.format(
+            "Hi %s, your balance for %s Unit %s is KES %s. " +
+            "Pay via M-Pesa: Paybill %s, account %s. Contact: %s",
+            tenant.getName(),
+            tenant.getProperty().getName(),
+            tenant.getUnitNumber(),
+            formatAmount(tenant.getOutstandingAmount() != null ? tenant.getOutstandingAmount() : BigDecimal.ZERO),
+            mpesaPaybill,
+            tenant.getUnitNumber(),
+            mpesaPhone
+        );
+    }
+
+    /**
+     * Build landlord notification for a tenant's PAID reply, quoting the reply
+     */
+    private String buildPaidReplyNotification(Tenant tenant, String text) {
+        String reply = text.trim();
+        return String.format(
+            "Reply from %s (Unit %s, %s): \"%s\". Their balance still shows KES %s.",
             tenant.getName(),
             tenant.getUnitNumber(),
             tenant.getProperty().getName(),
-            formatAmount(amount)
+            reply.length() > 60 ? reply.substring(0, 60) + "..." : reply,
+            formatAmount(tenant.getOutstandingAmount() != null ? tenant.getOutstandingAmount() : BigDecimal.ZERO)
         );
     }
 
     /**
-     * Calculate SMS cost based on message length
+     * Fill campaign template placeholders for a tenant
+     */
+    private String renderCampaignMessage(Tenant tenant, String template) {
+        return template
+                .replace("{name}", tenant.getName())
+                .replace("{unit}", tenant.getUnitNumber())
+                .replace("{property}", tenant.getProperty().getName())
+                .replace("{rent}", formatAmount(tenant.getRentAmount()))
+                .replace("{outstanding}", formatAmount(tenant.getOutstandingAmount() != null
+                        ? tenant.getOutstandingAmount() : BigDecimal.ZERO));
+    }
+
+    /**
+     * Calculate SMS cost from the message parts and the carrier's price per part
      */
-    private BigDecimal calculateSMSCost(String message) {
+    private BigDecimal calculateSMSCost(Carrier carrier, String message) {
         int length = message.length();
-        if (length <= 160) {
-            return new BigDecimal("1.00");
-        } else if (length <= 320) {
-            return new BigDecimal("2.00");
-        } else {
-            return new BigDecimal("3.00");
-        }
+        int parts = length <= 160 ? 1 : length <= 320 ? 2 : 3;
+        return carrier.pricePerPart().multiply(BigDecimal.valueOf(parts));
     }
 
     /**
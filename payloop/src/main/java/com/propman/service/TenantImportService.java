@@ -0,0 +1,404 @@
+package com.propman.service;
+
+import com.propman.dto.TenantImportReport;
+import com.propman.entity.Landlord;
+import com.propman.entity.Property;
+import com.propman.entity.Tenant;
+import com.propman.repository.PropertyRepository;
+import com.propman.repository.TenantBatchRepository;
+import com.propman.repository.TenantRepository;
+import com.propman.service.dispatch.Lane;
+import com.propman.service.dispatch.OutboundDispatcher;
+import com.propman.util.PhoneNumbers;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+/**
+ * Bulk tenant onboarding from CSV. Rows are read one at a time, validated
+ * in memory, checked for phone numbers already on file one batch at a time
+ * and inserted with JDBC batches, so memory use does not grow with the file.
+ * Properties are matched by name within the landlord and created on first
+ * use. Invalid rows are skipped and reported; valid rows are imported.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class TenantImportService {
+
+    static final List<String> REQUIRED_COLUMNS = List.of(
+            "property_name", "tenant_name", "phone", "rent_amount", "due_date", "unit_number");
+
+    private static final Pattern PHONE = Pattern.compile("^(\\+254|0)[17]\\d{8}$");
+    private static final Pattern EMAIL = Pattern.compile("^[^@\\s]+@[^@\\s]+\\.[^@\\s]+$");
+
+    private final PropertyRepository propertyRepository;
+    private final TenantRepository tenantRepository;
+    private final TenantBatchRepository tenantBatchRepository;
+    private final SMSService smsService;
+    private final OutboundDispatcher dispatcher;
+    private final DashboardService dashboardService;
+
+    @Value("${import.batch.size:500}")
+    private int batchSize;
+
+    @Value("${import.max.errors:1000}")
+    private int maxErrors;
+
+    /**
+     * Import tenants for a landlord. The first line must be a header naming
+     * at least the required columns. Welcome messages for imported tenants
+     * are queued in the bulk lane so they do not delay payment confirmations.
+     */
+    public TenantImportReport importTenants(Landlord landlord, Reader csv, boolean sendWelcome) throws IOException {
+        BufferedReader reader = new BufferedReader(csv);
+        String header = reader.readLine();
+        if (header == null) {
+            throw new IllegalArgumentException("CSV is empty");
+        }
+        Map<String, Integer> columns = parseHeader(header);
+
+        Map<String, Property> properties = new HashMap<>();
+        for (Property property : propertyRepository.findByLandlordId(landlord.getId())) {
+            properties.put(propertyKey(property.getName()), property);
+        }
+
+        TenantImportReport report = new TenantImportReport();
+        Set<String> phonesInFile = new HashSet<>();
+        List<ImportRow> batch = new ArrayList<>(batchSize);
+
+        String line;
+        long rowNumber = 1;
+        while ((line = reader.readLine()) != null) {
+            rowNumber++;
+            if (line.isBlank()) {
+                continue;
+            }
+            report.setRowsRead(report.getRowsRead() + 1);
+
+            Row row = new Row(parseLine(line), columns);
+            Tenant tenant = parseTenant(row, landlord, properties, report, rowNumber);
+            if (tenant == null) {
+                continue;
+            }
+            if (!phonesInFile.add(PhoneNumbers.kenyanKey(tenant.getPhone()))) {
+                addError(report, rowNumber, tenant.getPhone(), "Phone number appears earlier in the file");
+                continue;
+            }
+
+            batch.add(new ImportRow(rowNumber, tenant));
+            if (batch.size() >= batchSize) {
+                flush(batch, landlord, sendWelcome, report);
+                batch.clear();
+            }
+        }
+        flush(batch, landlord, sendWelcome, report);
+        if (report.getImported() > 0) {
+            dashboardService.evict(landlord.getId());
+        }
+
+        log.info("Imported {} of {} tenant rows for landlord {} ({} failed, {} properties created)",
+                report.getImported(), report.getRowsRead(), landlord.getId(), report.getFailed(),
+                report.getPropertiesCreated());
+        return report;
+    }
+
+    private void flush(List<ImportRow> batch, Landlord landlord, boolean sendWelcome, TenantImportReport report) {
+        if (batch.isEmpty()) {
+            return;
+        }
+
+        Set<String> variants = new HashSet<>();
+        for (ImportRow row : batch) {
+            variants.addAll(phoneVariants(row.tenant().getPhone()));
+        }
+        Set<String> existing = new HashSet<>();
+        for (String phone : tenantRepository.findExistingPhones(variants)) {
+            existing.add(PhoneNumbers.kenyanKey(phone));
+        }
+
+        List<ImportRow> fresh = new ArrayList<>(batch.size());
+        for (ImportRow row : batch) {
+            if (existing.contains(PhoneNumbers.kenyanKey(row.tenant().getPhone()))) {
+                addError(report, row.rowNumber(), row.tenant().getPhone(), "Phone number is already registered");
+            } else {
+                fresh.add(row);
+            }
+        }
+
+        List<Tenant> inserted = insert(fresh, report);
+        report.setImported(report.getImported() + inserted.size());
+
+        if (sendWelcome) {
+            for (Tenant tenant : inserted) {
+                if (dispatcher.submit(landlord, Lane.BULK, () -> smsService.sendWelcomeMessage(tenant)).isQueued()) {
+                    report.setWelcomeMessagesQueued(report.getWelcomeMessagesQueued() + 1);
+                }
+            }
+        }
+    }
+
+    /**
+     * Insert the batch in one statement; if that fails (e.g. a phone number
+     * registered concurrently), insert row by row to report the failing rows
+     */
+    private List<Tenant> insert(List<ImportRow> rows, TenantImportReport report) {
+        List<Tenant> tenants = new ArrayList<>(rows.size());
+        for (ImportRow row : rows) {
+            tenants.add(row.tenant());
+        }
+        if (tenants.isEmpty()) {
+            return tenants;
+        }
+
+        try {
+            tenantBatchRepository.insertTenants(tenants);
+            return tenants;
+        } catch (DataAccessException e) {
+            log.warn("Tenant import batch of {} failed, retrying row by row: {}", tenants.size(), e.getMessage());
+        }
+
+        List<Tenant> inserted = new ArrayList<>(rows.size());
+        for (ImportRow row : rows) {
+            try {
+                tenantBatchRepository.insertTenants(List.of(row.tenant()));
+                inserted.add(row.tenant());
+            } catch (DataAccessException e) {
+                log.warn("Failed to import row {}: {}", row.rowNumber(), e.getMessage());
+                addError(report, row.rowNumber(), row.tenant().getPhone(), "Could not be saved");
+            }
+        }
+        return inserted;
+    }
+
+    private Tenant parseTenant(Row row, Landlord landlord, Map<String, Property> properties,
+                               TenantImportReport report, long rowNumber) {
+        List<String> problems = new ArrayList<>();
+
+        String name = row.get("tenant_name");
+        if (name.isEmpty() || name.length() > 100) {
+            problems.add("tenant_name is required and cannot exceed 100 characters");
+        }
+
+        String phone = row.get("phone").replaceAll("\\s", "");
+        if (!PHONE.matcher(phone).matches()) {
+            problems.add("phone must be a Kenyan number such as +254712345678 or 0712345678");
+        }
+
+        String email = row.get("email");
+        if (!email.isEmpty() && (email.length() > 100 || !EMAIL.matcher(email).matches())) {
+            problems.add("email is invalid");
+        }
+
+        BigDecimal rentAmount = null;
+        try {
+            rentAmount = new BigDecimal(row.get("rent_amount").replace(",", ""));
+            if (rentAmount.signum() <= 0) {
+                problems.add("rent_amount must be greater than 0");
+            }
+        } catch (NumberFormatException e) {
+            problems.add("rent_amount must be a number");
+        }
+
+        Integer dueDate = parseInt(row.get("due_date"));
+        if (dueDate == null || dueDate < 1 || dueDate > 31) {
+            problems.add("due_date must be between 1 and 31");
+        }
+
+        LocalDate moveInDate = LocalDate.now();
+        if (!row.get("move_in_date").isEmpty()) {
+            try {
+                moveInDate = LocalDate.parse(row.get("move_in_date"));
+            } catch (DateTimeParseException e) {
+                problems.add("move_in_date must be in YYYY-MM-DD format");
+            }
+        }
+
+        String unitNumber = row.get("unit_number");
+        if (unitNumber.isEmpty() || unitNumber.length() > 10) {
+            problems.add("unit_number is required and cannot exceed 10 characters");
+        }
+
+        String propertyName = row.get("property_name");
+        Property property = properties.get(propertyKey(propertyName));
+        if (property == null) {
+            problems.addAll(validateNewProperty(row, propertyName));
+        }
+
+        if (!problems.isEmpty()) {
+            addError(report, rowNumber, phone, String.join("; ", problems));
+            return null;
+        }
+
+        if (property == null) {
+            property = createProperty(row, propertyName, landlord);
+            properties.put(propertyKey(propertyName), property);
+            report.setPropertiesCreated(report.getPropertiesCreated() + 1);
+        }
+
+        Tenant tenant = new Tenant();
+        tenant.setName(name);
+        tenant.setPhone(phone);
+        tenant.setEmail(email.isEmpty() ? null : email);
+        tenant.setRentAmount(rentAmount);
+        tenant.setDueDate(dueDate);
+        tenant.setMoveInDate(moveInDate);
+        tenant.setStatus(Tenant.TenantStatus.ACTIVE);
+        tenant.setOutstandingAmount(BigDecimal.ZERO);
+        // Imported tenants start paid up, so their first charge is the next due date from today
+        LocalDate today = LocalDate.now();
+        tenant.setNextDueDate(Tenant.dueDateOnOrAfter(moveInDate.isAfter(today) ? moveInDate : today, dueDate));
+        tenant.setUnitNumber(unitNumber);
+        tenant.setProperty(property);
+        tenant.setLandlord(landlord);
+        return tenant;
+    }
+
+    private List<String> validateNewProperty(Row row, String propertyName) {
+        List<String> problems = new ArrayList<>();
+        if (propertyName.isEmpty() || propertyName.length() > 100) {
+            problems.add("property_name is required and cannot exceed 100 characters");
+            return problems;
+        }
+        String location = row.get("property_location");
+        if (location.isEmpty() || location.length() > 200) {
+            problems.add("property_location is required for a new property and cannot exceed 200 characters");
+        }
+        Integer totalUnits = parseInt(row.get("total_units"));
+        if (totalUnits == null || totalUnits < 1) {
+            problems.add("total_units must be at least 1 for a new property");
+        }
+        if (!row.get("property_type").isEmpty() && parsePropertyType(row.get("property_type")) == null) {
+            problems.add("property_type must be APARTMENT, HOUSE or COMMERCIAL");
+        }
+        return problems;
+    }
+
+    private Property createProperty(Row row, String propertyName, Landlord landlord) {
+        Property property = new Property();
+        property.setName(propertyName);
+        property.setLocation(row.get("property_location"));
+        property.setTotalUnits(parseInt(row.get("total_units")));
+        property.setPropertyType(row.get("property_type").isEmpty()
+                ? Property.PropertyType.APARTMENT : parsePropertyType(row.get("property_type")));
+        property.setLandlord(landlord);
+        return propertyRepository.save(property);
+    }
+
+    private void addError(TenantImportReport report, long rowNumber, String phone, String message) {
+        report.setFailed(report.getFailed() + 1);
+        if (report.getErrors().size() < maxErrors) {
+            report.getErrors().add(new TenantImportReport.RowError(rowNumber, phone, message));
+        }
+    }
+
+    static Map<String, Integer> parseHeader(String header) {
+        if (header.startsWith("\uFEFF")) {
+            header = header.substring(1);
+        }
+        Map<String, Integer> columns = new HashMap<>();
+        List<String> names = parseLine(header);
+        for (int i = 0; i < names.size(); i++) {
+            columns.put(names.get(i).trim().toLowerCase(Locale.ROOT), i);
+        }
+
+        List<String> missing = new ArrayList<>();
+        for (String required : REQUIRED_COLUMNS) {
+            if (!columns.containsKey(required)) {
+                missing.add(required);
+            }
+        }
+        if (!missing.isEmpty()) {
+            throw new IllegalArgumentException("Missing columns: " + String.join(", ", missing));
+        }
+        return columns;
+    }
+
+    /**
+     * Split a CSV line, honouring double-quoted fields with "" escapes.
+     * Quoted fields cannot span lines.
+     */
+    static List<String> parseLine(String line) {
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    field.append('"');
+                    i++;
+                } else if (c == '"') {
+                    quoted = false;
+                } else {
+                    field.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else {
+                field.append(c);
+            }
+        }
+        fields.add(field.toString());
+        return fields;
+    }
+
+    /**
+     * Forms a phone number may be stored in, to find tenants already on file
+     */
+    private static List<String> phoneVariants(String phone) {
+        String normalized = PhoneNumbers.kenyanKey(phone);
+        return List.of(normalized, "+" + normalized, "0" + normalized.substring(3));
+    }
+
+    private static String propertyKey(String name) {
+        return name.trim().toLowerCase(Locale.ROOT);
+    }
+
+    private static Integer parseInt(String value) {
+        try {
+            return Integer.valueOf(value);
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private static Property.PropertyType parsePropertyType(String value) {
+        try {
+            return Property.PropertyType.valueOf(value.toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    private record ImportRow(long rowNumber, Tenant tenant) {
+    }
+
+    private record Row(List<String> fields, Map<String, Integer> columns) {
+
+        String get(String column) {
+            Integer index = columns.get(column);
+            return index != null && index < fields.size() ? fields.get(index).trim() : "";
+        }
+    }
+}
@@ -0,0 +1,156 @@
+package com.propman.service;
+
+import com.propman.entity.Tenant;
+import com.propman.repository.TenantRepository;
+import com.propman.util.PhoneNumbers;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * In-memory lookup from M-Pesa account references and payer numbers to
+ * tenant ids. Loaded once at startup and then refreshed incrementally from
+ * tenants whose updatedAt moved past the last refresh.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class TenantPaymentIndex {
+
+    private final TenantRepository tenantRepository;
+
+    private final Map<String, Long> tenantIdsByPhone = new ConcurrentHashMap<>();
+    private final Map<String, Set<Long>> tenantIdsByAccount = new ConcurrentHashMap<>();
+    private final Map<Long, IndexedTenant> indexedTenants = new ConcurrentHashMap<>();
+
+    private LocalDateTime watermark = LocalDateTime.of(1970, 1, 1, 0, 0);
+
+    @Value("${mpesa.index.page.size:5000}")
+    private int pageSize;
+
+    // Re-read this far behind the watermark to catch rows committed late with earlier timestamps
+    @Value("${mpesa.index.overlap.seconds:10}")
+    private long overlapSeconds;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        refresh();
+        log.info("Payment index loaded with {} tenants", indexedTenants.size());
+    }
+
+    @Scheduled(fixedDelayString = "${mpesa.index.refresh.ms:30000}", initialDelayString = "${mpesa.index.refresh.ms:30000}")
+    public synchronized void refresh() {
+        LocalDateTime since = watermark.minusSeconds(overlapSeconds);
+        long afterId = 0;
+        int changed = 0;
+
+        List<TenantRepository.PaymentKey> page;
+        do {
+            page = tenantRepository.findPaymentKeysChangedSince(since, afterId, PageRequest.of(0, pageSize));
+            for (TenantRepository.PaymentKey key : page) {
+                index(key.getId(), key.getPhone(), key.getUnitNumber(), key.getStatus());
+                since = key.getUpdatedAt();
+                afterId = key.getId();
+                changed++;
+            }
+        } while (page.size() == pageSize);
+
+        if (since.isAfter(watermark)) {
+            watermark = since;
+        }
+        log.debug("Payment index refreshed {} tenants", changed);
+    }
+
+    /**
+     * Match a payment to a tenant. The account reference is tried as a unit
+     * number and then as a phone number; a unit number shared by tenants in
+     * different properties is resolved by the payer's number. Falls back to
+     * the payer's number alone. Returns null when there is no single match.
+     */
+    public Long match(String accountReference, String msisdn) {
+        String phone = PhoneNumbers.kenyanKey(msisdn);
+        String account = normalizeAccount(accountReference);
+
+        if (account != null) {
+            Set<Long> candidates = tenantIdsByAccount.get(account);
+            if (candidates != null && candidates.size() == 1) {
+                return candidates.iterator().next();
+            }
+            if (candidates != null && phone != null) {
+                Long byPhone = tenantIdsByPhone.get(phone);
+                if (byPhone != null && candidates.contains(byPhone)) {
+                    return byPhone;
+                }
+            }
+
+            String accountPhone = PhoneNumbers.kenyanKey(accountReference);
+            if (accountPhone != null && tenantIdsByPhone.containsKey(accountPhone)) {
+                return tenantIdsByPhone.get(accountPhone);
+            }
+        }
+
+        return phone != null ? tenantIdsByPhone.get(phone) : null;
+    }
+
+    /**
+     * Tenant with this phone number, or null
+     */
+    public Long matchPhone(String phone) {
+        String normalized = PhoneNumbers.kenyanKey(phone);
+        return normalized != null ? tenantIdsByPhone.get(normalized) : null;
+    }
+
+    public int size() {
+        return indexedTenants.size();
+    }
+
+    void index(Long tenantId, String phone, String unitNumber, Tenant.TenantStatus status) {
+        IndexedTenant previous = indexedTenants.remove(tenantId);
+        if (previous != null) {
+            if (previous.phone() != null) {
+                tenantIdsByPhone.remove(previous.phone(), tenantId);
+            }
+            if (previous.account() != null) {
+                tenantIdsByAccount.computeIfPresent(previous.account(), (key, ids) -> {
+                    ids.remove(tenantId);
+                    return ids.isEmpty() ? null : ids;
+                });
+            }
+        }
+
+        if (status == Tenant.TenantStatus.INACTIVE) {
+            return;
+        }
+
+        IndexedTenant current = new IndexedTenant(PhoneNumbers.kenyanKey(phone), normalizeAccount(unitNumber));
+        if (current.phone() != null) {
+            tenantIdsByPhone.put(current.phone(), tenantId);
+        }
+        if (current.account() != null) {
+            tenantIdsByAccount.computeIfAbsent(current.account(), key -> ConcurrentHashMap.newKeySet()).add(tenantId);
+        }
+        indexedTenants.put(tenantId, current);
+    }
+
+    static String normalizeAccount(String account) {
+        if (account == null) {
+            return null;
+        }
+        String normalized = account.replaceAll("[^A-Za-z0-9]", "").toUpperCase();
+        return normalized.isEmpty() ? null : normalized;
+    }
+
+    private record IndexedTenant(String phone, String account) {
+    }
+}
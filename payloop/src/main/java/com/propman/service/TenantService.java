@@ -0,0 +1,83 @@
+package com.propman.service;
+
+import com.propman.entity.Payment;
+import com.propman.entity.Tenant;
+import com.propman.repository.PaymentRepository;
+import com.propman.repository.TenantRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class TenantService {
+
+    private final TenantRepository tenantRepository;
+    private final PaymentRepository paymentRepository;
+    private final LedgerService ledgerService;
+
+    /**
+     * Record a rent payment: store it, post it to the ledger and move the
+     * next due date forward by every full rent period paid so far. The
+     * reference is unique, so a payment already recorded (for example by
+     * M-Pesa ingestion) fails with a constraint violation instead of
+     * crediting the tenant twice.
+     */
+    @Transactional
+    public Tenant recordPayment(Tenant tenant, BigDecimal amount, Payment.PaymentMethod method,
+                                String reference, LocalDateTime paidAt) {
+        // Reload under a row lock so only payment fields are written, not stale
+        // ledger-maintained totals, and ingestion batches cannot interleave
+        Tenant managed = tenantRepository.findByIdForUpdate(tenant.getId()).orElseThrow();
+        managed.applyPayment(amount, paidAt.toLocalDate());
+
+        Payment payment = new Payment();
+        payment.setTenant(managed);
+        payment.setLandlord(managed.getLandlord());
+        payment.setAmount(amount);
+        payment.setPaymentDate(paidAt);
+        payment.setMethod(method);
+        payment.setReference(reference);
+        paymentRepository.save(payment);
+
+        ledgerService.postPayment(managed, amount, reference);
+
+        return tenantRepository.findWithPropertyAndLandlordByIdIn(List.of(managed.getId())).get(0);
+    }
+
+    /**
+     * Fill in next due dates for tenants created before the column existed.
+     * Defaulters are treated as owing since their most recent due date and
+     * everyone else as paid up to it. One bulk update per due day.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional
+    public void backfillNextDueDates() {
+        LocalDate today = LocalDate.now();
+        Set<Tenant.TenantStatus> defaulters = EnumSet.of(Tenant.TenantStatus.DEFAULTER);
+        Set<Tenant.TenantStatus> others = EnumSet.complementOf(EnumSet.of(Tenant.TenantStatus.DEFAULTER));
+
+        int updated = 0;
+        for (int dueDay = 1; dueDay <= 31; dueDay++) {
+            updated += tenantRepository.initializeNextDueDate(dueDay, defaulters,
+                    Tenant.dueDateOnOrBefore(today, dueDay));
+            updated += tenantRepository.initializeNextDueDate(dueDay, others,
+                    Tenant.dueDateOnOrAfter(today, dueDay));
+        }
+
+        if (updated > 0) {
+            log.info("Initialized next due date for {} tenants", updated);
+        }
+    }
+}
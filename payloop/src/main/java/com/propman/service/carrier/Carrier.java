@@ -0,0 +1,16 @@
+package com.propman.service.carrier;
+
+import java.math.BigDecimal;
+
+/**
+ * Mobile network a number belongs to, with its price per message part and
+ * the send rate it accepts (0 for no limit)
+ */
+public record Carrier(String country, String name, BigDecimal pricePerPart, double ratePerSecond) {
+
+    public static final String UNKNOWN = "unknown";
+
+    public boolean isKnown() {
+        return !UNKNOWN.equals(name);
+    }
+}
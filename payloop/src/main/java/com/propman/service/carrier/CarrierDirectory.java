@@ -0,0 +1,218 @@
+package com.propman.service.carrier;
+
+import com.propman.entity.SMSLog;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.ResourceLoader;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Which country and carrier a phone number belongs to, from the number
+ * ranges in sms.carrier.prefix.file. The ranges are held in a digit trie, so
+ * classifying a number walks its digits once with no parsing, regexes or
+ * allocation; it runs for every message. Numbers outside every range get
+ * the default carrier, priced at sms.carrier.default.price with no rate limit.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class CarrierDirectory {
+
+    private static final int LOCAL_LENGTH = 9;
+
+    private final ResourceLoader resourceLoader;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${sms.carrier.prefix.file:classpath:carriers/prefixes.csv}")
+    private String prefixFile;
+
+    @Value("${sms.carrier.default.price:1.00}")
+    private BigDecimal defaultPrice;
+
+    @Value("${sms.default.country.code:+254}")
+    private String defaultCountryCode;
+
+    private volatile Directory directory;
+
+    @PostConstruct
+    public void load() throws IOException {
+        Carrier unknown = new Carrier(Carrier.UNKNOWN, Carrier.UNKNOWN, defaultPrice, 0);
+        List<Carrier> carriers = new ArrayList<>();
+        PrefixTrie trie = new PrefixTrie();
+        int prefixes = 0;
+
+        Resource resource = resourceLoader.getResource(prefixFile);
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(resource.getInputStream(), StandardCharsets.UTF_8))) {
+            String line;
+            int lineNumber = 0;
+            boolean header = true;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                line = line.trim();
+                if (line.isEmpty() || line.startsWith("#")) {
+                    continue;
+                }
+                if (header) {
+                    header = false;
+                    continue;
+                }
+                String[] fields = line.split(",");
+                if (fields.length != 5) {
+                    throw new IllegalArgumentException(prefixFile + " line " + lineNumber + ": expected 5 fields");
+                }
+                Carrier carrier = new Carrier(fields[0].trim(), fields[1].trim(),
+                        new BigDecimal(fields[2].trim()), Double.parseDouble(fields[3].trim()));
+                int index = carriers.size();
+                carriers.add(carrier);
+                for (String prefix : fields[4].trim().split("\\s+")) {
+                    prefixes += addPrefixes(trie, prefix, index, lineNumber);
+                }
+            }
+        }
+        trie.compact();
+
+        Map<Carrier, Counter[]> outcomes = new HashMap<>();
+        outcomes.put(unknown, outcomeCounters(unknown));
+        for (Carrier carrier : carriers) {
+            outcomes.put(carrier, outcomeCounters(carrier));
+        }
+
+        directory = new Directory(trie, carriers.toArray(new Carrier[0]), unknown,
+                countryDigits(defaultCountryCode), outcomes);
+        log.info("Loaded {} carriers with {} prefixes ({} trie nodes) from {}",
+                carriers.size(), prefixes, trie.nodeCount(), prefixFile);
+    }
+
+    /**
+     * Carrier of a number in international form, with or without the +, or
+     * in local form (0712..., 712...) in the default country
+     */
+    public Carrier classify(String phone) {
+        Directory current = directory;
+        if (phone == null) {
+            return current.unknown;
+        }
+
+        int digitCount = 0;
+        char first = 0;
+        for (int i = 0; i < phone.length(); i++) {
+            char c = phone.charAt(i);
+            if (c >= '0' && c <= '9') {
+                if (digitCount == 0) {
+                    first = c;
+                }
+                digitCount++;
+            }
+        }
+
+        long state = PrefixTrie.start();
+        boolean skipLeadingZero = false;
+        if (digitCount == LOCAL_LENGTH + 1 && first == '0' || digitCount == LOCAL_LENGTH) {
+            for (int i = 0; i < current.countryDigits.length; i++) {
+                state = current.trie.step(state, current.countryDigits[i]);
+            }
+            skipLeadingZero = digitCount > LOCAL_LENGTH;
+        }
+        for (int i = 0; i < phone.length(); i++) {
+            char c = phone.charAt(i);
+            if (c < '0' || c > '9') {
+                continue;
+            }
+            if (skipLeadingZero) {
+                skipLeadingZero = false;
+                continue;
+            }
+            state = current.trie.step(state, c - '0');
+        }
+
+        int index = PrefixTrie.value(state);
+        return index == PrefixTrie.NONE ? current.unknown : current.carriers[index];
+    }
+
+    /**
+     * Carrier used for numbers outside every known range, and for estimates
+     * made before the recipients are known
+     */
+    public Carrier getDefaultCarrier() {
+        return directory.unknown;
+    }
+
+    /**
+     * Count a message's outcome against its carrier
+     */
+    public void recordOutcome(Carrier carrier, SMSLog.SMSStatus status) {
+        Counter[] counters = directory.outcomes.get(carrier);
+        if (counters != null) {
+            counters[status.ordinal()].increment();
+        }
+    }
+
+    private Counter[] outcomeCounters(Carrier carrier) {
+        SMSLog.SMSStatus[] statuses = SMSLog.SMSStatus.values();
+        Counter[] counters = new Counter[statuses.length];
+        for (SMSLog.SMSStatus status : statuses) {
+            counters[status.ordinal()] = Counter.builder("sms.carrier.messages")
+                    .description("Messages by recipient carrier and outcome")
+                    .tag("country", carrier.country())
+                    .tag("carrier", carrier.name())
+                    .tag("status", status.name())
+                    .register(meterRegistry);
+        }
+        return counters;
+    }
+
+    /**
+     * Add a prefix, or every prefix of a same-length a-b range, returning how many were added
+     */
+    private int addPrefixes(PrefixTrie trie, String prefix, int index, int lineNumber) {
+        int dash = prefix.indexOf('-');
+        if (dash < 0) {
+            addPrefix(trie, prefix, index, lineNumber);
+            return 1;
+        }
+        String from = prefix.substring(0, dash);
+        String to = prefix.substring(dash + 1);
+        if (from.length() != to.length() || from.compareTo(to) > 0) {
+            throw new IllegalArgumentException(prefixFile + " line " + lineNumber + ": invalid range " + prefix);
+        }
+        long start = Long.parseLong(from);
+        long end = Long.parseLong(to);
+        for (long value = start; value <= end; value++) {
+            String digits = Long.toString(value);
+            addPrefix(trie, "0".repeat(from.length() - digits.length()) + digits, index, lineNumber);
+        }
+        return (int) (end - start + 1);
+    }
+
+    private void addPrefix(PrefixTrie trie, String prefix, int index, int lineNumber) {
+        if (trie.put(prefix, index) != PrefixTrie.NONE) {
+            throw new IllegalArgumentException(prefixFile + " line " + lineNumber + ": prefix " + prefix + " listed twice");
+        }
+    }
+
+    private static int[] countryDigits(String countryCode) {
+        return countryCode.chars()
+                .filter(c -> c >= '0' && c <= '9')
+                .map(c -> c - '0')
+                .toArray();
+    }
+
+    private record Directory(PrefixTrie trie, Carrier[] carriers, Carrier unknown,
+                             int[] countryDigits, Map<Carrier, Counter[]> outcomes) {
+    }
+}
@@ -0,0 +1,119 @@
+package com.propman.service.carrier;
+
+import com.propman.service.dispatch.Lane;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Paces sends to each carrier at its rate_per_second, so a bulk run to one
+ * network does not trip that network's spam filters or the provider's
+ * per-route limits. Each carrier has a token bucket holding up to one
+ * second of sends; a caller reserves the next free slot and sleeps until
+ * it, unless that is further off than sms.carrier.rate.acquire.timeout.ms.
+ * Transactional sends take a slot without waiting, so receipts are never
+ * held back by campaign traffic; they push later bulk slots back instead.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class CarrierRateLimiter {
+
+    private final MeterRegistry meterRegistry;
+
+    private final Map<Carrier, Pacer> pacers = new ConcurrentHashMap<>();
+
+    @Value("${sms.carrier.rate.acquire.timeout.ms:2000}")
+    private long acquireTimeoutMs;
+
+    /**
+     * Wait for a send slot to the carrier. Returns false without waiting if
+     * none frees up within the timeout; transactional sends always get one
+     * at once.
+     */
+    public boolean tryAcquire(Carrier carrier, Lane lane) {
+        if (carrier.ratePerSecond() <= 0) {
+            return true;
+        }
+        Pacer pacer = pacers.computeIfAbsent(carrier, this::newPacer);
+        if (lane == Lane.TRANSACTIONAL) {
+            pacer.take(System.nanoTime());
+            return true;
+        }
+        long waitNanos = pacer.reserve(System.nanoTime(), TimeUnit.MILLISECONDS.toNanos(acquireTimeoutMs));
+        if (waitNanos < 0) {
+            pacer.rejected.increment();
+            log.debug("No send slot to {} {} within {} ms", carrier.country(), carrier.name(), acquireTimeoutMs);
+            return false;
+        }
+        if (waitNanos > 0) {
+            try {
+                TimeUnit.NANOSECONDS.sleep(waitNanos);
+            } catch (InterruptedException e) {
+                // The slot stays used; the send goes ahead a little early
+                Thread.currentThread().interrupt();
+            }
+        }
+        return true;
+    }
+
+    private Pacer newPacer(Carrier carrier) {
+        Counter rejected = Counter.builder("sms.carrier.rate.limited")
+                .description("Messages not sent because the carrier's send rate was reached")
+                .tag("country", carrier.country())
+                .tag("carrier", carrier.name())
+                .register(meterRegistry);
+        return new Pacer(carrier.ratePerSecond(), rejected);
+    }
+
+    static class Pacer {
+        private final long intervalNanos;
+        private final long burstNanos;
+        final Counter rejected;
+
+        // Time the next send may go; lags behind now by at most one second when idle
+        private long nextFreeNanos;
+        private boolean started;
+
+        Pacer(double ratePerSecond, Counter rejected) {
+            this.intervalNanos = Math.max(1, (long) (TimeUnit.SECONDS.toNanos(1) / ratePerSecond));
+            this.burstNanos = Math.max(0, TimeUnit.SECONDS.toNanos(1) - intervalNanos);
+            this.rejected = rejected;
+        }
+
+        /**
+         * Reserve the next slot, returning how long to wait for it, or -1 if
+         * that is longer than the timeout
+         */
+        synchronized long reserve(long nowNanos, long timeoutNanos) {
+            long slot = nextSlot(nowNanos);
+            long waitNanos = Math.max(0, slot - nowNanos);
+            if (waitNanos > timeoutNanos) {
+                return -1;
+            }
+            started = true;
+            nextFreeNanos = slot + intervalNanos;
+            return waitNanos;
+        }
+
+        /**
+         * Use a slot now, even if that runs ahead of the rate
+         */
+        synchronized void take(long nowNanos) {
+            started = true;
+            nextFreeNanos = nextSlot(nowNanos) + intervalNanos;
+        }
+
+        private long nextSlot(long nowNanos) {
+            long earliest = nowNanos - burstNanos;
+            return !started || nextFreeNanos - earliest < 0 ? earliest : nextFreeNanos;
+        }
+    }
+}
@@ -0,0 +1,102 @@
+package com.propman.service.carrier;
+
+import java.util.Arrays;
+
+/**
+ * Decimal digit trie from number prefixes to carrier indexes, stored in two
+ * flat int arrays: ten child slots per node and the value ending at each
+ * node. A lookup walks one node per digit and keeps the longest match, so
+ * classifying a number reads a few dozen ints and allocates nothing.
+ */
+final class PrefixTrie {
+
+    static final int NONE = -1;
+
+    private int[] children = new int[10 * 64];
+    private int[] values = new int[64];
+    private int nodeCount = 1;
+
+    PrefixTrie() {
+        Arrays.fill(children, NONE);
+        Arrays.fill(values, NONE);
+    }
+
+    /**
+     * Map every number starting with the prefix to a value. Returns the
+     * value it replaces, or NONE.
+     */
+    int put(CharSequence prefix, int value) {
+        int node = 0;
+        for (int i = 0; i < prefix.length(); i++) {
+            int digit = prefix.charAt(i) - '0';
+            if (digit < 0 || digit > 9) {
+                throw new IllegalArgumentException("Prefix must be digits: " + prefix);
+            }
+            int child = children[node * 10 + digit];
+            if (child == NONE) {
+                child = addNode();
+                children[node * 10 + digit] = child;
+            }
+            node = child;
+        }
+        int previous = values[node];
+        values[node] = value;
+        return previous;
+    }
+
+    /**
+     * Start of a lookup; feed digits with {@link #step} and read the match
+     * with {@link #value}
+     */
+    static long start() {
+        return pack(0, NONE);
+    }
+
+    /**
+     * Advance a lookup by one digit. The state packs the current node (or
+     * NONE once the walk left the trie) and the longest value seen so far.
+     */
+    long step(long state, int digit) {
+        int node = (int) (state >>> 32);
+        int match = (int) state;
+        if (node == NONE) {
+            return state;
+        }
+        int child = children[node * 10 + digit];
+        if (child == NONE) {
+            return pack(NONE, match);
+        }
+        return pack(child, values[child] != NONE ? values[child] : match);
+    }
+
+    static int value(long state) {
+        return (int) state;
+    }
+
+    int nodeCount() {
+        return nodeCount;
+    }
+
+    /**
+     * Release the unused tail of the arrays once loading is done
+     */
+    void compact() {
+        children = Arrays.copyOf(children, nodeCount * 10);
+        values = Arrays.copyOf(values, nodeCount);
+    }
+
+    private int addNode() {
+        if (nodeCount == values.length) {
+            int capacity = values.length * 2;
+            children = Arrays.copyOf(children, capacity * 10);
+            Arrays.fill(children, nodeCount * 10, capacity * 10, NONE);
+            values = Arrays.copyOf(values, capacity);
+            Arrays.fill(values, nodeCount, capacity, NONE);
+        }
+        return nodeCount++;
+    }
+
+    private static long pack(int node, int match) {
+        return ((long) node << 32) | (match & 0xFFFFFFFFL);
+    }
+}
@@ -0,0 +1,352 @@
+package com.propman.service.credit;
+
+import com.propman.entity.Landlord;
+import com.propman.entity.SMSLog;
+import com.propman.repository.SMSLogRepository;
+import com.propman.repository.SmsCreditBatchRepository;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Prepaid SMS credit per landlord. A send reserves its estimated cost in
+ * memory with a CAS on the landlord's pending total, so concurrent sends
+ * for one landlord never wait on a database row. After the send the
+ * reservation is settled against the cost the provider reported, and the
+ * debit is queued and written to sms_credit_transactions in batches.
+ * <p>
+ * Debits are keyed by SMS log, so debits lost in a crash are recovered
+ * exactly from sms_logs. Balances written by other nodes are picked up by a
+ * periodic refresh; until then a landlord can overspend by what the other
+ * nodes sent in that interval.
+ * <p>
+ * Transactional messages, such as payment confirmations, may overdraw the
+ * wallet by sms.credit.transactional.overdraft so a tenant is not left
+ * without a receipt when the landlord's credit runs out.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class SmsCreditWallet {
+
+    private final SmsCreditBatchRepository smsCreditBatchRepository;
+    private final SMSLogRepository smsLogRepository;
+
+    private final Map<Long, Wallet> wallets = new ConcurrentHashMap<>();
+    private final Queue<SmsCreditBatchRepository.Debit> unflushed = new ConcurrentLinkedQueue<>();
+
+    // When false, sends are debited but never refused for lack of credit
+    @Value("${sms.credit.enforced:true}")
+    private boolean enforced;
+
+    @Value("${sms.credit.transactional.overdraft:50.00}")
+    private BigDecimal transactionalOverdraft;
+
+    // Granted once to landlords created before the wallet; 0 grants nothing
+    @Value("${sms.credit.opening.amount:0}")
+    private BigDecimal openingAmount;
+
+    @Value("${sms.credit.flush.batch.size:500}")
+    private int flushBatchSize;
+
+    // Logs younger than this may still be in another node's flush queue
+    @Value("${sms.credit.reconcile.grace.minutes:5}")
+    private long graceMinutes;
+
+    @Value("${sms.credit.reconcile.lookback.hours:24}")
+    private long lookbackHours;
+
+    @Value("${sms.credit.reconcile.chunk.size:5000}")
+    private int reconcileChunkSize;
+
+    // Last sms_logs id checked for missing debits; -1 until loaded
+    private long reconciledUpTo = -1;
+
+    /**
+     * Reserve the estimated cost of a message. Messages without a landlord
+     * are not billed; landlords whose subscription is not active, or who
+     * lack credit, are refused.
+     */
+    public Reservation reserve(Landlord landlord, BigDecimal estimatedCost) {
+        return reserve(landlord, estimatedCost, false);
+    }
+
+    /**
+     * Reserve the estimated cost of a message; a transactional message may
+     * take the balance down to minus the overdraft.
+     */
+    public Reservation reserve(Landlord landlord, BigDecimal estimatedCost, boolean transactional) {
+        if (landlord == null || landlord.getId() == null) {
+            return Reservation.UNBILLED;
+        }
+        if (landlord.getSubscriptionStatus() != null && landlord.getSubscriptionStatus() != Landlord.SubscriptionStatus.ACTIVE) {
+            return Reservation.refused("Subscription is " + landlord.getSubscriptionStatus());
+        }
+
+        long cents = toCents(estimatedCost);
+        long floor = !enforced ? Long.MIN_VALUE : transactional ? -toCents(transactionalOverdraft) : 0;
+        if (!walletFor(landlord.getId()).tryReserve(cents, floor)) {
+            return Reservation.refused("Insufficient SMS credit");
+        }
+        return new Reservation(landlord.getId(), cents, null);
+    }
+
+    /**
+     * Return a reservation for a message that was not sent
+     */
+    public void release(Reservation reservation) {
+        if (reservation.isBilled()) {
+            wallets.get(reservation.landlordId()).pending.addAndGet(-reservation.cents());
+        }
+    }
+
+    /**
+     * Replace a reservation with the message's actual cost and queue its
+     * debit. The log must have been saved, so the debit can be keyed by it.
+     */
+    public void settle(Reservation reservation, SMSLog smsLog) {
+        if (!reservation.isBilled()) {
+            return;
+        }
+        long actual = smsLog.getId() != null && smsLog.getCost() != null ? toCents(smsLog.getCost()) : 0;
+        Wallet wallet = wallets.get(reservation.landlordId());
+        wallet.pending.addAndGet(actual - reservation.cents());
+        if (actual > 0) {
+            unflushed.add(new SmsCreditBatchRepository.Debit(reservation.landlordId(), smsLog.getId(), fromCents(actual)));
+        }
+    }
+
+    /**
+     * Credit available to send with: the balance less reservations and
+     * debits not yet written
+     */
+    public CreditBalance getBalance(Long landlordId) {
+        Wallet wallet = walletFor(landlordId);
+        long balance = wallet.balance.get();
+        long pending = wallet.pending.get();
+        return new CreditBalance(fromCents(balance), fromCents(pending), fromCents(balance - pending));
+    }
+
+    public synchronized CreditBalance topUp(Long landlordId, BigDecimal amount, String reference) {
+        smsCreditBatchRepository.postTopUp(landlordId, amount.setScale(2, RoundingMode.HALF_UP), reference);
+        Wallet wallet = wallets.get(landlordId);
+        if (wallet != null) {
+            wallet.balance.addAndGet(toCents(amount));
+        }
+        log.info("Landlord {} topped up {} SMS credit ({})", landlordId, amount, reference);
+        return getBalance(landlordId);
+    }
+
+    /**
+     * Write queued debits in batches. A batch that hits a message already
+     * debited by a reconcile is retried one debit at a time.
+     */
+    @Scheduled(fixedDelayString = "${sms.credit.flush.ms:1000}")
+    public synchronized void flush() {
+        while (true) {
+            List<SmsCreditBatchRepository.Debit> batch = new ArrayList<>(flushBatchSize);
+            SmsCreditBatchRepository.Debit debit;
+            while (batch.size() < flushBatchSize && (debit = unflushed.poll()) != null) {
+                batch.add(debit);
+            }
+            if (batch.isEmpty()) {
+                return;
+            }
+
+            try {
+                smsCreditBatchRepository.postDebits(batch);
+            } catch (DataIntegrityViolationException e) {
+                postOneByOne(batch);
+            } catch (DataAccessException e) {
+                // Keep the debits for the next run; the reconcile covers them if this node stops
+                unflushed.addAll(batch);
+                log.error("Could not write {} SMS credit debits: {}", batch.size(), e.getMessage());
+                return;
+            }
+            for (SmsCreditBatchRepository.Debit written : batch) {
+                Wallet wallet = wallets.get(written.landlordId());
+                long cents = toCents(written.amount());
+                wallet.balance.addAndGet(-cents);
+                wallet.pending.addAndGet(-cents);
+            }
+        }
+    }
+
+    /**
+     * Reload balances, which other nodes and top-ups change
+     */
+    @Scheduled(fixedDelayString = "${sms.credit.refresh.ms:5000}", initialDelayString = "${sms.credit.refresh.ms:5000}")
+    public synchronized void refresh() {
+        if (wallets.isEmpty()) {
+            return;
+        }
+        smsCreditBatchRepository.findBalances(wallets.keySet())
+                .forEach((landlordId, balance) -> wallets.get(landlordId).balance.set(toCents(balance)));
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        LocalDateTime firstTransaction = smsCreditBatchRepository.findFirstTransactionTime();
+        grantOpeningCredit(firstTransaction);
+        LocalDateTime since = LocalDateTime.now().minusHours(lookbackHours);
+        synchronized (this) {
+            // Logs sent before the wallet existed are never debited
+            reconciledUpTo = firstTransaction == null
+                    ? smsLogRepository.findFirstIdSentSince(LocalDateTime.now()) - 1
+                    : smsLogRepository.findFirstIdSentSince(firstTransaction.isAfter(since) ? firstTransaction : since) - 1;
+        }
+        reconcile();
+    }
+
+    /**
+     * Debit messages that have a cost but no debit, such as those queued on
+     * a node that stopped before flushing. Only logs older than the grace
+     * period are checked, so live nodes have had time to write their own.
+     */
+    @Scheduled(fixedDelayString = "${sms.credit.reconcile.ms:60000}", initialDelayString = "${sms.credit.reconcile.ms:60000}")
+    public synchronized void reconcile() {
+        if (reconciledUpTo < 0) {
+            return;
+        }
+        LocalDateTime cutoff = LocalDateTime.now().minusMinutes(graceMinutes);
+        int recovered = 0;
+
+        while (true) {
+            long toId = smsCreditBatchRepository.findLastLogIdSentBefore(reconciledUpTo, cutoff, reconcileChunkSize);
+            if (toId == reconciledUpTo) {
+                break;
+            }
+            for (SmsCreditBatchRepository.Debit debit : smsCreditBatchRepository.findUndebitedLogs(reconciledUpTo, toId)) {
+                try {
+                    smsCreditBatchRepository.postDebits(List.of(debit));
+                    Wallet wallet = wallets.get(debit.landlordId());
+                    if (wallet != null) {
+                        wallet.balance.addAndGet(-toCents(debit.amount()));
+                    }
+                    recovered++;
+                } catch (DataIntegrityViolationException e) {
+                    // Written by its own node since the query
+                }
+            }
+            reconciledUpTo = toId;
+        }
+
+        if (recovered > 0) {
+            log.warn("Recovered {} SMS credit debits missing from the ledger", recovered);
+        }
+    }
+
+    /**
+     * Landlords who signed up before credit was enforced start with no
+     * balance, so every send would be blocked. Give each of them, once, an
+     * OPENING top-up; landlords created since the wallet went live top up
+     * for themselves.
+     */
+    private void grantOpeningCredit(LocalDateTime firstTransaction) {
+        if (openingAmount.signum() <= 0) {
+            return;
+        }
+        LocalDateTime createdBefore = firstTransaction != null ? firstTransaction : LocalDateTime.now();
+        int granted = smsCreditBatchRepository.postOpeningCredits(openingAmount.setScale(2, RoundingMode.HALF_UP), createdBefore);
+        if (granted > 0) {
+            log.info("Granted {} opening SMS credit to {} existing landlords", openingAmount, granted);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        flush();
+    }
+
+    private void postOneByOne(List<SmsCreditBatchRepository.Debit> batch) {
+        for (SmsCreditBatchRepository.Debit debit : batch) {
+            try {
+                smsCreditBatchRepository.postDebits(List.of(debit));
+            } catch (DataIntegrityViolationException e) {
+                // Already debited by a reconcile, which took it off the balance
+                log.debug("SMS log {} was already debited", debit.smsLogId());
+            }
+        }
+    }
+
+    private Wallet walletFor(Long landlordId) {
+        Wallet wallet = wallets.get(landlordId);
+        if (wallet != null) {
+            return wallet;
+        }
+        return wallets.computeIfAbsent(landlordId,
+                id -> new Wallet(toCents(smsCreditBatchRepository.findBalance(id))));
+    }
+
+    static long toCents(BigDecimal amount) {
+        return amount == null ? 0 : amount.setScale(2, RoundingMode.HALF_UP).unscaledValue().longValueExact();
+    }
+
+    static BigDecimal fromCents(long cents) {
+        return BigDecimal.valueOf(cents, 2);
+    }
+
+    private static final class Wallet {
+        // Balance in the database, as of the last refresh plus this node's writes since
+        final AtomicLong balance;
+        // Reserved for sends in progress, plus settled debits not yet written
+        final AtomicLong pending = new AtomicLong();
+
+        Wallet(long balance) {
+            this.balance = new AtomicLong(balance);
+        }
+
+        boolean tryReserve(long cents, long floor) {
+            while (true) {
+                long current = pending.get();
+                if (balance.get() - current - cents < floor) {
+                    return false;
+                }
+                if (pending.compareAndSet(current, current + cents)) {
+                    return true;
+                }
+            }
+        }
+    }
+
+    /**
+     * A reserved amount, or the reason a send was refused
+     */
+    public record Reservation(Long landlordId, long cents, String refusal) {
+
+        static final Reservation UNBILLED = new Reservation(null, 0, null);
+
+        static Reservation refused(String reason) {
+            return new Reservation(null, 0, reason);
+        }
+
+        public boolean isGranted() {
+            return refusal == null;
+        }
+
+        boolean isBilled() {
+            return landlordId != null;
+        }
+    }
+
+    public record CreditBalance(BigDecimal balance, BigDecimal reserved, BigDecimal available) {
+    }
+}
@@ -0,0 +1,12 @@
+package com.propman.service.dispatch;
+
+/**
+ * Whether the dispatcher took a message, and why not if it refused it
+ */
+public enum Admission {
+    QUEUED, SUBSCRIPTION_INACTIVE, QUOTA_EXCEEDED;
+
+    public boolean isQueued() {
+        return this == QUEUED;
+    }
+}
@@ -0,0 +1,70 @@
+package com.propman.service.dispatch;
+
+import java.util.function.BooleanSupplier;
+
+/**
+ * The lane of the send running on the current dispatcher worker, and a
+ * way for the send to hand itself back to the queue when a downstream
+ * limit (carrier rate, provider concurrency) is full. Sends made outside
+ * the dispatcher have no context.
+ */
+public final class DispatchContext {
+
+    private static final ThreadLocal<DispatchContext> current = new ThreadLocal<>();
+
+    private final Lane lane;
+    private final boolean deferrable;
+    private boolean deferred;
+
+    private DispatchContext(Lane lane, boolean deferrable) {
+        this.lane = lane;
+        this.deferrable = deferrable;
+    }
+
+    /**
+     * Lane of the dispatched send on this thread, or null outside the dispatcher
+     */
+    public static Lane currentLane() {
+        DispatchContext context = current.get();
+        return context != null ? context.lane : null;
+    }
+
+    /**
+     * Ask the dispatcher to queue the current send again instead of
+     * recording it as not sent. Returns false when that is not possible:
+     * outside the dispatcher, in the transactional lane, or once the send
+     * has been deferred too often. The caller then records the outcome
+     * itself.
+     */
+    public static boolean defer() {
+        DispatchContext context = current.get();
+        if (context == null || !context.deferrable) {
+            return false;
+        }
+        context.deferred = true;
+        return true;
+    }
+
+    enum Outcome {
+        SENT, NOT_SENT, DEFERRED
+    }
+
+    /**
+     * Run a send in a lane and report what became of it
+     */
+    static Outcome run(Lane lane, boolean deferrable, BooleanSupplier send) {
+        DispatchContext previous = current.get();
+        DispatchContext context = new DispatchContext(lane, deferrable && lane == Lane.BULK);
+        current.set(context);
+        try {
+            boolean sent = send.getAsBoolean();
+            return context.deferred ? Outcome.DEFERRED : sent ? Outcome.SENT : Outcome.NOT_SENT;
+        } finally {
+            if (previous != null) {
+                current.set(previous);
+            } else {
+                current.remove();
+            }
+        }
+    }
+}
@@ -0,0 +1,21 @@
+package com.propman.service.dispatch;
+
+import com.propman.entity.SMSLog;
+
+/**
+ * Dispatch priority class. Transactional messages are served before any
+ * queued bulk message and have workers reserved for them.
+ */
+public enum Lane {
+    TRANSACTIONAL, BULK;
+
+    public static Lane of(SMSLog.SMSType type) {
+        switch (type) {
+            case PAYMENT_CONFIRMATION:
+            case WELCOME_MESSAGE:
+                return TRANSACTIONAL;
+            default:
+                return BULK;
+        }
+    }
+}
@@ -0,0 +1,416 @@
+package com.propman.service.dispatch;
+
+import com.propman.entity.Landlord;
+import com.propman.entity.SMSLog;
+import com.propman.repository.SMSLogRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.observation.Observation;
+import io.micrometer.observation.ObservationRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Runs queued sends on a fixed set of workers in two priority lanes.
+ * Transactional messages are always taken before bulk ones, and
+ * sms.dispatch.reserved.workers workers only ever take transactional
+ * messages, so a receipt never waits behind a bulk provider call.
+ * <p>
+ * Bulk messages are queued per landlord and share the remaining workers in
+ * proportion to the subscription plan's weight, so a large campaign from
+ * one landlord only slows itself down. Landlords must have an active
+ * subscription and be within their plan's daily quota to queue bulk
+ * messages; refusals are returned as an {@link Admission} and counted in
+ * sms.dispatch.rejected{reason}. A queued message holds a unit of quota
+ * until it runs, and gives it back if it was not sent.
+ * <p>
+ * A bulk send that finds a carrier or provider limit full can defer itself
+ * through {@link DispatchContext}; it goes back to the end of its
+ * landlord's queue, up to sms.dispatch.max.deferrals times.
+ * <p>
+ * Each lane records queue-to-completion latency against its SLO as
+ * sms.dispatch.latency{lane}. Queued sends run inside the observation that
+ * was current when they were queued, so they stay in the submitter's trace.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class OutboundDispatcher {
+
+    private final SMSLogRepository smsLogRepository;
+    private final MeterRegistry meterRegistry;
+    private final ObservationRegistry observationRegistry;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition workAvailable = lock.newCondition();
+    private final Condition transactionalAvailable = lock.newCondition();
+    private final Condition dequeued = lock.newCondition();
+    private final ArrayDeque<QueuedSend> transactional = new ArrayDeque<>();
+    private final WeightedFairQueue<Long, QueuedSend> bulk = new WeightedFairQueue<>();
+    private final Map<Long, DailyQuota> quotas = new ConcurrentHashMap<>();
+    private final List<Thread> workers = new ArrayList<>();
+
+    @Value("${sms.dispatch.workers:4}")
+    private int workerCount;
+
+    @Value("${sms.dispatch.reserved.workers:1}")
+    private int reservedWorkerCount;
+
+    @Value("${sms.dispatch.transactional.capacity:10000}")
+    private int transactionalCapacity;
+
+    @Value("${sms.dispatch.max.deferrals:10}")
+    private int maxDeferrals;
+
+    @Value("${sms.lane.transactional.slo.ms:1000}")
+    private long transactionalSloMillis;
+
+    @Value("${sms.lane.bulk.slo.ms:60000}")
+    private long bulkSloMillis;
+
+    @Value("${sms.plan.weights:TRIAL:1,STARTER:2,GROWTH:4,ENTERPRISE:8}")
+    private String planWeights;
+
+    @Value("${sms.plan.daily.quotas:TRIAL:200,STARTER:2000,GROWTH:20000,ENTERPRISE:250000}")
+    private String planDailyQuotas;
+
+    private Map<Landlord.SubscriptionPlan, Integer> weights;
+    private Map<Landlord.SubscriptionPlan, Integer> dailyQuotas;
+    private final Map<Lane, LaneMetrics> metrics = new EnumMap<>(Lane.class);
+    private Counter deferred;
+    private final Map<Admission, Counter> rejected = new EnumMap<>(Admission.class);
+    private volatile boolean running;
+
+    @PostConstruct
+    public void start() {
+        weights = parsePlanValues(planWeights);
+        dailyQuotas = parsePlanValues(planDailyQuotas);
+        metrics.put(Lane.TRANSACTIONAL, new LaneMetrics(Lane.TRANSACTIONAL, Duration.ofMillis(transactionalSloMillis)));
+        metrics.put(Lane.BULK, new LaneMetrics(Lane.BULK, Duration.ofMillis(bulkSloMillis)));
+        deferred = Counter.builder("sms.dispatch.deferred")
+                .description("Bulk sends queued again because a carrier or provider limit was full")
+                .register(meterRegistry);
+        for (Admission reason : List.of(Admission.SUBSCRIPTION_INACTIVE, Admission.QUOTA_EXCEEDED)) {
+            rejected.put(reason, Counter.builder("sms.dispatch.rejected")
+                    .description("Bulk messages refused at submit")
+                    .tag("reason", reason.name().toLowerCase())
+                    .register(meterRegistry));
+        }
+        running = true;
+
+        // Always leave at least one worker for bulk traffic
+        int reservedCount = Math.min(reservedWorkerCount, workerCount - 1);
+        for (int i = 0; i < workerCount; i++) {
+            boolean reserved = i < reservedCount;
+            Thread worker = new Thread(() -> workLoop(reserved), (reserved ? "sms-dispatch-tx-" : "sms-dispatch-") + i);
+            worker.setDaemon(true);
+            worker.start();
+            workers.add(worker);
+        }
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        running = false;
+        lock.lock();
+        try {
+            workAvailable.signalAll();
+            transactionalAvailable.signalAll();
+        } finally {
+            lock.unlock();
+        }
+        for (Thread worker : workers) {
+            worker.join(5000);
+        }
+        workers.clear();
+
+        // Receipts are still sent; bulk work is picked up again by the next run
+        QueuedSend remaining;
+        while ((remaining = pollTransactional()) != null) {
+            run(remaining);
+        }
+        if (getQueuedCount() > 0) {
+            log.warn("Dispatcher stopped with {} bulk messages still queued", getQueuedCount());
+        }
+    }
+
+    /**
+     * Queue a send in the lane for its type. The send returns whether the
+     * message went out. Transactional messages are always accepted; when
+     * their lane is full the caller sends inline. Bulk messages go on the
+     * landlord's flow, or are refused without queueing if the subscription
+     * is not active or today's quota is used up.
+     */
+    public Admission submit(Landlord landlord, SMSLog.SMSType type, BooleanSupplier send) {
+        return submit(landlord, Lane.of(type), send);
+    }
+
+    /**
+     * Queue a send in an explicit lane, e.g. welcome messages for a bulk
+     * import, which should not hold up payment confirmations
+     */
+    public Admission submit(Landlord landlord, Lane lane, BooleanSupplier send) {
+        if (lane == Lane.TRANSACTIONAL) {
+            submitTransactional(send);
+            return Admission.QUEUED;
+        }
+
+        if (landlord.getSubscriptionStatus() != Landlord.SubscriptionStatus.ACTIVE) {
+            log.debug("Rejected message for landlord {} with {} subscription", landlord.getId(), landlord.getSubscriptionStatus());
+            return reject(Admission.SUBSCRIPTION_INACTIVE);
+        }
+        DailyQuota quota = reserveQuota(landlord);
+        if (quota == null) {
+            log.debug("Rejected message for landlord {}: daily {} quota reached", landlord.getId(), landlord.getSubscriptionPlan());
+            return reject(Admission.QUOTA_EXCEEDED);
+        }
+
+        offerBulk(new QueuedSend(Lane.BULK, send, System.nanoTime(), observationRegistry.getCurrentObservation(),
+                landlord.getId(), weights.getOrDefault(landlord.getSubscriptionPlan(), 1), 0, quota));
+        return Admission.QUEUED;
+    }
+
+    private Admission reject(Admission reason) {
+        rejected.get(reason).increment();
+        return reason;
+    }
+
+    private void offerBulk(QueuedSend queued) {
+        lock.lock();
+        try {
+            bulk.offer(queued.landlordId(), queued.weight(), queued);
+            workAvailable.signal();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void submitTransactional(BooleanSupplier send) {
+        QueuedSend queued = new QueuedSend(Lane.TRANSACTIONAL, send, System.nanoTime(),
+                observationRegistry.getCurrentObservation(), null, 0, 0, null);
+
+        lock.lock();
+        try {
+            if (running && transactional.size() < transactionalCapacity) {
+                transactional.addLast(queued);
+                transactionalAvailable.signal();
+                workAvailable.signal();
+                return;
+            }
+        } finally {
+            lock.unlock();
+        }
+
+        run(queued);
+    }
+
+    /**
+     * Block until the landlord has fewer than limit messages queued, so a
+     * producer can stream a large audience without queueing all of it
+     */
+    public void awaitBacklogBelow(Long landlordId, int limit) throws InterruptedException {
+        lock.lock();
+        try {
+            while (bulk.size(landlordId) >= limit) {
+                dequeued.await();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int getQueuedCount() {
+        lock.lock();
+        try {
+            return transactional.size() + bulk.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int getQueuedCount(Lane lane) {
+        lock.lock();
+        try {
+            return lane == Lane.TRANSACTIONAL ? transactional.size() : bulk.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Reserved workers only take transactional messages. The others take a
+     * transactional message whenever one is waiting, so bulk work yields at
+     * every message boundary.
+     */
+    private void workLoop(boolean reserved) {
+        while (running) {
+            QueuedSend next;
+            lock.lock();
+            try {
+                while (running && transactional.isEmpty() && (reserved || bulk.isEmpty())) {
+                    (reserved ? transactionalAvailable : workAvailable).await();
+                }
+                if (!running) {
+                    return;
+                }
+                next = !transactional.isEmpty() ? transactional.pollFirst() : bulk.poll();
+                if (next.lane() == Lane.BULK) {
+                    dequeued.signalAll();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } finally {
+                lock.unlock();
+            }
+
+            run(next);
+        }
+    }
+
+    private QueuedSend pollTransactional() {
+        lock.lock();
+        try {
+            return transactional.pollFirst();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void run(QueuedSend queued) {
+        boolean deferrable = running && queued.deferrals() < maxDeferrals;
+        DispatchContext.Outcome outcome = DispatchContext.Outcome.NOT_SENT;
+        try (Observation.Scope scope = queued.submitter() != null ? queued.submitter().openScope() : null) {
+            outcome = Observation.createNotStarted("sms.dispatch.run", observationRegistry)
+                    .lowCardinalityKeyValue("lane", queued.lane().name().toLowerCase())
+                    .highCardinalityKeyValue("queued.ms", String.valueOf((System.nanoTime() - queued.enqueuedNanos()) / 1_000_000))
+                    .observe(() -> DispatchContext.run(queued.lane(), deferrable, queued.send()));
+        } catch (Exception e) {
+            log.error("Queued {} send failed: {}", queued.lane(), e.getMessage(), e);
+        }
+
+        if (outcome == DispatchContext.Outcome.DEFERRED) {
+            deferred.increment();
+            offerBulk(queued.deferred());
+            return;
+        }
+        if (outcome == DispatchContext.Outcome.NOT_SENT && queued.quota() != null) {
+            queued.quota().release();
+        }
+        metrics.get(queued.lane()).record(System.nanoTime() - queued.enqueuedNanos());
+    }
+
+    /**
+     * Hold a unit of today's quota for a message, returning the quota to
+     * give it back to if the message is not sent, or null if it is used up.
+     * The first message of the day seeds the count from the SMS log, so
+     * restarts do not reset quotas. The count runs outside the map's lock;
+     * if two submitters seed at once, the first seed stored wins.
+     */
+    private DailyQuota reserveQuota(Landlord landlord) {
+        int limit = dailyQuotas.getOrDefault(landlord.getSubscriptionPlan(), 0);
+        LocalDate today = LocalDate.now();
+
+        DailyQuota quota = quotas.get(landlord.getId());
+        if (quota == null || !quota.day.equals(today)) {
+            DailyQuota seeded = new DailyQuota(today,
+                    (int) smsLogRepository.countSentSMSByLandlordSince(landlord.getId(), today.atStartOfDay()));
+            quota = quotas.merge(landlord.getId(), seeded,
+                    (current, fresh) -> current.day.equals(today) ? current : fresh);
+        }
+
+        if (quota.used.incrementAndGet() > limit) {
+            quota.used.decrementAndGet();
+            return null;
+        }
+        return quota;
+    }
+
+    /**
+     * Parse "TRIAL:1,STARTER:2,..." into a per-plan map
+     */
+    static Map<Landlord.SubscriptionPlan, Integer> parsePlanValues(String values) {
+        Map<Landlord.SubscriptionPlan, Integer> parsed = new EnumMap<>(Landlord.SubscriptionPlan.class);
+        for (String entry : values.split(",")) {
+            String[] parts = entry.trim().split(":");
+            parsed.put(Landlord.SubscriptionPlan.valueOf(parts[0].trim()), Integer.parseInt(parts[1].trim()));
+        }
+        return parsed;
+    }
+
+    private record QueuedSend(Lane lane, BooleanSupplier send, long enqueuedNanos, Observation submitter,
+                              Long landlordId, int weight, int deferrals, DailyQuota quota) {
+
+        QueuedSend deferred() {
+            return new QueuedSend(lane, send, enqueuedNanos, submitter, landlordId, weight, deferrals + 1, quota);
+        }
+    }
+
+    /**
+     * Latency timer with the SLO as a histogram bucket, plus a counter of
+     * sends that missed it
+     */
+    private class LaneMetrics {
+        private final Timer latency;
+        private final Counter sloMisses;
+        private final long sloNanos;
+
+        private LaneMetrics(Lane lane, Duration slo) {
+            String tag = lane.name().toLowerCase();
+            this.sloNanos = slo.toNanos();
+            this.latency = Timer.builder("sms.dispatch.latency")
+                    .description("Time from queueing to send completion")
+                    .tag("lane", tag)
+                    .serviceLevelObjectives(slo)
+                    .publishPercentiles(0.5, 0.95, 0.99)
+                    .register(meterRegistry);
+            this.sloMisses = Counter.builder("sms.dispatch.slo.misses")
+                    .description("Sends that completed after the lane's latency objective")
+                    .tag("lane", tag)
+                    .register(meterRegistry);
+            Gauge.builder("sms.dispatch.queued", OutboundDispatcher.this, dispatcher -> dispatcher.getQueuedCount(lane))
+                    .tag("lane", tag)
+                    .register(meterRegistry);
+        }
+
+        private void record(long nanos) {
+            latency.record(Duration.ofNanos(nanos));
+            if (nanos > sloNanos) {
+                sloMisses.increment();
+            }
+        }
+    }
+
+    private static class DailyQuota {
+        private final LocalDate day;
+        private final AtomicInteger used;
+
+        private DailyQuota(LocalDate day, int used) {
+            this.day = day;
+            this.used = new AtomicInteger(used);
+        }
+
+        private void release() {
+            used.decrementAndGet();
+        }
+    }
+}
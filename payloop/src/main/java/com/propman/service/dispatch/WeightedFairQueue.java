@@ -0,0 +1,75 @@
+package com.propman.service.dispatch;
+
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Deficit round robin over per-key FIFO queues. Each key with queued items
+ * gets a share of polls proportional to its weight, and both offer and poll
+ * are O(1) however many items or keys are queued. Not thread-safe.
+ */
+class WeightedFairQueue<K, T> {
+
+    private final Map<K, Flow<K, T>> flows = new HashMap<>();
+    private final ArrayDeque<Flow<K, T>> active = new ArrayDeque<>();
+    private int size;
+
+    void offer(K key, int weight, T item) {
+        Flow<K, T> flow = flows.computeIfAbsent(key, Flow::new);
+        flow.weight = Math.max(1, weight);
+        flow.items.addLast(item);
+        if (flow.items.size() == 1) {
+            flow.deficit = 0;
+            active.addLast(flow);
+        }
+        size++;
+    }
+
+    T poll() {
+        Flow<K, T> flow = active.peekFirst();
+        if (flow == null) {
+            return null;
+        }
+
+        // A flow at the head is topped up by its weight once per round
+        if (flow.deficit <= 0) {
+            flow.deficit += flow.weight;
+        }
+        T item = flow.items.pollFirst();
+        flow.deficit--;
+        size--;
+
+        if (flow.items.isEmpty()) {
+            active.pollFirst();
+            flows.remove(flow.key);
+        } else if (flow.deficit <= 0) {
+            active.addLast(active.pollFirst());
+        }
+        return item;
+    }
+
+    int size() {
+        return size;
+    }
+
+    int size(K key) {
+        Flow<K, T> flow = flows.get(key);
+        return flow != null ? flow.items.size() : 0;
+    }
+
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    private static class Flow<K, T> {
+        private final K key;
+        private final ArrayDeque<T> items = new ArrayDeque<>();
+        private int weight;
+        private int deficit;
+
+        private Flow(K key) {
+            this.key = key;
+        }
+    }
+}
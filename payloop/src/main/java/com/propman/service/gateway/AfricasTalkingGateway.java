@@ -0,0 +1,67 @@
+package com.propman.service.gateway;
+
+import com.africastalking.SmsService;
+import com.africastalking.sms.Recipient;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.ObjectFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Set;
+
+@Component
+@ConditionalOnProperty(name = "sms.gateway.africastalking.client", havingValue = "sdk", matchIfMissing = true)
+@RequiredArgsConstructor
+public class AfricasTalkingGateway implements SmsGateway {
+
+    public static final String NAME = "africastalking";
+
+    // Recipient statuses that reflect the provider account or network, not the number
+    private static final Set<String> RETRYABLE_STATUSES = Set.of(
+            "InsufficientBalance", "CouldNotRoute", "InternalServerError", "GatewayError", "RejectedByGateway");
+
+    // Resolved per send so the lazy SDK bean is created on first use
+    private final ObjectFactory<SmsService> africasTalkingSmsService;
+
+    @Value("${sms.gateway.africastalking.cost:0.80}")
+    private BigDecimal costPerMessage;
+
+    @Override
+    public String getName() {
+        return NAME;
+    }
+
+    @Override
+    public BigDecimal getCostPerMessage() {
+        return costPerMessage;
+    }
+
+    @Override
+    public SmsSendResult send(String phone, String message, String senderName) throws Exception {
+        List<Recipient> recipients = africasTalkingSmsService.getObject().send(message, new String[]{phone}, senderName);
+
+        if (recipients.isEmpty()) {
+            return SmsSendResult.rejected(NAME, "No recipients returned from Africa's Talking", true);
+        }
+
+        Recipient recipient = recipients.get(0);
+        if ("Success".equalsIgnoreCase(recipient.status)) {
+            return SmsSendResult.sent(NAME, recipient.messageId, parseCost(recipient.cost));
+        }
+        return SmsSendResult.rejected(NAME, recipient.status, RETRYABLE_STATUSES.contains(recipient.status));
+    }
+
+    /**
+     * Parse Africa's Talking cost strings such as "KES 0.8000"
+     */
+    static BigDecimal parseCost(String cost) {
+        if (cost == null) {
+            return null;
+        }
+        String amount = cost.replaceAll("[^0-9.]", "");
+        return amount.isEmpty() ? null : new BigDecimal(amount);
+    }
+}
@@ -0,0 +1,183 @@
+package com.propman.service.gateway;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.stream.Collectors;
+
+/**
+ * Africa's Talking gateway that calls the messaging REST API directly
+ * instead of going through the SDK. A single shared HttpClient keeps
+ * connections alive and pooled (multiplexed over HTTP/2 where the server
+ * supports it), requests are non-blocking, and connect and response
+ * timeouts are explicit. Enable with
+ * sms.gateway.africastalking.client=http; it registers under the same
+ * provider name as the SDK gateway.
+ */
+@Component
+@ConditionalOnProperty(name = "sms.gateway.africastalking.client", havingValue = "http")
+@RequiredArgsConstructor
+@Slf4j
+public class AfricasTalkingHttpGateway implements SmsGateway {
+
+    static final String PRODUCTION_URL = "https://api.africastalking.com/version1/messaging";
+    static final String SANDBOX_URL = "https://api.sandbox.africastalking.com/version1/messaging";
+
+    // Recipient statuses that reflect the provider account or network, not the number
+    private static final Set<String> RETRYABLE_STATUSES = Set.of(
+            "InsufficientBalance", "CouldNotRoute", "InternalServerError", "GatewayError", "RejectedByGateway");
+
+    private final ObjectMapper objectMapper;
+
+    @Value("${africas.talking.api.key}")
+    private String apiKey;
+
+    @Value("${africas.talking.username}")
+    private String username;
+
+    @Value("${africas.talking.environment:sandbox}")
+    private String environment;
+
+    // Overrides the environment's endpoint, e.g. for a local stub
+    @Value("${sms.gateway.africastalking.url:}")
+    private String url;
+
+    @Value("${sms.gateway.africastalking.cost:0.80}")
+    private BigDecimal costPerMessage;
+
+    @Value("${sms.gateway.africastalking.connect.timeout.ms:2000}")
+    private long connectTimeoutMillis;
+
+    @Value("${sms.gateway.africastalking.read.timeout.ms:5000}")
+    private long readTimeoutMillis;
+
+    // Bounds open connections; callers wait for a slot once this many requests are outstanding
+    @Value("${sms.gateway.africastalking.max.in.flight:32}")
+    private int maxInFlight;
+
+    private HttpClient httpClient;
+    private URI endpoint;
+    private Semaphore inFlight;
+
+    @PostConstruct
+    public void init() {
+        endpoint = URI.create(!url.isEmpty() ? url
+                : "production".equalsIgnoreCase(environment) ? PRODUCTION_URL : SANDBOX_URL);
+        httpClient = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_2)
+                .connectTimeout(Duration.ofMillis(connectTimeoutMillis))
+                .build();
+        inFlight = new Semaphore(maxInFlight);
+        log.info("Africa's Talking HTTP gateway using {}", endpoint);
+    }
+
+    @Override
+    public String getName() {
+        return AfricasTalkingGateway.NAME;
+    }
+
+    @Override
+    public BigDecimal getCostPerMessage() {
+        return costPerMessage;
+    }
+
+    @Override
+    public SmsSendResult send(String phone, String message, String senderName) throws Exception {
+        try {
+            return sendAsync(phone, message, senderName).get();
+        } catch (ExecutionException e) {
+            throw e.getCause() instanceof Exception cause ? cause : e;
+        }
+    }
+
+    /**
+     * Send without waiting for the response. Only blocks while
+     * max.in.flight requests are already outstanding. Completes
+     * exceptionally on transport errors, timeouts and non-2xx responses.
+     */
+    public CompletableFuture<SmsSendResult> sendAsync(String phone, String message, String senderName) {
+        Map<String, String> form = new LinkedHashMap<>();
+        form.put("username", username);
+        form.put("to", phone);
+        form.put("message", message);
+        // The sandbox rejects unregistered sender IDs
+        if (senderName != null && !senderName.isEmpty() && "production".equalsIgnoreCase(environment)) {
+            form.put("from", senderName);
+        }
+
+        HttpRequest request = HttpRequest.newBuilder(endpoint)
+                .timeout(Duration.ofMillis(readTimeoutMillis))
+                .header("apiKey", apiKey)
+                .header("Accept", "application/json")
+                .header("Content-Type", "application/x-www-form-urlencoded")
+                .POST(HttpRequest.BodyPublishers.ofString(encodeForm(form)))
+                .build();
+
+        inFlight.acquireUninterruptibly();
+        CompletableFuture<HttpResponse<String>> sent;
+        try {
+            sent = httpClient.sendAsync(request, HttpResponse.BodyHandlers.ofString());
+        } catch (RuntimeException e) {
+            // Nothing was started, so no completion will hand the slot back
+            inFlight.release();
+            return CompletableFuture.failedFuture(e);
+        }
+        return sent.whenComplete((response, error) -> inFlight.release())
+                .thenApply(this::parseResponse);
+    }
+
+    private SmsSendResult parseResponse(HttpResponse<String> response) {
+        if (response.statusCode() / 100 != 2) {
+            throw new CompletionException(new IOException(
+                    "Africa's Talking returned HTTP " + response.statusCode() + ": " + response.body()));
+        }
+
+        JsonNode recipients;
+        try {
+            recipients = objectMapper.readTree(response.body()).path("SMSMessageData").path("Recipients");
+        } catch (IOException e) {
+            throw new CompletionException(e);
+        }
+
+        if (!recipients.isArray() || recipients.isEmpty()) {
+            return SmsSendResult.rejected(getName(), "No recipients returned from Africa's Talking", true);
+        }
+
+        JsonNode recipient = recipients.get(0);
+        String status = recipient.path("status").asText();
+        if ("Success".equalsIgnoreCase(status)) {
+            return SmsSendResult.sent(getName(), recipient.path("messageId").asText(null),
+                    AfricasTalkingGateway.parseCost(recipient.path("cost").asText(null)));
+        }
+        return SmsSendResult.rejected(getName(), status, RETRYABLE_STATUSES.contains(status));
+    }
+
+    private static String encodeForm(Map<String, String> form) {
+        return form.entrySet().stream()
+                .map(e -> URLEncoder.encode(e.getKey(), StandardCharsets.UTF_8) + "="
+                        + URLEncoder.encode(e.getValue(), StandardCharsets.UTF_8))
+                .collect(Collectors.joining("&"));
+    }
+}
@@ -0,0 +1,159 @@
+package com.propman.service.gateway;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Adaptive limit on concurrent calls to one provider, after the gradient
+ * algorithm. While recent round-trip time stays within tolerance of the
+ * long-term baseline the limit grows by about sqrt(limit) per call; once
+ * queueing at the provider pushes RTT above that, the limit shrinks in
+ * proportion. Calls that fail in a way that points at overload (transport
+ * errors, timeouts, retryable rejections) cut the limit multiplicatively,
+ * as in AIMD. The limit settles at the highest concurrency the provider
+ * serves without its latency rising.
+ */
+final class ConcurrencyLimiter {
+
+    // Recent RTT averages roughly the last 10 calls, the baseline the last 500
+    private static final double SHORT_ALPHA = 2.0 / 11;
+    private static final double LONG_ALPHA = 2.0 / 501;
+
+    enum Decision {
+        INCREASE, DECREASE, HOLD
+    }
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition released = lock.newCondition();
+
+    private final double minLimit;
+    private final double maxLimit;
+    private final double rttTolerance;
+    private final double smoothing;
+    private final double backoffRatio;
+
+    private volatile double limit;
+    private volatile int inFlight;
+    private volatile double shortRttNanos;
+    private volatile double longRttNanos;
+
+    ConcurrencyLimiter(int initialLimit, int minLimit, int maxLimit, double rttTolerance,
+                       double smoothing, double backoffRatio) {
+        this.minLimit = Math.max(1, minLimit);
+        this.maxLimit = Math.max(this.minLimit, maxLimit);
+        this.rttTolerance = rttTolerance;
+        this.smoothing = smoothing;
+        this.backoffRatio = backoffRatio;
+        this.limit = Math.max(this.minLimit, Math.min(this.maxLimit, initialLimit));
+    }
+
+    /**
+     * Take a slot, waiting up to the timeout for one to free up. Returns
+     * false on timeout or interruption.
+     */
+    boolean tryAcquire(long timeout, TimeUnit unit) {
+        return tryAcquire(timeout, unit, 0);
+    }
+
+    /**
+     * Take a slot while leaving reservedShare of the limit free for callers
+     * that pass no share, so they still find slots when the rest are busy.
+     * At least one slot is always available to every caller.
+     */
+    boolean tryAcquire(long timeout, TimeUnit unit, double reservedShare) {
+        long remaining = unit.toNanos(timeout);
+        lock.lock();
+        try {
+            while (inFlight >= usableLimit(reservedShare)) {
+                if (remaining <= 0) {
+                    return false;
+                }
+                remaining = released.awaitNanos(remaining);
+            }
+            inFlight++;
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Free a slot and adjust the limit from the call's round-trip time and
+     * whether it failed from overload
+     */
+    Decision release(long rttNanos, boolean dropped) {
+        lock.lock();
+        try {
+            int concurrent = inFlight;
+            inFlight--;
+            Decision decision = dropped ? backOff() : sample(rttNanos, concurrent);
+            released.signalAll();
+            return decision;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private int usableLimit(double reservedShare) {
+        int current = (int) limit;
+        return Math.max(1, current - (int) Math.ceil(current * reservedShare));
+    }
+
+    int getLimit() {
+        return (int) limit;
+    }
+
+    int getInFlight() {
+        return inFlight;
+    }
+
+    double getShortRttMs() {
+        return shortRttNanos / 1_000_000.0;
+    }
+
+    double getLongRttMs() {
+        return longRttNanos / 1_000_000.0;
+    }
+
+    private Decision backOff() {
+        return apply(Math.max(minLimit, limit * backoffRatio));
+    }
+
+    private Decision sample(long rttNanos, int concurrent) {
+        if (longRttNanos == 0) {
+            shortRttNanos = rttNanos;
+            longRttNanos = rttNanos;
+        }
+        shortRttNanos += SHORT_ALPHA * (rttNanos - shortRttNanos);
+        longRttNanos += LONG_ALPHA * (rttNanos - longRttNanos);
+
+        // After a slow spell the baseline lags behind; let it catch up so the limit can grow again
+        if (longRttNanos > 2 * shortRttNanos) {
+            longRttNanos *= 0.95;
+        }
+
+        // A call made while most slots were idle says nothing about a higher limit
+        if (concurrent * 2 < limit) {
+            return Decision.HOLD;
+        }
+
+        double gradient = Math.max(0.5, Math.min(1.0, rttTolerance * longRttNanos / shortRttNanos));
+        double target = limit * gradient + Math.sqrt(limit);
+        return apply(Math.max(minLimit, Math.min(maxLimit, limit + smoothing * (target - limit))));
+    }
+
+    private Decision apply(double newLimit) {
+        double previous = limit;
+        limit = newLimit;
+        if ((int) newLimit > (int) previous) {
+            return Decision.INCREASE;
+        } else if ((int) newLimit < (int) previous) {
+            return Decision.DECREASE;
+        }
+        return Decision.HOLD;
+    }
+}
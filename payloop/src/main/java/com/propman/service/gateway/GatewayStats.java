@@ -0,0 +1,49 @@
+package com.propman.service.gateway;
+
+/**
+ * Rolling latency and error statistics for one provider, kept as
+ * exponentially weighted moving averages so updates and reads are O(1).
+ */
+class GatewayStats {
+
+    private final double alpha;
+
+    private volatile double latencyMs;
+    private volatile double errorRate;
+    private volatile long circuitOpenUntil;
+    private int consecutiveFailures;
+
+    GatewayStats(double alpha) {
+        this.alpha = alpha;
+    }
+
+    synchronized void recordSuccess(long latencyNanos) {
+        latencyMs = average(latencyMs, latencyNanos / 1_000_000.0);
+        errorRate = average(errorRate, 0);
+        consecutiveFailures = 0;
+    }
+
+    synchronized void recordFailure(long latencyNanos, long now, int failureThreshold, long cooldownMillis) {
+        latencyMs = average(latencyMs, latencyNanos / 1_000_000.0);
+        errorRate = average(errorRate, 1);
+        if (++consecutiveFailures >= failureThreshold) {
+            circuitOpenUntil = now + cooldownMillis;
+        }
+    }
+
+    boolean isAvailable(long now) {
+        return now >= circuitOpenUntil;
+    }
+
+    double getLatencyMs() {
+        return latencyMs;
+    }
+
+    double getErrorRate() {
+        return errorRate;
+    }
+
+    private double average(double current, double sample) {
+        return current + alpha * (sample - current);
+    }
+}
@@ -0,0 +1,22 @@
+package com.propman.service.gateway;
+
+import java.math.BigDecimal;
+
+/**
+ * Outbound SMS provider. Implementations report provider-side rejections
+ * through {@link SmsSendResult} and throw only on transport failures.
+ */
+public interface SmsGateway {
+
+    /**
+     * Short provider name recorded on SMS logs, e.g. "africastalking"
+     */
+    String getName();
+
+    /**
+     * Configured price of a single-part message, used for routing decisions
+     */
+    BigDecimal getCostPerMessage();
+
+    SmsSendResult send(String phone, String message, String senderName) throws Exception;
+}
@@ -0,0 +1,214 @@
+package com.propman.service.gateway;
+
+import com.propman.service.dispatch.Lane;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.observation.Observation;
+import io.micrometer.observation.ObservationRegistry;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Picks an {@link SmsGateway} per message from rolling latency, error rate
+ * and cost, failing over to the next provider on transport errors or
+ * retryable rejections. Providers that fail repeatedly are skipped until a
+ * cooldown passes. Calls to each provider go through a
+ * {@link ConcurrencyLimiter} that adapts to its latency; a provider whose
+ * slots stay full for sms.limiter.acquire.timeout.ms is treated like a
+ * retryable rejection. Bulk sends leave sms.limiter.transactional.reserve
+ * of each provider's limit free, so receipts find a slot even while a
+ * campaign saturates the provider.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class SmsGatewayRouter {
+
+    private final List<SmsGateway> gateways;
+    private final ObservationRegistry observationRegistry;
+    private final MeterRegistry meterRegistry;
+
+    private final Map<String, GatewayStats> stats = new ConcurrentHashMap<>();
+    private final Map<String, ProviderLimit> limits = new ConcurrentHashMap<>();
+
+    @Value("${sms.routing.latency.weight:1.0}")
+    private double latencyWeight;
+
+    @Value("${sms.routing.error.weight:1000.0}")
+    private double errorWeight;
+
+    @Value("${sms.routing.cost.weight:100.0}")
+    private double costWeight;
+
+    @Value("${sms.routing.smoothing:0.2}")
+    private double smoothing;
+
+    @Value("${sms.routing.failure.threshold:5}")
+    private int failureThreshold;
+
+    @Value("${sms.routing.cooldown.ms:30000}")
+    private long cooldownMillis;
+
+    @Value("${sms.limiter.initial.limit:10}")
+    private int initialLimit;
+
+    @Value("${sms.limiter.min.limit:2}")
+    private int minLimit;
+
+    @Value("${sms.limiter.max.limit:200}")
+    private int maxLimit;
+
+    // How far recent RTT may rise over the baseline before the limit shrinks, e.g. 1.5 = 50%
+    @Value("${sms.limiter.rtt.tolerance:1.5}")
+    private double rttTolerance;
+
+    @Value("${sms.limiter.smoothing:0.2}")
+    private double limitSmoothing;
+
+    @Value("${sms.limiter.backoff.ratio:0.9}")
+    private double backoffRatio;
+
+    @Value("${sms.limiter.acquire.timeout.ms:2000}")
+    private long acquireTimeoutMillis;
+
+    // Share of each provider's limit that only transactional sends may use
+    @Value("${sms.limiter.transactional.reserve:0.2}")
+    private double transactionalReserve;
+
+    /**
+     * Send through the best available provider, trying the others in rank
+     * order until one accepts the message. If the last provider tried had no
+     * free slot, the result is {@link SmsSendResult#isAtCapacity}.
+     */
+    public SmsSendResult send(String phone, String message, String senderName, Lane lane) {
+        SmsSendResult result = null;
+        double reservedShare = lane == Lane.TRANSACTIONAL ? 0 : transactionalReserve;
+
+        for (SmsGateway gateway : rankGateways()) {
+            GatewayStats gatewayStats = statsFor(gateway);
+            ProviderLimit limit = limitFor(gateway);
+            if (!limit.limiter.tryAcquire(acquireTimeoutMillis, TimeUnit.MILLISECONDS, reservedShare)) {
+                limit.rejected.increment();
+                result = SmsSendResult.atCapacity(gateway.getName());
+                log.warn("Provider {} at its concurrency limit of {}, skipping", gateway.getName(), limit.limiter.getLimit());
+                continue;
+            }
+
+            Observation attempt = Observation.createNotStarted("sms.provider.send", observationRegistry)
+                    .lowCardinalityKeyValue("provider", gateway.getName())
+                    .start();
+            long start = System.nanoTime();
+            boolean dropped = true;
+
+            try {
+                result = gateway.send(phone, message, senderName);
+                long elapsed = System.nanoTime() - start;
+                attempt.lowCardinalityKeyValue("outcome", result.isSuccess() ? "sent" : "rejected");
+
+                if (result.isSuccess() || !result.isRetryable()) {
+                    dropped = false;
+                    gatewayStats.recordSuccess(elapsed);
+                    return result;
+                }
+                gatewayStats.recordFailure(elapsed, System.currentTimeMillis(), failureThreshold, cooldownMillis);
+                log.warn("Provider {} rejected SMS to {}: {}", gateway.getName(), phone, result.getError());
+
+            } catch (Exception e) {
+                gatewayStats.recordFailure(System.nanoTime() - start, System.currentTimeMillis(),
+                        failureThreshold, cooldownMillis);
+                attempt.lowCardinalityKeyValue("outcome", "error").error(e);
+                result = SmsSendResult.rejected(gateway.getName(), e.getMessage(), true);
+                log.warn("Provider {} failed to send SMS to {}: {}", gateway.getName(), phone, e.getMessage());
+            } finally {
+                limit.decisions.get(limit.limiter.release(System.nanoTime() - start, dropped)).increment();
+                attempt.stop();
+            }
+        }
+
+        return result != null ? result : SmsSendResult.rejected(null, "No SMS provider configured", false);
+    }
+
+    /**
+     * Order providers by score, lowest first. Providers with an open circuit
+     * go last so they are still tried when everything else has failed.
+     */
+    List<SmsGateway> rankGateways() {
+        long now = System.currentTimeMillis();
+        List<SmsGateway> ranked = new ArrayList<>(gateways);
+        ranked.sort(Comparator
+                .comparing((SmsGateway gateway) -> !statsFor(gateway).isAvailable(now))
+                .thenComparingDouble(this::score));
+        return ranked;
+    }
+
+    private double score(SmsGateway gateway) {
+        GatewayStats gatewayStats = statsFor(gateway);
+        return latencyWeight * gatewayStats.getLatencyMs()
+                + errorWeight * gatewayStats.getErrorRate()
+                + costWeight * gateway.getCostPerMessage().doubleValue();
+    }
+
+    private GatewayStats statsFor(SmsGateway gateway) {
+        return stats.computeIfAbsent(gateway.getName(), name -> new GatewayStats(smoothing));
+    }
+
+    int getConcurrencyLimit(String provider) {
+        ProviderLimit limit = limits.get(provider);
+        return limit != null ? limit.limiter.getLimit() : initialLimit;
+    }
+
+    private ProviderLimit limitFor(SmsGateway gateway) {
+        return limits.computeIfAbsent(gateway.getName(), ProviderLimit::new);
+    }
+
+    /**
+     * A provider's limiter with its metrics: the current limit, calls in
+     * flight, recent and baseline RTT, and a count of each limit decision
+     */
+    private class ProviderLimit {
+        private final ConcurrencyLimiter limiter;
+        private final Map<ConcurrencyLimiter.Decision, Counter> decisions = new EnumMap<>(ConcurrencyLimiter.Decision.class);
+        private final Counter rejected;
+
+        private ProviderLimit(String provider) {
+            this.limiter = new ConcurrencyLimiter(initialLimit, minLimit, maxLimit, rttTolerance,
+                    limitSmoothing, backoffRatio);
+            for (ConcurrencyLimiter.Decision decision : ConcurrencyLimiter.Decision.values()) {
+                decisions.put(decision, Counter.builder("sms.provider.limit.decisions")
+                        .description("Limit adjustments after each provider call")
+                        .tags("provider", provider, "decision", decision.name().toLowerCase(Locale.ROOT))
+                        .register(meterRegistry));
+            }
+            this.rejected = Counter.builder("sms.provider.limit.rejected")
+                    .description("Sends that found the provider at its limit for the whole acquire timeout")
+                    .tag("provider", provider)
+                    .register(meterRegistry);
+            Gauge.builder("sms.provider.limit", limiter, ConcurrencyLimiter::getLimit)
+                    .tag("provider", provider)
+                    .register(meterRegistry);
+            Gauge.builder("sms.provider.in.flight", limiter, ConcurrencyLimiter::getInFlight)
+                    .tag("provider", provider)
+                    .register(meterRegistry);
+            Gauge.builder("sms.provider.rtt.recent", limiter, ConcurrencyLimiter::getShortRttMs)
+                    .tag("provider", provider)
+                    .baseUnit("milliseconds")
+                    .register(meterRegistry);
+            Gauge.builder("sms.provider.rtt.baseline", limiter, ConcurrencyLimiter::getLongRttMs)
+                    .tag("provider", provider)
+                    .baseUnit("milliseconds")
+                    .register(meterRegistry);
+        }
+    }
+}
@@ -0,0 +1,36 @@
+package com.propman.service.gateway;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class SmsSendResult {
+    private boolean success;
+    private String provider;
+    private String messageId;
+    private BigDecimal cost;
+    private String error;
+
+    // Whether another provider could succeed where this one failed
+    private boolean retryable;
+
+    // Not attempted because the provider had no free slot; the message can be sent later
+    private boolean atCapacity;
+
+    public static SmsSendResult sent(String provider, String messageId, BigDecimal cost) {
+        return new SmsSendResult(true, provider, messageId, cost, null, false, false);
+    }
+
+    public static SmsSendResult rejected(String provider, String error, boolean retryable) {
+        return new SmsSendResult(false, provider, null, BigDecimal.ZERO, error, retryable, false);
+    }
+
+    public static SmsSendResult atCapacity(String provider) {
+        return new SmsSendResult(false, provider, null, BigDecimal.ZERO, "Provider concurrency limit reached", true, true);
+    }
+}
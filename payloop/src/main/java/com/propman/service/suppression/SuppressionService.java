@@ -0,0 +1,219 @@
+package com.propman.service.suppression;
+
+import com.propman.entity.SuppressedNumber;
+import com.propman.repository.SuppressedNumberRepository;
+import com.propman.util.PhoneNumbers;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * Numbers that must not be sent to: STOP replies, hard bounces and manual
+ * blocks. The database table is the exact set; each node keeps a Bloom filter
+ * in front of it so that the common case (not suppressed) never leaves
+ * memory. Numbers suppressed on other nodes are picked up by an incremental
+ * refresh, and the filter is rebuilt nightly to drop removed numbers.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class SuppressionService {
+
+    private final SuppressedNumberRepository suppressedNumberRepository;
+
+    // Null until loaded; every lookup goes to the database until then
+    private volatile BloomFilter filter;
+
+    private LocalDateTime watermark = LocalDateTime.of(1970, 1, 1, 0, 0);
+
+    @Value("${suppression.filter.expected.numbers:1000000}")
+    private long expectedNumbers;
+
+    @Value("${suppression.filter.false.positive.rate:0.01}")
+    private double falsePositiveRate;
+
+    @Value("${suppression.page.size:10000}")
+    private int pageSize;
+
+    // Re-read this far behind the watermark to catch rows committed late with earlier timestamps
+    @Value("${suppression.overlap.seconds:10}")
+    private long overlapSeconds;
+
+    @Value("${suppression.stop.keywords:STOP,STOPALL,UNSUBSCRIBE,CANCEL,END,QUIT}")
+    private Set<String> stopKeywords;
+
+    // Provider statuses meaning the number will never accept messages
+    @Value("${suppression.bounce.statuses:InvalidPhoneNumber,UnsupportedNumberType,UserInBlacklist,DoNotDisturbRejection}")
+    private Set<String> bounceStatuses;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        rebuild();
+        log.info("Suppression filter loaded with {} numbers", suppressedNumberRepository.count());
+    }
+
+    /**
+     * Whether a number is suppressed. A filter miss answers without touching
+     * the database; a hit is confirmed against the exact set.
+     */
+    public boolean isSuppressed(String phone) {
+        String key = PhoneNumbers.key(phone);
+        if (key == null) {
+            return false;
+        }
+        BloomFilter current = filter;
+        if (current != null && !current.mightContain(key)) {
+            return false;
+        }
+        return suppressedNumberRepository.existsByPhone(key);
+    }
+
+    /**
+     * Add a number to the suppression list. Returns false if the number
+     * cannot be normalized.
+     */
+    public boolean suppress(String phone, SuppressedNumber.SuppressionReason reason, String note) {
+        String key = PhoneNumbers.key(phone);
+        if (key == null) {
+            return false;
+        }
+
+        if (!suppressedNumberRepository.existsByPhone(key)) {
+            SuppressedNumber suppressed = new SuppressedNumber();
+            suppressed.setPhone(key);
+            suppressed.setReason(reason);
+            suppressed.setNote(note);
+            try {
+                suppressedNumberRepository.save(suppressed);
+                log.info("Suppressed {} ({})", key, reason);
+            } catch (DataIntegrityViolationException e) {
+                // Suppressed concurrently, possibly on another node
+                log.debug("Number {} already suppressed", key);
+            }
+        }
+
+        BloomFilter current = filter;
+        if (current != null) {
+            current.add(key);
+        }
+        return true;
+    }
+
+    /**
+     * Remove a number from the suppression list. Opt-outs and hard bounces
+     * come from the recipient or the network, so only an admin may lift
+     * them; otherwise only MANUAL blocks are removed. The filter keeps its
+     * bits until the next rebuild, which only costs a database check per send.
+     */
+    public Removal unsuppress(String phone, boolean admin) {
+        String key = PhoneNumbers.key(phone);
+        if (key == null) {
+            return Removal.NOT_SUPPRESSED;
+        }
+        if (admin) {
+            return suppressedNumberRepository.deleteByPhone(key) > 0 ? Removal.REMOVED : Removal.NOT_SUPPRESSED;
+        }
+        if (suppressedNumberRepository.deleteByPhoneAndReason(key, SuppressedNumber.SuppressionReason.MANUAL) > 0) {
+            return Removal.REMOVED;
+        }
+        return suppressedNumberRepository.existsByPhone(key) ? Removal.REFUSED : Removal.NOT_SUPPRESSED;
+    }
+
+    /**
+     * Opt a number out if the message is a STOP keyword. Returns whether it was one.
+     */
+    public boolean optOutIfStopKeyword(String phone, String text) {
+        if (!isStopKeyword(text)) {
+            return false;
+        }
+        return suppress(phone, SuppressedNumber.SuppressionReason.OPT_OUT, text.trim());
+    }
+
+    public boolean isStopKeyword(String text) {
+        return text != null && stopKeywords.contains(text.trim().toUpperCase(Locale.ROOT));
+    }
+
+    /**
+     * Suppress a number whose send was rejected with a permanent status
+     */
+    public void recordRejection(String phone, String status) {
+        if (status != null && bounceStatuses.contains(status)) {
+            suppress(phone, SuppressedNumber.SuppressionReason.HARD_BOUNCE, status);
+        }
+    }
+
+    /**
+     * Add numbers suppressed since the last refresh, including those added on other nodes
+     */
+    @Scheduled(fixedDelayString = "${suppression.refresh.ms:5000}", initialDelayString = "${suppression.refresh.ms:5000}")
+    public synchronized void refresh() {
+        BloomFilter current = filter;
+        if (current == null) {
+            return;
+        }
+
+        LocalDateTime since = watermark.minusSeconds(overlapSeconds);
+        long afterId = 0;
+        int added = 0;
+
+        List<SuppressedNumberRepository.SuppressedKey> page;
+        do {
+            page = suppressedNumberRepository.findKeysCreatedSince(since, afterId, PageRequest.of(0, pageSize));
+            for (SuppressedNumberRepository.SuppressedKey key : page) {
+                current.add(key.getPhone());
+                since = key.getCreatedAt();
+                afterId = key.getId();
+                added++;
+            }
+        } while (page.size() == pageSize);
+
+        if (since.isAfter(watermark)) {
+            watermark = since;
+        }
+        log.debug("Suppression filter refreshed {} numbers", added);
+    }
+
+    /**
+     * Build a new filter from the full table, sized for its current count,
+     * and swap it in. Drops bits left by removed numbers.
+     */
+    @Scheduled(cron = "${suppression.rebuild.cron:0 30 3 * * *}")
+    public synchronized void rebuild() {
+        LocalDateTime started = LocalDateTime.now();
+        long count = suppressedNumberRepository.count();
+        BloomFilter rebuilt = new BloomFilter(Math.max(expectedNumbers, count * 2), falsePositiveRate);
+
+        long afterId = 0;
+        List<SuppressedNumberRepository.SuppressedKey> page;
+        do {
+            page = suppressedNumberRepository.findKeysAfterId(afterId, PageRequest.of(0, pageSize));
+            for (SuppressedNumberRepository.SuppressedKey key : page) {
+                rebuilt.add(key.getPhone());
+                afterId = key.getId();
+            }
+        } while (page.size() == pageSize);
+
+        filter = rebuilt;
+        // Rows committed while the table was being read are picked up by the next refresh
+        if (started.isAfter(watermark)) {
+            watermark = started;
+        }
+        log.debug("Suppression filter rebuilt: {} numbers, {} bits, {} hashes",
+                count, rebuilt.bitCount(), rebuilt.hashCount());
+    }
+
+    public enum Removal {
+        REMOVED, NOT_SUPPRESSED, REFUSED
+    }
+}
@@ -0,0 +1,264 @@
+package com.propman.service.throttle;
+
+import com.propman.entity.SMSLog;
+import com.propman.repository.SMSLogRepository;
+import com.propman.util.PhoneNumbers;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Caps how many messages of each type one phone number receives per rolling
+ * hour and day, so a misfiring integration or a double-run job cannot flood
+ * a tenant. Counters live in memory, spread over independent stripes, and
+ * are topped up from sms_logs so that sends from other nodes count too.
+ * Logs written by this node are remembered until the reconcile passes them,
+ * so they are not counted twice.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class RecipientThrottle {
+
+    private static final long HOUR_MILLIS = TimeUnit.HOURS.toMillis(1);
+    private static final long DAY_MILLIS = TimeUnit.DAYS.toMillis(1);
+
+    // Statuses of messages that reached, or were about to reach, the provider
+    private static final List<SMSLog.SMSStatus> COUNTED_STATUSES = List.of(
+            SMSLog.SMSStatus.SENT, SMSLog.SMSStatus.DELIVERED, SMSLog.SMSStatus.FAILED, SMSLog.SMSStatus.PENDING);
+
+    private final SMSLogRepository smsLogRepository;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${sms.throttle.hourly.limits:RENT_REMINDER:2,OVERDUE_NOTICE:2,PAYMENT_CONFIRMATION:10,WELCOME_MESSAGE:2,CUSTOM:10}")
+    private String hourlyLimits;
+
+    @Value("${sms.throttle.daily.limits:RENT_REMINDER:3,OVERDUE_NOTICE:3,PAYMENT_CONFIRMATION:30,WELCOME_MESSAGE:3,CUSTOM:20}")
+    private String dailyLimits;
+
+    // Buckets per window; the window slides by window/buckets
+    @Value("${sms.throttle.buckets:12}")
+    private int bucketCount;
+
+    @Value("${sms.throttle.stripes:64}")
+    private int stripeCount;
+
+    @Value("${sms.throttle.page.size:5000}")
+    private int pageSize;
+
+    private final Map<SMSLog.SMSType, Counter> throttled = new EnumMap<>(SMSLog.SMSType.class);
+    private Map<SMSLog.SMSType, Integer> hourly;
+    private Map<SMSLog.SMSType, Integer> daily;
+    private List<ConcurrentHashMap<RecipientKey, Windows>> stripes;
+
+    // Ids of logs for sends counted on this node that the reconcile has not reached yet
+    private final Set<Long> localLogIds = ConcurrentHashMap.newKeySet();
+
+    // Last sms_logs id counted from the database; -1 until loaded
+    private volatile long watermark = -1;
+
+    @PostConstruct
+    public void init() {
+        hourly = parseLimits(hourlyLimits);
+        daily = parseLimits(dailyLimits);
+        List<ConcurrentHashMap<RecipientKey, Windows>> created = new ArrayList<>(stripeCount);
+        for (int i = 0; i < stripeCount; i++) {
+            created.add(new ConcurrentHashMap<>());
+        }
+        stripes = List.copyOf(created);
+        for (SMSLog.SMSType type : SMSLog.SMSType.values()) {
+            throttled.put(type, Counter.builder("sms.throttled")
+                    .description("Messages not sent because the recipient reached the per-type limit")
+                    .tag("type", type.name())
+                    .register(meterRegistry));
+        }
+    }
+
+    /**
+     * Count a send to a number if it is within the hourly and daily limits for its type
+     */
+    public boolean tryAcquire(String phone, SMSLog.SMSType type) {
+        return tryAcquire(phone, type, System.currentTimeMillis());
+    }
+
+    boolean tryAcquire(String phone, SMSLog.SMSType type, long nowMillis) {
+        Integer hourlyLimit = hourly.get(type);
+        Integer dailyLimit = daily.get(type);
+        String phoneKey = PhoneNumbers.key(phone);
+        if (hourlyLimit == null && dailyLimit == null || phoneKey == null || phoneKey.isEmpty()) {
+            return true;
+        }
+
+        Windows windows = windowsFor(new RecipientKey(phoneKey, type));
+        long hourBucket = windows.hour != null ? windows.hour.tryAcquire(nowMillis, hourlyLimit) : 0;
+        if (hourBucket >= 0) {
+            if (windows.day == null || windows.day.tryAcquire(nowMillis, dailyLimit) >= 0) {
+                return true;
+            }
+            if (windows.hour != null) {
+                windows.hour.release(hourBucket);
+            }
+        }
+        throttled.get(type).increment();
+        return false;
+    }
+
+    /**
+     * Uncount a send allowed by {@link #tryAcquire} that did not go out
+     */
+    public void release(String phone, SMSLog.SMSType type) {
+        String phoneKey = PhoneNumbers.key(phone);
+        if (!hourly.containsKey(type) && !daily.containsKey(type) || phoneKey == null || phoneKey.isEmpty()) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        Windows windows = windowsFor(new RecipientKey(phoneKey, type));
+        if (windows.hour != null) {
+            windows.hour.releaseAt(now);
+        }
+        if (windows.day != null) {
+            windows.day.releaseAt(now);
+        }
+    }
+
+    /**
+     * Note the log of a send allowed by {@link #tryAcquire}, which is already counted
+     */
+    public void recordLogged(Long logId) {
+        long current = watermark;
+        if (logId != null && current >= 0 && logId > current) {
+            localLogIds.add(logId);
+        }
+    }
+
+    /**
+     * Start counting from the oldest log still inside the daily window
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        LocalDateTime since = LocalDateTime.now().minusDays(1);
+        long firstId = smsLogRepository.findFirstIdSentSince(since);
+        synchronized (this) {
+            watermark = firstId - 1;
+        }
+        reconcile();
+        log.info("Recipient throttle loaded from sms_logs after id {}", firstId - 1);
+    }
+
+    /**
+     * Add sends logged since the last run by other nodes
+     */
+    @Scheduled(fixedDelayString = "${sms.throttle.reconcile.ms:5000}", initialDelayString = "${sms.throttle.reconcile.ms:5000}")
+    public synchronized void reconcile() {
+        if (watermark < 0) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        int counted = 0;
+
+        List<SMSLogRepository.SentKey> page;
+        do {
+            page = smsLogRepository.findSentKeysAfterId(watermark, COUNTED_STATUSES, PageRequest.of(0, pageSize));
+            for (SMSLogRepository.SentKey sent : page) {
+                watermark = sent.getId();
+                if (localLogIds.remove(sent.getId())) {
+                    continue;
+                }
+                String phoneKey = sent.getRecipientPhoneKey();
+                if (phoneKey == null || sent.getSentAt() == null
+                        || !hourly.containsKey(sent.getSmsType()) && !daily.containsKey(sent.getSmsType())) {
+                    continue;
+                }
+                Windows windows = windowsFor(new RecipientKey(phoneKey, sent.getSmsType()));
+                long sentAtMillis = sent.getSentAt().atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+                if (windows.hour != null) {
+                    windows.hour.record(sentAtMillis, now);
+                }
+                if (windows.day != null) {
+                    windows.day.record(sentAtMillis, now);
+                }
+                counted++;
+            }
+        } while (page.size() == pageSize);
+
+        // Logs of sends that did not end up in a counted status
+        long reached = watermark;
+        localLogIds.removeIf(id -> id <= reached);
+        log.debug("Recipient throttle reconciled {} sends from other nodes", counted);
+    }
+
+    /**
+     * Drop counters for numbers with no sends left in their windows
+     */
+    @Scheduled(fixedDelayString = "${sms.throttle.sweep.ms:600000}", initialDelayString = "${sms.throttle.sweep.ms:600000}")
+    public void sweep() {
+        long now = System.currentTimeMillis();
+        int removed = 0;
+        for (ConcurrentHashMap<RecipientKey, Windows> stripe : stripes) {
+            int before = stripe.size();
+            stripe.values().removeIf(windows -> windows.isIdle(now));
+            removed += before - stripe.size();
+        }
+        log.debug("Recipient throttle swept {} idle numbers", removed);
+    }
+
+    int trackedRecipients() {
+        int total = 0;
+        for (ConcurrentHashMap<RecipientKey, Windows> stripe : stripes) {
+            total += stripe.size();
+        }
+        return total;
+    }
+
+    private Windows windowsFor(RecipientKey key) {
+        int hash = key.hashCode();
+        ConcurrentHashMap<RecipientKey, Windows> stripe = stripes.get(((hash ^ (hash >>> 16)) & 0x7fffffff) % stripes.size());
+        Windows windows = stripe.get(key);
+        if (windows != null) {
+            return windows;
+        }
+        return stripe.computeIfAbsent(key, k -> new Windows(
+                hourly.containsKey(k.type()) ? new SlidingWindowCounter(HOUR_MILLIS, bucketCount) : null,
+                daily.containsKey(k.type()) ? new SlidingWindowCounter(DAY_MILLIS, bucketCount) : null));
+    }
+
+    static Map<SMSLog.SMSType, Integer> parseLimits(String values) {
+        Map<SMSLog.SMSType, Integer> parsed = new EnumMap<>(SMSLog.SMSType.class);
+        if (values == null || values.isBlank()) {
+            return parsed;
+        }
+        for (String entry : values.split(",")) {
+            String[] parts = entry.trim().split(":");
+            parsed.put(SMSLog.SMSType.valueOf(parts[0].trim()), Integer.parseInt(parts[1].trim()));
+        }
+        return parsed;
+    }
+
+    private record RecipientKey(String phoneKey, SMSLog.SMSType type) {
+    }
+
+    private record Windows(SlidingWindowCounter hour, SlidingWindowCounter day) {
+
+        boolean isIdle(long nowMillis) {
+            return (hour == null || hour.isIdle(nowMillis)) && (day == null || day.isIdle(nowMillis));
+        }
+    }
+}
@@ -0,0 +1,107 @@
+package com.propman.service.throttle;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Approximate sliding-window counter split into fixed buckets. Each bucket
+ * is one long holding its bucket number and count, updated by CAS, so
+ * acquiring and reading never lock or allocate. The window slides one
+ * bucket at a time.
+ */
+final class SlidingWindowCounter {
+
+    private static final int COUNT_BITS = 20;
+    private static final long COUNT_MASK = (1L << COUNT_BITS) - 1;
+
+    private final long bucketMillis;
+    private final int buckets;
+    private final AtomicLongArray slots;
+
+    SlidingWindowCounter(long windowMillis, int buckets) {
+        this.buckets = buckets;
+        this.bucketMillis = Math.max(1, windowMillis / buckets);
+        this.slots = new AtomicLongArray(buckets);
+    }
+
+    /**
+     * Count a send if it stays within the limit. Returns the bucket it was
+     * counted in, for {@link #release}, or -1 if the limit is reached.
+     */
+    long tryAcquire(long nowMillis, int limit) {
+        long bucket = nowMillis / bucketMillis;
+        add(bucket, 1);
+        // Count first, then check, so concurrent sends cannot both take the last slot
+        if (count(nowMillis) > limit) {
+            add(bucket, -1);
+            return -1;
+        }
+        return bucket;
+    }
+
+    void release(long bucket) {
+        add(bucket, -1);
+    }
+
+    /**
+     * Undo a send counted moments ago, from the bucket current at nowMillis
+     */
+    void releaseAt(long nowMillis) {
+        add(nowMillis / bucketMillis, -1);
+    }
+
+    /**
+     * Count a send made elsewhere, if it is still inside the window
+     */
+    void record(long sentAtMillis, long nowMillis) {
+        long bucket = sentAtMillis / bucketMillis;
+        if (nowMillis / bucketMillis - bucket < buckets) {
+            add(bucket, 1);
+        }
+    }
+
+    int count(long nowMillis) {
+        long current = nowMillis / bucketMillis;
+        int total = 0;
+        for (int i = 0; i < buckets; i++) {
+            total += countIn(slots.get(i), current);
+        }
+        return total;
+    }
+
+    boolean isIdle(long nowMillis) {
+        return count(nowMillis) == 0;
+    }
+
+    private int countIn(long slot, long current) {
+        long bucket = slot >>> COUNT_BITS;
+        return current - bucket < buckets ? (int) (slot & COUNT_MASK) : 0;
+    }
+
+    private void add(long bucket, int delta) {
+        int index = (int) (bucket % buckets);
+        while (true) {
+            long slot = slots.get(index);
+            long slotBucket = slot >>> COUNT_BITS;
+            long next;
+            if (slotBucket == bucket) {
+                long count = (slot & COUNT_MASK) + delta;
+                if (count < 0 || count > COUNT_MASK) {
+                    return;
+                }
+                next = (bucket << COUNT_BITS) | count;
+            } else if (slotBucket < bucket) {
+                // The slot holds a bucket that has left the window
+                if (delta < 0) {
+                    return;
+                }
+                next = (bucket << COUNT_BITS) | delta;
+            } else {
+                // A newer bucket already took the slot; this one has left the window
+                return;
+            }
+            if (slots.compareAndSet(index, slot, next)) {
+                return;
+            }
+        }
+    }
+}
@@ -0,0 +1,113 @@
+package com.propman.service.tracing;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Writes finished spans as JSON lines to tracing.export.file on its own
+ * thread, for a local collector to tail. Spans are queued without blocking
+ * the thread that finished them; when the queue is full they are dropped
+ * and counted in tracing.spans.dropped.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class SpanFileExporter {
+
+    private final ObjectMapper objectMapper;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${tracing.enabled:true}")
+    private boolean enabled;
+
+    @Value("${tracing.export.file:logs/traces.jsonl}")
+    private String file;
+
+    @Value("${tracing.export.queue.capacity:10000}")
+    private int queueCapacity;
+
+    private BlockingQueue<Map<String, Object>> queue;
+    private Counter dropped;
+    private Thread writerThread;
+    private volatile boolean running;
+
+    @PostConstruct
+    public void start() {
+        queue = new ArrayBlockingQueue<>(queueCapacity);
+        dropped = Counter.builder("tracing.spans.dropped")
+                .description("Spans dropped because the export queue was full")
+                .register(meterRegistry);
+        if (!enabled) {
+            return;
+        }
+        running = true;
+        writerThread = new Thread(this::writeLoop, "trace-exporter");
+        writerThread.setDaemon(true);
+        writerThread.start();
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        running = false;
+        if (writerThread != null) {
+            writerThread.join(5000);
+        }
+    }
+
+    public void export(Map<String, Object> span) {
+        if (!queue.offer(span)) {
+            dropped.increment();
+        }
+    }
+
+    private void writeLoop() {
+        Path path = Path.of(file);
+        List<Map<String, Object>> batch = new ArrayList<>();
+        try {
+            if (path.getParent() != null) {
+                Files.createDirectories(path.getParent());
+            }
+            try (BufferedWriter writer = Files.newBufferedWriter(path, StandardCharsets.UTF_8,
+                    StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
+                while (running || !queue.isEmpty()) {
+                    Map<String, Object> first = queue.poll(1, TimeUnit.SECONDS);
+                    if (first == null) {
+                        continue;
+                    }
+                    batch.add(first);
+                    queue.drainTo(batch);
+                    for (Map<String, Object> span : batch) {
+                        writer.write(objectMapper.writeValueAsString(span));
+                        writer.newLine();
+                    }
+                    writer.flush();
+                    batch.clear();
+                }
+            }
+        } catch (IOException e) {
+            log.error("Span export to {} stopped: {}", path, e.getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,175 @@
+package com.propman.service.tracing;
+
+import io.micrometer.common.KeyValue;
+import io.micrometer.observation.Observation;
+import io.micrometer.observation.ObservationHandler;
+import io.micrometer.observation.ObservationView;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Turns observations into trace spans. Every observation started while
+ * another is current on the thread becomes its child, so one trace covers a
+ * request or scheduler run from the controller through the provider call
+ * and the repository writes, including work handed to executors and the
+ * dispatcher queue.
+ * <p>
+ * Traces are sampled at the root: tracing.sampling.probability of them are
+ * exported as their spans finish. With tracing.tail.slow.ms set, the spans
+ * of the other traces are held on the trace until its root finishes, and
+ * the trace is exported anyway if the root was slow or any span failed.
+ */
+@Component
+@RequiredArgsConstructor
+public class SpanRecorder implements ObservationHandler<Observation.Context> {
+
+    private final SpanFileExporter exporter;
+
+    @Value("${tracing.enabled:true}")
+    private boolean enabled;
+
+    @Value("${tracing.sampling.probability:0.05}")
+    private double samplingProbability;
+
+    // Unsampled traces whose root takes this long are kept; 0 disables tail sampling
+    @Value("${tracing.tail.slow.ms:2000}")
+    private long tailSlowMillis;
+
+    // Spans held per unsampled trace; a long scheduler run keeps only its first spans
+    @Value("${tracing.tail.max.spans:500}")
+    private int tailMaxSpans;
+
+    @Override
+    public boolean supportsContext(Observation.Context context) {
+        return enabled;
+    }
+
+    @Override
+    public void onStart(Observation.Context context) {
+        Span parent = parentSpan(context);
+        Span span = parent != null
+                ? new Span(parent.trace, randomId(), parent.spanId)
+                : new Span(new Trace(randomId() + randomId(), ThreadLocalRandom.current().nextDouble() < samplingProbability), randomId(), null);
+        context.put(Span.class, span);
+    }
+
+    @Override
+    public void onError(Observation.Context context) {
+        Span span = context.get(Span.class);
+        if (span != null) {
+            span.trace.error = true;
+        }
+    }
+
+    @Override
+    public void onStop(Observation.Context context) {
+        Span span = context.get(Span.class);
+        if (span == null) {
+            return;
+        }
+        long durationNanos = System.nanoTime() - span.startNanos;
+        Trace trace = span.trace;
+        if (!trace.sampled && tailSlowMillis <= 0) {
+            return;
+        }
+
+        Map<String, Object> record = toRecord(span, context, durationNanos);
+        if (trace.sampled) {
+            exporter.export(record);
+            return;
+        }
+
+        List<Map<String, Object>> kept;
+        synchronized (trace) {
+            if (trace.kept == null) {
+                if (span.parentSpanId != null) {
+                    if (trace.buffered.size() < tailMaxSpans) {
+                        trace.buffered.add(record);
+                    }
+                    return;
+                }
+                trace.kept = trace.error || durationNanos >= TimeUnit.MILLISECONDS.toNanos(tailSlowMillis);
+                kept = trace.buffered;
+                kept.add(record);
+                trace.buffered = null;
+            } else {
+                // Finished after its root, e.g. a queued send; follows the root's decision
+                kept = List.of(record);
+            }
+            if (!trace.kept) {
+                return;
+            }
+        }
+        kept.forEach(exporter::export);
+    }
+
+    private static Span parentSpan(Observation.Context context) {
+        ObservationView parent = context.getParentObservation();
+        return parent != null ? parent.getContextView().get(Span.class) : null;
+    }
+
+    private static Map<String, Object> toRecord(Span span, Observation.Context context, long durationNanos) {
+        Map<String, Object> attributes = new LinkedHashMap<>();
+        for (KeyValue keyValue : context.getAllKeyValues()) {
+            attributes.put(keyValue.getKey(), keyValue.getValue());
+        }
+
+        Map<String, Object> record = new LinkedHashMap<>();
+        record.put("traceId", span.trace.traceId);
+        record.put("spanId", span.spanId);
+        if (span.parentSpanId != null) {
+            record.put("parentSpanId", span.parentSpanId);
+        }
+        record.put("name", context.getContextualName() != null ? context.getContextualName() : context.getName());
+        record.put("startTimeUnixNano", span.startEpochNanos);
+        record.put("endTimeUnixNano", span.startEpochNanos + durationNanos);
+        record.put("attributes", attributes);
+        if (context.getError() != null) {
+            record.put("status", "ERROR");
+            record.put("error", String.valueOf(context.getError().getMessage()));
+        }
+        return record;
+    }
+
+    private static String randomId() {
+        String hex = Long.toHexString(ThreadLocalRandom.current().nextLong());
+        return hex.length() == 16 ? hex : "0".repeat(16 - hex.length()) + hex;
+    }
+
+    private static final class Span {
+        final Trace trace;
+        final String spanId;
+        final String parentSpanId;
+        final long startNanos = System.nanoTime();
+        final long startEpochNanos = TimeUnit.MILLISECONDS.toNanos(System.currentTimeMillis());
+
+        Span(Trace trace, String spanId, String parentSpanId) {
+            this.trace = trace;
+            this.spanId = spanId;
+            this.parentSpanId = parentSpanId;
+        }
+    }
+
+    private static final class Trace {
+        final String traceId;
+        final boolean sampled;
+        volatile boolean error;
+
+        // Guarded by this; spans of an unsampled trace waiting for the root's decision
+        List<Map<String, Object>> buffered = new ArrayList<>();
+        Boolean kept;
+
+        Trace(String traceId, boolean sampled) {
+            this.traceId = traceId;
+            this.sampled = sampled;
+        }
+    }
+}
@@ -0,0 +1,51 @@
+package com.propman.util;
+
+/**
+ * The one phone number normalizer, so that suppression, throttling, SMS log
+ * search, inbound replies and payment matching all key a number the same
+ * way. Runs for every message, so it avoids regexes.
+ */
+public final class PhoneNumbers {
+
+    // E.164 numbers have at most 15 digits
+    private static final int MAX_DIGITS = 15;
+
+    private PhoneNumbers() {
+    }
+
+    /**
+     * Normalize a number to 2547XXXXXXXX / 2541XXXXXXXX. Other numbers keep
+     * their digits, up to 15; null if there are none.
+     */
+    public static String key(String phone) {
+        if (phone == null) {
+            return null;
+        }
+        StringBuilder digits = new StringBuilder(12);
+        for (int i = 0; i < phone.length() && digits.length() < MAX_DIGITS + 1; i++) {
+            char c = phone.charAt(i);
+            if (c >= '0' && c <= '9') {
+                digits.append(c);
+            }
+        }
+
+        int length = digits.length();
+        if (length == 10 && digits.charAt(0) == '0') {
+            return "254" + digits.substring(1);
+        } else if (length == 9) {
+            return "254" + digits;
+        }
+        if (length == 0) {
+            return null;
+        }
+        return length > MAX_DIGITS ? digits.substring(0, MAX_DIGITS) : digits.toString();
+    }
+
+    /**
+     * The key of a Kenyan number, or null if it is not one (e.g. a masked MSISDN)
+     */
+    public static String kenyanKey(String phone) {
+        String key = key(phone);
+        return key != null && key.length() == 12 && key.startsWith("254") ? key : null;
+    }
+}
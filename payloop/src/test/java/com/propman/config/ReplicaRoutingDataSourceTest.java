@@ -0,0 +1,138 @@
+package com.propman.config;
+
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Routes between two independent in-memory databases standing in for a
+ * primary and a replica. Replication of the heartbeat row is simulated by
+ * copying it by hand.
+ */
+class ReplicaRoutingDataSourceTest {
+
+    private JdbcTemplate primaryJdbc;
+    private JdbcTemplate replicaJdbc;
+    private ReplicaRoutingDataSource routing;
+    private ReplicaLagMonitor monitor;
+    private JdbcTemplate jdbc;
+    private TransactionTemplate readOnly;
+    private TransactionTemplate readWrite;
+
+    @BeforeEach
+    void setUp() {
+        DataSource primary = database("primary");
+        DataSource replica = database("replica");
+        primaryJdbc = new JdbcTemplate(primary);
+        replicaJdbc = new JdbcTemplate(replica);
+        replicaJdbc.execute("CREATE TABLE replica_heartbeat (id INT PRIMARY KEY, beat_millis BIGINT NOT NULL)");
+
+        routing = new ReplicaRoutingDataSource(primary, List.of(replica));
+        monitor = new ReplicaLagMonitor(routing, 5000);
+        monitor.init();
+
+        DataSource dataSource = new LazyConnectionDataSourceProxy(routing);
+        jdbc = new JdbcTemplate(dataSource);
+        DataSourceTransactionManager transactionManager = new DataSourceTransactionManager(dataSource);
+        readOnly = new TransactionTemplate(transactionManager);
+        readOnly.setReadOnly(true);
+        readWrite = new TransactionTemplate(transactionManager);
+    }
+
+    @AfterEach
+    void tearDown() {
+        ReplicaRoutingDataSource.endRequest();
+        primaryJdbc.execute("DROP ALL OBJECTS");
+        replicaJdbc.execute("DROP ALL OBJECTS");
+    }
+
+    @Test
+    void testReplicaIsUnusedUntilItCatchesUp() {
+        // The replica has no heartbeat yet
+        assertEquals("primary", readOnly.execute(status -> whoAnswered()));
+
+        replicate();
+        assertEquals("replica", readOnly.execute(status -> whoAnswered()));
+    }
+
+    @Test
+    void testWritesAndNonTransactionalReadsUsePrimary() {
+        replicate();
+
+        assertEquals("primary", readWrite.execute(status -> whoAnswered()));
+        assertEquals("primary", whoAnswered());
+    }
+
+    @Test
+    void testLaggingReplicaFallsBackToPrimary() {
+        replicate();
+        assertEquals("replica", readOnly.execute(status -> whoAnswered()));
+
+        replicaJdbc.update("UPDATE replica_heartbeat SET beat_millis = ?", System.currentTimeMillis() - 10_000);
+        monitor.check();
+
+        assertEquals("primary", readOnly.execute(status -> whoAnswered()));
+    }
+
+    @Test
+    void testWriteInRequestPinsLaterReadsToPrimary() {
+        replicate();
+        ReplicaRoutingDataSource.beginRequest(false);
+
+        assertEquals("replica", readOnly.execute(status -> whoAnswered()));
+        readWrite.execute(status -> whoAnswered());
+        assertEquals("primary", readOnly.execute(status -> whoAnswered()));
+
+        // Pinning ends with the request
+        ReplicaRoutingDataSource.endRequest();
+        assertEquals("replica", readOnly.execute(status -> whoAnswered()));
+    }
+
+    @Test
+    void testRequestCanAskForPrimaryUpFront() {
+        replicate();
+        ReplicaRoutingDataSource.beginRequest(true);
+
+        assertEquals("primary", readOnly.execute(status -> whoAnswered()));
+    }
+
+    @Test
+    void testWritesOutsideRequestsDoNotPin() {
+        replicate();
+
+        readWrite.execute(status -> whoAnswered());
+
+        assertEquals("replica", readOnly.execute(status -> whoAnswered()));
+    }
+
+    private String whoAnswered() {
+        return jdbc.queryForObject("SELECT name FROM db_marker", String.class);
+    }
+
+    private void replicate() {
+        monitor.check();
+        Long beat = primaryJdbc.queryForObject("SELECT beat_millis FROM replica_heartbeat WHERE id = 1", Long.class);
+        replicaJdbc.update("MERGE INTO replica_heartbeat (id, beat_millis) KEY (id) VALUES (1, ?)", beat);
+        monitor.check();
+    }
+
+    private static DataSource database(String name) {
+        JdbcDataSource dataSource = new JdbcDataSource();
+        dataSource.setURL("jdbc:h2:mem:" + name + ";DB_CLOSE_DELAY=-1");
+        dataSource.setUser("sa");
+        JdbcTemplate jdbc = new JdbcTemplate(dataSource);
+        jdbc.execute("CREATE TABLE db_marker (name VARCHAR(20))");
+        jdbc.update("INSERT INTO db_marker VALUES (?)", name);
+        return dataSource;
+    }
+}
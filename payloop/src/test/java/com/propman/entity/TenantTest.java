@@ -0,0 +1,96 @@
+package com.propman.entity;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TenantTest {
+
+    @Test
+    void dueDayPastMonthEndFallsOnLastDay() {
+        assertEquals(LocalDate.of(2024, 2, 29), Tenant.dueDateOnOrAfter(LocalDate.of(2024, 2, 10), 31));
+        assertEquals(LocalDate.of(2023, 2, 28), Tenant.dueDateOnOrAfter(LocalDate.of(2023, 2, 10), 30));
+        assertEquals(LocalDate.of(2024, 4, 30), Tenant.dueDateOnOrBefore(LocalDate.of(2024, 5, 15), 31));
+    }
+
+    @Test
+    void dueDateOnOrAfterRollsToNextMonthOnceDayHasPassed() {
+        assertEquals(LocalDate.of(2024, 3, 5), Tenant.dueDateOnOrAfter(LocalDate.of(2024, 3, 5), 5));
+        assertEquals(LocalDate.of(2024, 4, 5), Tenant.dueDateOnOrAfter(LocalDate.of(2024, 3, 6), 5));
+        // Clamped date already passed in February, so March's full day is next
+        assertEquals(LocalDate.of(2024, 3, 31), Tenant.dueDateOnOrAfter(LocalDate.of(2024, 2, 29).plusDays(1), 31));
+    }
+
+    @Test
+    void dueDateOnOrBeforeRollsToPreviousMonthBeforeDay() {
+        assertEquals(LocalDate.of(2024, 3, 5), Tenant.dueDateOnOrBefore(LocalDate.of(2024, 3, 5), 5));
+        assertEquals(LocalDate.of(2024, 2, 5), Tenant.dueDateOnOrBefore(LocalDate.of(2024, 3, 4), 5));
+    }
+
+    @Test
+    void advanceKeepsDueDayAfterShortMonth() {
+        Tenant tenant = tenant("1000", LocalDate.of(2024, 1, 31));
+
+        tenant.advanceNextDueDate(1);
+        assertEquals(LocalDate.of(2024, 2, 29), tenant.getNextDueDate());
+
+        tenant.advanceNextDueDate(1);
+        assertEquals(LocalDate.of(2024, 3, 31), tenant.getNextDueDate());
+    }
+
+    @Test
+    void fullPaymentsAdvanceByEveryPeriodCovered() {
+        Tenant tenant = tenant("1000", LocalDate.of(2024, 3, 5));
+
+        tenant.applyPayment(new BigDecimal("2500"), LocalDate.of(2024, 3, 4));
+
+        assertEquals(LocalDate.of(2024, 3, 4), tenant.getLastPaymentDate());
+        assertEquals(LocalDate.of(2024, 5, 5), tenant.getNextDueDate());
+        assertEquals(0, new BigDecimal("500").compareTo(tenant.getPaidTowardsNextDue()));
+    }
+
+    @Test
+    void partialPaymentsAddUpToAPeriod() {
+        Tenant tenant = tenant("1000", LocalDate.of(2024, 3, 5));
+
+        tenant.applyPayment(new BigDecimal("400"), LocalDate.of(2024, 3, 1));
+        tenant.applyPayment(new BigDecimal("400"), LocalDate.of(2024, 3, 3));
+        assertEquals(LocalDate.of(2024, 3, 5), tenant.getNextDueDate());
+
+        tenant.applyPayment(new BigDecimal("400"), LocalDate.of(2024, 3, 5));
+        assertEquals(LocalDate.of(2024, 4, 5), tenant.getNextDueDate());
+        assertEquals(0, new BigDecimal("200").compareTo(tenant.getPaidTowardsNextDue()));
+    }
+
+    @Test
+    void missingPaidBalanceCountsAsZero() {
+        Tenant tenant = tenant("1000", LocalDate.of(2024, 3, 5));
+        tenant.setPaidTowardsNextDue(null);
+
+        tenant.applyPayment(new BigDecimal("1000"), LocalDate.of(2024, 3, 5));
+
+        assertEquals(LocalDate.of(2024, 4, 5), tenant.getNextDueDate());
+        assertEquals(0, BigDecimal.ZERO.compareTo(tenant.getPaidTowardsNextDue()));
+    }
+
+    @Test
+    void paymentBeforeBackfillOnlyRecordsDate() {
+        Tenant tenant = tenant("1000", null);
+
+        tenant.applyPayment(new BigDecimal("1000"), LocalDate.of(2024, 3, 5));
+
+        assertEquals(LocalDate.of(2024, 3, 5), tenant.getLastPaymentDate());
+        assertNull(tenant.getNextDueDate());
+    }
+
+    private Tenant tenant(String rent, LocalDate nextDueDate) {
+        Tenant tenant = new Tenant();
+        tenant.setRentAmount(new BigDecimal(rent));
+        tenant.setDueDate(nextDueDate != null ? nextDueDate.getDayOfMonth() : 5);
+        tenant.setNextDueDate(nextDueDate);
+        return tenant;
+    }
+}
@@ -0,0 +1,195 @@
+package com.propman.service;
+
+import com.propman.dto.CampaignPreview;
+import com.propman.dto.CampaignRequest;
+import com.propman.dto.CampaignSegment;
+import com.propman.entity.Landlord;
+import com.propman.entity.SMSLog;
+import com.propman.entity.Tenant;
+import com.propman.repository.TenantRepository;
+import com.propman.service.dispatch.Admission;
+import com.propman.service.dispatch.Lane;
+import com.propman.service.dispatch.OutboundDispatcher;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.function.BooleanSupplier;
+import java.util.stream.LongStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class CampaignServiceTest {
+
+    @Mock
+    private TenantRepository tenantRepository;
+
+    @Mock
+    private SMSService smsService;
+
+    @Mock
+    private OutboundDispatcher dispatcher;
+
+    private CampaignService campaignService;
+
+    private final CampaignSegment segment = new CampaignSegment();
+
+    private final Landlord first = landlord(1L);
+
+    private final Landlord second = landlord(2L);
+
+    @BeforeEach
+    void setUp() {
+        campaignService = new CampaignService(tenantRepository, smsService, dispatcher);
+        ReflectionTestUtils.setField(campaignService, "pageSize", 3);
+        ReflectionTestUtils.setField(campaignService, "previewSampleSize", 2);
+    }
+
+    @Test
+    void launchPagesBySegmentKeyUntilAShortPage() throws Exception {
+        when(tenantRepository.findSegmentPage(segment, 0, 3)).thenReturn(tenants(first, 1, 2, 3));
+        when(tenantRepository.findSegmentPage(segment, 3, 3)).thenReturn(tenants(first, 4, 5, 6));
+        when(tenantRepository.findSegmentPage(segment, 6, 3)).thenReturn(tenants(first, 7));
+        when(dispatcher.submit(any(), any(SMSLog.SMSType.class), any())).thenReturn(Admission.QUEUED);
+
+        campaignService.launch(request("Hi {name}"));
+
+        verify(tenantRepository, times(3)).findSegmentPage(eq(segment), anyLong(), eq(3));
+        verify(dispatcher, times(7)).submit(eq(first), eq(SMSLog.SMSType.CUSTOM), any());
+    }
+
+    @Test
+    void launchStopsAfterAnEmptyPage() throws Exception {
+        when(tenantRepository.findSegmentPage(segment, 0, 3)).thenReturn(tenants(first, 1, 2, 3));
+        when(tenantRepository.findSegmentPage(segment, 3, 3)).thenReturn(List.of());
+        when(dispatcher.submit(any(), any(SMSLog.SMSType.class), any())).thenReturn(Admission.QUEUED);
+
+        campaignService.launch(request("Hi {name}"));
+
+        verify(tenantRepository, times(2)).findSegmentPage(eq(segment), anyLong(), eq(3));
+        verify(dispatcher, times(3)).submit(any(), any(SMSLog.SMSType.class), any());
+    }
+
+    @Test
+    void submittedSendRendersTheTemplateForItsTenant() throws Exception {
+        List<Tenant> page = tenants(first, 1);
+        when(tenantRepository.findSegmentPage(segment, 0, 3)).thenReturn(page);
+        when(dispatcher.submit(any(), any(SMSLog.SMSType.class), any())).thenAnswer(inv -> {
+            inv.<BooleanSupplier>getArgument(2).getAsBoolean();
+            return Admission.QUEUED;
+        });
+
+        campaignService.launch(request("Hi {name}"));
+
+        verify(smsService).sendCampaignMessage(page.get(0), "Hi {name}");
+    }
+
+    @Test
+    void nextPageWaitsForEachLandlordsBacklog() throws Exception {
+        List<Tenant> page = List.of(tenant(1, first), tenant(2, second), tenant(3, first));
+        when(tenantRepository.findSegmentPage(segment, 0, 3)).thenReturn(page);
+        when(tenantRepository.findSegmentPage(segment, 3, 3)).thenReturn(List.of());
+        when(dispatcher.submit(any(), any(SMSLog.SMSType.class), any())).thenReturn(Admission.QUEUED);
+
+        campaignService.launch(request("Hi {name}"));
+
+        InOrder inOrder = inOrder(dispatcher, tenantRepository);
+        inOrder.verify(dispatcher, times(3)).submit(any(), any(SMSLog.SMSType.class), any());
+        inOrder.verify(dispatcher).awaitBacklogBelow(1L, 6);
+        inOrder.verify(tenantRepository).findSegmentPage(segment, 3, 3);
+        verify(dispatcher).awaitBacklogBelow(2L, 6);
+    }
+
+    @Test
+    void refusedSendsDoNotStopTheCampaign() throws Exception {
+        when(tenantRepository.findSegmentPage(segment, 0, 3)).thenReturn(tenants(first, 1, 2));
+        when(dispatcher.submit(any(), any(SMSLog.SMSType.class), any()))
+                .thenReturn(Admission.QUOTA_EXCEEDED, Admission.QUEUED);
+
+        campaignService.launch(request("Hi {name}"));
+
+        verify(dispatcher, times(2)).submit(any(), any(SMSLog.SMSType.class), any());
+    }
+
+    @Test
+    void rentRemindersAreQueuedOnTheBulkLaneAndRefusalsCounted() {
+        List<Tenant> tenants = tenants(first, 1, 2, 3);
+        when(dispatcher.submit(any(), any(Lane.class), any())).thenAnswer(inv -> {
+            inv.<BooleanSupplier>getArgument(2).getAsBoolean();
+            return Admission.QUEUED;
+        }).thenReturn(Admission.QUOTA_EXCEEDED, Admission.QUEUED);
+
+        assertEquals(2, campaignService.queueRentReminders(tenants, 5));
+
+        verify(dispatcher, times(3)).submit(eq(first), eq(Lane.BULK), any());
+        verify(smsService).sendRentReminder(tenants.get(0), 5);
+    }
+
+    @Test
+    void previewScalesSampledRenderedCostToRecipientCount() {
+        List<Tenant> sample = tenants(first, 1, 2);
+        when(tenantRepository.countBySegment(segment)).thenReturn(10L);
+        when(tenantRepository.findSegmentPage(segment, 0, 2)).thenReturn(sample);
+        when(smsService.estimateCampaignCost(sample.get(0), "Hi {name}")).thenReturn(new BigDecimal("1.00"));
+        when(smsService.estimateCampaignCost(sample.get(1), "Hi {name}")).thenReturn(new BigDecimal("2.00"));
+
+        CampaignPreview preview = campaignService.preview(request("Hi {name}"));
+
+        assertEquals(10, preview.getRecipientCount());
+        assertEquals(new BigDecimal("15.00"), preview.getEstimatedCost());
+    }
+
+    @Test
+    void previewOfSmallSegmentIsExact() {
+        List<Tenant> sample = tenants(first, 1);
+        when(tenantRepository.countBySegment(segment)).thenReturn(1L);
+        when(tenantRepository.findSegmentPage(segment, 0, 2)).thenReturn(sample);
+        when(smsService.estimateCampaignCost(sample.get(0), "Hi {name}")).thenReturn(new BigDecimal("0.90"));
+
+        assertEquals(new BigDecimal("0.90"), campaignService.preview(request("Hi {name}")).getEstimatedCost());
+    }
+
+    @Test
+    void previewOfEmptySegmentCostsNothing() {
+        when(tenantRepository.countBySegment(segment)).thenReturn(0L);
+
+        CampaignPreview preview = campaignService.preview(request("Hi {name}"));
+
+        assertEquals(0, preview.getRecipientCount());
+        assertEquals(BigDecimal.ZERO, preview.getEstimatedCost());
+        verify(tenantRepository, never()).findSegmentPage(any(), anyLong(), anyInt());
+    }
+
+    private CampaignRequest request(String message) {
+        CampaignRequest request = new CampaignRequest();
+        request.setSegment(segment);
+        request.setMessage(message);
+        return request;
+    }
+
+    private List<Tenant> tenants(Landlord landlord, long... ids) {
+        return LongStream.of(ids).mapToObj(id -> tenant(id, landlord)).toList();
+    }
+
+    private Tenant tenant(long id, Landlord landlord) {
+        Tenant tenant = new Tenant();
+        tenant.setId(id);
+        tenant.setLandlord(landlord);
+        return tenant;
+    }
+
+    private Landlord landlord(Long id) {
+        Landlord landlord = new Landlord();
+        landlord.setId(id);
+        return landlord;
+    }
+}
@@ -0,0 +1,168 @@
+package com.propman.service;
+
+import com.propman.dto.DashboardSummary;
+import com.propman.dto.TenantStatusChanges;
+import com.propman.entity.Tenant;
+import com.propman.repository.PaymentRepository;
+import com.propman.repository.PropertyRepository;
+import com.propman.repository.TenantRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class DashboardServiceTest {
+
+    @Mock
+    private PropertyRepository propertyRepository;
+
+    @Mock
+    private TenantRepository tenantRepository;
+
+    @Mock
+    private PaymentRepository paymentRepository;
+
+    private DashboardService dashboardService;
+
+    @BeforeEach
+    void setUp() {
+        dashboardService = new DashboardService(propertyRepository, tenantRepository, paymentRepository);
+        ReflectionTestUtils.setField(dashboardService, "ttlSeconds", 60L);
+        ReflectionTestUtils.setField(dashboardService, "maxEntries", 100);
+
+        when(propertyRepository.findTotalsByLandlordId(1L)).thenReturn(List.of(
+                totals(10L, "Kilimani Court", 10, "15000.00"),
+                totals(11L, "Riverside", 4, null)));
+        when(tenantRepository.summarizeOccupancy(eq(1L), anyCollection(), eq(Tenant.TenantStatus.DEFAULTER)))
+                .thenReturn(List.of(occupancy(10L, 8L, 2L, "200000.00")));
+        when(paymentRepository.sumCollectedByProperty(eq(1L), any(), any()))
+                .thenReturn(List.of(collection(10L, "120000.00")));
+    }
+
+    @Test
+    void summaryCombinesPropertyTenantAndPaymentTotals() {
+        DashboardSummary summary = dashboardService.getSummary(1L);
+
+        assertEquals(2, summary.getTotalProperties());
+        assertEquals(14, summary.getTotalUnits());
+        assertEquals(8, summary.getOccupiedUnits());
+        assertEquals(57.1, summary.getOccupancyRate());
+        assertEquals(new BigDecimal("200000.00"), summary.getExpectedMonthlyRent());
+        assertEquals(new BigDecimal("120000.00"), summary.getCollectedThisMonth());
+        assertEquals(new BigDecimal("15000.00"), summary.getOutstanding());
+        assertEquals(2, summary.getDefaulters());
+
+        DashboardSummary.PropertySummary empty = summary.getProperties().get(1);
+        assertEquals("Riverside", empty.getName());
+        assertEquals(0, empty.getOccupiedUnits());
+        assertEquals(0.0, empty.getOccupancyRate());
+        assertEquals(BigDecimal.ZERO, empty.getOutstanding());
+    }
+
+    @Test
+    void summaryIsCachedUntilEvicted() {
+        DashboardSummary first = dashboardService.getSummary(1L);
+        assertSame(first, dashboardService.getSummary(1L));
+        verify(propertyRepository, times(1)).findTotalsByLandlordId(1L);
+
+        dashboardService.evict(1L);
+
+        assertNotSame(first, dashboardService.getSummary(1L));
+        verify(propertyRepository, times(2)).findTotalsByLandlordId(1L);
+    }
+
+    @Test
+    void statusChangesEvictAffectedLandlords() {
+        dashboardService.getSummary(1L);
+
+        dashboardService.onStatusChanges(new TenantStatusChanges(LocalDateTime.now(), List.of(
+                new TenantStatusChanges.Change(5L, 1L, Tenant.TenantStatus.DEFAULTER, 3))));
+        dashboardService.getSummary(1L);
+
+        verify(tenantRepository, times(2)).summarizeOccupancy(eq(1L), anyCollection(), any());
+    }
+
+    @Test
+    void expiredSummaryIsRecomputed() {
+        ReflectionTestUtils.setField(dashboardService, "ttlSeconds", 0L);
+
+        dashboardService.getSummary(1L);
+        dashboardService.getSummary(1L);
+
+        verify(paymentRepository, times(2)).sumCollectedByProperty(eq(1L), any(), any());
+    }
+
+    private static PropertyRepository.PropertyTotals totals(Long id, String name, Integer units, String outstanding) {
+        return new PropertyRepository.PropertyTotals() {
+            @Override
+            public Long getId() {
+                return id;
+            }
+
+            @Override
+            public String getName() {
+                return name;
+            }
+
+            @Override
+            public Integer getTotalUnits() {
+                return units;
+            }
+
+            @Override
+            public BigDecimal getOutstandingPayments() {
+                return outstanding != null ? new BigDecimal(outstanding) : null;
+            }
+        };
+    }
+
+    private static TenantRepository.PropertyOccupancy occupancy(Long propertyId, Long occupied, Long defaulters,
+                                                                String expectedRent) {
+        return new TenantRepository.PropertyOccupancy() {
+            @Override
+            public Long getPropertyId() {
+                return propertyId;
+            }
+
+            @Override
+            public Long getOccupiedUnits() {
+                return occupied;
+            }
+
+            @Override
+            public Long getDefaulters() {
+                return defaulters;
+            }
+
+            @Override
+            public BigDecimal getExpectedRent() {
+                return new BigDecimal(expectedRent);
+            }
+        };
+    }
+
+    private static PaymentRepository.PropertyCollection collection(Long propertyId, String collected) {
+        return new PaymentRepository.PropertyCollection() {
+            @Override
+            public Long getPropertyId() {
+                return propertyId;
+            }
+
+            @Override
+            public BigDecimal getCollected() {
+                return new BigDecimal(collected);
+            }
+        };
+    }
+}
@@ -0,0 +1,107 @@
+package com.propman.service;
+
+import com.propman.dto.TenantStatusChanges;
+import com.propman.entity.Tenant;
+import com.propman.repository.TenantRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class DelinquencySweepTest {
+
+    @Mock
+    private TenantRepository tenantRepository;
+
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    private DelinquencySweep sweep;
+
+    private final LocalDate today = LocalDate.of(2024, 3, 15);
+
+    @BeforeEach
+    void setUp() {
+        sweep = new DelinquencySweep(tenantRepository, eventPublisher);
+        ReflectionTestUtils.setField(sweep, "graceDays", 2);
+        ReflectionTestUtils.setField(sweep, "paymentGraceDays", 5);
+        ReflectionTestUtils.setField(sweep, "balanceTolerance", new BigDecimal("100"));
+        ReflectionTestUtils.setField(sweep, "pageSize", 2);
+    }
+
+    @Test
+    void sweepUsesGracePeriodsAndTolerance() {
+        sweep.sweep(today);
+
+        verify(tenantRepository).markDefaulters(eq(Tenant.TenantStatus.ACTIVE), eq(Tenant.TenantStatus.DEFAULTER),
+                eq(LocalDate.of(2024, 3, 13)), eq(new BigDecimal("100")), eq(LocalDate.of(2024, 3, 10)), any());
+        verify(tenantRepository).clearDefaulters(eq(Tenant.TenantStatus.ACTIVE), eq(Tenant.TenantStatus.DEFAULTER),
+                eq(LocalDate.of(2024, 3, 13)), eq(new BigDecimal("100")), any());
+    }
+
+    @Test
+    void nothingIsPublishedWithoutChanges() {
+        assertEquals(0, sweep.sweep(today));
+
+        verify(tenantRepository, never()).findStatusChangedAt(any(), anyLong(), any());
+        verifyNoInteractions(eventPublisher);
+    }
+
+    @Test
+    void changesArePublishedInPages() {
+        when(tenantRepository.markDefaulters(any(), any(), any(), any(), any(), any())).thenReturn(2);
+        when(tenantRepository.clearDefaulters(any(), any(), any(), any(), any())).thenReturn(1);
+        when(tenantRepository.findStatusChangedAt(any(), eq(0L), any())).thenReturn(List.of(
+                change(1L, Tenant.TenantStatus.DEFAULTER, LocalDate.of(2024, 3, 5)),
+                change(4L, Tenant.TenantStatus.ACTIVE, LocalDate.of(2024, 4, 5))));
+        when(tenantRepository.findStatusChangedAt(any(), eq(4L), any())).thenReturn(List.of(
+                change(7L, Tenant.TenantStatus.DEFAULTER, LocalDate.of(2024, 2, 15))));
+
+        assertEquals(3, sweep.sweep(today));
+
+        ArgumentCaptor<TenantStatusChanges> events = ArgumentCaptor.forClass(TenantStatusChanges.class);
+        verify(eventPublisher, times(2)).publishEvent(events.capture());
+        List<TenantStatusChanges.Change> first = events.getAllValues().get(0).getChanges();
+        assertEquals(10, first.get(0).getDaysOverdue());
+        assertEquals(0, first.get(1).getDaysOverdue());
+        assertEquals(29, events.getAllValues().get(1).getChanges().get(0).getDaysOverdue());
+        assertEquals(99L, first.get(0).getLandlordId());
+    }
+
+    private static TenantRepository.StatusChange change(Long id, Tenant.TenantStatus status, LocalDate nextDueDate) {
+        return new TenantRepository.StatusChange() {
+            @Override
+            public Long getId() {
+                return id;
+            }
+
+            @Override
+            public Long getLandlordId() {
+                return 99L;
+            }
+
+            @Override
+            public Tenant.TenantStatus getStatus() {
+                return status;
+            }
+
+            @Override
+            public LocalDate getNextDueDate() {
+                return nextDueDate;
+            }
+        };
+    }
+}
@@ -0,0 +1,66 @@
+package com.propman.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DispatchWindowPlannerTest {
+
+    private DispatchWindowPlanner planner;
+
+    @BeforeEach
+    void setUp() {
+        planner = new DispatchWindowPlanner();
+        ReflectionTestUtils.setField(planner, "windowStart", "08:00");
+        ReflectionTestUtils.setField(planner, "windowEnd", "11:00");
+        ReflectionTestUtils.setField(planner, "ratePerSecond", 5.0);
+    }
+
+    @Test
+    void testWindowIsConfiguredWindow() {
+        assertEquals(Duration.ofHours(3), planner.window());
+    }
+
+    @Test
+    void testSlotIsStablePerTenantAcrossMonths() {
+        Duration window = planner.window();
+        LocalDateTime january = planner.slotFor(42L, LocalDate.of(2026, 1, 2), window);
+        LocalDateTime february = planner.slotFor(42L, LocalDate.of(2026, 2, 2), window);
+
+        assertEquals(january.toLocalTime(), february.toLocalTime());
+        assertFalse(january.toLocalTime().isBefore(LocalTime.of(8, 0)));
+        assertTrue(january.toLocalTime().isBefore(LocalTime.of(11, 0)));
+    }
+
+    @Test
+    void testSlotDoesNotDependOnVolume() {
+        LocalDateTime quietDay = planner.slotFor(42L, LocalDate.of(2026, 1, 2), planner.window());
+        planner.checkCapacity(100_000);
+        LocalDateTime busyDay = planner.slotFor(42L, LocalDate.of(2026, 1, 3), planner.window());
+
+        assertEquals(quietDay.toLocalTime(), busyDay.toLocalTime());
+    }
+
+    @Test
+    void testSequentialIdsSpreadEvenlyOverWindow() {
+        int buckets = 12;
+        int tenants = 12_000;
+        int[] counts = new int[buckets];
+
+        for (long id = 1; id <= tenants; id++) {
+            counts[(int) (DispatchWindowPlanner.slotFraction(id) * buckets)]++;
+        }
+
+        for (int count : counts) {
+            assertTrue(Math.abs(count - tenants / buckets) < tenants / buckets * 0.1,
+                    "Bucket count " + count + " deviates more than 10% from flat");
+        }
+    }
+}
@@ -0,0 +1,166 @@
+package com.propman.service;
+
+import com.propman.dto.SMSResponse;
+import com.propman.entity.IdempotencyRecord;
+import com.propman.repository.IdempotencyRecordRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.http.ResponseEntity;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
+class IdempotencyServiceTest {
+
+    @Mock
+    private IdempotencyRecordRepository idempotencyRecordRepository;
+
+    private IdempotencyService idempotencyService;
+
+    private final AtomicInteger sends = new AtomicInteger();
+
+    @BeforeEach
+    void setUp() {
+        idempotencyService = new IdempotencyService(idempotencyRecordRepository);
+        ReflectionTestUtils.setField(idempotencyService, "ttlHours", 24L);
+        ReflectionTestUtils.setField(idempotencyService, "maxEntries", 100);
+        ReflectionTestUtils.setField(idempotencyService, "waitSeconds", 5L);
+        ReflectionTestUtils.setField(idempotencyService, "pollMs", 10L);
+        ReflectionTestUtils.setField(idempotencyService, "staleMinutes", 10L);
+
+        when(idempotencyRecordRepository.saveAndFlush(any(IdempotencyRecord.class))).thenAnswer(invocation -> invocation.getArgument(0));
+        when(idempotencyRecordRepository.save(any(IdempotencyRecord.class))).thenAnswer(invocation -> invocation.getArgument(0));
+    }
+
+    @Test
+    void runsEveryRequestWithoutKey() {
+        idempotencyService.execute(null, "custom:a", send());
+        idempotencyService.execute(null, "custom:a", send());
+
+        assertEquals(2, sends.get());
+        verifyNoInteractions(idempotencyRecordRepository);
+    }
+
+    @Test
+    void replaysResponseForRepeatedKey() {
+        ResponseEntity<SMSResponse> first = idempotencyService.execute("key-1", "custom:a", send());
+        ResponseEntity<SMSResponse> retry = idempotencyService.execute("key-1", "custom:a", send());
+
+        assertEquals(1, sends.get());
+        assertEquals(first.getBody(), retry.getBody());
+        assertNull(first.getHeaders().getFirst(IdempotencyService.REPLAYED_HEADER));
+        assertEquals("true", retry.getHeaders().getFirst(IdempotencyService.REPLAYED_HEADER));
+    }
+
+    @Test
+    void concurrentDuplicateWaitsForInFlightRequest() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        Supplier<ResponseEntity<SMSResponse>> slowSend = () -> {
+            started.countDown();
+            try {
+                release.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return send().get();
+        };
+
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            Future<ResponseEntity<SMSResponse>> original = executor.submit(() -> idempotencyService.execute("key-2", "custom:a", slowSend));
+            assertTrue(started.await(5, TimeUnit.SECONDS));
+            Future<ResponseEntity<SMSResponse>> duplicate = executor.submit(() -> idempotencyService.execute("key-2", "custom:a", send()));
+
+            Thread.sleep(100);
+            assertFalse(duplicate.isDone());
+            release.countDown();
+
+            assertEquals(original.get(5, TimeUnit.SECONDS).getBody(), duplicate.get(5, TimeUnit.SECONDS).getBody());
+            assertEquals(1, sends.get());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void rejectsKeyReusedForDifferentRequest() {
+        idempotencyService.execute("key-3", "custom:a", send());
+        ResponseEntity<SMSResponse> reused = idempotencyService.execute("key-3", "custom:b", send());
+
+        assertEquals(422, reused.getStatusCode().value());
+        assertEquals(1, sends.get());
+    }
+
+    @Test
+    void replaysResponseStoredByAnotherNode() {
+        IdempotencyRecord stored = new IdempotencyRecord();
+        stored.setIdempotencyKey("key-4");
+        stored.setRequestHash(IdempotencyService.hash("custom:a"));
+        stored.setStatus(IdempotencyRecord.RequestStatus.COMPLETED);
+        stored.setResponseStatus(200);
+        stored.setResponseSuccess(true);
+        stored.setResponseMessage("Custom SMS sent successfully");
+
+        when(idempotencyRecordRepository.saveAndFlush(any(IdempotencyRecord.class)))
+                .thenThrow(new DataIntegrityViolationException("duplicate key"));
+        when(idempotencyRecordRepository.findByIdempotencyKey("key-4")).thenReturn(Optional.of(stored));
+
+        ResponseEntity<SMSResponse> response = idempotencyService.execute("key-4", "custom:a", send());
+
+        assertEquals(0, sends.get());
+        assertEquals(200, response.getStatusCode().value());
+        assertEquals("Custom SMS sent successfully", response.getBody().getMessage());
+        assertEquals("true", response.getHeaders().getFirst(IdempotencyService.REPLAYED_HEADER));
+    }
+
+    @Test
+    void serverErrorReleasesKey() {
+        ResponseEntity<SMSResponse> failed = idempotencyService.execute("key-5", "custom:a",
+                () -> ResponseEntity.internalServerError().body(new SMSResponse(false, "Internal server error", null)));
+        ResponseEntity<SMSResponse> retry = idempotencyService.execute("key-5", "custom:a", send());
+
+        assertEquals(500, failed.getStatusCode().value());
+        verify(idempotencyRecordRepository).deleteInProgress("key-5");
+        assertEquals(200, retry.getStatusCode().value());
+        assertEquals(1, sends.get());
+    }
+
+    @Test
+    void runningKeysAreRenewedUntilTheyComplete() {
+        idempotencyService.execute("key-6", "custom:a", () -> {
+            idempotencyService.renewClaims();
+            return send().get();
+        });
+        idempotencyService.renewClaims();
+
+        verify(idempotencyRecordRepository, times(1)).renewInProgress(eq(List.of("key-6")), any());
+    }
+
+    private Supplier<ResponseEntity<SMSResponse>> send() {
+        return () -> {
+            sends.incrementAndGet();
+            return ResponseEntity.ok(new SMSResponse(true, "Custom SMS sent successfully", null));
+        };
+    }
+}
@@ -0,0 +1,262 @@
+package com.propman.service;
+
+import com.propman.dto.InboundSMSCallback;
+import com.propman.entity.InboundInboxEntry;
+import com.propman.entity.InboundMessage;
+import com.propman.entity.Landlord;
+import com.propman.entity.Property;
+import com.propman.entity.Tenant;
+import com.propman.repository.InboundInboxRepository;
+import com.propman.repository.InboundMessageBatchRepository;
+import com.propman.repository.InboundMessageRepository;
+import com.propman.repository.SMSLogRepository;
+import com.propman.repository.TenantRepository;
+import com.propman.service.dispatch.Admission;
+import com.propman.service.dispatch.Lane;
+import com.propman.service.dispatch.OutboundDispatcher;
+import com.propman.service.suppression.SuppressionService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class InboundMessageServiceTest {
+
+    @Mock
+    private TenantRepository tenantRepository;
+
+    @Mock
+    private SMSLogRepository smsLogRepository;
+
+    @Mock
+    private InboundMessageRepository inboundMessageRepository;
+
+    @Mock
+    private InboundMessageBatchRepository inboundMessageBatchRepository;
+
+    @Mock
+    private InboundInboxRepository inboxRepository;
+
+    @Mock
+    private SuppressionService suppressionService;
+
+    @Mock
+    private SMSService smsService;
+
+    @Mock
+    private OutboundDispatcher dispatcher;
+
+    private final ConcurrentSkipListMap<Long, InboundInboxEntry> inbox = new ConcurrentSkipListMap<>();
+    private final AtomicLong inboxIds = new AtomicLong();
+
+    private InboundMessageService inboundMessageService;
+
+    private Tenant owing;
+    private Tenant paidUp;
+
+    @BeforeEach
+    void setUp() {
+        Landlord landlord = new Landlord();
+        landlord.setId(1L);
+        Property property = new Property();
+        property.setId(1L);
+        owing = tenant(10L, "0712000010", landlord, property, "15000");
+        paidUp = tenant(11L, "0712000011", landlord, property, "0");
+
+        TenantPaymentIndex tenantIndex = new TenantPaymentIndex(tenantRepository);
+        tenantIndex.index(owing.getId(), owing.getPhone(), "A10", Tenant.TenantStatus.ACTIVE);
+        tenantIndex.index(paidUp.getId(), paidUp.getPhone(), "A11", Tenant.TenantStatus.ACTIVE);
+
+        lenient().when(tenantRepository.findWithPropertyAndLandlordByIdIn(anyCollection())).thenAnswer(inv -> {
+            Collection<Long> ids = inv.getArgument(0);
+            return List.of(owing, paidUp).stream().filter(t -> ids.contains(t.getId())).toList();
+        });
+        lenient().when(suppressionService.isStopKeyword(anyString()))
+                .thenAnswer(inv -> "STOP".equals(inv.getArgument(0)));
+        lenient().when(dispatcher.submit(any(), any(Lane.class), any())).thenAnswer(inv -> {
+            inv.<BooleanSupplier>getArgument(2).getAsBoolean();
+            return Admission.QUEUED;
+        });
+
+        inboundMessageService = new InboundMessageService(tenantIndex, tenantRepository, smsLogRepository,
+                inboundMessageRepository, inboundMessageBatchRepository, inboxRepository, suppressionService, smsService, dispatcher);
+        ReflectionTestUtils.setField(inboundMessageService, "paidKeywords", Set.of("PAID", "NIMELIPA"));
+        ReflectionTestUtils.setField(inboundMessageService, "helpKeywords", Set.of("HELP"));
+        ReflectionTestUtils.setField(inboundMessageService, "batchSize", 200);
+        ReflectionTestUtils.setField(inboundMessageService, "claimTimeoutMillis", 60_000L);
+        stubInbox();
+    }
+
+    @Test
+    void messagesAreLinkedToTenantAndLatestSms() {
+        when(inboundMessageRepository.findExistingProviderMessageIds(anyCollection())).thenReturn(List.of("m0"));
+        when(smsLogRepository.findLatestIds(anyCollection(), anyCollection()))
+                .thenReturn(List.of(latestLog(1L, "254712000010", 500L)));
+
+        inboundMessageService.processBatch(List.of(
+                callback("m0", "+254712000010", "Already stored"),
+                callback("m1", "+254712000010", "When is the plumber coming?"),
+                callback("m1", "+254712000010", "When is the plumber coming?"),
+                callback("m2", "+254799999999", "Who is this?")));
+
+        ArgumentCaptor<List<InboundMessage>> captor = ArgumentCaptor.forClass(List.class);
+        verify(inboundMessageBatchRepository).insertAll(captor.capture());
+        List<InboundMessage> stored = captor.getValue();
+        assertEquals(2, stored.size());
+
+        InboundMessage fromTenant = stored.get(0);
+        assertEquals("m1", fromTenant.getProviderMessageId());
+        assertEquals("254712000010", fromTenant.getPhone());
+        assertSame(owing, fromTenant.getTenant());
+        assertEquals(1L, fromTenant.getLandlord().getId());
+        assertEquals(500L, fromTenant.getReplyTo().getId());
+        assertEquals(InboundMessage.Keyword.NONE, fromTenant.getKeyword());
+
+        InboundMessage unknown = stored.get(1);
+        assertNull(unknown.getTenant());
+        assertNull(unknown.getReplyTo());
+        verifyNoInteractions(dispatcher);
+    }
+
+    @Test
+    void keywordsAreRoutedAfterTheBatchIsStored() {
+        inboundMessageService.processBatch(List.of(
+                callback("s1", "0799999999", "stop"),
+                callback("h1", "0712000010", "Help"),
+                callback("h2", "0799999998", "HELP"),
+                callback("p1", "0712000010", "Nimelipa via bank"),
+                callback("p2", "0712000011", "PAID")));
+
+        verify(suppressionService).optOutIfStopKeyword("254799999999", "STOP");
+        verify(smsService).sendHelpReply(owing);
+        verify(smsService).forwardPaidReply(owing, "Nimelipa via bank");
+        verify(smsService, never()).forwardPaidReply(eq(paidUp), any());
+        verify(dispatcher, times(2)).submit(any(), eq(Lane.TRANSACTIONAL), any());
+    }
+
+    @Test
+    void failedBatchIsRetriedOneMessageAtATime() {
+        doThrow(new DataIntegrityViolationException("duplicate")).when(inboundMessageBatchRepository)
+                .insertAll(argThat(messages -> messages.size() > 1
+                        || messages.get(0).getProviderMessageId().equals("d1")));
+
+        inboundMessageService.processBatch(List.of(
+                callback("d1", "0712000010", "HELP"),
+                callback("d2", "0712000011", "HELP")));
+
+        verify(inboundMessageBatchRepository, times(3)).insertAll(anyList());
+        verify(smsService, never()).sendHelpReply(owing);
+        verify(smsService).sendHelpReply(paidUp);
+    }
+
+    @Test
+    void acceptedMessagesLeaveTheInboxOnceStored() {
+        doAnswer(inv -> {
+            List<InboundMessage> messages = inv.getArgument(0);
+            if (messages.stream().anyMatch(message -> message.getProviderMessageId().equals("i2"))) {
+                throw new QueryTimeoutException("timeout");
+            }
+            return null;
+        }).when(inboundMessageBatchRepository).insertAll(anyList());
+
+        inboundMessageService.accept(callback("i1", "0712000010", "STOP"));
+        inboundMessageService.accept(callback("i2", "0712000011", "Hello"));
+        assertEquals(2, inbox.size());
+
+        assertEquals(2, inboundMessageService.drainBatch());
+
+        // The stored message is gone; the failed one stays claimed until the claim times out
+        assertEquals(List.of("i2"), inbox.values().stream().map(InboundInboxEntry::getProviderMessageId).toList());
+        assertEquals(0, inboundMessageService.drainBatch());
+        verify(suppressionService).optOutIfStopKeyword("254712000010", "STOP");
+    }
+
+    private void stubInbox() {
+        lenient().when(inboxRepository.save(any(InboundInboxEntry.class))).thenAnswer(inv -> {
+            InboundInboxEntry entry = inv.getArgument(0);
+            entry.setId(inboxIds.incrementAndGet());
+            inbox.put(entry.getId(), entry);
+            return entry;
+        });
+        lenient().when(inboxRepository.findClaimableIds(any(), any())).thenAnswer(inv -> {
+            LocalDateTime staleBefore = inv.getArgument(0);
+            return inbox.values().stream()
+                    .filter(entry -> entry.getClaimedAt() == null || entry.getClaimedAt().isBefore(staleBefore))
+                    .map(InboundInboxEntry::getId)
+                    .toList();
+        });
+        lenient().when(inboxRepository.claim(anyCollection(), anyString(), any(), any())).thenAnswer(inv -> {
+            Collection<Long> ids = inv.getArgument(0);
+            ids.forEach(id -> {
+                inbox.get(id).setClaimToken(inv.getArgument(1));
+                inbox.get(id).setClaimedAt(inv.getArgument(2));
+            });
+            return ids.size();
+        });
+        lenient().when(inboxRepository.findByClaimTokenOrderByIdAsc(anyString())).thenAnswer(inv ->
+                inbox.values().stream().filter(entry -> inv.getArgument(0).equals(entry.getClaimToken())).toList());
+        lenient().when(inboxRepository.deleteByIdIn(anyCollection())).thenAnswer(inv -> {
+            Collection<Long> ids = inv.<Collection<Long>>getArgument(0);
+            ids.forEach(inbox::remove);
+            return ids.size();
+        });
+    }
+
+    private static Tenant tenant(Long id, String phone, Landlord landlord, Property property, String outstanding) {
+        Tenant tenant = new Tenant();
+        tenant.setId(id);
+        tenant.setPhone(phone);
+        tenant.setLandlord(landlord);
+        tenant.setProperty(property);
+        tenant.setOutstandingAmount(new BigDecimal(outstanding));
+        return tenant;
+    }
+
+    private static InboundSMSCallback callback(String id, String from, String text) {
+        InboundSMSCallback callback = new InboundSMSCallback();
+        callback.setId(id);
+        callback.setFrom(from);
+        callback.setTo("22384");
+        callback.setText(text);
+        callback.setDate("2024-03-15T09:30:00.000Z");
+        return callback;
+    }
+
+    private static SMSLogRepository.LatestLog latestLog(Long landlordId, String phoneKey, Long id) {
+        return new SMSLogRepository.LatestLog() {
+            @Override
+            public Long getLandlordId() {
+                return landlordId;
+            }
+
+            @Override
+            public String getRecipientPhoneKey() {
+                return phoneKey;
+            }
+
+            @Override
+            public Long getId() {
+                return id;
+            }
+        };
+    }
+}
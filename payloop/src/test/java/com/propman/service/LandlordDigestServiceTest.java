@@ -0,0 +1,125 @@
+package com.propman.service;
+
+import com.propman.dto.PaymentNotice;
+import com.propman.entity.Landlord;
+import com.propman.entity.Property;
+import com.propman.entity.SMSLog;
+import com.propman.entity.Tenant;
+import com.propman.service.dispatch.Admission;
+import com.propman.service.dispatch.OutboundDispatcher;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.List;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class LandlordDigestServiceTest {
+
+    @Mock
+    private SMSService smsService;
+
+    @Mock
+    private TaskScheduler taskScheduler;
+
+    @Mock
+    private OutboundDispatcher dispatcher;
+
+    private LandlordDigestService digestService;
+
+    private Landlord landlord;
+    private Property property;
+
+    @BeforeEach
+    void setUp() {
+        lenient().when(dispatcher.submit(any(), any(SMSLog.SMSType.class), any())).thenAnswer(inv -> {
+            inv.<BooleanSupplier>getArgument(2).getAsBoolean();
+            return Admission.QUEUED;
+        });
+        digestService = new LandlordDigestService(smsService, taskScheduler, dispatcher);
+        ReflectionTestUtils.setField(digestService, "defaultWindowMinutes", 10);
+
+        landlord = new Landlord();
+        landlord.setId(1L);
+        landlord.setPhone("0712345678");
+
+        property = new Property();
+        property.setName("Test Apartments");
+    }
+
+    @Test
+    void testPaymentsWithinWindowAreSentAsOneDigest() {
+        for (int i = 1; i <= 3; i++) {
+            digestService.paymentReceived(tenant("A" + i), new BigDecimal("15000"));
+        }
+        verifyNoInteractions(smsService);
+
+        ArgumentCaptor<Runnable> flush = ArgumentCaptor.forClass(Runnable.class);
+        verify(taskScheduler, times(1)).schedule(flush.capture(), any(Instant.class));
+        flush.getValue().run();
+
+        ArgumentCaptor<List<PaymentNotice>> sent = listCaptor();
+        verify(smsService, times(1)).sendLandlordPaymentDigest(eq(landlord), sent.capture());
+        assertEquals(3, sent.getValue().size());
+        assertEquals(0, digestService.getPendingLandlordCount());
+    }
+
+    @Test
+    void testPaymentAfterFlushOpensNewWindow() {
+        digestService.paymentReceived(tenant("A1"), new BigDecimal("15000"));
+        digestService.flush(landlord.getId());
+        digestService.paymentReceived(tenant("A2"), new BigDecimal("15000"));
+
+        verify(taskScheduler, times(2)).schedule(any(Runnable.class), any(Instant.class));
+        verify(smsService, times(1)).sendLandlordPaymentDigest(eq(landlord), anyList());
+        assertEquals(1, digestService.getPendingLandlordCount());
+    }
+
+    @Test
+    void testZeroWindowSendsEachPayment() {
+        landlord.setPaymentDigestMinutes(0);
+
+        digestService.paymentReceived(tenant("A1"), new BigDecimal("15000"));
+        digestService.paymentReceived(tenant("A2"), new BigDecimal("15000"));
+
+        verifyNoInteractions(taskScheduler);
+        verify(smsService, times(2)).sendLandlordPaymentDigest(eq(landlord), argThat(list -> list.size() == 1));
+    }
+
+    @Test
+    void testShutdownFlushesPendingDigests() {
+        digestService.paymentReceived(tenant("A1"), new BigDecimal("15000"));
+        digestService.paymentReceived(tenant("A2"), new BigDecimal("15000"));
+
+        digestService.flushAll();
+
+        verify(smsService, times(1)).sendLandlordPaymentDigest(eq(landlord), argThat(list -> list.size() == 2));
+        assertEquals(0, digestService.getPendingLandlordCount());
+    }
+
+    private Tenant tenant(String unit) {
+        Tenant tenant = new Tenant();
+        tenant.setName("Tenant " + unit);
+        tenant.setUnitNumber(unit);
+        tenant.setProperty(property);
+        tenant.setLandlord(landlord);
+        return tenant;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static ArgumentCaptor<List<PaymentNotice>> listCaptor() {
+        return ArgumentCaptor.forClass(List.class);
+    }
+}
@@ -0,0 +1,99 @@
+package com.propman.service;
+
+import com.propman.entity.LedgerEntry;
+import com.propman.entity.Tenant;
+import com.propman.repository.LedgerEntryRepository;
+import com.propman.repository.TenantRepository;
+import io.micrometer.observation.ObservationRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class LedgerSchedulerTest {
+
+    @Mock
+    private TenantRepository tenantRepository;
+
+    @Mock
+    private LedgerEntryRepository ledgerEntryRepository;
+
+    @Mock
+    private LedgerService ledgerService;
+
+    private LedgerScheduler scheduler;
+
+    @BeforeEach
+    void setUp() {
+        scheduler = new LedgerScheduler(tenantRepository, ledgerEntryRepository, ledgerService, ObservationRegistry.NOOP);
+        ReflectionTestUtils.setField(scheduler, "chunkSize", 2);
+        ReflectionTestUtils.setField(scheduler, "minTail", 20L);
+    }
+
+    @Test
+    void chargesOnlyTodaysDueDayMidMonth() {
+        scheduler.postCharges(LocalDate.of(2024, 3, 15));
+
+        verify(tenantRepository).findBillableTenantIdsByDueDateIn(List.of(15));
+    }
+
+    @Test
+    void lastDayOfShortMonthAlsoChargesMissingDueDays() {
+        scheduler.postCharges(LocalDate.of(2023, 2, 28));
+        scheduler.postCharges(LocalDate.of(2024, 2, 29));
+        scheduler.postCharges(LocalDate.of(2024, 4, 30));
+
+        verify(tenantRepository).findBillableTenantIdsByDueDateIn(List.of(28, 29, 30, 31));
+        verify(tenantRepository).findBillableTenantIdsByDueDateIn(List.of(29, 30, 31));
+        verify(tenantRepository).findBillableTenantIdsByDueDateIn(List.of(30, 31));
+    }
+
+    @Test
+    void chargesAreLoadedInChunksAndCountOnlyNewPostings() {
+        LocalDate today = LocalDate.of(2024, 3, 5);
+        Tenant first = tenant(1L);
+        Tenant second = tenant(2L);
+        Tenant third = tenant(3L);
+        when(tenantRepository.findBillableTenantIdsByDueDateIn(List.of(5))).thenReturn(List.of(1L, 2L, 3L));
+        when(tenantRepository.findWithPropertyAndLandlordByIdIn(List.of(1L, 2L))).thenReturn(List.of(first, second));
+        when(tenantRepository.findWithPropertyAndLandlordByIdIn(List.of(3L))).thenReturn(List.of(third));
+        when(ledgerService.postCharge(first, first.getRentAmount(), today)).thenReturn(new LedgerEntry());
+        // Already charged for this period
+        when(ledgerService.postCharge(second, second.getRentAmount(), today)).thenReturn(null);
+        when(ledgerService.postCharge(third, third.getRentAmount(), today)).thenThrow(new IllegalStateException("boom"));
+
+        assertEquals(1, scheduler.postCharges(today));
+
+        verify(ledgerService, times(3)).postCharge(any(), any(), eq(today));
+    }
+
+    @Test
+    void snapshotsContinuePastFailures() {
+        when(ledgerEntryRepository.findTenantIdsWithTailOfAtLeast(20L)).thenReturn(List.of(1L, 2L, 3L));
+        lenient().doThrow(new IllegalStateException("boom")).when(ledgerService).snapshot(2L);
+
+        scheduler.takeSnapshots();
+
+        verify(ledgerService).snapshot(1L);
+        verify(ledgerService).snapshot(2L);
+        verify(ledgerService).snapshot(3L);
+    }
+
+    private Tenant tenant(Long id) {
+        Tenant tenant = new Tenant();
+        tenant.setId(id);
+        tenant.setRentAmount(new BigDecimal("1000"));
+        return tenant;
+    }
+}
@@ -0,0 +1,238 @@
+package com.propman.service;
+
+import com.propman.dto.TenantBalance;
+import com.propman.entity.Landlord;
+import com.propman.entity.LedgerEntry;
+import com.propman.entity.Payment;
+import com.propman.entity.Property;
+import com.propman.entity.Tenant;
+import com.propman.entity.TenantBalanceSnapshot;
+import com.propman.repository.LandlordRepository;
+import com.propman.repository.LedgerBatchRepository;
+import com.propman.repository.LedgerEntryRepository;
+import com.propman.repository.PropertyRepository;
+import com.propman.repository.TenantBalanceSnapshotRepository;
+import com.propman.repository.TenantRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class LedgerServiceTest {
+
+    @Mock
+    private LedgerEntryRepository ledgerEntryRepository;
+
+    @Mock
+    private TenantBalanceSnapshotRepository snapshotRepository;
+
+    @Mock
+    private TenantRepository tenantRepository;
+
+    @Mock
+    private PropertyRepository propertyRepository;
+
+    @Mock
+    private LandlordRepository landlordRepository;
+
+    @Mock
+    private LedgerBatchRepository ledgerBatchRepository;
+
+    @Mock
+    private DashboardService dashboardService;
+
+    private LedgerService ledgerService;
+
+    @BeforeEach
+    void setUp() {
+        ledgerService = new LedgerService(ledgerEntryRepository, snapshotRepository, tenantRepository,
+                propertyRepository, landlordRepository, ledgerBatchRepository, dashboardService);
+    }
+
+    @Test
+    void balanceWithoutSnapshotFoldsEveryEntry() {
+        when(snapshotRepository.findById(1L)).thenReturn(Optional.empty());
+        when(ledgerEntryRepository.findByTenantIdAndIdGreaterThanOrderByIdAsc(1L, 0L)).thenReturn(List.of(
+                entry(10L, LedgerEntry.EntryType.CHARGE, "1000", LocalDate.of(2024, 3, 5)),
+                entry(11L, LedgerEntry.EntryType.PAYMENT, "400", null)));
+
+        TenantBalance balance = ledgerService.getBalance(1L);
+
+        assertEquals(0, new BigDecimal("600").compareTo(balance.getBalance()));
+        assertEquals(LocalDate.of(2024, 3, 5), balance.getOverdueSince());
+        assertEquals(11L, balance.getLastEntryId());
+    }
+
+    @Test
+    void balanceStartsFromSnapshotAndFoldsOnlyTheTail() {
+        when(snapshotRepository.findById(1L)).thenReturn(Optional.of(
+                snapshot(1L, "1000", LocalDate.of(2024, 2, 5), 20L)));
+        when(ledgerEntryRepository.findByTenantIdAndIdGreaterThanOrderByIdAsc(1L, 20L)).thenReturn(List.of(
+                entry(21L, LedgerEntry.EntryType.CHARGE, "1000", LocalDate.of(2024, 3, 5))));
+
+        TenantBalance balance = ledgerService.getBalance(1L);
+
+        assertEquals(0, new BigDecimal("2000").compareTo(balance.getBalance()));
+        // Still overdue since the charge that first took the balance above zero
+        assertEquals(LocalDate.of(2024, 2, 5), balance.getOverdueSince());
+        assertEquals(21L, balance.getLastEntryId());
+        assertTrue(balance.getDaysOverdue() > 0);
+    }
+
+    @Test
+    void paymentClearingTheBalanceClearsOverdue() {
+        when(snapshotRepository.findById(1L)).thenReturn(Optional.of(
+                snapshot(1L, "1000", LocalDate.of(2024, 2, 5), 20L)));
+        when(ledgerEntryRepository.findByTenantIdAndIdGreaterThanOrderByIdAsc(1L, 20L)).thenReturn(List.of(
+                entry(21L, LedgerEntry.EntryType.PAYMENT, "1500", null)));
+
+        TenantBalance balance = ledgerService.getBalance(1L);
+
+        assertEquals(0, new BigDecimal("-500").compareTo(balance.getBalance()));
+        assertNull(balance.getOverdueSince());
+        assertEquals(0, balance.getDaysOverdue());
+    }
+
+    @Test
+    void openingBalanceCountsFromItsDueDateAndMayBeACredit() {
+        when(snapshotRepository.findById(anyLong())).thenReturn(Optional.empty());
+        when(ledgerEntryRepository.findByTenantIdAndIdGreaterThanOrderByIdAsc(1L, 0L)).thenReturn(List.of(
+                entry(5L, LedgerEntry.EntryType.OPENING, "2500", LocalDate.of(2024, 1, 5))));
+        when(ledgerEntryRepository.findByTenantIdAndIdGreaterThanOrderByIdAsc(2L, 0L)).thenReturn(List.of(
+                entry(6L, LedgerEntry.EntryType.OPENING, "-300", LocalDate.of(2024, 1, 5))));
+
+        TenantBalance owing = ledgerService.getBalance(1L);
+        TenantBalance credit = ledgerService.getBalance(2L);
+
+        assertEquals(0, new BigDecimal("2500").compareTo(owing.getBalance()));
+        assertEquals(LocalDate.of(2024, 1, 5), owing.getOverdueSince());
+        assertEquals(0, new BigDecimal("-300").compareTo(credit.getBalance()));
+        assertNull(credit.getOverdueSince());
+    }
+
+    @Test
+    void snapshotFoldsTailIntoExistingSnapshot() {
+        TenantBalanceSnapshot existing = snapshot(1L, "1000", LocalDate.of(2024, 2, 5), 20L);
+        when(snapshotRepository.findById(1L)).thenReturn(Optional.of(existing));
+        when(ledgerEntryRepository.findByTenantIdAndIdGreaterThanOrderByIdAsc(1L, 20L)).thenReturn(List.of(
+                entry(21L, LedgerEntry.EntryType.PAYMENT, "1000", null),
+                entry(22L, LedgerEntry.EntryType.CHARGE, "1000", LocalDate.of(2024, 3, 5))));
+
+        ledgerService.snapshot(1L);
+
+        ArgumentCaptor<TenantBalanceSnapshot> saved = ArgumentCaptor.forClass(TenantBalanceSnapshot.class);
+        verify(snapshotRepository).save(saved.capture());
+        assertSame(existing, saved.getValue());
+        assertEquals(0, new BigDecimal("1000").compareTo(saved.getValue().getBalance()));
+        assertEquals(LocalDate.of(2024, 3, 5), saved.getValue().getOverdueSince());
+        assertEquals(22L, saved.getValue().getLastEntryId());
+    }
+
+    @Test
+    void chargeIsPostedOncePerPeriodAndAppliedToTotals() {
+        Tenant tenant = tenant();
+        LocalDate due = LocalDate.of(2024, 3, 5);
+        when(ledgerEntryRepository.existsByTenantIdAndEntryTypeAndDueDate(1L, LedgerEntry.EntryType.CHARGE, due))
+                .thenReturn(false, true);
+
+        assertNotNull(ledgerService.postCharge(tenant, new BigDecimal("1000"), due));
+        assertNull(ledgerService.postCharge(tenant, new BigDecimal("1000"), due));
+
+        verify(ledgerEntryRepository, times(1)).save(any(LedgerEntry.class));
+        verify(tenantRepository).addOutstandingAmount(1L, new BigDecimal("1000"));
+        verify(propertyRepository).addOutstandingPayments(2L, new BigDecimal("1000"));
+        verify(landlordRepository).addOutstandingPayments(3L, new BigDecimal("1000"));
+        verify(dashboardService).evict(3L);
+    }
+
+    @Test
+    void paymentReducesTotals() {
+        ledgerService.postPayment(tenant(), new BigDecimal("400"), "RKT1");
+
+        verify(tenantRepository).addOutstandingAmount(1L, new BigDecimal("-400"));
+        verify(propertyRepository).addOutstandingPayments(2L, new BigDecimal("-400"));
+        verify(landlordRepository).addOutstandingPayments(3L, new BigDecimal("-400"));
+    }
+
+    @Test
+    void paymentBatchAppliesPaymentsToLockedPaymentState() {
+        // Loaded before another payment moved the due date on
+        Tenant stale = tenant();
+        stale.setRentAmount(new BigDecimal("1000"));
+        stale.setDueDate(5);
+        stale.setNextDueDate(LocalDate.of(2024, 3, 5));
+        when(ledgerBatchRepository.lockPaymentStates(Set.of(1L))).thenReturn(Map.of(1L,
+                new LedgerBatchRepository.PaymentState(LocalDate.of(2024, 3, 1), LocalDate.of(2024, 4, 5), new BigDecimal("200"))));
+
+        Payment payment = new Payment();
+        payment.setTenant(stale);
+        payment.setAmount(new BigDecimal("800"));
+        payment.setPaymentDate(LocalDateTime.of(2024, 3, 10, 9, 0));
+        ledgerService.postPaymentBatch(new ArrayList<>(List.of(payment)));
+
+        ArgumentCaptor<Collection<Tenant>> captor = ArgumentCaptor.forClass(Collection.class);
+        verify(ledgerBatchRepository).updatePaymentDates(captor.capture());
+        Tenant written = captor.getValue().iterator().next();
+        assertEquals(LocalDate.of(2024, 5, 5), written.getNextDueDate());
+        assertEquals(0, written.getPaidTowardsNextDue().signum());
+        assertEquals(LocalDate.of(2024, 3, 10), written.getLastPaymentDate());
+    }
+
+    @Test
+    void openingBalancesAreBackfilledWithoutTouchingTotals() {
+        when(ledgerBatchRepository.insertOpeningBalances()).thenReturn(3);
+
+        ledgerService.backfillOpeningBalances();
+
+        verify(ledgerBatchRepository).insertOpeningBalances();
+        verifyNoInteractions(tenantRepository, propertyRepository, landlordRepository);
+    }
+
+    private Tenant tenant() {
+        Property property = new Property();
+        property.setId(2L);
+        Landlord landlord = new Landlord();
+        landlord.setId(3L);
+        Tenant tenant = new Tenant();
+        tenant.setId(1L);
+        tenant.setProperty(property);
+        tenant.setLandlord(landlord);
+        return tenant;
+    }
+
+    private LedgerEntry entry(Long id, LedgerEntry.EntryType type, String amount, LocalDate dueDate) {
+        LedgerEntry entry = new LedgerEntry();
+        entry.setId(id);
+        entry.setEntryType(type);
+        entry.setAmount(new BigDecimal(amount));
+        entry.setDueDate(dueDate);
+        entry.setCreatedAt(LocalDateTime.of(2024, 3, 1, 0, 0));
+        return entry;
+    }
+
+    private TenantBalanceSnapshot snapshot(Long tenantId, String balance, LocalDate overdueSince, Long lastEntryId) {
+        TenantBalanceSnapshot snapshot = new TenantBalanceSnapshot();
+        snapshot.setTenantId(tenantId);
+        snapshot.setBalance(new BigDecimal(balance));
+        snapshot.setOverdueSince(overdueSince);
+        snapshot.setLastEntryId(lastEntryId);
+        return snapshot;
+    }
+}
@@ -0,0 +1,336 @@
+package com.propman.service;
+
+import com.propman.dto.MpesaC2BCallback;
+import com.propman.entity.Landlord;
+import com.propman.entity.MpesaInboxEntry;
+import com.propman.entity.Payment;
+import com.propman.entity.Property;
+import com.propman.entity.SMSLog;
+import com.propman.entity.Tenant;
+import com.propman.entity.UnmatchedPayment;
+import com.propman.repository.MpesaInboxRepository;
+import com.propman.repository.PaymentRepository;
+import com.propman.repository.TenantRepository;
+import com.propman.repository.UnmatchedPaymentRepository;
+import com.propman.service.dispatch.Admission;
+import com.propman.service.dispatch.OutboundDispatcher;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.Pageable;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Drives the ingestion pipeline with a local callback simulator: many
+ * concurrent senders, Daraja-style redeliveries and unknown references.
+ */
+@ExtendWith(MockitoExtension.class)
+class MpesaIngestionServiceTest {
+
+    private static final int TENANTS = 500;
+
+    @Mock
+    private TenantRepository tenantRepository;
+
+    @Mock
+    private PaymentRepository paymentRepository;
+
+    @Mock
+    private UnmatchedPaymentRepository unmatchedPaymentRepository;
+
+    @Mock
+    private MpesaInboxRepository inboxRepository;
+
+    @Mock
+    private LedgerService ledgerService;
+
+    @Mock
+    private SMSService smsService;
+
+    @Mock
+    private LandlordDigestService landlordDigestService;
+
+    @Mock
+    private OutboundDispatcher dispatcher;
+
+    private final Set<String> postedReferences = ConcurrentHashMap.newKeySet();
+    private final Set<String> unmatchedIds = ConcurrentHashMap.newKeySet();
+    private final List<Integer> batchSizes = new CopyOnWriteArrayList<>();
+    private final AtomicInteger postedCount = new AtomicInteger();
+    private final ConcurrentSkipListMap<Long, MpesaInboxEntry> inbox = new ConcurrentSkipListMap<>();
+    private final AtomicLong inboxIds = new AtomicLong();
+
+    private MpesaIngestionService ingestionService;
+
+    @BeforeEach
+    void setUp() {
+        Landlord landlord = new Landlord();
+        landlord.setId(1L);
+        Property property = new Property();
+        property.setId(1L);
+
+        TenantPaymentIndex paymentIndex = new TenantPaymentIndex(tenantRepository);
+        List<Tenant> tenants = new ArrayList<>();
+        for (long id = 1; id <= TENANTS; id++) {
+            String phone = String.format("0712%06d", id);
+            paymentIndex.index(id, phone, "A" + id, Tenant.TenantStatus.ACTIVE);
+
+            Tenant tenant = new Tenant();
+            tenant.setId(id);
+            tenant.setPhone(phone);
+            tenant.setUnitNumber("A" + id);
+            tenant.setProperty(property);
+            tenant.setLandlord(landlord);
+            tenants.add(tenant);
+        }
+
+        lenient().when(tenantRepository.findWithPropertyAndLandlordByIdIn(anyCollection())).thenAnswer(inv -> {
+            Collection<Long> ids = inv.getArgument(0);
+            return tenants.stream().filter(t -> ids.contains(t.getId())).toList();
+        });
+        // Behave like the unique constraints: anything written earlier is reported as existing
+        lenient().when(paymentRepository.findExistingReferences(anyCollection())).thenAnswer(inv -> {
+            Collection<String> refs = inv.getArgument(0);
+            return refs.stream().filter(postedReferences::contains).toList();
+        });
+        lenient().when(unmatchedPaymentRepository.findExistingTransactionIds(anyCollection())).thenAnswer(inv -> {
+            Collection<String> ids = inv.getArgument(0);
+            return ids.stream().filter(unmatchedIds::contains).toList();
+        });
+        lenient().doAnswer(inv -> {
+            List<Payment> payments = inv.getArgument(0);
+            batchSizes.add(payments.size());
+            for (Payment payment : payments) {
+                assertTrue(postedReferences.add(payment.getReference()), "posted twice: " + payment.getReference());
+                postedCount.incrementAndGet();
+            }
+            return null;
+        }).when(ledgerService).postPaymentBatch(anyList());
+        lenient().when(unmatchedPaymentRepository.saveAll(anyList())).thenAnswer(inv -> {
+            List<UnmatchedPayment> payments = inv.getArgument(0);
+            payments.forEach(p -> unmatchedIds.add(p.getTransactionId()));
+            return payments;
+        });
+
+        stubInbox();
+
+        // Send transactional messages on the submitting thread
+        lenient().when(dispatcher.submit(any(), any(SMSLog.SMSType.class), any())).thenAnswer(inv -> {
+            inv.<BooleanSupplier>getArgument(2).getAsBoolean();
+            return Admission.QUEUED;
+        });
+
+        ingestionService = new MpesaIngestionService(paymentIndex, tenantRepository, paymentRepository,
+                unmatchedPaymentRepository, inboxRepository, ledgerService, smsService, landlordDigestService, dispatcher);
+        ReflectionTestUtils.setField(ingestionService, "batchSize", 200);
+        ReflectionTestUtils.setField(ingestionService, "pollMillis", 5L);
+        ReflectionTestUtils.setField(ingestionService, "claimTimeoutMillis", 60_000L);
+        ingestionService.start();
+    }
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        ingestionService.stop();
+    }
+
+    @Test
+    void testConcurrentCallbacksArePostedExactlyOnce() throws Exception {
+        int payments = 5_000;
+        List<MpesaC2BCallback> callbacks = new ArrayList<>();
+        for (int i = 0; i < payments; i++) {
+            long tenantId = 1 + (i % TENANTS);
+            MpesaC2BCallback callback = callback("TX" + i, "A" + tenantId, String.format("254712%06d", tenantId));
+            callbacks.add(callback);
+            // Every fifth confirmation is delivered twice
+            if (i % 5 == 0) {
+                callbacks.add(callback);
+            }
+        }
+        for (int i = 0; i < 100; i++) {
+            callbacks.add(callback("UNK" + i, "Z" + i, "254799000000"));
+        }
+        Collections.shuffle(callbacks);
+
+        fire(callbacks, 16);
+        awaitDrained();
+
+        assertEquals(payments, postedCount.get());
+        assertEquals(100, unmatchedIds.size());
+        assertTrue(batchSizes.stream().allMatch(size -> size <= 200));
+        // Batching actually happened rather than one write per callback
+        assertTrue(batchSizes.size() < payments / 2, "batches: " + batchSizes.size());
+        verify(smsService, times(payments)).sendPaymentConfirmation(any(Tenant.class), any(BigDecimal.class));
+        verify(landlordDigestService, times(payments)).paymentReceived(any(Tenant.class), any(BigDecimal.class));
+    }
+
+    @Test
+    void testRedeliveryAfterCommitIsIgnored() throws Exception {
+        fire(List.of(callback("TX1", "A1", "254712000001")), 1);
+        awaitDrained();
+
+        fire(List.of(callback("TX1", "A1", "254712000001")), 1);
+        awaitDrained();
+
+        assertEquals(1, postedCount.get());
+        verify(smsService, times(1)).sendPaymentConfirmation(any(Tenant.class), any(BigDecimal.class));
+    }
+
+    @Test
+    void testPayerNumberMatchesWhenAccountIsWrong() throws Exception {
+        fire(List.of(callback("TX7", "rent", "254712000007")), 1);
+        awaitDrained();
+
+        assertTrue(postedReferences.contains("TX7"));
+        assertTrue(unmatchedIds.isEmpty());
+    }
+
+    @Test
+    void testFailedBatchIsRetriedPerPayment() throws Exception {
+        doThrow(new RuntimeException("deadlock")).doAnswer(inv -> {
+            List<Payment> payments = inv.getArgument(0);
+            payments.forEach(p -> postedReferences.add(p.getReference()));
+            postedCount.addAndGet(payments.size());
+            return null;
+        }).when(ledgerService).postPaymentBatch(anyList());
+
+        ingestionService.processBatch(List.of(
+                callback("TX1", "A1", "254712000001"),
+                callback("TX2", "A2", "254712000002")));
+
+        assertEquals(2, postedCount.get());
+        verify(ledgerService, times(3)).postPaymentBatch(anyList());
+    }
+
+    @Test
+    void testAcknowledgedCallbackSurvivesRestart() throws Exception {
+        // Writer down, as after a crash between acknowledging and processing
+        ingestionService.stop();
+        ingestionService.accept(callback("TX3", "A3", "254712000003"));
+
+        assertEquals(1, inbox.size());
+        assertEquals(0, postedCount.get());
+
+        ingestionService.start();
+        awaitDrained();
+
+        assertTrue(postedReferences.contains("TX3"));
+    }
+
+    @Test
+    void testUnwrittenPaymentStaysInInboxUntilClaimTimesOut() throws Exception {
+        ingestionService.stop();
+        doThrow(new RuntimeException("database down")).when(ledgerService).postPaymentBatch(anyList());
+
+        ingestionService.accept(callback("TX4", "A4", "254712000004"));
+        ingestionService.accept(callback("UNK1", "Z1", "254799000000"));
+        ingestionService.drainBatch();
+
+        // The unmatched payment was recorded; the failed one is still claimed
+        assertEquals(List.of("TX4"), inbox.values().stream().map(MpesaInboxEntry::getTransId).toList());
+        assertEquals(0, ingestionService.drainBatch());
+
+        doAnswer(inv -> {
+            List<Payment> payments = inv.getArgument(0);
+            payments.forEach(p -> postedReferences.add(p.getReference()));
+            return null;
+        }).when(ledgerService).postPaymentBatch(anyList());
+        ReflectionTestUtils.setField(ingestionService, "claimTimeoutMillis", 0L);
+        Thread.sleep(5);
+
+        assertEquals(1, ingestionService.drainBatch());
+        assertTrue(postedReferences.contains("TX4"));
+        assertTrue(inbox.isEmpty());
+    }
+
+    private void stubInbox() {
+        lenient().when(inboxRepository.save(any(MpesaInboxEntry.class))).thenAnswer(inv -> {
+            MpesaInboxEntry entry = inv.getArgument(0);
+            entry.setId(inboxIds.incrementAndGet());
+            inbox.put(entry.getId(), entry);
+            return entry;
+        });
+        lenient().when(inboxRepository.findClaimableIds(any(), any())).thenAnswer(inv -> {
+            LocalDateTime staleBefore = inv.getArgument(0);
+            Pageable page = inv.getArgument(1);
+            return inbox.values().stream()
+                    .filter(entry -> entry.getClaimedAt() == null || entry.getClaimedAt().isBefore(staleBefore))
+                    .map(MpesaInboxEntry::getId)
+                    .limit(page.getPageSize())
+                    .toList();
+        });
+        lenient().when(inboxRepository.claim(anyCollection(), anyString(), any(), any())).thenAnswer(inv -> {
+            Collection<Long> ids = inv.getArgument(0);
+            LocalDateTime staleBefore = inv.getArgument(3);
+            int claimed = 0;
+            for (Long id : ids) {
+                MpesaInboxEntry entry = inbox.get(id);
+                if (entry != null && (entry.getClaimedAt() == null || entry.getClaimedAt().isBefore(staleBefore))) {
+                    entry.setClaimToken(inv.getArgument(1));
+                    entry.setClaimedAt(inv.getArgument(2));
+                    claimed++;
+                }
+            }
+            return claimed;
+        });
+        lenient().when(inboxRepository.findByClaimTokenOrderByIdAsc(anyString())).thenAnswer(inv ->
+                inbox.values().stream().filter(entry -> inv.getArgument(0).equals(entry.getClaimToken())).toList());
+        lenient().when(inboxRepository.deleteByIdIn(anyCollection())).thenAnswer(inv -> {
+            Collection<Long> ids = inv.<Collection<Long>>getArgument(0);
+            ids.forEach(inbox::remove);
+            return ids.size();
+        });
+    }
+
+    private void awaitDrained() throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 30_000;
+        while (!inbox.isEmpty() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(5);
+        }
+        assertTrue(inbox.isEmpty(), "inbox not drained: " + inbox.size());
+    }
+
+    private void fire(List<MpesaC2BCallback> callbacks, int senders) throws InterruptedException {
+        ExecutorService pool = Executors.newFixedThreadPool(senders);
+        callbacks.forEach(callback -> pool.execute(() -> ingestionService.accept(callback)));
+        pool.shutdown();
+        assertTrue(pool.awaitTermination(30, TimeUnit.SECONDS));
+    }
+
+    private MpesaC2BCallback callback(String transId, String account, String msisdn) {
+        MpesaC2BCallback callback = new MpesaC2BCallback();
+        callback.setTransactionType("Pay Bill");
+        callback.setTransId(transId);
+        callback.setTransTime("20260105093015");
+        callback.setTransAmount(new BigDecimal("15000.00"));
+        callback.setBusinessShortCode("696385");
+        callback.setBillRefNumber(account);
+        callback.setMsisdn(msisdn);
+        callback.setFirstName("JANE");
+        callback.setLastName("DOE");
+        return callback;
+    }
+}
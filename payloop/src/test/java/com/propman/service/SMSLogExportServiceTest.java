@@ -0,0 +1,115 @@
+package com.propman.service;
+
+import com.propman.repository.SMSLogExportRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.jdbc.core.RowCallbackHandler;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.sql.ResultSet;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class SMSLogExportServiceTest {
+
+    private static final LocalDateTime FROM = LocalDateTime.of(2024, 1, 1, 0, 0);
+    private static final LocalDateTime TO = LocalDateTime.of(2024, 2, 1, 0, 0);
+
+    @Mock
+    private SMSLogExportRepository smsLogExportRepository;
+
+    @Mock
+    private ResultSet resultSet;
+
+    private SMSLogExportService exportService;
+
+    @BeforeEach
+    void setUp() {
+        exportService = new SMSLogExportService(smsLogExportRepository);
+    }
+
+    @Test
+    void writesHeaderAndEscapedRows() throws Exception {
+        when(resultSet.getLong("id")).thenReturn(7L);
+        when(resultSet.getTimestamp("sent_at")).thenReturn(Timestamp.valueOf(LocalDateTime.of(2024, 1, 5, 9, 30)));
+        when(resultSet.getString("recipient_phone")).thenReturn("+254722123456");
+        when(resultSet.getString("recipient_name")).thenReturn("Smith, Jane");
+        when(resultSet.getString("sms_type")).thenReturn("RENT_REMINDER");
+        when(resultSet.getString("status")).thenReturn("SENT");
+        when(resultSet.getString("provider")).thenReturn("africastalking");
+        when(resultSet.getString("message_id")).thenReturn("ATXid_1");
+        when(resultSet.getBigDecimal("cost")).thenReturn(new BigDecimal("0.80"));
+        when(resultSet.getString("error_message")).thenReturn(null);
+        when(resultSet.getLong("tenant_id")).thenReturn(0L);
+        when(resultSet.wasNull()).thenReturn(true);
+        when(resultSet.getString("message")).thenReturn("Rent of \"KES 30,000\" due\nPay now");
+        doAnswer(inv -> {
+            RowCallbackHandler handler = inv.getArgument(3);
+            handler.processRow(resultSet);
+            handler.processRow(resultSet);
+            return null;
+        }).when(smsLogExportRepository).forEachLog(eq(1L), eq(FROM), eq(TO), any());
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        long rows = exportService.export(1L, FROM, TO, out);
+
+        String row = "7,2024-01-05T09:30,+254722123456,\"Smith, Jane\",RENT_REMINDER,SENT,africastalking,ATXid_1,0.80,,," +
+                "\"Rent of \"\"KES 30,000\"\" due\nPay now\"\n";
+        assertEquals(2, rows);
+        assertEquals(SMSLogExportService.HEADER + "\n" + row + row, out.toString(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void writesHeaderWhenNoLogs() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        assertEquals(0, exportService.export(1L, FROM, TO, out));
+        assertEquals(SMSLogExportService.HEADER + "\n", out.toString(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void clientDisconnectIsRethrown() throws Exception {
+        when(resultSet.getLong(anyString())).thenReturn(1L);
+        when(resultSet.getString(anyString())).thenReturn("x".repeat(1024));
+        doAnswer(inv -> {
+            RowCallbackHandler handler = inv.getArgument(3);
+            for (int i = 0; i < 200; i++) {
+                handler.processRow(resultSet);
+            }
+            return null;
+        }).when(smsLogExportRepository).forEachLog(any(), any(), any(), any());
+
+        OutputStream closed = new OutputStream() {
+            @Override
+            public void write(int b) throws IOException {
+                throw new IOException("Broken pipe");
+            }
+        };
+
+        IOException error = assertThrows(IOException.class, () -> exportService.export(1L, FROM, TO, closed));
+        assertEquals("Broken pipe", error.getMessage());
+    }
+
+    @Test
+    void detectsGzipSupport() {
+        assertTrue(SMSLogExportService.acceptsGzip("gzip, deflate, br"));
+        assertTrue(SMSLogExportService.acceptsGzip("br;q=1.0, gzip;q=0.8"));
+        assertTrue(SMSLogExportService.acceptsGzip("*"));
+        assertFalse(SMSLogExportService.acceptsGzip(null));
+        assertFalse(SMSLogExportService.acceptsGzip("identity"));
+        assertFalse(SMSLogExportService.acceptsGzip("gzip;q=0"));
+        assertFalse(SMSLogExportService.acceptsGzip("*, gzip;q=0.0"));
+    }
+}
@@ -0,0 +1,126 @@
+package com.propman.service;
+
+import com.propman.entity.Landlord;
+import com.propman.entity.SMSLog;
+import com.propman.repository.SMSLogRepository;
+import com.propman.repository.SMSLogSearchIndexRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class SMSLogSearchServiceTest {
+
+    @Mock
+    private SMSLogRepository smsLogRepository;
+
+    @Mock
+    private SMSLogSearchIndexRepository smsLogSearchIndexRepository;
+
+    private SMSLogSearchService searchService;
+
+    @BeforeEach
+    void setUp() {
+        searchService = new SMSLogSearchService(smsLogRepository, smsLogSearchIndexRepository);
+        ReflectionTestUtils.setField(searchService, "maxResults", 100);
+        ReflectionTestUtils.setField(searchService, "maxScan", 1000);
+        ReflectionTestUtils.setField(searchService, "backfillChunkSize", 5000);
+    }
+
+    @Test
+    void phoneSearchUsesNormalizedPrefix() {
+        SMSLog log = smsLog(1L, "Jane Smith");
+        when(smsLogRepository.searchByPhonePrefix(1L, "254712%", PageRequest.of(0, 20))).thenReturn(List.of(log));
+
+        assertEquals(List.of(log), searchService.search(1L, "0712", null, 20));
+        assertEquals(List.of(log), searchService.search(1L, "+254 712", null, 20));
+    }
+
+    @Test
+    void nameSearchDrivesWithLongestWordAndFiltersTheRest() {
+        SMSLog janeSmith = smsLog(1L, "Jane Smith");
+        SMSLog janeDoe = smsLog(2L, "Jane Doe");
+        SMSLog janetSmithers = smsLog(3L, "Janet Smithers");
+        when(smsLogRepository.searchByNameToken(1L, "smith%", PageRequest.of(0, 1000)))
+                .thenReturn(List.of(janetSmithers, janeSmith, janeSmith));
+
+        List<SMSLog> results = searchService.search(1L, null, "Jan smith", 20);
+
+        assertEquals(List.of(janetSmithers, janeSmith), results);
+        assertFalse(results.contains(janeDoe));
+    }
+
+    @Test
+    void singleNameWordReadsOnlyOnePage() {
+        when(smsLogRepository.searchByNameToken(1L, "wan%", PageRequest.of(0, 100))).thenReturn(List.of());
+
+        searchService.search(1L, null, "WAN", 500);
+
+        verify(smsLogRepository).searchByNameToken(1L, "wan%", PageRequest.of(0, 100));
+    }
+
+    @Test
+    void combinedSearchFiltersPhoneMatchesByName() {
+        SMSLog jane = smsLog(1L, "Jane Smith");
+        SMSLog tom = smsLog(2L, "Tom Otieno");
+        when(smsLogRepository.searchByPhonePrefix(1L, "254712%", PageRequest.of(0, 1000))).thenReturn(List.of(tom, jane));
+
+        assertEquals(List.of(jane), searchService.search(1L, "712", "jane", 20));
+    }
+
+    @Test
+    void rejectsTooShortOrMissingFilters() {
+        assertThrows(IllegalArgumentException.class, () -> searchService.search(1L, null, " ", 20));
+        assertThrows(IllegalArgumentException.class, () -> searchService.search(1L, "07", null, 20));
+        assertThrows(IllegalArgumentException.class, () -> searchService.search(1L, null, "j", 20));
+        verifyNoInteractions(smsLogRepository);
+    }
+
+    @Test
+    void normalizesPhonePrefixes() {
+        assertEquals("254712", SMSLogSearchService.phonePrefix("0712"));
+        assertEquals("254712", SMSLogSearchService.phonePrefix("712"));
+        assertEquals("25411", SMSLogSearchService.phonePrefix("011"));
+        assertEquals("1415", SMSLogSearchService.phonePrefix("+1 415"));
+        assertEquals(List.of("jane", "o", "brien", "wanjiru"), SMSLog.nameTokens("Jane O'Brien  WANJIRU jane"));
+    }
+
+    @Test
+    void backfillWalksIdRangesUntilMaxId() {
+        ReflectionTestUtils.setField(searchService, "backfillEnabled", true);
+        ReflectionTestUtils.setField(searchService, "backfillChunkSize", 100);
+        SMSLogSearchIndexRepository.UnindexedLog unindexed =
+                new SMSLogSearchIndexRepository.UnindexedLog(5L, 1L, "0712345678", "Jane");
+        when(smsLogSearchIndexRepository.findMaxId()).thenReturn(150L);
+        when(smsLogSearchIndexRepository.findUnindexed(0L, 100L)).thenReturn(List.of(unindexed));
+        when(smsLogSearchIndexRepository.findUnindexed(100L, 150L)).thenReturn(List.of());
+
+        searchService.backfillChunk();
+        searchService.backfillChunk();
+        searchService.backfillChunk();
+
+        verify(smsLogSearchIndexRepository).index(List.of(unindexed));
+        verify(smsLogSearchIndexRepository, times(2)).findUnindexed(anyLong(), anyLong());
+        verify(smsLogSearchIndexRepository, times(1)).findMaxId();
+    }
+
+    private SMSLog smsLog(Long id, String name) {
+        Landlord landlord = new Landlord();
+        landlord.setId(1L);
+        SMSLog log = new SMSLog();
+        log.setId(id);
+        log.setRecipientName(name);
+        log.setLandlord(landlord);
+        return log;
+    }
+}
@@ -2,22 +2,35 @@ package com.propman.service;
 
 import com.africastalking.SmsService;
 import com.africastalking.sms.Recipient;
+import com.propman.dto.PaymentNotice;
 import com.propman.entity.Landlord;
 import com.propman.entity.Property;
 import com.propman.entity.SMSLog;
 import com.propman.entity.Tenant;
 import com.propman.repository.SMSLogRepository;
+import com.propman.service.carrier.CarrierDirectory;
+import com.propman.service.carrier.CarrierRateLimiter;
+import com.propman.service.credit.SmsCreditWallet;
+import com.propman.service.dispatch.Lane;
+import com.propman.service.gateway.AfricasTalkingGateway;
+import com.propman.service.gateway.SmsGatewayRouter;
+import com.propman.service.suppression.SuppressionService;
+import com.propman.service.throttle.RecipientThrottle;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.micrometer.observation.ObservationRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
-import org.mockito.InjectMocks;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.core.io.DefaultResourceLoader;
 import org.springframework.test.util.ReflectionTestUtils;
 
 import java.math.BigDecimal;
 import java.time.LocalDate;
 import java.util.Collections;
+import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.*;
@@ -32,7 +45,18 @@ class SMSServiceTest {
     @Mock
     private SMSLogRepository smsLogRepository;
 
-    @InjectMocks
+    @Mock
+    private SuppressionService suppressionService;
+
+    @Mock
+    private RecipientThrottle recipientThrottle;
+
+    @Mock
+    private SmsCreditWallet creditWallet;
+
+    @Mock
+    private CarrierRateLimiter carrierRateLimiter;
+
     private SMSService smsService;
 
     private Tenant testTenant;
@@ -40,7 +64,29 @@ class SMSServiceTest {
     private Landlord testLandlord;
 
     @BeforeEach
-    void setUp() {
+    void setUp() throws Exception {
+        // Route through the real Africa's Talking gateway backed by the mocked SDK
+        AfricasTalkingGateway gateway = new AfricasTalkingGateway(() -> africasTalkingSmsService);
+        ReflectionTestUtils.setField(gateway, "costPerMessage", new BigDecimal("0.80"));
+
+        SmsGatewayRouter gatewayRouter = new SmsGatewayRouter(List.of(gateway), ObservationRegistry.NOOP,
+                new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(gatewayRouter, "smoothing", 0.2);
+        ReflectionTestUtils.setField(gatewayRouter, "failureThreshold", 5);
+
+        CarrierDirectory carrierDirectory = new CarrierDirectory(new DefaultResourceLoader(), new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(carrierDirectory, "prefixFile", "classpath:carriers/prefixes.csv");
+        ReflectionTestUtils.setField(carrierDirectory, "defaultPrice", new BigDecimal("1.00"));
+        ReflectionTestUtils.setField(carrierDirectory, "defaultCountryCode", "+254");
+        carrierDirectory.load();
+
+        smsService = new SMSService(gatewayRouter, smsLogRepository, suppressionService, recipientThrottle, creditWallet,
+                carrierDirectory, carrierRateLimiter, ObservationRegistry.NOOP);
+        lenient().when(carrierRateLimiter.tryAcquire(any(), any())).thenReturn(true);
+        lenient().when(recipientThrottle.tryAcquire(anyString(), any())).thenReturn(true);
+        lenient().when(creditWallet.reserve(any(), any(), anyBoolean()))
+                .thenReturn(new SmsCreditWallet.Reservation(1L, 100, null));
+
         // Set up test data
         testLandlord = new Landlord();
         testLandlord.setId(1L);
@@ -91,7 +137,13 @@ class SMSServiceTest {
         // Assert
         assertTrue(result);
         verify(africasTalkingSmsService).send(anyString(), any(String[].class), eq("PropMan"));
-        verify(smsLogRepository).save(any(SMSLog.class));
+
+        ArgumentCaptor<SMSLog> logCaptor = ArgumentCaptor.forClass(SMSLog.class);
+        verify(smsLogRepository).save(logCaptor.capture());
+        assertEquals(SMSLog.SMSStatus.SENT, logCaptor.getValue().getStatus());
+        assertEquals(new BigDecimal("1.0000"), logCaptor.getValue().getCost());
+        assertEquals(AfricasTalkingGateway.NAME, logCaptor.getValue().getProvider());
+        verify(creditWallet).settle(any(), eq(logCaptor.getValue()));
     }
 
     @Test
@@ -113,6 +165,128 @@ class SMSServiceTest {
         verify(smsLogRepository).save(any(SMSLog.class));
     }
 
+    @Test
+    void testSendRentReminder_SuppressedNumberIsNotSent() throws Exception {
+        // Arrange
+        when(suppressionService.isSuppressed("+254722123456")).thenReturn(true);
+        when(smsLogRepository.save(any(SMSLog.class))).thenReturn(new SMSLog());
+
+        // Act
+        boolean result = smsService.sendRentReminder(testTenant, 3);
+
+        // Assert
+        assertFalse(result);
+        verifyNoInteractions(africasTalkingSmsService);
+
+        ArgumentCaptor<SMSLog> logCaptor = ArgumentCaptor.forClass(SMSLog.class);
+        verify(smsLogRepository).save(logCaptor.capture());
+        assertEquals(SMSLog.SMSStatus.SUPPRESSED, logCaptor.getValue().getStatus());
+        assertEquals(BigDecimal.ZERO, logCaptor.getValue().getCost());
+    }
+
+    @Test
+    void testSendRentReminder_ThrottledNumberIsNotSent() throws Exception {
+        // Arrange
+        when(recipientThrottle.tryAcquire("+254722123456", SMSLog.SMSType.RENT_REMINDER)).thenReturn(false);
+        when(smsLogRepository.save(any(SMSLog.class))).thenReturn(new SMSLog());
+
+        // Act
+        boolean result = smsService.sendRentReminder(testTenant, 3);
+
+        // Assert
+        assertFalse(result);
+        verifyNoInteractions(africasTalkingSmsService);
+
+        ArgumentCaptor<SMSLog> logCaptor = ArgumentCaptor.forClass(SMSLog.class);
+        verify(smsLogRepository).save(logCaptor.capture());
+        assertEquals(SMSLog.SMSStatus.THROTTLED, logCaptor.getValue().getStatus());
+        assertEquals(BigDecimal.ZERO, logCaptor.getValue().getCost());
+        // A number over its own limit does not use up a carrier slot
+        verifyNoInteractions(carrierRateLimiter);
+    }
+
+    @Test
+    void testSendRentReminder_CarrierRateLimitedIsNotSent() throws Exception {
+        // Arrange
+        when(carrierRateLimiter.tryAcquire(any(), eq(Lane.BULK))).thenReturn(false);
+        when(smsLogRepository.save(any(SMSLog.class))).thenReturn(new SMSLog());
+
+        // Act
+        boolean result = smsService.sendRentReminder(testTenant, 3);
+
+        // Assert
+        assertFalse(result);
+        verifyNoInteractions(africasTalkingSmsService);
+        verify(recipientThrottle).release("+254722123456", SMSLog.SMSType.RENT_REMINDER);
+
+        ArgumentCaptor<SMSLog> logCaptor = ArgumentCaptor.forClass(SMSLog.class);
+        verify(smsLogRepository).save(logCaptor.capture());
+        assertEquals(SMSLog.SMSStatus.THROTTLED, logCaptor.getValue().getStatus());
+        assertEquals("Carrier rate limit reached", logCaptor.getValue().getErrorMessage());
+    }
+
+    @Test
+    void testSendCustomSMS_ReservesAtCarrierPrice() throws Exception {
+        // Arrange
+        when(smsLogRepository.save(any(SMSLog.class))).thenReturn(new SMSLog());
+
+        // Act
+        smsService.sendCustomSMS("0733123456", "x".repeat(200), testTenant, testLandlord);
+
+        // Assert: two parts at the Airtel Kenya price
+        verify(creditWallet).reserve(testLandlord, new BigDecimal("1.80"), false);
+    }
+
+    @Test
+    void testEstimateCampaignCost_PricesRenderedMessage() {
+        String template = "x".repeat(150) + " {property}";
+
+        // 150 characters as written, 166 once the property name is filled in
+        assertEquals(new BigDecimal("2.00"), smsService.estimateCampaignCost(testTenant, template));
+
+        testTenant.setPhone("0733123456");
+        assertEquals(new BigDecimal("1.80"), smsService.estimateCampaignCost(testTenant, template));
+    }
+
+    @Test
+    void testSendRentReminder_BlockedWithoutCredit() throws Exception {
+        // Arrange
+        when(creditWallet.reserve(eq(testLandlord), any(), eq(false)))
+                .thenReturn(new SmsCreditWallet.Reservation(null, 0, "Insufficient SMS credit"));
+        when(smsLogRepository.save(any(SMSLog.class))).thenReturn(new SMSLog());
+
+        // Act
+        boolean result = smsService.sendRentReminder(testTenant, 3);
+
+        // Assert
+        assertFalse(result);
+        verifyNoInteractions(africasTalkingSmsService);
+        verify(recipientThrottle, never()).tryAcquire(anyString(), any());
+
+        ArgumentCaptor<SMSLog> logCaptor = ArgumentCaptor.forClass(SMSLog.class);
+        verify(smsLogRepository).save(logCaptor.capture());
+        assertEquals(SMSLog.SMSStatus.BLOCKED, logCaptor.getValue().getStatus());
+        assertEquals("Insufficient SMS credit", logCaptor.getValue().getErrorMessage());
+    }
+
+    @Test
+    void testSendRentReminder_RejectionIsReportedForSuppression() throws Exception {
+        // Arrange
+        Recipient mockRecipient = new Recipient();
+        mockRecipient.status = "InvalidPhoneNumber";
+
+        when(africasTalkingSmsService.send(anyString(), any(String[].class), anyString()))
+                .thenReturn(Collections.singletonList(mockRecipient));
+        when(smsLogRepository.save(any(SMSLog.class))).thenReturn(new SMSLog());
+
+        // Act
+        boolean result = smsService.sendRentReminder(testTenant, 3);
+
+        // Assert
+        assertFalse(result);
+        verify(suppressionService).recordRejection("+254722123456", "InvalidPhoneNumber");
+    }
+
     @Test
     void testSendOverdueNotice_Success() throws Exception {
         // Arrange
@@ -151,6 +325,8 @@ class SMSServiceTest {
         assertTrue(result);
         verify(africasTalkingSmsService).send(anyString(), any(String[].class), eq("PropMan"));
         verify(smsLogRepository).save(any(SMSLog.class));
+        // Receipts may overdraw the landlord's credit
+        verify(creditWallet).reserve(eq(testLandlord), any(), eq(true));
     }
 
     @Test
@@ -172,4 +348,33 @@ class SMSServiceTest {
         verify(africasTalkingSmsService).send(anyString(), any(String[].class), eq("PropMan"));
         verify(smsLogRepository).save(any(SMSLog.class));
     }
-}
\ No newline at end of file
+
+    @Test
+    void testSendLandlordPaymentDigest_MergesPayments() throws Exception {
+        // Arrange
+        Recipient mockRecipient = new Recipient();
+        mockRecipient.status = "Success";
+        mockRecipient.messageId = "ATXid_567890";
+
+        when(africasTalkingSmsService.send(anyString(), any(String[].class), anyString()))
+                .thenReturn(Collections.singletonList(mockRecipient));
+        when(smsLogRepository.save(any(SMSLog.class))).thenReturn(new SMSLog());
+        ReflectionTestUtils.setField(smsService, "digestMaxListed", 2);
+
+        List<PaymentNotice> payments = List.of(
+                new PaymentNotice(testTenant, "Jane Smith", "A1", "Test Apartments", new BigDecimal("30000")),
+                new PaymentNotice(null, "Tom Otieno", "A2", "Test Apartments", new BigDecimal("25000")),
+                new PaymentNotice(null, "Ann Wanjiru", "B4", "Test Apartments", new BigDecimal("20000")));
+
+        // Act
+        boolean result = smsService.sendLandlordPaymentDigest(testLandlord, payments);
+
+        // Assert
+        assertTrue(result);
+        ArgumentCaptor<String> messageCaptor = ArgumentCaptor.forClass(String.class);
+        verify(africasTalkingSmsService, times(1)).send(messageCaptor.capture(), eq(new String[]{"+254712345678"}), eq("PropMan"));
+        assertEquals("Payment Alert: 3 payments received totalling KES 75,000: " +
+                "Unit A1 KES 30,000, Unit A2 KES 25,000 and 1 more. Details in your PropMan account.",
+                messageCaptor.getValue());
+    }
+}
@@ -0,0 +1,225 @@
+package com.propman.service;
+
+import com.propman.dto.TenantImportReport;
+import com.propman.entity.Landlord;
+import com.propman.entity.Property;
+import com.propman.entity.Tenant;
+import com.propman.repository.PropertyRepository;
+import com.propman.repository.TenantBatchRepository;
+import com.propman.repository.TenantRepository;
+import com.propman.service.dispatch.Admission;
+import com.propman.service.dispatch.Lane;
+import com.propman.service.dispatch.OutboundDispatcher;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.StringReader;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class TenantImportServiceTest {
+
+    private static final String HEADER =
+            "property_name,property_location,total_units,tenant_name,phone,email,rent_amount,due_date,move_in_date,unit_number\n";
+
+    @Mock
+    private PropertyRepository propertyRepository;
+
+    @Mock
+    private TenantRepository tenantRepository;
+
+    @Mock
+    private TenantBatchRepository tenantBatchRepository;
+
+    @Mock
+    private SMSService smsService;
+
+    @Mock
+    private OutboundDispatcher dispatcher;
+
+    @Mock
+    private DashboardService dashboardService;
+
+    private TenantImportService importService;
+
+    private Landlord landlord;
+    private Property existingProperty;
+    private final List<List<Tenant>> insertedBatches = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        importService = new TenantImportService(propertyRepository, tenantRepository, tenantBatchRepository, smsService, dispatcher,
+                dashboardService);
+        ReflectionTestUtils.setField(importService, "batchSize", 2);
+        ReflectionTestUtils.setField(importService, "maxErrors", 100);
+
+        landlord = new Landlord();
+        landlord.setId(1L);
+
+        existingProperty = new Property();
+        existingProperty.setId(10L);
+        existingProperty.setName("Sunrise Apartments");
+        existingProperty.setLandlord(landlord);
+
+        lenient().when(propertyRepository.findByLandlordId(1L)).thenReturn(List.of(existingProperty));
+        lenient().when(tenantRepository.findExistingPhones(anyCollection())).thenReturn(List.of());
+        lenient().doAnswer(inv -> {
+            List<Tenant> batch = inv.getArgument(0);
+            insertedBatches.add(new ArrayList<>(batch));
+            return null;
+        }).when(tenantBatchRepository).insertTenants(anyList());
+    }
+
+    @Test
+    void importsValidRowsInBatches() throws Exception {
+        String csv = HEADER +
+                "Sunrise Apartments,,,Jane Smith,+254722123456,jane@test.com,\"30,000\",5,2024-01-15,A1\n" +
+                "sunrise apartments,,,Tom Otieno,0733123456,,25000,1,2024-02-01,A2\n" +
+                "Sunrise Apartments,,,Ann Wanjiru,0711123456,,20000,31,,B4\n";
+
+        TenantImportReport report = importService.importTenants(landlord, new StringReader(csv), false);
+
+        assertEquals(3, report.getRowsRead());
+        assertEquals(3, report.getImported());
+        assertEquals(0, report.getFailed());
+        assertEquals(2, insertedBatches.size());
+        assertEquals(2, insertedBatches.get(0).size());
+
+        Tenant jane = insertedBatches.get(0).get(0);
+        assertEquals(new BigDecimal("30000"), jane.getRentAmount());
+        assertEquals(Tenant.dueDateOnOrAfter(LocalDate.now(), 5), jane.getNextDueDate());
+        assertSame(existingProperty, jane.getProperty());
+        assertSame(existingProperty, insertedBatches.get(0).get(1).getProperty());
+        verifyNoInteractions(dispatcher);
+    }
+
+    @Test
+    void nextDueDateIsSeededFromTodayOrALaterMoveIn() throws Exception {
+        LocalDate today = LocalDate.now();
+        LocalDate futureMoveIn = today.plusMonths(2);
+        String csv = HEADER +
+                "Sunrise Apartments,,,Jane Smith,+254722123456,,30000,10,2019-06-01,A1\n" +
+                "Sunrise Apartments,,,Tom Otieno,0733123456,,25000,10," + futureMoveIn + ",A2\n";
+
+        importService.importTenants(landlord, new StringReader(csv), false);
+
+        Tenant longStanding = insertedBatches.get(0).get(0);
+        assertFalse(longStanding.getNextDueDate().isBefore(today));
+        assertEquals(Tenant.dueDateOnOrAfter(today, 10), longStanding.getNextDueDate());
+        assertEquals(LocalDate.of(2019, 6, 1), longStanding.getMoveInDate());
+        assertEquals(Tenant.dueDateOnOrAfter(futureMoveIn, 10), insertedBatches.get(0).get(1).getNextDueDate());
+    }
+
+    @Test
+    void reportsInvalidAndDuplicateRows() throws Exception {
+        when(tenantRepository.findExistingPhones(anyCollection())).thenReturn(List.of("0744123456"));
+
+        String csv = HEADER +
+                "Sunrise Apartments,,,Jane Smith,12345,,30000,5,2024-01-15,A1\n" +
+                "Sunrise Apartments,,,Tom Otieno,0733123456,,25000,32,2024-02-01,A2\n" +
+                "Sunrise Apartments,,,Ann Wanjiru,0711123456,,20000,10,2024-02-01,B4\n" +
+                "Sunrise Apartments,,,Ann Again,+254711123456,,20000,10,2024-02-01,B5\n" +
+                "Sunrise Apartments,,,Known Tenant,+254744123456,,20000,10,2024-02-01,B6\n";
+
+        TenantImportReport report = importService.importTenants(landlord, new StringReader(csv), false);
+
+        assertEquals(5, report.getRowsRead());
+        assertEquals(1, report.getImported());
+        assertEquals(4, report.getFailed());
+        assertEquals(List.of(2L, 3L, 5L, 6L), report.getErrors().stream().map(TenantImportReport.RowError::getRow).toList());
+        assertTrue(report.getErrors().get(0).getMessage().contains("phone"));
+        assertTrue(report.getErrors().get(1).getMessage().contains("due_date"));
+        assertEquals("Phone number appears earlier in the file", report.getErrors().get(2).getMessage());
+        assertEquals("Phone number is already registered", report.getErrors().get(3).getMessage());
+    }
+
+    @Test
+    void createsNewPropertyOnce() throws Exception {
+        when(propertyRepository.save(any(Property.class))).thenAnswer(inv -> {
+            Property property = inv.getArgument(0);
+            property.setId(11L);
+            return property;
+        });
+
+        String csv = HEADER +
+                "Green Court,Kilimani,12,Jane Smith,0722123456,,30000,5,2024-01-15,G1\n" +
+                "Green Court,Kilimani,12,Tom Otieno,0733123456,,25000,5,2024-01-15,G2\n" +
+                "Blue Court,,,Ann Wanjiru,0711123456,,20000,5,2024-01-15,B1\n";
+
+        TenantImportReport report = importService.importTenants(landlord, new StringReader(csv), false);
+
+        assertEquals(1, report.getPropertiesCreated());
+        assertEquals(2, report.getImported());
+        assertTrue(report.getErrors().get(0).getMessage().contains("property_location"));
+
+        ArgumentCaptor<Property> captor = ArgumentCaptor.forClass(Property.class);
+        verify(propertyRepository, times(1)).save(captor.capture());
+        assertEquals(12, captor.getValue().getTotalUnits());
+        assertEquals(Property.PropertyType.APARTMENT, captor.getValue().getPropertyType());
+    }
+
+    @Test
+    void failedBatchIsRetriedRowByRow() throws Exception {
+        doAnswer(inv -> {
+            List<Tenant> batch = inv.getArgument(0);
+            if (batch.size() > 1 || batch.get(0).getPhone().equals("0733123456")) {
+                throw new DataIntegrityViolationException("Duplicate entry");
+            }
+            insertedBatches.add(new ArrayList<>(batch));
+            return null;
+        }).when(tenantBatchRepository).insertTenants(anyList());
+
+        String csv = HEADER +
+                "Sunrise Apartments,,,Jane Smith,0722123456,,30000,5,2024-01-15,A1\n" +
+                "Sunrise Apartments,,,Tom Otieno,0733123456,,25000,5,2024-01-15,A2\n";
+
+        TenantImportReport report = importService.importTenants(landlord, new StringReader(csv), false);
+
+        assertEquals(1, report.getImported());
+        assertEquals(1, report.getFailed());
+        assertEquals(3L, report.getErrors().get(0).getRow());
+    }
+
+    @Test
+    void queuesWelcomeMessagesInBulkLane() throws Exception {
+        when(dispatcher.submit(eq(landlord), eq(Lane.BULK), any(BooleanSupplier.class))).thenAnswer(inv -> {
+            inv.<BooleanSupplier>getArgument(2).getAsBoolean();
+            return Admission.QUEUED;
+        });
+
+        String csv = HEADER +
+                "Sunrise Apartments,,,Jane Smith,0722123456,,30000,5,2024-01-15,A1\n";
+
+        TenantImportReport report = importService.importTenants(landlord, new StringReader(csv), true);
+
+        assertEquals(1, report.getWelcomeMessagesQueued());
+        verify(smsService).sendWelcomeMessage(insertedBatches.get(0).get(0));
+    }
+
+    @Test
+    void rejectsMissingColumns() {
+        IllegalArgumentException error = assertThrows(IllegalArgumentException.class,
+                () -> importService.importTenants(landlord, new StringReader("tenant_name,phone\n"), false));
+
+        assertTrue(error.getMessage().contains("property_name"));
+    }
+
+    @Test
+    void parsesQuotedFields() {
+        assertEquals(List.of("a", "b, c", "say \"hi\"", ""), TenantImportService.parseLine("a,\"b, c\",\"say \"\"hi\"\"\","));
+    }
+}
@@ -0,0 +1,99 @@
+package com.propman.service;
+
+import com.propman.entity.Payment;
+import com.propman.entity.Tenant;
+import com.propman.repository.PaymentRepository;
+import com.propman.repository.TenantRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class TenantServiceTest {
+
+    @Mock
+    private TenantRepository tenantRepository;
+
+    @Mock
+    private PaymentRepository paymentRepository;
+
+    @Mock
+    private LedgerService ledgerService;
+
+    private TenantService tenantService;
+
+    @BeforeEach
+    void setUp() {
+        tenantService = new TenantService(tenantRepository, paymentRepository, ledgerService);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void backfillSetsDefaultersToLastDueDateAndOthersToNext() {
+        ArgumentCaptor<Integer> dueDays = ArgumentCaptor.forClass(Integer.class);
+        ArgumentCaptor<Collection<Tenant.TenantStatus>> statuses = ArgumentCaptor.forClass(Collection.class);
+        ArgumentCaptor<LocalDate> dates = ArgumentCaptor.forClass(LocalDate.class);
+        LocalDate today = LocalDate.now();
+
+        tenantService.backfillNextDueDates();
+
+        verify(tenantRepository, times(62)).initializeNextDueDate(dueDays.capture(), statuses.capture(), dates.capture());
+        for (int i = 0; i < 62; i++) {
+            int dueDay = dueDays.getAllValues().get(i);
+            LocalDate date = dates.getAllValues().get(i);
+            boolean defaulters = statuses.getAllValues().get(i).contains(Tenant.TenantStatus.DEFAULTER);
+
+            assertEquals(Math.min(dueDay, YearMonth.from(date).lengthOfMonth()), date.getDayOfMonth());
+            if (defaulters) {
+                assertEquals(Set.of(Tenant.TenantStatus.DEFAULTER), Set.copyOf(statuses.getAllValues().get(i)));
+                assertFalse(date.isAfter(today));
+                assertTrue(date.isAfter(today.minusMonths(1).minusDays(1)));
+            } else {
+                assertFalse(statuses.getAllValues().get(i).contains(Tenant.TenantStatus.DEFAULTER));
+                assertFalse(date.isBefore(today));
+                assertTrue(date.isBefore(today.plusMonths(1).plusDays(1)));
+            }
+        }
+    }
+
+    @Test
+    void recordPaymentStoresReferenceAndCarriesPartialAmount() {
+        Tenant tenant = new Tenant();
+        tenant.setId(7L);
+        tenant.setRentAmount(new BigDecimal("1000"));
+        tenant.setDueDate(5);
+        tenant.setNextDueDate(LocalDate.of(2024, 3, 5));
+        when(tenantRepository.findByIdForUpdate(7L)).thenReturn(Optional.of(tenant));
+        when(tenantRepository.findWithPropertyAndLandlordByIdIn(List.of(7L))).thenReturn(List.of(tenant));
+
+        tenantService.recordPayment(tenant, new BigDecimal("600"), Payment.PaymentMethod.CASH, "R-1",
+                LocalDateTime.of(2024, 3, 1, 9, 0));
+        tenantService.recordPayment(tenant, new BigDecimal("600"), Payment.PaymentMethod.CASH, "R-2",
+                LocalDateTime.of(2024, 3, 4, 9, 0));
+
+        ArgumentCaptor<Payment> payments = ArgumentCaptor.forClass(Payment.class);
+        verify(paymentRepository, times(2)).save(payments.capture());
+        assertEquals(List.of("R-1", "R-2"), payments.getAllValues().stream().map(Payment::getReference).toList());
+        assertEquals(Payment.PaymentMethod.CASH, payments.getAllValues().get(0).getMethod());
+        verify(ledgerService).postPayment(tenant, new BigDecimal("600"), "R-2");
+
+        assertEquals(LocalDate.of(2024, 4, 5), tenant.getNextDueDate());
+        assertEquals(0, new BigDecimal("200").compareTo(tenant.getPaidTowardsNextDue()));
+    }
+}
@@ -0,0 +1,71 @@
+package com.propman.service.carrier;
+
+import com.propman.entity.SMSLog;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.DefaultResourceLoader;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.math.BigDecimal;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CarrierDirectoryTest {
+
+    private SimpleMeterRegistry meterRegistry;
+    private CarrierDirectory directory;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        meterRegistry = new SimpleMeterRegistry();
+        directory = new CarrierDirectory(new DefaultResourceLoader(), meterRegistry);
+        ReflectionTestUtils.setField(directory, "prefixFile", "classpath:carriers/prefixes.csv");
+        ReflectionTestUtils.setField(directory, "defaultPrice", new BigDecimal("1.00"));
+        ReflectionTestUtils.setField(directory, "defaultCountryCode", "+254");
+        directory.load();
+    }
+
+    @Test
+    void classifiesInternationalNumbersByLongestPrefix() {
+        assertEquals("Safaricom", directory.classify("+254722123456").name());
+        assertEquals("Airtel", directory.classify("254733123456").name());
+        // 25476 is not listed; 254763-254766 is Equitel and 254768 Safaricom
+        assertEquals("Equitel", directory.classify("+254764000000").name());
+        assertEquals("Safaricom", directory.classify("+254768000000").name());
+        assertEquals("UG", directory.classify("+256772123456").country());
+    }
+
+    @Test
+    void classifiesLocalNumbersInDefaultCountry() {
+        Carrier carrier = directory.classify("0733 123 456");
+
+        assertEquals("KE", carrier.country());
+        assertEquals("Airtel", carrier.name());
+        assertEquals(new BigDecimal("0.90"), carrier.pricePerPart());
+        assertEquals("Safaricom", directory.classify("712345678").name());
+        assertEquals("Safaricom", directory.classify("0110123456").name());
+    }
+
+    @Test
+    void unlistedNumbersGetDefaultCarrier() {
+        Carrier carrier = directory.classify("+447700900123");
+
+        assertFalse(carrier.isKnown());
+        assertSame(directory.getDefaultCarrier(), carrier);
+        assertEquals(0, carrier.ratePerSecond());
+        assertSame(carrier, directory.classify("+25476"));
+        assertSame(carrier, directory.classify(null));
+    }
+
+    @Test
+    void countsOutcomesPerCarrier() {
+        Carrier safaricom = directory.classify("+254722123456");
+
+        directory.recordOutcome(safaricom, SMSLog.SMSStatus.SENT);
+        directory.recordOutcome(safaricom, SMSLog.SMSStatus.SENT);
+
+        assertEquals(2, meterRegistry.get("sms.carrier.messages")
+                .tags("country", "KE", "carrier", "Safaricom", "status", "SENT").counter().count());
+    }
+}
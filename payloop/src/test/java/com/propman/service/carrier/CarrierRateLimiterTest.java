@@ -0,0 +1,67 @@
+package com.propman.service.carrier;
+
+import com.propman.service.dispatch.Lane;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.math.BigDecimal;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CarrierRateLimiterTest {
+
+    private static final long SECOND = TimeUnit.SECONDS.toNanos(1);
+
+    @Test
+    void allowsOneSecondBurstThenPaces() {
+        CarrierRateLimiter.Pacer pacer = new CarrierRateLimiter.Pacer(10, null);
+        long now = 5 * SECOND;
+
+        for (int i = 0; i < 10; i++) {
+            assertEquals(0, pacer.reserve(now, 0));
+        }
+        assertEquals(-1, pacer.reserve(now, 0));
+        assertEquals(SECOND / 10, pacer.reserve(now, SECOND));
+        // Idle time refills the bucket, but only up to one second of sends
+        assertEquals(0, pacer.reserve(now + 10 * SECOND, 0));
+    }
+
+    @Test
+    void slowCarriersDoNotWaitForFirstSend() {
+        CarrierRateLimiter.Pacer pacer = new CarrierRateLimiter.Pacer(0.5, null);
+
+        assertEquals(0, pacer.reserve(SECOND, 0));
+        assertEquals(-1, pacer.reserve(SECOND, SECOND));
+        assertEquals(2 * SECOND, pacer.reserve(SECOND, 2 * SECOND));
+    }
+
+    @Test
+    void transactionalSendsTakeASlotWithoutWaiting() {
+        CarrierRateLimiter limiter = new CarrierRateLimiter(new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(limiter, "acquireTimeoutMs", 0L);
+        Carrier carrier = new Carrier("KE", "Telkom", new BigDecimal("0.90"), 2);
+
+        for (int i = 0; i < 5; i++) {
+            assertTrue(limiter.tryAcquire(carrier, Lane.TRANSACTIONAL));
+        }
+        // The receipts used the carrier's capacity, so bulk waits for it
+        assertFalse(limiter.tryAcquire(carrier, Lane.BULK));
+    }
+
+    @Test
+    void rejectsAndCountsWhenNoSlotWithinTimeout() {
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        CarrierRateLimiter limiter = new CarrierRateLimiter(meterRegistry);
+        ReflectionTestUtils.setField(limiter, "acquireTimeoutMs", 0L);
+        Carrier carrier = new Carrier("KE", "Telkom", new BigDecimal("0.90"), 2);
+
+        assertTrue(limiter.tryAcquire(carrier, Lane.BULK));
+        assertTrue(limiter.tryAcquire(carrier, Lane.BULK));
+        assertFalse(limiter.tryAcquire(carrier, Lane.BULK));
+        assertTrue(limiter.tryAcquire(new Carrier("unknown", "unknown", BigDecimal.ONE, 0), Lane.BULK));
+        assertEquals(1, meterRegistry.get("sms.carrier.rate.limited")
+                .tags("country", "KE", "carrier", "Telkom").counter().count());
+    }
+}
@@ -0,0 +1,195 @@
+package com.propman.service.credit;
+
+import com.propman.entity.Landlord;
+import com.propman.entity.SMSLog;
+import com.propman.repository.SMSLogRepository;
+import com.propman.repository.SmsCreditBatchRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class SmsCreditWalletTest {
+
+    @Mock
+    private SmsCreditBatchRepository smsCreditBatchRepository;
+
+    @Mock
+    private SMSLogRepository smsLogRepository;
+
+    private SmsCreditWallet wallet;
+    private Landlord landlord;
+
+    @BeforeEach
+    void setUp() {
+        wallet = new SmsCreditWallet(smsCreditBatchRepository, smsLogRepository);
+        ReflectionTestUtils.setField(wallet, "enforced", true);
+        ReflectionTestUtils.setField(wallet, "transactionalOverdraft", new BigDecimal("1.50"));
+        ReflectionTestUtils.setField(wallet, "openingAmount", BigDecimal.ZERO);
+        ReflectionTestUtils.setField(wallet, "flushBatchSize", 2);
+        ReflectionTestUtils.setField(wallet, "graceMinutes", 5L);
+        ReflectionTestUtils.setField(wallet, "lookbackHours", 24L);
+        ReflectionTestUtils.setField(wallet, "reconcileChunkSize", 100);
+
+        landlord = new Landlord();
+        landlord.setId(1L);
+        landlord.setSubscriptionStatus(Landlord.SubscriptionStatus.ACTIVE);
+    }
+
+    @Test
+    void reservesUntilCreditRunsOut() {
+        when(smsCreditBatchRepository.findBalance(1L)).thenReturn(new BigDecimal("2.50"));
+
+        assertTrue(wallet.reserve(landlord, new BigDecimal("1.00")).isGranted());
+        assertTrue(wallet.reserve(landlord, new BigDecimal("1.00")).isGranted());
+        SmsCreditWallet.Reservation refused = wallet.reserve(landlord, new BigDecimal("1.00"));
+
+        assertFalse(refused.isGranted());
+        assertEquals("Insufficient SMS credit", refused.refusal());
+        assertEquals(new BigDecimal("0.50"), wallet.getBalance(1L).available());
+        // Balance is read once and then kept in memory
+        verify(smsCreditBatchRepository, times(1)).findBalance(1L);
+    }
+
+    @Test
+    void transactionalMessagesMayOverdrawUpToTheLimit() {
+        when(smsCreditBatchRepository.findBalance(1L)).thenReturn(BigDecimal.ZERO);
+
+        assertFalse(wallet.reserve(landlord, new BigDecimal("1.00")).isGranted());
+        assertTrue(wallet.reserve(landlord, new BigDecimal("1.00"), true).isGranted());
+        assertFalse(wallet.reserve(landlord, new BigDecimal("1.00"), true).isGranted());
+        assertEquals(new BigDecimal("-1.00"), wallet.getBalance(1L).available());
+    }
+
+    @Test
+    void refusesInactiveSubscriptionsAndSkipsMessagesWithoutLandlord() {
+        landlord.setSubscriptionStatus(Landlord.SubscriptionStatus.SUSPENDED);
+
+        assertEquals("Subscription is SUSPENDED", wallet.reserve(landlord, BigDecimal.ONE).refusal());
+        assertTrue(wallet.reserve(null, BigDecimal.ONE).isGranted());
+        verifyNoInteractions(smsCreditBatchRepository);
+    }
+
+    @Test
+    void settlesActualCostAndFlushesInBatches() {
+        when(smsCreditBatchRepository.findBalance(1L)).thenReturn(new BigDecimal("10.00"));
+
+        for (long id = 1; id <= 3; id++) {
+            SmsCreditWallet.Reservation reservation = wallet.reserve(landlord, new BigDecimal("1.00"));
+            wallet.settle(reservation, sentLog(id, "0.80"));
+        }
+        SmsCreditWallet.Reservation failed = wallet.reserve(landlord, new BigDecimal("1.00"));
+        wallet.settle(failed, sentLog(4L, "0"));
+
+        assertEquals(new BigDecimal("2.40"), wallet.getBalance(1L).reserved());
+        wallet.flush();
+
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<List<SmsCreditBatchRepository.Debit>> batches = ArgumentCaptor.forClass(List.class);
+        verify(smsCreditBatchRepository, times(2)).postDebits(batches.capture());
+        assertEquals(2, batches.getAllValues().get(0).size());
+        assertEquals(1, batches.getAllValues().get(1).size());
+
+        SmsCreditWallet.CreditBalance balance = wallet.getBalance(1L);
+        assertEquals(new BigDecimal("7.60"), balance.balance());
+        assertEquals(new BigDecimal("0.00"), balance.reserved());
+    }
+
+    @Test
+    void flushSkipsMessagesAlreadyDebited() {
+        when(smsCreditBatchRepository.findBalance(1L)).thenReturn(new BigDecimal("10.00"));
+        doThrow(new DataIntegrityViolationException("duplicate"))
+                .when(smsCreditBatchRepository).postDebits(argThat(debits -> debits.size() > 1 || debits.get(0).smsLogId() == 1L));
+
+        wallet.settle(wallet.reserve(landlord, BigDecimal.ONE), sentLog(1L, "1.00"));
+        wallet.settle(wallet.reserve(landlord, BigDecimal.ONE), sentLog(2L, "1.00"));
+        wallet.flush();
+
+        // Batch, then each debit alone
+        verify(smsCreditBatchRepository, times(3)).postDebits(any());
+        assertEquals(new BigDecimal("0.00"), wallet.getBalance(1L).reserved());
+        assertEquals(new BigDecimal("8.00"), wallet.getBalance(1L).balance());
+    }
+
+    @Test
+    void refreshPicksUpBalanceChangedElsewhere() {
+        when(smsCreditBatchRepository.findBalance(1L)).thenReturn(new BigDecimal("1.00"));
+        assertFalse(wallet.reserve(landlord, new BigDecimal("2.00")).isGranted());
+
+        when(smsCreditBatchRepository.findBalances(any())).thenReturn(Map.of(1L, new BigDecimal("5.00")));
+        wallet.refresh();
+
+        assertTrue(wallet.reserve(landlord, new BigDecimal("2.00")).isGranted());
+    }
+
+    @Test
+    void reconcileDebitsLogsMissingFromLedger() {
+        when(smsCreditBatchRepository.findFirstTransactionTime()).thenReturn(LocalDateTime.now().minusDays(30));
+        when(smsLogRepository.findFirstIdSentSince(any())).thenReturn(11L);
+        when(smsCreditBatchRepository.findLastLogIdSentBefore(eq(10L), any(), eq(100))).thenReturn(20L);
+        when(smsCreditBatchRepository.findLastLogIdSentBefore(eq(20L), any(), eq(100))).thenReturn(20L);
+        SmsCreditBatchRepository.Debit missing = new SmsCreditBatchRepository.Debit(1L, 15L, new BigDecimal("0.80"));
+        when(smsCreditBatchRepository.findUndebitedLogs(10L, 20L)).thenReturn(List.of(missing));
+
+        wallet.load();
+
+        verify(smsCreditBatchRepository).postDebits(List.of(missing));
+        assertEquals(20L, ReflectionTestUtils.getField(wallet, "reconciledUpTo"));
+    }
+
+    @Test
+    void reconcileStartsAtNewestLogWhenLedgerIsEmpty() {
+        when(smsCreditBatchRepository.findFirstTransactionTime()).thenReturn(null);
+        when(smsLogRepository.findFirstIdSentSince(any())).thenReturn(501L);
+        when(smsCreditBatchRepository.findLastLogIdSentBefore(eq(500L), any(), anyInt())).thenReturn(500L);
+
+        wallet.load();
+
+        verify(smsCreditBatchRepository, never()).findUndebitedLogs(anyLong(), anyLong());
+    }
+
+    @Test
+    void loadGrantsOpeningCreditToLandlordsFromBeforeTheWallet() {
+        LocalDateTime firstTransaction = LocalDateTime.now().minusDays(30);
+        ReflectionTestUtils.setField(wallet, "openingAmount", new BigDecimal("100"));
+        when(smsCreditBatchRepository.findFirstTransactionTime()).thenReturn(firstTransaction);
+        when(smsLogRepository.findFirstIdSentSince(any())).thenReturn(1L);
+        when(smsCreditBatchRepository.findLastLogIdSentBefore(eq(0L), any(), anyInt())).thenReturn(0L);
+
+        wallet.load();
+
+        verify(smsCreditBatchRepository).postOpeningCredits(new BigDecimal("100.00"), firstTransaction);
+    }
+
+    @Test
+    void loadGrantsNoOpeningCreditWhenAmountIsZero() {
+        when(smsCreditBatchRepository.findFirstTransactionTime()).thenReturn(null);
+        when(smsLogRepository.findFirstIdSentSince(any())).thenReturn(1L);
+        when(smsCreditBatchRepository.findLastLogIdSentBefore(eq(0L), any(), anyInt())).thenReturn(0L);
+
+        wallet.load();
+
+        verify(smsCreditBatchRepository, never()).postOpeningCredits(any(), any());
+    }
+
+    private static SMSLog sentLog(long id, String cost) {
+        SMSLog smsLog = new SMSLog();
+        smsLog.setId(id);
+        smsLog.setCost(new BigDecimal(cost));
+        return smsLog;
+    }
+}
@@ -0,0 +1,246 @@
+package com.propman.service.dispatch;
+
+import com.propman.entity.Landlord;
+import com.propman.entity.SMSLog;
+import com.propman.repository.SMSLogRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.micrometer.observation.ObservationRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class OutboundDispatcherTest {
+
+    @Mock
+    private SMSLogRepository smsLogRepository;
+
+    private SimpleMeterRegistry meterRegistry;
+
+    private OutboundDispatcher dispatcher;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        dispatcher = new OutboundDispatcher(smsLogRepository, meterRegistry, ObservationRegistry.NOOP);
+        ReflectionTestUtils.setField(dispatcher, "workerCount", 3);
+        ReflectionTestUtils.setField(dispatcher, "reservedWorkerCount", 1);
+        ReflectionTestUtils.setField(dispatcher, "transactionalCapacity", 100);
+        ReflectionTestUtils.setField(dispatcher, "maxDeferrals", 2);
+        ReflectionTestUtils.setField(dispatcher, "transactionalSloMillis", 1000L);
+        ReflectionTestUtils.setField(dispatcher, "bulkSloMillis", 60000L);
+        ReflectionTestUtils.setField(dispatcher, "planWeights", "TRIAL:1,STARTER:2,GROWTH:4,ENTERPRISE:8");
+        ReflectionTestUtils.setField(dispatcher, "planDailyQuotas", "TRIAL:5,STARTER:50,GROWTH:500,ENTERPRISE:5000");
+        dispatcher.start();
+    }
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        dispatcher.stop();
+    }
+
+    @Test
+    void testQueuedSendsRun() throws InterruptedException {
+        CountDownLatch sent = new CountDownLatch(3);
+        Landlord landlord = landlord(1L, Landlord.SubscriptionPlan.STARTER, Landlord.SubscriptionStatus.ACTIVE);
+
+        for (int i = 0; i < 3; i++) {
+            assertEquals(Admission.QUEUED, dispatcher.submit(landlord, SMSLog.SMSType.RENT_REMINDER, sending(sent::countDown)));
+        }
+
+        assertTrue(sent.await(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void testInactiveSubscriptionIsRejected() {
+        Landlord suspended = landlord(1L, Landlord.SubscriptionPlan.ENTERPRISE, Landlord.SubscriptionStatus.SUSPENDED);
+
+        assertEquals(Admission.SUBSCRIPTION_INACTIVE,
+                dispatcher.submit(suspended, SMSLog.SMSType.RENT_REMINDER, () -> fail("should not send")));
+        verifyNoInteractions(smsLogRepository);
+        assertEquals(1, meterRegistry.get("sms.dispatch.rejected").tag("reason", "subscription_inactive").counter().count());
+    }
+
+    @Test
+    void testDailyQuotaIncludesMessagesAlreadySentToday() {
+        when(smsLogRepository.countSentSMSByLandlordSince(eq(1L), any())).thenReturn(3L);
+        Landlord trial = landlord(1L, Landlord.SubscriptionPlan.TRIAL, Landlord.SubscriptionStatus.ACTIVE);
+
+        CountDownLatch release = new CountDownLatch(1);
+        assertEquals(Admission.QUEUED, dispatcher.submit(trial, SMSLog.SMSType.OVERDUE_NOTICE, sending(() -> awaitQuietly(release))));
+        assertEquals(Admission.QUEUED, dispatcher.submit(trial, SMSLog.SMSType.OVERDUE_NOTICE, sending(() -> awaitQuietly(release))));
+        assertEquals(Admission.QUOTA_EXCEEDED, dispatcher.submit(trial, SMSLog.SMSType.OVERDUE_NOTICE, () -> true));
+        release.countDown();
+
+        // Seeded once per landlord per day
+        verify(smsLogRepository, times(1)).countSentSMSByLandlordSince(eq(1L), any());
+    }
+
+    @Test
+    void testTransactionalBypassesQuotaAndStatus() throws InterruptedException {
+        CountDownLatch sent = new CountDownLatch(1);
+        Landlord suspended = landlord(1L, Landlord.SubscriptionPlan.TRIAL, Landlord.SubscriptionStatus.SUSPENDED);
+
+        assertEquals(Admission.QUEUED, dispatcher.submit(suspended, SMSLog.SMSType.PAYMENT_CONFIRMATION, sending(sent::countDown)));
+
+        assertTrue(sent.await(5, TimeUnit.SECONDS));
+        verifyNoInteractions(smsLogRepository);
+    }
+
+    @Test
+    void testReceiptIsNotStuckBehindSaturatedBulkLane() throws InterruptedException {
+        Landlord landlord = landlord(1L, Landlord.SubscriptionPlan.ENTERPRISE, Landlord.SubscriptionStatus.ACTIVE);
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch receipt = new CountDownLatch(1);
+
+        // Both bulk workers block in "provider calls" with a deep backlog behind them
+        for (int i = 0; i < 1000; i++) {
+            dispatcher.submit(landlord, SMSLog.SMSType.RENT_REMINDER, sending(() -> awaitQuietly(release)));
+        }
+        dispatcher.submit(landlord, SMSLog.SMSType.PAYMENT_CONFIRMATION, sending(receipt::countDown));
+
+        assertTrue(receipt.await(1, TimeUnit.SECONDS), "receipt waited for bulk work");
+        release.countDown();
+
+        // Latency is recorded just after the send returns
+        long deadline = System.currentTimeMillis() + 1000;
+        while (meterRegistry.get("sms.dispatch.latency").tag("lane", "transactional").timer().count() == 0
+                && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(1, meterRegistry.get("sms.dispatch.latency").tag("lane", "transactional").timer().count());
+        assertEquals(0, meterRegistry.get("sms.dispatch.slo.misses").tag("lane", "transactional").counter().count());
+    }
+
+    @Test
+    void testTransactionalIsTakenBeforeQueuedBulk() throws InterruptedException {
+        // Only bulk-capable workers, so ordering is decided by the lanes alone
+        dispatcher.stop();
+        ReflectionTestUtils.setField(dispatcher, "workerCount", 1);
+        ReflectionTestUtils.setField(dispatcher, "reservedWorkerCount", 0);
+        dispatcher.start();
+
+        Landlord landlord = landlord(1L, Landlord.SubscriptionPlan.ENTERPRISE, Landlord.SubscriptionStatus.ACTIVE);
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(4);
+        List<String> order = new CopyOnWriteArrayList<>();
+
+        dispatcher.submit(landlord, SMSLog.SMSType.RENT_REMINDER, sending(() -> awaitQuietly(release)));
+        dispatcher.submit(landlord, SMSLog.SMSType.RENT_REMINDER, sending(() -> { order.add("bulk"); done.countDown(); }));
+        dispatcher.submit(landlord, SMSLog.SMSType.RENT_REMINDER, sending(() -> { order.add("bulk"); done.countDown(); }));
+        dispatcher.submit(landlord, SMSLog.SMSType.WELCOME_MESSAGE, sending(() -> { order.add("welcome"); done.countDown(); }));
+        dispatcher.submit(landlord, SMSLog.SMSType.PAYMENT_CONFIRMATION, sending(() -> { order.add("receipt"); done.countDown(); }));
+        release.countDown();
+
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        assertEquals(List.of("welcome", "receipt", "bulk", "bulk"), order);
+    }
+
+    @Test
+    void testDeferredBulkSendIsQueuedAgain() throws InterruptedException {
+        Landlord landlord = landlord(1L, Landlord.SubscriptionPlan.ENTERPRISE, Landlord.SubscriptionStatus.ACTIVE);
+        AtomicInteger attempts = new AtomicInteger();
+        CountDownLatch done = new CountDownLatch(1);
+        List<Boolean> deferrals = new CopyOnWriteArrayList<>();
+
+        dispatcher.submit(landlord, SMSLog.SMSType.RENT_REMINDER, () -> {
+            attempts.incrementAndGet();
+            boolean deferred = DispatchContext.defer();
+            deferrals.add(deferred);
+            if (!deferred) {
+                done.countDown();
+            }
+            return !deferred;
+        });
+
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        // Deferred up to the limit, then run for the last time
+        assertEquals(List.of(true, true, false), deferrals);
+        assertEquals(3, attempts.get());
+        assertEquals(2, meterRegistry.get("sms.dispatch.deferred").counter().count());
+    }
+
+    @Test
+    void testTransactionalSendCannotDefer() throws InterruptedException {
+        Landlord landlord = landlord(1L, Landlord.SubscriptionPlan.ENTERPRISE, Landlord.SubscriptionStatus.ACTIVE);
+        CountDownLatch done = new CountDownLatch(1);
+        List<Object> seen = new CopyOnWriteArrayList<>();
+
+        dispatcher.submit(landlord, SMSLog.SMSType.PAYMENT_CONFIRMATION, () -> {
+            seen.add(DispatchContext.currentLane());
+            seen.add(DispatchContext.defer());
+            done.countDown();
+            return true;
+        });
+
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        assertEquals(List.of(Lane.TRANSACTIONAL, false), seen);
+        assertNull(DispatchContext.currentLane());
+    }
+
+    @Test
+    void testParsePlanValues() {
+        assertEquals(8, OutboundDispatcher.parsePlanValues("TRIAL:1, ENTERPRISE:8").get(Landlord.SubscriptionPlan.ENTERPRISE));
+    }
+
+    @Test
+    void testUnsentMessageGivesItsQuotaBack() throws InterruptedException {
+        Landlord trial = landlord(1L, Landlord.SubscriptionPlan.TRIAL, Landlord.SubscriptionStatus.ACTIVE);
+        CountDownLatch attempted = new CountDownLatch(5);
+
+        // Suppressed or refused downstream: nothing went out
+        for (int i = 0; i < 5; i++) {
+            assertEquals(Admission.QUEUED, dispatcher.submit(trial, SMSLog.SMSType.RENT_REMINDER, () -> {
+                attempted.countDown();
+                return false;
+            }));
+        }
+        assertTrue(attempted.await(5, TimeUnit.SECONDS));
+
+        long deadline = System.currentTimeMillis() + 1000;
+        Admission admission;
+        while ((admission = dispatcher.submit(trial, SMSLog.SMSType.RENT_REMINDER, () -> true)) != Admission.QUEUED
+                && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(Admission.QUEUED, admission);
+    }
+
+    private static BooleanSupplier sending(Runnable action) {
+        return () -> {
+            action.run();
+            return true;
+        };
+    }
+
+    private static void awaitQuietly(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private Landlord landlord(Long id, Landlord.SubscriptionPlan plan, Landlord.SubscriptionStatus status) {
+        Landlord landlord = new Landlord();
+        landlord.setId(id);
+        landlord.setSubscriptionPlan(plan);
+        landlord.setSubscriptionStatus(status);
+        return landlord;
+    }
+}
@@ -0,0 +1,64 @@
+package com.propman.service.dispatch;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class WeightedFairQueueTest {
+
+    @Test
+    void testSharesFollowWeights() {
+        WeightedFairQueue<String, String> queue = new WeightedFairQueue<>();
+        for (int i = 0; i < 1000; i++) {
+            queue.offer("enterprise", 8, "enterprise");
+            queue.offer("starter", 2, "starter");
+            queue.offer("trial", 1, "trial");
+        }
+
+        // Ten full rounds
+        Map<String, Integer> served = new HashMap<>();
+        for (int i = 0; i < 110; i++) {
+            served.merge(queue.poll(), 1, Integer::sum);
+        }
+
+        assertEquals(80, served.get("enterprise"));
+        assertEquals(20, served.get("starter"));
+        assertEquals(10, served.get("trial"));
+        assertEquals(2890, queue.size());
+    }
+
+    @Test
+    void testSmallFlowIsNotStuckBehindLargeBacklog() {
+        WeightedFairQueue<String, String> queue = new WeightedFairQueue<>();
+        for (int i = 0; i < 300_000; i++) {
+            queue.offer("campaign", 8, "campaign");
+        }
+        queue.offer("reminders", 1, "reminder");
+
+        int polls = 0;
+        while (!"reminder".equals(queue.poll())) {
+            polls++;
+        }
+
+        assertTrue(polls <= 8, "waited " + polls + " polls");
+        assertEquals(0, queue.size("reminders"));
+        assertEquals(300_000 - polls, queue.size());
+    }
+
+    @Test
+    void testFifoWithinFlowAndEmptyAfterDrain() {
+        WeightedFairQueue<Long, Integer> queue = new WeightedFairQueue<>();
+        for (int i = 0; i < 5; i++) {
+            queue.offer(1L, 3, i);
+        }
+
+        for (int i = 0; i < 5; i++) {
+            assertEquals(i, queue.poll());
+        }
+        assertNull(queue.poll());
+        assertTrue(queue.isEmpty());
+    }
+}
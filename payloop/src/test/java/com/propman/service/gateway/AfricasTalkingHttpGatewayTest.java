@@ -0,0 +1,234 @@
+package com.propman.service.gateway;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.net.HttpURLConnection;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.URLDecoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpTimeoutException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Runs the gateway against a local stub of the messaging endpoint
+ */
+class AfricasTalkingHttpGatewayTest {
+
+    private static final String SUCCESS_BODY = "{\"SMSMessageData\":{\"Message\":\"Sent to 1/1 Total Cost: KES 0.8000\"," +
+            "\"Recipients\":[{\"statusCode\":101,\"number\":\"+254722123456\",\"status\":\"Success\"," +
+            "\"cost\":\"KES 0.8000\",\"messageId\":\"ATXid_1\"}]}}";
+
+    private HttpServer server;
+    private volatile int status = 201;
+    private volatile String body = SUCCESS_BODY;
+    private volatile long delayMillis;
+    private final AtomicReference<String> lastRequest = new AtomicReference<>();
+    private final AtomicReference<String> lastApiKey = new AtomicReference<>();
+
+    private AfricasTalkingHttpGateway gateway;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/version1/messaging", this::handle);
+        server.setExecutor(Executors.newCachedThreadPool());
+        server.start();
+
+        gateway = gateway("http://127.0.0.1:" + server.getAddress().getPort() + "/version1/messaging", 5000);
+    }
+
+    @AfterEach
+    void tearDown() {
+        server.stop(0);
+    }
+
+    @Test
+    void testSuccessfulSendParsesRecipient() throws Exception {
+        SmsSendResult result = gateway.send("+254722123456", "Rent due & payable", "PropMan");
+
+        assertTrue(result.isSuccess());
+        assertEquals("ATXid_1", result.getMessageId());
+        assertEquals(new BigDecimal("0.8000"), result.getCost());
+        assertEquals(AfricasTalkingGateway.NAME, result.getProvider());
+
+        Map<String, String> form = parseForm(lastRequest.get());
+        assertEquals("sandbox", form.get("username"));
+        assertEquals("+254722123456", form.get("to"));
+        assertEquals("Rent due & payable", form.get("message"));
+        // Sender IDs are only sent in production
+        assertFalse(form.containsKey("from"));
+        assertEquals("test-key", lastApiKey.get());
+    }
+
+    @Test
+    void testRecipientRejectionIsReported() throws Exception {
+        body = "{\"SMSMessageData\":{\"Recipients\":[{\"status\":\"InsufficientBalance\",\"cost\":\"0\"}]}}";
+
+        SmsSendResult result = gateway.send("+254722123456", "Hi", "PropMan");
+
+        assertFalse(result.isSuccess());
+        assertEquals("InsufficientBalance", result.getError());
+        assertTrue(result.isRetryable());
+    }
+
+    @Test
+    void testServerErrorThrows() {
+        status = 500;
+        body = "Internal error";
+
+        IOException error = assertThrows(IOException.class, () -> gateway.send("+254722123456", "Hi", "PropMan"));
+        assertTrue(error.getMessage().contains("HTTP 500"));
+    }
+
+    @Test
+    void testSlowResponseTimesOut() {
+        delayMillis = 500;
+        AfricasTalkingHttpGateway impatient = gateway(
+                "http://127.0.0.1:" + server.getAddress().getPort() + "/version1/messaging", 100);
+
+        assertThrows(HttpTimeoutException.class, () -> impatient.send("+254722123456", "Hi", "PropMan"));
+    }
+
+    @Test
+    void testConcurrentRequestsOverlap() {
+        delayMillis = 100;
+
+        long started = System.nanoTime();
+        List<CompletableFuture<SmsSendResult>> sends = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            sends.add(gateway.sendAsync("+254722123456", "Hi " + i, "PropMan"));
+        }
+        CompletableFuture.allOf(sends.toArray(new CompletableFuture[0])).join();
+        long elapsedMillis = (System.nanoTime() - started) / 1_000_000;
+
+        assertTrue(sends.stream().allMatch(send -> send.join().isSuccess()));
+        // 50 sequential calls would take at least 5 seconds
+        assertTrue(elapsedMillis < 2500, "took " + elapsedMillis + "ms");
+    }
+
+    @Test
+    void testSynchronousClientFailureReleasesItsSlot() throws Exception {
+        AfricasTalkingHttpGateway single = gateway(
+                "http://127.0.0.1:" + server.getAddress().getPort() + "/version1/messaging", 5000);
+        ReflectionTestUtils.setField(single, "inFlight", new Semaphore(1));
+        Object client = ReflectionTestUtils.getField(single, "httpClient");
+        HttpClient failing = mock(HttpClient.class);
+        when(failing.sendAsync(any(), any())).thenThrow(new IllegalArgumentException("bad request"));
+        ReflectionTestUtils.setField(single, "httpClient", failing);
+
+        for (int i = 0; i < 2; i++) {
+            CompletableFuture<SmsSendResult> send = single.sendAsync("+254722123456", "Hi", "PropMan");
+            ExecutionException e = assertThrows(ExecutionException.class, send::get);
+            assertInstanceOf(IllegalArgumentException.class, e.getCause());
+        }
+
+        // The only slot is still free for a real request
+        ReflectionTestUtils.setField(single, "httpClient", client);
+        assertTrue(single.sendAsync("+254722123456", "Hi", "PropMan").get(5, TimeUnit.SECONDS).isSuccess());
+    }
+
+    /**
+     * Compares the pooled gateway with the SDK's call pattern, one blocking
+     * request per message on its own connection. The SDK hardcodes the
+     * Africa's Talking hosts, so it cannot be pointed at the stub directly.
+     * Run with -Dbenchmark=true.
+     */
+    @Test
+    @EnabledIfSystemProperty(named = "benchmark", matches = "true")
+    void benchmarkAgainstBlockingPerCallRequests() throws Exception {
+        delayMillis = 20;
+        int messages = 500;
+        String url = "http://127.0.0.1:" + server.getAddress().getPort() + "/version1/messaging";
+
+        long started = System.nanoTime();
+        for (int i = 0; i < messages; i++) {
+            HttpURLConnection connection = (HttpURLConnection) URI.create(url).toURL().openConnection();
+            connection.setRequestMethod("POST");
+            connection.setRequestProperty("Connection", "close");
+            connection.setDoOutput(true);
+            connection.getOutputStream().write(("username=sandbox&to=%2B254722123456&message=Hi+" + i).getBytes());
+            connection.getInputStream().readAllBytes();
+            connection.disconnect();
+        }
+        long blockingMillis = (System.nanoTime() - started) / 1_000_000;
+
+        started = System.nanoTime();
+        List<CompletableFuture<SmsSendResult>> sends = new ArrayList<>();
+        for (int i = 0; i < messages; i++) {
+            sends.add(gateway.sendAsync("+254722123456", "Hi " + i, "PropMan"));
+        }
+        CompletableFuture.allOf(sends.toArray(new CompletableFuture[0])).join();
+        long pooledMillis = (System.nanoTime() - started) / 1_000_000;
+
+        System.out.printf("%d messages at %dms stub latency: blocking per call %dms (%.0f msg/s), pooled async %dms (%.0f msg/s)%n",
+                messages, delayMillis, blockingMillis, messages * 1000.0 / blockingMillis,
+                pooledMillis, messages * 1000.0 / pooledMillis);
+        assertTrue(pooledMillis < blockingMillis);
+    }
+
+    private AfricasTalkingHttpGateway gateway(String url, long readTimeoutMillis) {
+        AfricasTalkingHttpGateway gateway = new AfricasTalkingHttpGateway(new ObjectMapper());
+        ReflectionTestUtils.setField(gateway, "apiKey", "test-key");
+        ReflectionTestUtils.setField(gateway, "username", "sandbox");
+        ReflectionTestUtils.setField(gateway, "environment", "sandbox");
+        ReflectionTestUtils.setField(gateway, "url", url);
+        ReflectionTestUtils.setField(gateway, "costPerMessage", new BigDecimal("0.80"));
+        ReflectionTestUtils.setField(gateway, "connectTimeoutMillis", 1000L);
+        ReflectionTestUtils.setField(gateway, "readTimeoutMillis", readTimeoutMillis);
+        ReflectionTestUtils.setField(gateway, "maxInFlight", 32);
+        gateway.init();
+        return gateway;
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        lastRequest.set(new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.UTF_8));
+        lastApiKey.set(exchange.getRequestHeaders().getFirst("apiKey"));
+        try {
+            Thread.sleep(delayMillis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        byte[] response = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(status, response.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(response);
+        }
+    }
+
+    private static Map<String, String> parseForm(String form) {
+        Map<String, String> values = new HashMap<>();
+        for (String pair : form.split("&")) {
+            String[] parts = pair.split("=", 2);
+            values.put(URLDecoder.decode(parts[0], StandardCharsets.UTF_8), URLDecoder.decode(parts[1], StandardCharsets.UTF_8));
+        }
+        return values;
+    }
+}
@@ -0,0 +1,115 @@
+package com.propman.service.gateway;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ConcurrencyLimiterTest {
+
+    private static final long MS = 1_000_000;
+
+    @Test
+    void limitGrowsWhileLatencyHoldsSteady() {
+        ConcurrencyLimiter limiter = new ConcurrencyLimiter(10, 2, 100, 1.5, 0.2, 0.9);
+
+        for (int i = 0; i < 50; i++) {
+            callsInParallel(limiter, limiter.getLimit(), 100 * MS, false);
+        }
+
+        assertTrue(limiter.getLimit() > 30, "limit " + limiter.getLimit());
+    }
+
+    @Test
+    void limitHoldsWhenMostSlotsAreIdle() {
+        ConcurrencyLimiter limiter = new ConcurrencyLimiter(10, 2, 100, 1.5, 0.2, 0.9);
+
+        for (int i = 0; i < 50; i++) {
+            callsInParallel(limiter, 2, 100 * MS, false);
+        }
+
+        assertEquals(10, limiter.getLimit());
+    }
+
+    @Test
+    void limitShrinksWhenLatencyRisesAboveTolerance() {
+        ConcurrencyLimiter limiter = new ConcurrencyLimiter(40, 2, 100, 1.5, 0.2, 0.9);
+        for (int i = 0; i < 20; i++) {
+            callsInParallel(limiter, limiter.getLimit(), 100 * MS, false);
+        }
+        int settled = limiter.getLimit();
+
+        // The provider starts queueing: RTT triples
+        for (int i = 0; i < 5; i++) {
+            callsInParallel(limiter, limiter.getLimit(), 300 * MS, false);
+        }
+
+        assertTrue(limiter.getLimit() < settled, limiter.getLimit() + " >= " + settled);
+    }
+
+    @Test
+    void overloadFailuresCutLimitMultiplicatively() {
+        ConcurrencyLimiter limiter = new ConcurrencyLimiter(20, 2, 100, 1.5, 0.2, 0.5);
+
+        assertTrue(limiter.tryAcquire(0, TimeUnit.MILLISECONDS));
+        assertEquals(ConcurrencyLimiter.Decision.DECREASE, limiter.release(100 * MS, true));
+        assertEquals(10, limiter.getLimit());
+
+        for (int i = 0; i < 10; i++) {
+            callsInParallel(limiter, 1, 5000 * MS, true);
+        }
+        assertEquals(2, limiter.getLimit());
+    }
+
+    @Test
+    void acquireWaitsForAFreeSlot() throws Exception {
+        ConcurrencyLimiter limiter = new ConcurrencyLimiter(2, 2, 2, 1.5, 0.2, 0.9);
+        assertTrue(limiter.tryAcquire(0, TimeUnit.MILLISECONDS));
+        assertTrue(limiter.tryAcquire(0, TimeUnit.MILLISECONDS));
+
+        assertFalse(limiter.tryAcquire(10, TimeUnit.MILLISECONDS));
+
+        Thread releaser = new Thread(() -> {
+            sleep(20);
+            limiter.release(100 * MS, false);
+        });
+        releaser.start();
+        assertTrue(limiter.tryAcquire(5, TimeUnit.SECONDS));
+        releaser.join();
+        assertEquals(2, limiter.getInFlight());
+    }
+
+    @Test
+    void reservedShareIsLeftForPriorityCallers() {
+        ConcurrencyLimiter limiter = new ConcurrencyLimiter(10, 2, 10, 1.5, 0.2, 0.9);
+        for (int i = 0; i < 8; i++) {
+            assertTrue(limiter.tryAcquire(0, TimeUnit.MILLISECONDS, 0.2));
+        }
+
+        assertFalse(limiter.tryAcquire(0, TimeUnit.MILLISECONDS, 0.2));
+        assertTrue(limiter.tryAcquire(0, TimeUnit.MILLISECONDS));
+        assertTrue(limiter.tryAcquire(0, TimeUnit.MILLISECONDS));
+        assertFalse(limiter.tryAcquire(0, TimeUnit.MILLISECONDS));
+    }
+
+    /**
+     * Take count slots, then complete them all with the same RTT
+     */
+    private static void callsInParallel(ConcurrencyLimiter limiter, int count, long rttNanos, boolean dropped) {
+        for (int i = 0; i < count; i++) {
+            assertTrue(limiter.tryAcquire(0, TimeUnit.MILLISECONDS));
+        }
+        for (int i = 0; i < count; i++) {
+            limiter.release(rttNanos, dropped);
+        }
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,228 @@
+package com.propman.service.gateway;
+
+import com.propman.service.dispatch.Lane;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.micrometer.observation.ObservationRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SmsGatewayRouterTest {
+
+    private StubGateway cheap;
+    private StubGateway expensive;
+    private SmsGatewayRouter router;
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @BeforeEach
+    void setUp() {
+        cheap = new StubGateway("cheap", "0.50");
+        expensive = new StubGateway("expensive", "1.00");
+
+        router = new SmsGatewayRouter(List.of(expensive, cheap), ObservationRegistry.NOOP, meterRegistry);
+        ReflectionTestUtils.setField(router, "latencyWeight", 1.0);
+        ReflectionTestUtils.setField(router, "errorWeight", 1000.0);
+        ReflectionTestUtils.setField(router, "costWeight", 100.0);
+        ReflectionTestUtils.setField(router, "smoothing", 0.5);
+        ReflectionTestUtils.setField(router, "failureThreshold", 3);
+        ReflectionTestUtils.setField(router, "cooldownMillis", 60_000L);
+        ReflectionTestUtils.setField(router, "initialLimit", 10);
+        ReflectionTestUtils.setField(router, "minLimit", 1);
+        ReflectionTestUtils.setField(router, "maxLimit", 100);
+        ReflectionTestUtils.setField(router, "rttTolerance", 1.5);
+        ReflectionTestUtils.setField(router, "limitSmoothing", 0.2);
+        ReflectionTestUtils.setField(router, "backoffRatio", 0.9);
+        ReflectionTestUtils.setField(router, "acquireTimeoutMillis", 50L);
+    }
+
+    @Test
+    void testPrefersCheaperProviderWhenHealthy() {
+        SmsSendResult result = router.send("+254722123456", "Hello", "PropMan", Lane.BULK);
+
+        assertTrue(result.isSuccess());
+        assertEquals("cheap", result.getProvider());
+        assertEquals(0, expensive.calls.get());
+    }
+
+    @Test
+    void testFailsOverOnTransportError() {
+        cheap.failWithException = true;
+
+        SmsSendResult result = router.send("+254722123456", "Hello", "PropMan", Lane.BULK);
+
+        assertTrue(result.isSuccess());
+        assertEquals("expensive", result.getProvider());
+        assertEquals(1, cheap.calls.get());
+    }
+
+    @Test
+    void testFailsOverOnRetryableRejectionOnly() {
+        cheap.rejection = SmsSendResult.rejected("cheap", "InvalidPhoneNumber", false);
+
+        SmsSendResult result = router.send("+254722123456", "Hello", "PropMan", Lane.BULK);
+
+        assertFalse(result.isSuccess());
+        assertEquals("InvalidPhoneNumber", result.getError());
+        assertEquals(0, expensive.calls.get());
+
+        cheap.rejection = SmsSendResult.rejected("cheap", "InsufficientBalance", true);
+
+        result = router.send("+254722123456", "Hello", "PropMan", Lane.BULK);
+
+        assertTrue(result.isSuccess());
+        assertEquals("expensive", result.getProvider());
+    }
+
+    @Test
+    void testRoutesAwayFromErroringProvider() {
+        cheap.failWithException = true;
+        for (int i = 0; i < 2; i++) {
+            router.send("+254722123456", "Hello", "PropMan", Lane.BULK);
+        }
+        cheap.failWithException = false;
+
+        // Error rate now outweighs the price difference
+        assertEquals("expensive", router.rankGateways().get(0).getName());
+    }
+
+    @Test
+    void testOpenCircuitSkipsProviderUntilCooldown() {
+        cheap.failWithException = true;
+        for (int i = 0; i < 3; i++) {
+            router.send("+254722123456", "Hello", "PropMan", Lane.BULK);
+        }
+        int cheapCalls = cheap.calls.get();
+
+        SmsSendResult result = router.send("+254722123456", "Hello", "PropMan", Lane.BULK);
+
+        assertEquals("expensive", result.getProvider());
+        assertEquals(cheapCalls, cheap.calls.get());
+    }
+
+    @Test
+    void testReturnsLastFailureWhenAllProvidersFail() {
+        cheap.failWithException = true;
+        expensive.failWithException = true;
+
+        SmsSendResult result = router.send("+254722123456", "Hello", "PropMan", Lane.BULK);
+
+        assertFalse(result.isSuccess());
+        assertEquals("Stub failure", result.getError());
+        assertEquals(1, cheap.calls.get());
+        assertEquals(1, expensive.calls.get());
+    }
+
+    @Test
+    void testTransportErrorsLowerProviderLimit() {
+        cheap.failWithException = true;
+
+        router.send("+254722123456", "Hello", "PropMan", Lane.BULK);
+
+        assertEquals(9, router.getConcurrencyLimit("cheap"));
+        assertEquals(9.0, meterRegistry.get("sms.provider.limit").tag("provider", "cheap").gauge().value());
+        assertEquals(1.0, meterRegistry.get("sms.provider.limit.decisions")
+                .tags("provider", "cheap", "decision", "decrease").counter().count());
+    }
+
+    @Test
+    void testFailsOverWhenProviderIsAtItsLimit() throws Exception {
+        ReflectionTestUtils.setField(router, "initialLimit", 1);
+        ReflectionTestUtils.setField(router, "maxLimit", 1);
+        cheap.block = new CountDownLatch(1);
+
+        Thread first = new Thread(() -> router.send("+254722123456", "Hello", "PropMan", Lane.BULK));
+        first.start();
+        while (cheap.calls.get() == 0) {
+            Thread.sleep(1);
+        }
+
+        SmsSendResult result = router.send("+254722123457", "Hello", "PropMan", Lane.BULK);
+        cheap.block.countDown();
+        first.join();
+
+        assertEquals("expensive", result.getProvider());
+        assertEquals(1, cheap.calls.get());
+        assertEquals(1.0, meterRegistry.get("sms.provider.limit.rejected").tag("provider", "cheap").counter().count());
+    }
+
+    @Test
+    void testBulkLeavesReservedSlotForTransactional() throws Exception {
+        router = new SmsGatewayRouter(List.of(cheap), ObservationRegistry.NOOP, meterRegistry);
+        ReflectionTestUtils.setField(router, "smoothing", 0.5);
+        ReflectionTestUtils.setField(router, "initialLimit", 2);
+        ReflectionTestUtils.setField(router, "minLimit", 2);
+        ReflectionTestUtils.setField(router, "maxLimit", 2);
+        ReflectionTestUtils.setField(router, "backoffRatio", 0.9);
+        ReflectionTestUtils.setField(router, "acquireTimeoutMillis", 50L);
+        ReflectionTestUtils.setField(router, "transactionalReserve", 0.5);
+        cheap.block = new CountDownLatch(1);
+
+        Thread bulk = new Thread(() -> router.send("+254722123456", "Hello", "PropMan", Lane.BULK));
+        bulk.start();
+        while (cheap.calls.get() == 0) {
+            Thread.sleep(1);
+        }
+
+        SmsSendResult refused = router.send("+254722123457", "Hello", "PropMan", Lane.BULK);
+        Thread receipt = new Thread(() -> router.send("+254722123458", "Paid", "PropMan", Lane.TRANSACTIONAL));
+        receipt.start();
+        while (cheap.calls.get() < 2) {
+            Thread.sleep(1);
+        }
+        cheap.block.countDown();
+        bulk.join();
+        receipt.join();
+
+        assertFalse(refused.isSuccess());
+        assertTrue(refused.isAtCapacity());
+        assertEquals(2, cheap.calls.get());
+    }
+
+    private static class StubGateway implements SmsGateway {
+
+        private final String name;
+        private final BigDecimal cost;
+        private final AtomicInteger calls = new AtomicInteger();
+        private volatile boolean failWithException;
+        private volatile SmsSendResult rejection;
+        private volatile CountDownLatch block;
+
+        StubGateway(String name, String cost) {
+            this.name = name;
+            this.cost = new BigDecimal(cost);
+        }
+
+        @Override
+        public String getName() {
+            return name;
+        }
+
+        @Override
+        public BigDecimal getCostPerMessage() {
+            return cost;
+        }
+
+        @Override
+        public SmsSendResult send(String phone, String message, String senderName) throws Exception {
+            calls.incrementAndGet();
+            if (block != null) {
+                block.await();
+            }
+            if (failWithException) {
+                throw new IOException("Stub failure");
+            }
+            if (rejection != null) {
+                return rejection;
+            }
+            return SmsSendResult.sent(name, name + "-" + calls.get(), cost);
+        }
+    }
+}
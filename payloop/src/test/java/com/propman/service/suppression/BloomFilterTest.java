@@ -0,0 +1,51 @@
+package com.propman.service.suppression;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BloomFilterTest {
+
+    @Test
+    void addedNumbersAreAlwaysFound() {
+        BloomFilter filter = new BloomFilter(10_000, 0.01);
+        for (int i = 0; i < 10_000; i++) {
+            filter.add(phone(i));
+        }
+
+        for (int i = 0; i < 10_000; i++) {
+            assertTrue(filter.mightContain(phone(i)), phone(i));
+        }
+    }
+
+    @Test
+    void falsePositiveRateStaysNearTarget() {
+        BloomFilter filter = new BloomFilter(10_000, 0.01);
+        for (int i = 0; i < 10_000; i++) {
+            filter.add(phone(i));
+        }
+
+        int falsePositives = 0;
+        for (int i = 10_000; i < 110_000; i++) {
+            if (filter.mightContain(phone(i))) {
+                falsePositives++;
+            }
+        }
+
+        // Target is 1% of 100,000 lookups
+        assertTrue(falsePositives < 2_000, "false positives: " + falsePositives);
+    }
+
+    @Test
+    void sizesFilterFromExpectedInsertions() {
+        BloomFilter filter = new BloomFilter(1_000_000, 0.01);
+
+        // About 9.6 bits and 7 hashes per number at 1%
+        assertTrue(filter.bitCount() >= 9_585_058L && filter.bitCount() < 9_585_058L + 64);
+        assertEquals(7, filter.hashCount());
+    }
+
+    private static String phone(int i) {
+        return String.format("2547%08d", i);
+    }
+}
@@ -0,0 +1,156 @@
+package com.propman.service.suppression;
+
+import com.propman.entity.SuppressedNumber;
+import com.propman.repository.SuppressedNumberRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.Pageable;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class SuppressionServiceTest {
+
+    @Mock
+    private SuppressedNumberRepository suppressedNumberRepository;
+
+    private SuppressionService suppressionService;
+
+    @BeforeEach
+    void setUp() {
+        suppressionService = new SuppressionService(suppressedNumberRepository);
+        ReflectionTestUtils.setField(suppressionService, "expectedNumbers", 1000L);
+        ReflectionTestUtils.setField(suppressionService, "falsePositiveRate", 0.01);
+        ReflectionTestUtils.setField(suppressionService, "pageSize", 2);
+        ReflectionTestUtils.setField(suppressionService, "overlapSeconds", 10L);
+        ReflectionTestUtils.setField(suppressionService, "stopKeywords", Set.of("STOP", "UNSUBSCRIBE"));
+        ReflectionTestUtils.setField(suppressionService, "bounceStatuses", Set.of("InvalidPhoneNumber"));
+    }
+
+    @Test
+    void filterMissDoesNotQueryDatabase() {
+        when(suppressedNumberRepository.findKeysAfterId(eq(0L), any(Pageable.class)))
+                .thenReturn(List.of(key(1L, "254711111111"), key(2L, "254722222222")));
+        when(suppressedNumberRepository.findKeysAfterId(eq(2L), any(Pageable.class))).thenReturn(List.of());
+        suppressionService.rebuild();
+
+        assertFalse(suppressionService.isSuppressed("+254733333333"));
+        verify(suppressedNumberRepository, never()).existsByPhone(anyString());
+    }
+
+    @Test
+    void filterHitIsConfirmedAgainstDatabase() {
+        when(suppressedNumberRepository.findKeysAfterId(eq(0L), any(Pageable.class)))
+                .thenReturn(List.of(key(1L, "254711111111")));
+        when(suppressedNumberRepository.existsByPhone("254711111111")).thenReturn(true);
+        suppressionService.rebuild();
+
+        assertTrue(suppressionService.isSuppressed("0711 111 111"));
+
+        // Removed numbers stay in the filter until the next rebuild, but the database decides
+        when(suppressedNumberRepository.existsByPhone("254711111111")).thenReturn(false);
+        assertFalse(suppressionService.isSuppressed("+254711111111"));
+    }
+
+    @Test
+    void checksDatabaseBeforeFilterIsLoaded() {
+        when(suppressedNumberRepository.existsByPhone("254711111111")).thenReturn(true);
+
+        assertTrue(suppressionService.isSuppressed("+254711111111"));
+    }
+
+    @Test
+    void onlyAdminsCanRemoveOptOutsAndBounces() {
+        when(suppressedNumberRepository.deleteByPhoneAndReason("254711111111", SuppressedNumber.SuppressionReason.MANUAL))
+                .thenReturn(0);
+        when(suppressedNumberRepository.existsByPhone("254711111111")).thenReturn(true);
+        when(suppressedNumberRepository.deleteByPhone("254711111111")).thenReturn(1);
+
+        assertEquals(SuppressionService.Removal.REFUSED, suppressionService.unsuppress("0711111111", false));
+        verify(suppressedNumberRepository, never()).deleteByPhone(anyString());
+        assertEquals(SuppressionService.Removal.REMOVED, suppressionService.unsuppress("0711111111", true));
+    }
+
+    @Test
+    void landlordsCanRemoveManualBlocks() {
+        when(suppressedNumberRepository.deleteByPhoneAndReason("254722222222", SuppressedNumber.SuppressionReason.MANUAL))
+                .thenReturn(1);
+
+        assertEquals(SuppressionService.Removal.REMOVED, suppressionService.unsuppress("+254722222222", false));
+        assertEquals(SuppressionService.Removal.NOT_SUPPRESSED, suppressionService.unsuppress("", false));
+    }
+
+    @Test
+    void refreshPicksUpNumbersSuppressedOnOtherNodes() {
+        when(suppressedNumberRepository.findKeysAfterId(eq(0L), any(Pageable.class))).thenReturn(List.of());
+        suppressionService.rebuild();
+        assertFalse(suppressionService.isSuppressed("+254744444444"));
+
+        when(suppressedNumberRepository.findKeysCreatedSince(any(LocalDateTime.class), eq(0L), any(Pageable.class)))
+                .thenReturn(List.of(key(7L, "254744444444")));
+        when(suppressedNumberRepository.existsByPhone("254744444444")).thenReturn(true);
+        suppressionService.refresh();
+
+        assertTrue(suppressionService.isSuppressed("+254744444444"));
+    }
+
+    @Test
+    void stopKeywordOptsNumberOut() {
+        when(suppressedNumberRepository.findKeysAfterId(eq(0L), any(Pageable.class))).thenReturn(List.of());
+        suppressionService.rebuild();
+
+        assertFalse(suppressionService.optOutIfStopKeyword("+254755555555", "Paid"));
+        assertTrue(suppressionService.optOutIfStopKeyword("+254755555555", " stop "));
+
+        ArgumentCaptor<SuppressedNumber> captor = ArgumentCaptor.forClass(SuppressedNumber.class);
+        verify(suppressedNumberRepository).save(captor.capture());
+        assertEquals("254755555555", captor.getValue().getPhone());
+        assertEquals(SuppressedNumber.SuppressionReason.OPT_OUT, captor.getValue().getReason());
+
+        // Added locally without waiting for a refresh
+        when(suppressedNumberRepository.existsByPhone("254755555555")).thenReturn(true);
+        assertTrue(suppressionService.isSuppressed("+254755555555"));
+    }
+
+    @Test
+    void onlyPermanentRejectionsAreSuppressed() {
+        suppressionService.recordRejection("+254766666666", "InsufficientBalance");
+        verify(suppressedNumberRepository, never()).save(any());
+
+        suppressionService.recordRejection("+254766666666", "InvalidPhoneNumber");
+        ArgumentCaptor<SuppressedNumber> captor = ArgumentCaptor.forClass(SuppressedNumber.class);
+        verify(suppressedNumberRepository).save(captor.capture());
+        assertEquals(SuppressedNumber.SuppressionReason.HARD_BOUNCE, captor.getValue().getReason());
+        assertEquals("InvalidPhoneNumber", captor.getValue().getNote());
+    }
+
+    private static SuppressedNumberRepository.SuppressedKey key(Long id, String phone) {
+        return new SuppressedNumberRepository.SuppressedKey() {
+            @Override
+            public Long getId() {
+                return id;
+            }
+
+            @Override
+            public String getPhone() {
+                return phone;
+            }
+
+            @Override
+            public LocalDateTime getCreatedAt() {
+                return LocalDateTime.of(2026, 10, 1, 12, 0);
+            }
+        };
+    }
+}
@@ -0,0 +1,140 @@
+package com.propman.service.throttle;
+
+import com.propman.entity.SMSLog;
+import com.propman.repository.SMSLogRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class RecipientThrottleTest {
+
+    @Mock
+    private SMSLogRepository smsLogRepository;
+
+    private SimpleMeterRegistry meterRegistry;
+    private RecipientThrottle throttle;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        throttle = new RecipientThrottle(smsLogRepository, meterRegistry);
+        ReflectionTestUtils.setField(throttle, "hourlyLimits", "RENT_REMINDER:1,CUSTOM:3");
+        ReflectionTestUtils.setField(throttle, "dailyLimits", "RENT_REMINDER:2");
+        ReflectionTestUtils.setField(throttle, "bucketCount", 12);
+        ReflectionTestUtils.setField(throttle, "stripeCount", 4);
+        ReflectionTestUtils.setField(throttle, "pageSize", 2);
+        throttle.init();
+    }
+
+    @Test
+    void limitsPerNumberAndType() {
+        long now = System.currentTimeMillis();
+
+        assertTrue(throttle.tryAcquire("0722123456", SMSLog.SMSType.RENT_REMINDER, now));
+        // Same number in another format
+        assertFalse(throttle.tryAcquire("+254722123456", SMSLog.SMSType.RENT_REMINDER, now));
+        assertTrue(throttle.tryAcquire("0722123456", SMSLog.SMSType.CUSTOM, now));
+        assertTrue(throttle.tryAcquire("0733123456", SMSLog.SMSType.RENT_REMINDER, now));
+        // No limits configured for this type
+        for (int i = 0; i < 10; i++) {
+            assertTrue(throttle.tryAcquire("0722123456", SMSLog.SMSType.PAYMENT_CONFIRMATION, now));
+        }
+
+        assertEquals(1.0, meterRegistry.counter("sms.throttled", "type", "RENT_REMINDER").count());
+    }
+
+    @Test
+    void releasedSendNoLongerCounts() {
+        assertTrue(throttle.tryAcquire("0722123456", SMSLog.SMSType.RENT_REMINDER));
+
+        throttle.release("+254722123456", SMSLog.SMSType.RENT_REMINDER);
+
+        assertTrue(throttle.tryAcquire("0722123456", SMSLog.SMSType.RENT_REMINDER));
+        assertFalse(throttle.tryAcquire("0722123456", SMSLog.SMSType.RENT_REMINDER));
+    }
+
+    @Test
+    void dailyLimitAppliesAcrossHours() {
+        long now = System.currentTimeMillis();
+        long hour = 60 * 60 * 1000L;
+
+        assertTrue(throttle.tryAcquire("0722123456", SMSLog.SMSType.RENT_REMINDER, now));
+        assertTrue(throttle.tryAcquire("0722123456", SMSLog.SMSType.RENT_REMINDER, now + 2 * hour));
+        assertFalse(throttle.tryAcquire("0722123456", SMSLog.SMSType.RENT_REMINDER, now + 4 * hour));
+        // A send refused by the daily limit does not use up the hourly one
+        assertFalse(throttle.tryAcquire("0722123456", SMSLog.SMSType.RENT_REMINDER, now + 4 * hour));
+    }
+
+    @Test
+    void sendsLoggedByOtherNodesCount() {
+        when(smsLogRepository.findFirstIdSentSince(any())).thenReturn(1L);
+        when(smsLogRepository.findSentKeysAfterId(eq(0L), anyCollection(), any()))
+                .thenReturn(List.of(sent(1L, "254722123456", SMSLog.SMSType.CUSTOM), sent(2L, "254722123456", SMSLog.SMSType.CUSTOM)));
+        when(smsLogRepository.findSentKeysAfterId(eq(2L), anyCollection(), any()))
+                .thenReturn(List.of(sent(3L, "254722123456", SMSLog.SMSType.CUSTOM)));
+
+        throttle.load();
+
+        assertFalse(throttle.tryAcquire("0722123456", SMSLog.SMSType.CUSTOM));
+        assertEquals(3L, ReflectionTestUtils.getField(throttle, "watermark"));
+    }
+
+    @Test
+    void ownLogsAreNotCountedTwice() {
+        when(smsLogRepository.findFirstIdSentSince(any())).thenReturn(1L);
+        when(smsLogRepository.findSentKeysAfterId(eq(0L), anyCollection(), any())).thenReturn(List.of());
+        throttle.load();
+
+        assertTrue(throttle.tryAcquire("0722123456", SMSLog.SMSType.CUSTOM));
+        throttle.recordLogged(1L);
+        when(smsLogRepository.findSentKeysAfterId(eq(0L), anyCollection(), any()))
+                .thenReturn(List.of(sent(1L, "254722123456", SMSLog.SMSType.CUSTOM), sent(2L, "254722123456", SMSLog.SMSType.CUSTOM)));
+        when(smsLogRepository.findSentKeysAfterId(eq(2L), anyCollection(), any())).thenReturn(List.of());
+        throttle.reconcile();
+
+        // One send from this node, one from another
+        assertTrue(throttle.tryAcquire("0722123456", SMSLog.SMSType.CUSTOM));
+        assertFalse(throttle.tryAcquire("0722123456", SMSLog.SMSType.CUSTOM));
+    }
+
+    @Test
+    void sweepDropsIdleNumbers() {
+        long longAgo = System.currentTimeMillis() - 3 * 24 * 60 * 60 * 1000L;
+        throttle.tryAcquire("0722123456", SMSLog.SMSType.RENT_REMINDER, longAgo);
+        throttle.tryAcquire("0733123456", SMSLog.SMSType.RENT_REMINDER);
+
+        throttle.sweep();
+
+        assertEquals(1, throttle.trackedRecipients());
+    }
+
+    @Test
+    void parsesLimits() {
+        assertEquals(Map.of(SMSLog.SMSType.CUSTOM, 5, SMSLog.SMSType.WELCOME_MESSAGE, 1),
+                RecipientThrottle.parseLimits("CUSTOM:5, WELCOME_MESSAGE:1"));
+        assertTrue(RecipientThrottle.parseLimits("").isEmpty());
+    }
+
+    private static SMSLogRepository.SentKey sent(Long id, String phoneKey, SMSLog.SMSType type) {
+        LocalDateTime sentAt = LocalDateTime.now();
+        return new SMSLogRepository.SentKey() {
+            public Long getId() { return id; }
+            public String getRecipientPhoneKey() { return phoneKey; }
+            public SMSLog.SMSType getSmsType() { return type; }
+            public LocalDateTime getSentAt() { return sentAt; }
+        };
+    }
+}
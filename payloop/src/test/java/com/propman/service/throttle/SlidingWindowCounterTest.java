@@ -0,0 +1,86 @@
+package com.propman.service.throttle;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SlidingWindowCounterTest {
+
+    private static final long HOUR = TimeUnit.HOURS.toMillis(1);
+    private static final long START = 1_700_000_000_000L - 1_700_000_000_000L % HOUR;
+
+    @Test
+    void rejectsOverLimitWithinWindow() {
+        SlidingWindowCounter counter = new SlidingWindowCounter(HOUR, 12);
+
+        assertTrue(counter.tryAcquire(START, 2) >= 0);
+        assertTrue(counter.tryAcquire(START + 1000, 2) >= 0);
+        assertEquals(-1, counter.tryAcquire(START + 2000, 2));
+        assertEquals(2, counter.count(START + 2000));
+    }
+
+    @Test
+    void windowSlidesBucketByBucket() {
+        SlidingWindowCounter counter = new SlidingWindowCounter(HOUR, 12);
+        counter.tryAcquire(START, 2);
+        counter.tryAcquire(START + TimeUnit.MINUTES.toMillis(30), 2);
+
+        assertEquals(-1, counter.tryAcquire(START + TimeUnit.MINUTES.toMillis(59), 2));
+        // The first send's bucket leaves the window after an hour
+        assertTrue(counter.tryAcquire(START + HOUR, 2) >= 0);
+        assertEquals(2, counter.count(START + HOUR));
+        assertFalse(counter.isIdle(START + HOUR));
+        assertTrue(counter.isIdle(START + 3 * HOUR));
+    }
+
+    @Test
+    void releaseUndoesAcquire() {
+        SlidingWindowCounter counter = new SlidingWindowCounter(HOUR, 12);
+        long bucket = counter.tryAcquire(START, 1);
+
+        counter.release(bucket);
+
+        assertEquals(0, counter.count(START));
+        assertTrue(counter.tryAcquire(START, 1) >= 0);
+    }
+
+    @Test
+    void recordedSendsCountUntilTheyLeaveTheWindow() {
+        SlidingWindowCounter counter = new SlidingWindowCounter(HOUR, 12);
+        counter.record(START + 500, START + 1000);
+        counter.record(START - 2 * HOUR, START + 1000);
+
+        assertEquals(1, counter.count(START + 1000));
+        assertEquals(-1, counter.tryAcquire(START + 1000, 1));
+    }
+
+    @Test
+    void concurrentAcquiresNeverExceedLimit() throws Exception {
+        SlidingWindowCounter counter = new SlidingWindowCounter(HOUR, 12);
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicInteger acquired = new AtomicInteger();
+
+        for (int i = 0; i < 1000; i++) {
+            executor.submit(() -> {
+                start.await();
+                if (counter.tryAcquire(START, 50) >= 0) {
+                    acquired.incrementAndGet();
+                }
+                return null;
+            });
+        }
+        start.countDown();
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+
+        assertTrue(acquired.get() <= 50);
+        assertEquals(acquired.get(), counter.count(START));
+    }
+}
@@ -0,0 +1,129 @@
+package com.propman.service.tracing;
+
+import com.propman.config.ObservationTaskDecorator;
+import io.micrometer.observation.Observation;
+import io.micrometer.observation.ObservationRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class SpanRecorderTest {
+
+    @Mock
+    private SpanFileExporter exporter;
+
+    private SpanRecorder recorder;
+    private ObservationRegistry registry;
+
+    @BeforeEach
+    void setUp() {
+        recorder = new SpanRecorder(exporter);
+        ReflectionTestUtils.setField(recorder, "enabled", true);
+        ReflectionTestUtils.setField(recorder, "samplingProbability", 1.0);
+        ReflectionTestUtils.setField(recorder, "tailSlowMillis", 0L);
+        ReflectionTestUtils.setField(recorder, "tailMaxSpans", 10);
+
+        registry = ObservationRegistry.create();
+        registry.observationConfig().observationHandler(recorder);
+    }
+
+    @Test
+    void nestedObservationsShareTraceAndLinkToParent() {
+        Observation.createNotStarted("sms.send", registry)
+                .lowCardinalityKeyValue("sms.type", "CUSTOM")
+                .observe(() -> Observation.createNotStarted("sms.provider.send", registry).observe(() -> { }));
+
+        List<Map<String, Object>> spans = exported(2);
+        Map<String, Object> child = spans.get(0);
+        Map<String, Object> root = spans.get(1);
+
+        assertEquals("sms.provider.send", child.get("name"));
+        assertEquals(root.get("traceId"), child.get("traceId"));
+        assertEquals(root.get("spanId"), child.get("parentSpanId"));
+        assertFalse(root.containsKey("parentSpanId"));
+        assertEquals(32, ((String) root.get("traceId")).length());
+        assertEquals("CUSTOM", ((Map<?, ?>) root.get("attributes")).get("sms.type"));
+    }
+
+    @Test
+    void taskDecoratorCarriesTraceToAnotherThread() throws InterruptedException {
+        ObservationTaskDecorator decorator = new ObservationTaskDecorator(registry);
+        Observation parent = Observation.createNotStarted("campaign.start", registry).start();
+        Runnable task;
+        try (Observation.Scope scope = parent.openScope()) {
+            task = decorator.decorate(() -> Observation.createNotStarted("sms.send", registry).observe(() -> { }));
+        }
+        Thread thread = new Thread(task);
+        thread.start();
+        thread.join();
+        parent.stop();
+
+        List<Map<String, Object>> spans = exported(2);
+        assertEquals(spans.get(1).get("spanId"), spans.get(0).get("parentSpanId"));
+    }
+
+    @Test
+    void unsampledTracesAreDropped() {
+        ReflectionTestUtils.setField(recorder, "samplingProbability", 0.0);
+
+        Observation.createNotStarted("sms.send", registry)
+                .observe(() -> Observation.createNotStarted("sms.provider.send", registry).observe(() -> { }));
+
+        verifyNoInteractions(exporter);
+    }
+
+    @Test
+    void tailSamplingKeepsFailedTraces() {
+        ReflectionTestUtils.setField(recorder, "samplingProbability", 0.0);
+        ReflectionTestUtils.setField(recorder, "tailSlowMillis", 60_000L);
+
+        Observation.createNotStarted("fast", registry).observe(() -> { });
+        verifyNoInteractions(exporter);
+
+        assertThrows(IllegalStateException.class, () -> Observation.createNotStarted("sms.send", registry)
+                .observe(() -> Observation.createNotStarted("sms.provider.send", registry).observe(() -> {
+                    throw new IllegalStateException("provider down");
+                })));
+
+        List<Map<String, Object>> spans = exported(2);
+        assertEquals("sms.provider.send", spans.get(0).get("name"));
+        assertEquals("ERROR", spans.get(0).get("status"));
+        assertEquals("sms.send", spans.get(1).get("name"));
+    }
+
+    @Test
+    void tailSamplingKeepsSlowTraces() {
+        ReflectionTestUtils.setField(recorder, "samplingProbability", 0.0);
+        ReflectionTestUtils.setField(recorder, "tailSlowMillis", 5L);
+
+        Observation.createNotStarted("slow", registry).observe(() -> {
+            Observation.createNotStarted("child", registry).observe(() -> { });
+            try {
+                Thread.sleep(20);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+
+        assertEquals(2, exported(2).size());
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<Map<String, Object>> exported(int count) {
+        ArgumentCaptor<Map<String, Object>> captor = ArgumentCaptor.forClass(Map.class);
+        verify(exporter, times(count)).export(captor.capture());
+        return captor.getAllValues();
+    }
+}
@@ -0,0 +1,31 @@
+package com.propman.util;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PhoneNumbersTest {
+
+    @Test
+    void normalizesKenyanNumbers() {
+        assertEquals("254712345678", PhoneNumbers.key("+254 712 345 678"));
+        assertEquals("254712345678", PhoneNumbers.key("0712345678"));
+        assertEquals("254712345678", PhoneNumbers.key("712345678"));
+        assertEquals("254112345678", PhoneNumbers.key("0112-345-678"));
+    }
+
+    @Test
+    void otherNumbersKeepUpToFifteenDigits() {
+        assertEquals("447700900123", PhoneNumbers.key("+44 7700 900123"));
+        assertEquals("123456789012345", PhoneNumbers.key("12345678901234567890"));
+        assertNull(PhoneNumbers.key("n/a"));
+        assertNull(PhoneNumbers.key(null));
+    }
+
+    @Test
+    void kenyanKeyRejectsOtherNumbers() {
+        assertEquals("254712345678", PhoneNumbers.kenyanKey("0712 345 678"));
+        assertNull(PhoneNumbers.kenyanKey("+44 7700 900123"));
+        assertNull(PhoneNumbers.kenyanKey("2547XXXXX678"));
+    }
+}